@@ -1,6 +1,9 @@
 package run.app.cache;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
@@ -50,6 +53,17 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
 
     @Override
     public Optional<V> get(K key) {
+        return getUnexpired(key).map(CacheWrapper::getData);
+    }
+
+    /**
+     * Gets cache wrapper by key, deleting it if it has been expired.
+     *
+     * @param key key must not be null
+     * @return an optional cache wrapper which has not been expired
+     */
+    @NonNull
+    Optional<CacheWrapper<V>> getUnexpired(@NonNull K key) {
         Assert.notNull(key, "Cache key must not be blank");
 
         return getInternal(key).map(cacheWrapper -> {
@@ -66,7 +80,7 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
                 return null;
             }
 
-            return cacheWrapper.getData();
+            return cacheWrapper;
         });
     }
 
@@ -85,6 +99,30 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
         return putInternalIfAbsent(key, buildCacheWrapper(value, timeout, timeUnit));
     }
 
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        Map<K, V> result = new LinkedHashMap<>(keys.size());
+        keys.forEach(key -> get(key).ifPresent(value -> result.put(key, value)));
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<K, V> values, long timeout, TimeUnit timeUnit) {
+        Assert.notNull(values, "Cache values must not be null");
+
+        values.forEach((key, value) -> putInternal(key, buildCacheWrapper(value, timeout,
+            timeUnit)));
+    }
+
+    @Override
+    public void deleteAll(Collection<K> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        keys.forEach(this::delete);
+    }
+
     /**
      * Builds cache wrapper.
      *
@@ -3,7 +3,15 @@ package run.app.cache;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
@@ -50,16 +58,123 @@ public abstract class AbstractStringCacheStore extends AbstractCacheStore<String
         }
     }
 
+    /**
+     * Puts values which will be expired, converting them to json.
+     *
+     * @param values cache keys and values must not be null
+     * @param timeout the key expiration, if less than 1 the caches won't be expired
+     * @param timeUnit timeout unit must not be null
+     */
+    public void putAllAny(@NonNull Map<String, ?> values, long timeout,
+        @NonNull TimeUnit timeUnit) {
+        Assert.notNull(values, "Cache values must not be null");
+
+        Map<String, String> jsonValues = new LinkedHashMap<>(values.size());
+        values.forEach((key, value) -> {
+            try {
+                jsonValues.put(key, JsonUtils.objectToJson(value));
+            } catch (JsonProcessingException e) {
+                throw new ServiceException("Failed to convert " + value + " to json", e);
+            }
+        });
+        putAll(jsonValues, timeout, timeUnit);
+    }
+
+    /**
+     * Gets all present values of the given keys as the given type.
+     *
+     * @param keys cache keys must not be null
+     * @param type value type must not be null
+     * @param <T> value type
+     * @return a map of the present keys and values
+     */
+    @NonNull
+    public <T> Map<String, T> getAllAny(@NonNull Collection<String> keys, @NonNull Class<T> type) {
+        Assert.notNull(type, "Type must not be null");
+
+        Map<String, T> result = new LinkedHashMap<>(keys.size());
+        getAll(keys).forEach((key, value) -> {
+            try {
+                result.put(key, JsonUtils.jsonToObject(value, type));
+            } catch (IOException e) {
+                log.error("Failed to convert json to type: " + type.getName(), e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the cached value as the given type. Values which can be shared by all callers are kept
+     * on the cache wrapper once deserialized, so stores holding wrappers in process only parse
+     * their json once per put. Those are immutable values, and maps, lists and sets which are
+     * returned unmodifiable all the way down. Any other type is parsed for every call, so that
+     * callers are free to change it.
+     *
+     * @param key cache key must not be null
+     * @param type value type must not be null
+     * @param <T> value type
+     * @return an optional value
+     */
     public <T> Optional<T> getAny(String key, Class<T> type) {
         Assert.notNull(type, "Type must not be null");
 
-        return get(key).map(value -> {
+        boolean shareable = isImmutable(type) || isCollection(type);
+        return getUnexpired(key).map(cacheWrapper -> {
+            Object materialized = cacheWrapper.getMaterialized();
+            if (shareable && type.isInstance(materialized)) {
+                return type.cast(materialized);
+            }
+
+            String value = cacheWrapper.getData();
+            if (value == null) {
+                return null;
+            }
             try {
-                return JsonUtils.jsonToObject(value, type);
+                T result = JsonUtils.jsonToObject(value, type);
+                if (shareable) {
+                    result = type.cast(toUnmodifiable(result));
+                    cacheWrapper.setMaterialized(result);
+                }
+                return result;
             } catch (IOException e) {
                 log.error("Failed to convert json to type: " + type.getName(), e);
                 return null;
             }
         });
     }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type == String.class
+            || type == Boolean.class
+            || type == Character.class
+            || type.isEnum()
+            || (Number.class.isAssignableFrom(type) && type.getName().startsWith("java.lang."));
+    }
+
+    /**
+     * Raw maps, lists and sets are deserialized into nothing but collections and immutable
+     * values, so they can be made unmodifiable completely.
+     */
+    private static boolean isCollection(Class<?> type) {
+        return type == Map.class || type == List.class || type == Set.class;
+    }
+
+    private static Object toUnmodifiable(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((key, item) -> map.put(key, toUnmodifiable(item)));
+            return Collections.unmodifiableMap(map);
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            ((List<?>) value).forEach(item -> list.add(toUnmodifiable(item)));
+            return Collections.unmodifiableList(list);
+        }
+        if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+            ((Set<?>) value).forEach(item -> set.add(toUnmodifiable(item)));
+            return Collections.unmodifiableSet(set);
+        }
+        return value;
+    }
 }
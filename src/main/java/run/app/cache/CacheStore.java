@@ -1,6 +1,8 @@
 package run.app.cache;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.springframework.lang.NonNull;
@@ -62,6 +64,31 @@ public interface CacheStore<K, V> {
      */
     void delete(@NonNull K key);
 
+    /**
+     * Gets all present caches of the given keys.
+     *
+     * @param keys cache keys must not be null
+     * @return a map of the present keys and values
+     */
+    @NonNull
+    Map<K, V> getAll(@NonNull Collection<K> keys);
+
+    /**
+     * Puts caches which will be expired.
+     *
+     * @param values cache keys and values must not be null
+     * @param timeout the key expiration, if less than 1 the caches won't be expired
+     * @param timeUnit timeout unit must not be null
+     */
+    void putAll(@NonNull Map<K, V> values, long timeout, @NonNull TimeUnit timeUnit);
+
+    /**
+     * Deletes keys.
+     *
+     * @param keys cache keys must not be null
+     */
+    void deleteAll(@NonNull Collection<K> keys);
+
     /**
      * Returns a view of the entries stored in this cache as a none thread-safe map.
      * Modifications made to the map do not directly affect the cache.
@@ -1,5 +1,6 @@
 package run.app.cache;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.Serializable;
 import java.util.Date;
 import lombok.AllArgsConstructor;
@@ -34,4 +35,13 @@ class CacheWrapper<V> implements Serializable {
      * Create time.
      */
     private Date createAt;
+
+    /**
+     * Value deserialized from the data which is safe to share between callers, kept only as
+     * long as this wrapper is held in process.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient volatile Object materialized;
 }
@@ -1,9 +1,11 @@
 package run.app.cache;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -23,11 +25,15 @@ import org.springframework.lang.NonNull;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import run.app.config.properties.HaloProperties;
-import run.app.utils.JsonUtils;
 
 /**
  * level-db cache store
- * Create by Pencilso on 2020/1/9 7:20 下午
+ *
+ * <p>Records are stored as a fixed-width header (format version, expire time and create time)
+ * followed by the UTF-8 data. Every record which will expire also has an entry in an expiry
+ * index ordered by expire time, so the cleaner only visits due keys.
+ *
+ * <p>Create by Pencilso on 2020/1/9 7:20 下午
  */
 @Slf4j
 public class LevelCacheStore extends AbstractStringCacheStore {
@@ -36,6 +42,27 @@ public class LevelCacheStore extends AbstractStringCacheStore {
      */
     private static final long PERIOD = 60 * 1000;
 
+    /**
+     * Current data format version.
+     */
+    private static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Record header: version (1 byte), expire at (8 bytes), create at (8 bytes).
+     */
+    private static final int HEADER_LENGTH = 1 + Long.BYTES + Long.BYTES;
+
+    /**
+     * Reserved keys start with 0x00 and never clash with cache keys.
+     */
+    private static final byte RESERVED_PREFIX = 0;
+
+    private static final byte[] FORMAT_KEY = {RESERVED_PREFIX, 'f'};
+
+    private static final byte[] EXPIRY_INDEX_PREFIX = {RESERVED_PREFIX, 'e'};
+
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+
     private static DB LEVEL_DB;
 
     private Timer timer;
@@ -57,6 +84,7 @@ public class LevelCacheStore extends AbstractStringCacheStore {
             options.createIfMissing(true);
             //open leveldb store folder
             LEVEL_DB = factory.open(folder, options);
+            migrateIfNecessary();
             timer = new Timer();
             timer.scheduleAtFixedRate(new CacheExpiryCleaner(), 0, PERIOD);
         } catch (Exception ex) {
@@ -82,12 +110,7 @@ public class LevelCacheStore extends AbstractStringCacheStore {
     Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
         Assert.hasText(key, "Cache key must not be blank");
         byte[] bytes = LEVEL_DB.get(stringToBytes(key));
-        if (bytes != null) {
-            String valueJson = bytesToString(bytes);
-            return StringUtils.isEmpty(valueJson) ? Optional.empty() :
-                jsonToCacheWrapper(valueJson);
-        }
-        return Optional.empty();
+        return decode(bytes);
     }
 
     @Override
@@ -99,21 +122,22 @@ public class LevelCacheStore extends AbstractStringCacheStore {
     Boolean putInternalIfAbsent(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
         Assert.hasText(key, "Cache key must not be blank");
         Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
-        try {
-            LEVEL_DB.put(
-                stringToBytes(key),
-                stringToBytes(JsonUtils.objectToJson(cacheWrapper))
-            );
-            return true;
-        } catch (JsonProcessingException e) {
-            log.warn("Put cache fail json2object key: [{}] value:[{}]", key, cacheWrapper);
+
+        byte[] keyBytes = stringToBytes(key);
+        try (WriteBatch writeBatch = LEVEL_DB.createWriteBatch()) {
+            putRecord(writeBatch, keyBytes, cacheWrapper);
+            LEVEL_DB.write(writeBatch);
+        } catch (IOException e) {
+            log.warn("Put cache fail key: [{}] value:[{}]", key, cacheWrapper, e);
+            return false;
         }
         log.debug("Cache key: [{}], original cache wrapper: [{}]", key, cacheWrapper);
-        return false;
+        return true;
     }
 
     @Override
     public void delete(@NonNull String key) {
+        // The expiry index entry is dropped by the cleaner once it is due
         LEVEL_DB.delete(stringToBytes(key));
         log.debug("cache remove key: [{}]", key);
     }
@@ -122,61 +146,171 @@ public class LevelCacheStore extends AbstractStringCacheStore {
     public LinkedHashMap<String, String> toMap() {
         LinkedHashMap<String, String> map = new LinkedHashMap<>();
         LEVEL_DB.forEach(entry -> {
-            String key = bytesToString(entry.getKey());
-            String valueJson = bytesToString(entry.getValue());
-            Optional<CacheWrapper<String>> cacheWrapperOptional = jsonToCacheWrapper(valueJson);
-            if (cacheWrapperOptional.isPresent()) {
-                map.put(key, cacheWrapperOptional.get().getData());
-            } else {
-                map.put(key, null);
+            if (isReserved(entry.getKey())) {
+                return;
             }
+            String key = bytesToString(entry.getKey());
+            map.put(key, decode(entry.getValue()).map(CacheWrapper::getData).orElse(null));
         });
         return map;
     }
 
+    /**
+     * Converts records of older formats to the current format.
+     */
+    private void migrateIfNecessary() throws IOException {
+        byte[] format = LEVEL_DB.get(FORMAT_KEY);
+        if (format != null && format.length == 1 && format[0] == FORMAT_VERSION) {
+            return;
+        }
+
+        log.info("Migrating leveldb cache records to format version [{}]", FORMAT_VERSION);
+
+        long migrated = 0;
+        WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
+        int batched = 0;
+        try (DBIterator iterator = LEVEL_DB.iterator()) {
+            iterator.seekToFirst();
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                if (isReserved(entry.getKey())) {
+                    continue;
+                }
+                // Records before versioning were json encoded with the default charset
+                String valueJson = new String(entry.getValue(), Charset.defaultCharset());
+                Optional<CacheWrapper<String>> cacheWrapper =
+                    StringUtils.hasText(valueJson) ? jsonToCacheWrapper(valueJson)
+                        : Optional.empty();
+                if (cacheWrapper.isPresent() && cacheWrapper.get().getData() != null) {
+                    putRecord(writeBatch, entry.getKey(), cacheWrapper.get());
+                    migrated++;
+                } else {
+                    writeBatch.delete(entry.getKey());
+                }
+                if (++batched >= MIGRATION_BATCH_SIZE) {
+                    LEVEL_DB.write(writeBatch);
+                    writeBatch.close();
+                    writeBatch = LEVEL_DB.createWriteBatch();
+                    batched = 0;
+                }
+            }
+            writeBatch.put(FORMAT_KEY, new byte[] {FORMAT_VERSION});
+            LEVEL_DB.write(writeBatch);
+        } finally {
+            writeBatch.close();
+        }
+
+        log.info("Migrated [{}] leveldb cache records", migrated);
+    }
+
+    private void putRecord(WriteBatch writeBatch, byte[] keyBytes,
+        CacheWrapper<String> cacheWrapper) {
+        writeBatch.put(keyBytes, encode(cacheWrapper));
+        if (cacheWrapper.getExpireAt() != null) {
+            writeBatch.put(expiryIndexKey(cacheWrapper.getExpireAt().getTime(), keyBytes),
+                new byte[0]);
+        }
+    }
+
+    private byte[] encode(CacheWrapper<String> cacheWrapper) {
+        byte[] data = cacheWrapper.getData().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(HEADER_LENGTH + data.length)
+            .put(FORMAT_VERSION)
+            .putLong(toMillis(cacheWrapper.getExpireAt()))
+            .putLong(toMillis(cacheWrapper.getCreateAt()))
+            .put(data)
+            .array();
+    }
+
+    private Optional<CacheWrapper<String>> decode(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_LENGTH || bytes[0] != FORMAT_VERSION) {
+            return Optional.empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        CacheWrapper<String> cacheWrapper = new CacheWrapper<>();
+        cacheWrapper.setExpireAt(toDate(buffer.getLong()));
+        cacheWrapper.setCreateAt(toDate(buffer.getLong()));
+        cacheWrapper.setData(new String(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH,
+            StandardCharsets.UTF_8));
+        return Optional.of(cacheWrapper);
+    }
+
+    /**
+     * Reads the expire time from the record header without decoding the data.
+     */
+    private long readExpireAt(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_LENGTH) {
+            return 0;
+        }
+        return ByteBuffer.wrap(bytes, 1, Long.BYTES).getLong();
+    }
+
+    private byte[] expiryIndexKey(long expireAt, byte[] keyBytes) {
+        return ByteBuffer.allocate(EXPIRY_INDEX_PREFIX.length + Long.BYTES + keyBytes.length)
+            .put(EXPIRY_INDEX_PREFIX)
+            .putLong(expireAt)
+            .put(keyBytes)
+            .array();
+    }
+
+    private boolean isReserved(byte[] key) {
+        return key.length > 0 && key[0] == RESERVED_PREFIX;
+    }
+
+    private long toMillis(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+    private Date toDate(long millis) {
+        return millis == 0 ? null : new Date(millis);
+    }
 
     private byte[] stringToBytes(String str) {
-        return str.getBytes(Charset.defaultCharset());
+        return str.getBytes(StandardCharsets.UTF_8);
     }
 
     private String bytesToString(byte[] bytes) {
-        return new String(bytes, Charset.defaultCharset());
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     private class CacheExpiryCleaner extends TimerTask {
 
         @Override
         public void run() {
-            //batch
-            WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
-
-            DBIterator iterator = LEVEL_DB.iterator();
             long currentTimeMillis = System.currentTimeMillis();
-            while (iterator.hasNext()) {
-                Map.Entry<byte[], byte[]> next = iterator.next();
-                if (next.getKey() == null || next.getValue() == null) {
-                    continue;
-                }
+            int headerLength = EXPIRY_INDEX_PREFIX.length + Long.BYTES;
+
+            //batch
+            try (WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
+                 DBIterator iterator = LEVEL_DB.iterator()) {
+                // Index keys are ordered by expire time, stop at the first one not due yet
+                iterator.seek(EXPIRY_INDEX_PREFIX);
+                while (iterator.hasNext()) {
+                    byte[] indexKey = iterator.next().getKey();
+                    if (indexKey.length < headerLength
+                        || !Arrays.equals(indexKey, 0, EXPIRY_INDEX_PREFIX.length,
+                        EXPIRY_INDEX_PREFIX, 0, EXPIRY_INDEX_PREFIX.length)) {
+                        break;
+                    }
+                    long expireAt =
+                        ByteBuffer.wrap(indexKey, EXPIRY_INDEX_PREFIX.length, Long.BYTES).getLong();
+                    if (expireAt > currentTimeMillis) {
+                        break;
+                    }
 
-                String valueJson = bytesToString(next.getValue());
-                Optional<CacheWrapper<String>> stringCacheWrapper =
-                    StringUtils.isEmpty(valueJson) ? Optional.empty() :
-                        jsonToCacheWrapper(valueJson);
-                if (stringCacheWrapper.isPresent()) {
-                    //get expireat time
-                    long expireAtTime = stringCacheWrapper.map(CacheWrapper::getExpireAt)
-                        .map(Date::getTime)
-                        .orElse(0L);
-                    //if expire
-                    if (expireAtTime != 0 && currentTimeMillis > expireAtTime) {
-                        writeBatch.delete(next.getKey());
-                        log.debug("deleted the cache: [{}] for expiration",
-                            bytesToString(next.getKey()));
+                    writeBatch.delete(indexKey);
+                    byte[] key = Arrays.copyOfRange(indexKey, headerLength, indexKey.length);
+                    // The record may have been refreshed with another expire time
+                    if (readExpireAt(LEVEL_DB.get(key)) == expireAt) {
+                        writeBatch.delete(key);
+                        log.debug("deleted the cache: [{}] for expiration", bytesToString(key));
                     }
                 }
+                LEVEL_DB.write(writeBatch);
+            } catch (IOException e) {
+                log.error("Failed to clean expired leveldb caches", e);
             }
-            LEVEL_DB.write(writeBatch);
         }
     }
 }
-
@@ -1,12 +1,21 @@
 package run.app.cache;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.lang.NonNull;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
@@ -32,6 +41,9 @@ public class RedisCacheStore extends AbstractStringCacheStore {
     Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
         Assert.hasText(key, "Cache key must not be blank");
         String value = redisTemplate.opsForValue().get(REDIS_PREFIX + key);
+        if (value == null) {
+            return Optional.empty();
+        }
         CacheWrapper<String> cacheStore = new CacheWrapper<>();
         cacheStore.setData(value);
         return Optional.of(cacheStore);
@@ -42,9 +54,9 @@ public class RedisCacheStore extends AbstractStringCacheStore {
         Assert.hasText(key, "Cache key must not be blank");
         Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
         if (cacheWrapper.getExpireAt() != null) {
-            long expire = cacheWrapper.getExpireAt().getTime() - System.currentTimeMillis();
             redisTemplate.opsForValue().set(
-                REDIS_PREFIX + key, cacheWrapper.getData(), expire, TimeUnit.MILLISECONDS);
+                REDIS_PREFIX + key, cacheWrapper.getData(), expireMillis(cacheWrapper),
+                TimeUnit.MILLISECONDS);
         } else {
             redisTemplate.opsForValue().set(REDIS_PREFIX + key, cacheWrapper.getData());
         }
@@ -59,15 +71,23 @@ public class RedisCacheStore extends AbstractStringCacheStore {
 
         log.debug("Preparing to put key: [{}], value: [{}]", key, cacheWrapper);
 
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+        // SET NX PX
+        Boolean result;
+        if (cacheWrapper.getExpireAt() != null) {
+            result = redisTemplate.opsForValue().setIfAbsent(REDIS_PREFIX + key,
+                cacheWrapper.getData(), expireMillis(cacheWrapper), TimeUnit.MILLISECONDS);
+        } else {
+            result = redisTemplate.opsForValue().setIfAbsent(REDIS_PREFIX + key,
+                cacheWrapper.getData());
+        }
+
+        if (!Boolean.TRUE.equals(result)) {
             log.warn("Failed to put the cache, the key: [{}] has been present already", key);
             return false;
         }
 
-        putInternal(key, cacheWrapper);
         log.debug("Put successfully");
         return true;
-
     }
 
     @Override
@@ -77,14 +97,72 @@ public class RedisCacheStore extends AbstractStringCacheStore {
         return getInternal(key).map(CacheWrapper::getData);
     }
 
+    @Override
+    public Map<String, String> getAll(Collection<String> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        Map<String, String> result = new LinkedHashMap<>(keys.size());
+        if (keys.isEmpty()) {
+            return result;
+        }
+
+        // MGET
+        List<String> values = redisTemplate.opsForValue().multiGet(prefixed(keys));
+        if (values == null) {
+            return result;
+        }
+        Iterator<String> valueIterator = values.iterator();
+        for (String key : keys) {
+            String value = valueIterator.hasNext() ? valueIterator.next() : null;
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<String, String> values, long timeout, TimeUnit timeUnit) {
+        Assert.notNull(values, "Cache values must not be null");
+        Assert.isTrue(timeout >= 0, "Cache expiration timeout must not be less than 1");
+
+        if (values.isEmpty()) {
+            return;
+        }
+
+        Expiration expiration = timeout > 0 && timeUnit != null
+            ? Expiration.from(timeout, timeUnit) : Expiration.persistent();
+
+        // Pipeline all SET commands into one round trip
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            values.forEach((key, value) -> stringConnection.set(REDIS_PREFIX + key, value,
+                expiration, SetOption.upsert()));
+            return null;
+        });
+
+        log.debug("Put [{}] caches", values.size());
+    }
+
     @Override
     public void delete(@NonNull String key) {
         Assert.hasText(key, "Cache key must not be blank");
 
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(REDIS_PREFIX + key))) {
-            redisTemplate.delete(REDIS_PREFIX + key);
-            log.debug("Removed key: [{}]", key);
+        redisTemplate.delete(REDIS_PREFIX + key);
+        log.debug("Removed key: [{}]", key);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        if (keys.isEmpty()) {
+            return;
         }
+
+        // Multi-key DEL
+        redisTemplate.delete(prefixed(keys));
+        log.debug("Removed keys: [{}]", keys);
     }
 
     @Override
@@ -103,4 +181,12 @@ public class RedisCacheStore extends AbstractStringCacheStore {
         //do nothing
     }
 
+    private List<String> prefixed(Collection<String> keys) {
+        return keys.stream().map(key -> REDIS_PREFIX + key).collect(Collectors.toList());
+    }
+
+    private long expireMillis(CacheWrapper<String> cacheWrapper) {
+        // Redis rejects non-positive expirations
+        return Math.max(1, cacheWrapper.getExpireAt().getTime() - System.currentTimeMillis());
+    }
 }
@@ -0,0 +1,171 @@
+package run.app.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * Sharded, bounded in-memory cache store.
+ *
+ * <p>Entries are kept in a Guava cache split into segments, each segment evicts its least
+ * recently used entries once the store grows past its maximum size. Expired entries are
+ * reclaimed by a {@link TimingWheel} instead of periodic full scans.
+ */
+@Slf4j
+public class ShardedMemoryCacheStore extends AbstractStringCacheStore {
+
+    /**
+     * Timing wheel tick. (ms)
+     */
+    private static final long TICK = 1000;
+
+    private static final int WHEEL_SIZE = 64;
+
+    private static final int WHEEL_LEVELS = 4;
+
+    private static final int SHARD_COUNT = 16;
+
+    private final ConcurrentMap<String, CacheWrapper<String>> cacheContainer;
+
+    private final TimingWheel timingWheel;
+
+    private final ScheduledExecutorService ticker;
+
+    public ShardedMemoryCacheStore(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "Maximum size must be greater than 0");
+
+        Cache<String, CacheWrapper<String>> cache = CacheBuilder.newBuilder()
+            .concurrencyLevel(SHARD_COUNT)
+            .maximumSize(maximumSize)
+            .<String, CacheWrapper<String>>removalListener(notification -> {
+                if (notification.getCause() == RemovalCause.SIZE) {
+                    log.debug("Evicted the cache: [{}] for capacity", notification.getKey());
+                }
+            })
+            .build();
+        this.cacheContainer = cache.asMap();
+        this.timingWheel =
+            new TimingWheel(TICK, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-expiry-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        return Optional.ofNullable(cacheContainer.get(key));
+    }
+
+    @Override
+    void putInternal(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+
+        cacheContainer.put(key, cacheWrapper);
+        scheduleExpiry(key, cacheWrapper);
+        log.debug("Put [{}] cache: [{}]", key, cacheWrapper);
+    }
+
+    @Override
+    Boolean putInternalIfAbsent(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+
+        long now = System.currentTimeMillis();
+        CacheWrapper<String> current = cacheContainer.compute(key,
+            (k, previous) -> previous == null || isExpired(previous, now) ? cacheWrapper
+                : previous);
+
+        if (current != cacheWrapper) {
+            log.warn("Failed to put the cache, because the key: [{}] has been present already",
+                key);
+            return false;
+        }
+
+        scheduleExpiry(key, cacheWrapper);
+        log.debug("Put [{}] cache successfully", key);
+        return true;
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        cacheContainer.remove(key);
+        log.debug("Removed key: [{}]", key);
+    }
+
+    @Override
+    public LinkedHashMap<String, String> toMap() {
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        cacheContainer.forEach((key, cacheWrapper) -> map.put(key, cacheWrapper.getData()));
+        return map;
+    }
+
+    /**
+     * Gets the number of entries, including expired ones not reclaimed yet.
+     *
+     * @return entry count
+     */
+    public long size() {
+        return cacheContainer.size();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        log.debug("Shutting down cache expiry ticker");
+        ticker.shutdownNow();
+        clear();
+    }
+
+    public void clear() {
+        cacheContainer.clear();
+        timingWheel.clear();
+    }
+
+    private void scheduleExpiry(String key, CacheWrapper<String> cacheWrapper) {
+        Date expireAt = cacheWrapper.getExpireAt();
+        if (expireAt != null) {
+            timingWheel.schedule(key, expireAt.getTime());
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            timingWheel.advance(now, key -> {
+                // The key may have been refreshed with a later expiry since it was scheduled
+                CacheWrapper<String> cacheWrapper = cacheContainer.get(key);
+                if (cacheWrapper != null && isExpired(cacheWrapper, now)
+                    && cacheContainer.remove(key, cacheWrapper)) {
+                    log.debug("Deleted the cache: [{}] for expiration", key);
+                }
+            });
+        } catch (Throwable t) {
+            // Keep the ticker alive
+            log.error("Failed to expire caches", t);
+        }
+    }
+
+    private static boolean isExpired(CacheWrapper<String> cacheWrapper, long now) {
+        Date expireAt = cacheWrapper.getExpireAt();
+        return expireAt != null && expireAt.getTime() <= now;
+    }
+}
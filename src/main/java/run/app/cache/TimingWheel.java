@@ -0,0 +1,151 @@
+package run.app.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * Hierarchical timing wheel for key expiry.
+ *
+ * <p>Level 0 has one slot per tick, and every upper level slot spans a whole lower wheel.
+ * Keys in an upper level are cascaded down when the wheel reaches their slot, so each advance
+ * only touches keys which are (nearly) due instead of scanning all keys.
+ */
+class TimingWheel {
+
+    private final long tickMs;
+
+    private final int wheelSize;
+
+    private final int levels;
+
+    /**
+     * Slots of every level, each mapping key to its deadline.
+     */
+    private final List<List<Map<String, Long>>> wheels;
+
+    /**
+     * Schedulers share the read lock, advancing takes the write lock once per tick.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long currentTime;
+
+    TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        Assert.isTrue(tickMs > 0, "Tick must be greater than 0");
+        Assert.isTrue(wheelSize > 1, "Wheel size must be greater than 1");
+        Assert.isTrue(levels > 0, "Levels must be greater than 0");
+
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.currentTime = startMs - startMs % tickMs;
+        this.wheels = new ArrayList<>(levels);
+        for (int i = 0; i < levels; i++) {
+            List<Map<String, Long>> slots = new ArrayList<>(wheelSize);
+            for (int j = 0; j < wheelSize; j++) {
+                slots.add(new ConcurrentHashMap<>());
+            }
+            wheels.add(slots);
+        }
+    }
+
+    /**
+     * Schedules a key to be expired at the deadline.
+     *
+     * @param key key must not be blank
+     * @param deadline deadline in milliseconds
+     */
+    void schedule(@NonNull String key, long deadline) {
+        Assert.hasText(key, "Key must not be blank");
+
+        lock.readLock().lock();
+        try {
+            place(key, deadline);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and hands every due key to the consumer.
+     *
+     * @param now current time in milliseconds
+     * @param expiredConsumer due key consumer must not be null
+     */
+    void advance(long now, @NonNull Consumer<String> expiredConsumer) {
+        Assert.notNull(expiredConsumer, "Expired consumer must not be null");
+
+        List<String> dueKeys = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            while (currentTime + tickMs <= now) {
+                currentTime += tickMs;
+                // Cascade upper levels whose slot boundary has just been reached
+                for (int level = levels - 1; level > 0; level--) {
+                    long interval = interval(level);
+                    if (currentTime % interval == 0) {
+                        Map<String, Long> slot = slot(level, currentTime);
+                        Map<String, Long> cascaded = new ConcurrentHashMap<>(slot);
+                        slot.clear();
+                        cascaded.forEach((key, deadline) -> {
+                            if (deadline <= currentTime) {
+                                dueKeys.add(key);
+                            } else {
+                                place(key, deadline);
+                            }
+                        });
+                    }
+                }
+                Map<String, Long> slot = slot(0, currentTime);
+                dueKeys.addAll(slot.keySet());
+                slot.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        dueKeys.forEach(expiredConsumer);
+    }
+
+    /**
+     * Clears all scheduled keys.
+     */
+    void clear() {
+        wheels.forEach(slots -> slots.forEach(Map::clear));
+    }
+
+    private void place(String key, long deadline) {
+        long delay = Math.max(deadline - currentTime, tickMs);
+        for (int level = 0; level < levels; level++) {
+            if (delay < interval(level + 1)) {
+                slot(level, Math.max(deadline, currentTime + tickMs)).put(key, deadline);
+                return;
+            }
+        }
+        // Beyond the top wheel: park in the farthest top slot and cascade again later
+        int top = levels - 1;
+        slot(top, currentTime + interval(top) * (wheelSize - 1)).put(key, deadline);
+    }
+
+    private Map<String, Long> slot(int level, long time) {
+        return wheels.get(level).get((int) ((time / interval(level)) % wheelSize));
+    }
+
+    /**
+     * Gets the time spanned by one slot of the level.
+     */
+    private long interval(int level) {
+        long interval = tickMs;
+        for (int i = 0; i < level; i++) {
+            interval *= wheelSize;
+        }
+        return interval;
+    }
+}
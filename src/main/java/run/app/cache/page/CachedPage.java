@@ -0,0 +1,61 @@
+package run.app.cache.page;
+
+import java.util.List;
+import java.util.Set;
+import org.springframework.util.DigestUtils;
+import run.app.event.post.AbstractVisitEvent;
+
+/**
+ * Rendered page.
+ */
+public class CachedPage {
+
+    private final byte[] body;
+
+    private final String contentType;
+
+    private final String etag;
+
+    private final long expireAt;
+
+    private final Set<String> dependencies;
+
+    private final List<AbstractVisitEvent> visits;
+
+    CachedPage(byte[] body, String contentType, long expireAt, Set<String> dependencies,
+        List<AbstractVisitEvent> visits) {
+        this.body = body;
+        this.contentType = contentType;
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        this.expireAt = expireAt;
+        this.dependencies = dependencies;
+        this.visits = visits;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public boolean isExpired(long now) {
+        return expireAt <= now;
+    }
+
+    Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Visit events published while rendering, replayed on every hit.
+     */
+    List<AbstractVisitEvent> getVisits() {
+        return visits;
+    }
+}
@@ -0,0 +1,281 @@
+package run.app.cache.page;
+
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import run.app.config.properties.HaloProperties;
+import run.app.event.post.AbstractVisitEvent;
+import run.app.event.post.PostVisitEvent;
+import run.app.event.post.SheetVisitEvent;
+
+/**
+ * Rendered page cache.
+ *
+ * <p>Every page records what it depends on while it is rendered. A post or sheet page depends on
+ * its own id, which is learnt from the visit event published by the page. Any other page is a
+ * listing page, which depends on {@link #LIST_DEPENDENCY}. Invalidations bump a generation, so
+ * that a page rendered from data read before an invalidation is never stored after it. Once the
+ * cache is full, the least recently used pages are evicted.
+ */
+@Slf4j
+@Component
+public class PageCache {
+
+    /**
+     * Dependency of pages listing posts, e.g. the index, archives, category and tag pages.
+     */
+    public static final String LIST_DEPENDENCY = "list";
+
+    private static final String POST_DEPENDENCY_PREFIX = "post:";
+
+    private static final String RECORDING_ATTRIBUTE = PageCache.class.getName() + ".RECORDING";
+
+    /**
+     * Cache key -> page.
+     */
+    private final ConcurrentMap<String, CachedPage> pages;
+
+    /**
+     * Dependency -> cache keys.
+     */
+    private final Map<String, Set<String>> dependents = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final HaloProperties haloProperties;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PageCache(HaloProperties haloProperties, ApplicationEventPublisher eventPublisher) {
+        this.haloProperties = haloProperties;
+        this.eventPublisher = eventPublisher;
+        this.pages = CacheBuilder.newBuilder()
+            .maximumSize(haloProperties.getPageCacheMaximumSize())
+            .expireAfterWrite(haloProperties.getPageCacheTimeout().toMillis(),
+                TimeUnit.MILLISECONDS)
+            .<String, CachedPage>removalListener(notification -> {
+                // Explicit removals and replacements are unlinked by the caller
+                if (notification.wasEvicted()) {
+                    unlink(notification.getKey(), notification.getValue());
+                }
+            })
+            .build()
+            .asMap();
+    }
+
+    /**
+     * Builds the dependency of a post or sheet page.
+     *
+     * @param postId post or sheet id
+     * @return dependency
+     */
+    @NonNull
+    public static String postDependency(@NonNull Integer postId) {
+        return POST_DEPENDENCY_PREFIX + postId;
+    }
+
+    /**
+     * Gets an unexpired page.
+     *
+     * @param key cache key must not be blank
+     * @return an optional page
+     */
+    @NonNull
+    public Optional<CachedPage> get(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        CachedPage page = pages.get(key);
+        if (page == null) {
+            return Optional.empty();
+        }
+        if (page.isExpired(System.currentTimeMillis())) {
+            remove(key, page);
+            return Optional.empty();
+        }
+        return Optional.of(page);
+    }
+
+    /**
+     * Gets the current generation, which must be read before rendering a page to be stored.
+     *
+     * @return current generation
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Starts recording the dependencies of the page rendered by the request.
+     *
+     * @param request request must not be null
+     */
+    public void startRecording(@NonNull HttpServletRequest request) {
+        request.setAttribute(RECORDING_ATTRIBUTE, new Recording());
+    }
+
+    /**
+     * Creates a page with the dependencies recorded for the request.
+     *
+     * @param request request must not be null
+     * @param body rendered body must not be null
+     * @param contentType content type
+     * @return page
+     */
+    @NonNull
+    public CachedPage createPage(@NonNull HttpServletRequest request, @NonNull byte[] body,
+        String contentType) {
+        Object attribute = request.getAttribute(RECORDING_ATTRIBUTE);
+        Recording recording = attribute instanceof Recording ? (Recording) attribute
+            : new Recording();
+
+        Set<String> dependencies = new HashSet<>();
+        List<AbstractVisitEvent> visits = new ArrayList<>(recording.visits);
+        visits.forEach(visit -> dependencies.add(postDependency(visit.getId())));
+        if (dependencies.isEmpty()) {
+            dependencies.add(LIST_DEPENDENCY);
+        }
+
+        long expireAt =
+            System.currentTimeMillis() + haloProperties.getPageCacheTimeout().toMillis();
+        return new CachedPage(body, contentType, expireAt, dependencies, visits);
+    }
+
+    /**
+     * Stores the page unless anything has been invalidated since the given generation.
+     *
+     * @param key cache key must not be blank
+     * @param page page must not be null
+     * @param generation generation read before rendering the page
+     */
+    public void put(@NonNull String key, @NonNull CachedPage page, long generation) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(page, "Page must not be null");
+
+        if (this.generation.get() != generation) {
+            return;
+        }
+
+        CachedPage previous = pages.put(key, page);
+        if (previous != null) {
+            unlink(key, previous);
+        }
+        page.getDependencies().forEach(dependency -> dependents.compute(dependency,
+            (dep, keys) -> {
+                Set<String> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                result.add(key);
+                return result;
+            }));
+
+        // An invalidation may have missed the dependencies registered above
+        if (this.generation.get() != generation) {
+            remove(key, page);
+        }
+    }
+
+    /**
+     * Replays the visits of the page, as the hit does not render it.
+     *
+     * @param page page must not be null
+     */
+    public void replayVisits(@NonNull CachedPage page) {
+        page.getVisits().forEach(visit -> {
+            if (visit instanceof SheetVisitEvent) {
+                eventPublisher.publishEvent(new SheetVisitEvent(this, visit.getId()));
+            } else if (visit instanceof PostVisitEvent) {
+                eventPublisher.publishEvent(new PostVisitEvent(this, visit.getId()));
+            }
+        });
+    }
+
+    /**
+     * Evicts all pages depending on the dependency.
+     *
+     * @param dependency dependency must not be blank
+     */
+    public void evict(@NonNull String dependency) {
+        Assert.hasText(dependency, "Dependency must not be blank");
+
+        generation.incrementAndGet();
+
+        Set<String> keys = dependents.remove(dependency);
+        if (keys == null) {
+            return;
+        }
+        keys.forEach(key -> {
+            CachedPage page = pages.get(key);
+            if (page != null) {
+                remove(key, page);
+            }
+        });
+        log.debug("Evicted [{}] pages depending on [{}]", keys.size(), dependency);
+    }
+
+    /**
+     * Evicts the page of the post and all listing pages.
+     *
+     * @param postId post or sheet id must not be null
+     */
+    public void evictPost(@NonNull Integer postId) {
+        evict(postDependency(postId));
+        evict(LIST_DEPENDENCY);
+    }
+
+    /**
+     * Evicts all pages.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        pages.clear();
+        dependents.clear();
+        log.debug("Cleared page cache");
+    }
+
+    @EventListener
+    public void onVisit(AbstractVisitEvent event) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return;
+        }
+        Object attribute = requestAttributes.getAttribute(RECORDING_ATTRIBUTE,
+            RequestAttributes.SCOPE_REQUEST);
+        if (attribute instanceof Recording) {
+            ((Recording) attribute).visits.add(event);
+        }
+    }
+
+    private void remove(String key, CachedPage page) {
+        if (pages.remove(key, page)) {
+            unlink(key, page);
+        }
+    }
+
+    private void unlink(String key, CachedPage page) {
+        page.getDependencies().forEach(dependency -> dependents.computeIfPresent(dependency,
+            (dep, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            }));
+    }
+
+    private static class Recording {
+
+        private final List<AbstractVisitEvent> visits = new ArrayList<>(1);
+    }
+}
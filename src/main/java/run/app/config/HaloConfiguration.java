@@ -23,6 +23,7 @@ import run.app.cache.AbstractStringCacheStore;
 import run.app.cache.InMemoryCacheStore;
 import run.app.cache.LevelCacheStore;
 import run.app.cache.RedisCacheStore;
+import run.app.cache.ShardedMemoryCacheStore;
 import run.app.config.attributeconverter.AttributeConverterAutoGenerateConfiguration;
 import run.app.config.properties.HaloProperties;
 import run.app.repository.base.BaseRepositoryImpl;
@@ -78,6 +79,10 @@ public class HaloConfiguration {
             case "level":
                 stringCacheStore = new LevelCacheStore(this.haloProperties);
                 break;
+            case "sharded-memory":
+                stringCacheStore =
+                    new ShardedMemoryCacheStore(haloProperties.getCacheMaximumSize());
+                break;
             case "redis":
                 stringCacheStore = new RedisCacheStore(stringRedisTemplate);
                 break;
@@ -8,8 +8,11 @@ import static run.app.utils.HaloUtils.ensureSuffix;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import freemarker.template.TemplateModel;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import javax.servlet.MultipartConfigElement;
@@ -29,6 +32,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.jackson.JsonComponentModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.io.FileUrlResource;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
@@ -39,16 +43,23 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 import run.app.config.properties.HaloProperties;
 import run.app.core.PageJacksonSerializer;
+import run.app.core.resource.StaticFileCache;
+import run.app.core.resource.StaticFileHandler;
 import run.app.core.freemarker.inheritance.ThemeExtendsDirective;
 import run.app.factory.StringToEnumConverterFactory;
 import run.app.security.resolver.AuthenticationArgumentResolver;
@@ -127,6 +138,23 @@ public class HaloMvcConfiguration implements WebMvcConfigurer {
         return resolver;
     }
 
+    /**
+     * Resolves the locale of a request to one of the supported locales, rather than any locale
+     * a client sends.
+     *
+     * @return locale resolver
+     */
+    @Bean
+    LocaleResolver localeResolver() {
+        List<Locale> supportedLocales = haloProperties.getSupportedLocales();
+        Assert.notEmpty(supportedLocales, "Supported locales must not be empty");
+
+        AcceptHeaderLocaleResolver localeResolver = new AcceptHeaderLocaleResolver();
+        localeResolver.setSupportedLocales(supportedLocales);
+        localeResolver.setDefaultLocale(supportedLocales.get(0));
+        return localeResolver;
+    }
+
     @Bean
     WebMvcRegistrations webMvcRegistrations() {
         return new WebMvcRegistrations() {
@@ -167,6 +195,26 @@ public class HaloMvcConfiguration implements WebMvcConfigurer {
             .setViewName("redirect:" + swaggerBaseUrl + "/swagger-ui/");
     }
 
+    /**
+     * Serves theme assets and uploads from the work directory, before the resource handlers.
+     *
+     * @param staticFileCache static file cache
+     * @return handler mapping of work directory files
+     */
+    @Bean
+    SimpleUrlHandlerMapping workDirFileHandlerMapping(StaticFileCache staticFileCache) {
+        String workDir = ensureSuffix(haloProperties.getWorkDir(), FILE_SEPARATOR);
+        String uploadUrlPattern =
+            ensureBoth(haloProperties.getUploadUrlPrefix(), URL_SEPARATOR) + "**";
+
+        Map<String, Object> urlMap = new LinkedHashMap<>();
+        urlMap.put("/themes/**", new StaticFileHandler(Paths.get(workDir, "templates", "themes"),
+            staticFileCache, null, true));
+        urlMap.put(uploadUrlPattern, new StaticFileHandler(Paths.get(workDir, "upload"),
+            staticFileCache, CacheControl.maxAge(7L, TimeUnit.DAYS).getHeaderValue(), false));
+        return new SimpleUrlHandlerMapping(urlMap, Ordered.LOWEST_PRECEDENCE - 2);
+    }
+
     /**
      * Configuring static resource path
      *
@@ -179,21 +227,17 @@ public class HaloMvcConfiguration implements WebMvcConfigurer {
         // register /** resource handler.
         registry.addResourceHandler("/**")
             .addResourceLocations("classpath:/admin/")
-            .addResourceLocations(workDir + "static/");
+            .addResourceLocations(workDir + "static/")
+            .resourceChain(false)
+            .addResolver(new EncodedResourceResolver());
 
-        // register /themes/** resource handler.
-        registry.addResourceHandler("/themes/**")
-            .addResourceLocations(workDir + "templates/themes/");
-
-        String uploadUrlPattern =
-            ensureBoth(haloProperties.getUploadUrlPrefix(), URL_SEPARATOR) + "**";
+        // /themes/** and uploads are served by workDirFileHandlerMapping
         String adminPathPattern = ensureSuffix(haloProperties.getAdminPath(), URL_SEPARATOR) + "**";
 
-        registry.addResourceHandler(uploadUrlPattern)
-            .setCacheControl(CacheControl.maxAge(7L, TimeUnit.DAYS))
-            .addResourceLocations(workDir + "upload/");
         registry.addResourceHandler(adminPathPattern)
-            .addResourceLocations("classpath:/admin/");
+            .addResourceLocations("classpath:/admin/")
+            .resourceChain(false)
+            .addResolver(new EncodedResourceResolver());
 
         // If doc is enable
         registry.addResourceHandler("swagger-ui.html")
@@ -6,6 +6,8 @@ import static run.app.model.support.HaloConst.USER_HOME;
 import static run.app.utils.HaloUtils.ensureSuffix;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import run.app.model.enums.Mode;
@@ -73,7 +75,71 @@ public class HaloProperties {
     /**
      * cache store impl
      * memory
+     * sharded-memory
      * level
      */
     private String cache = "memory";
+
+    /**
+     * Maximum entries of the sharded memory cache store.
+     */
+    private int cacheMaximumSize = 10000;
+
+    /**
+     * Whether rendered theme pages are cached for anonymous visitors.
+     */
+    private boolean pageCacheEnabled = false;
+
+    /**
+     * Maximum entries of the rendered page cache.
+     */
+    private int pageCacheMaximumSize = 1000;
+
+    /**
+     * Time to live of a rendered page. It bounds the staleness of theme directives which query
+     * data without any update event, e.g. the latest posts or comments.
+     */
+    private Duration pageCacheTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Locales theme pages are rendered in. A request is rendered in the one best matching its
+     * Accept-Language header, or the first one, so that cached pages and templates only vary by
+     * these locales.
+     */
+    private List<Locale> supportedLocales = List.of(Locale.CHINESE, Locale.ENGLISH);
+
+    /**
+     * Maximum entries of the compiled template cache, the least recently used ones are evicted
+     * first.
+     */
+    private int templateCacheMaximumSize = 2000;
+
+    /**
+     * Bounding box sizes of the thumbnails generated for local images. The first one is the
+     * thumbnail of the attachment, the others are extra derivatives.
+     */
+    private List<Integer> thumbnailSizes = List.of(256);
+
+    /**
+     * Whether a webp copy of each thumbnail is generated. It requires a webp image writer
+     * plugin for ImageIO on the class path.
+     */
+    private boolean thumbnailWebpEnabled = false;
+
+    /**
+     * Maximum thumbnail tasks waiting to be generated. Images uploaded while the queue is full
+     * keep the original as thumbnail until the backfill job is run.
+     */
+    private int thumbnailQueueCapacity = 200;
+
+    /**
+     * Maximum mails waiting in the outbox. Notifications are dropped while the outbox is full.
+     */
+    private int mailOutboxCapacity = 1000;
+
+    /**
+     * Notifications to the same recipient within the window are sent as one digest, which
+     * delays the first of them by the window. Zero sends every notification on its own.
+     */
+    private Duration mailDigestWindow = Duration.ofMinutes(1);
 }
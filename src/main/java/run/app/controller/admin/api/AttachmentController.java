@@ -3,8 +3,10 @@ package run.app.controller.admin.api;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
 import io.swagger.annotations.ApiOperation;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,15 +18,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import run.app.model.dto.AttachmentDTO;
+import run.app.model.dto.ChunkedUploadDTO;
 import run.app.model.entity.Attachment;
 import run.app.model.enums.AttachmentType;
 import run.app.model.params.AttachmentParam;
 import run.app.model.params.AttachmentQuery;
+import run.app.model.params.ChunkedUploadParam;
 import run.app.service.AttachmentService;
 
 /**
@@ -99,6 +104,48 @@ public class AttachmentController {
         return result;
     }
 
+    @PostMapping("chunked_uploads")
+    @ApiOperation("Starts uploading a file in chunks")
+    public ChunkedUploadDTO initiateChunkedUpload(
+        @RequestBody @Valid ChunkedUploadParam chunkedUploadParam) {
+        return attachmentService.initiateChunkedUpload(chunkedUploadParam);
+    }
+
+    @GetMapping("chunked_uploads/{uploadId}")
+    @ApiOperation("Gets a chunked upload with the chunks uploaded")
+    public ChunkedUploadDTO getChunkedUpload(@PathVariable("uploadId") String uploadId) {
+        return attachmentService.getChunkedUpload(uploadId);
+    }
+
+    @PutMapping(value = "chunked_uploads/{uploadId}/chunks/{index:\\d+}",
+        consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @ApiOperation("Uploads a chunk, the request body is the chunk content")
+    public ChunkedUploadDTO uploadChunk(@PathVariable("uploadId") String uploadId,
+        @PathVariable("index") Integer index,
+        @RequestHeader("Content-MD5") String contentMd5,
+        HttpServletRequest request) throws IOException {
+        return attachmentService.uploadChunk(uploadId, index, request.getInputStream(),
+            request.getContentLengthLong(), contentMd5);
+    }
+
+    @PostMapping("chunked_uploads/{uploadId}/complete")
+    @ApiOperation("Completes a chunked upload")
+    public AttachmentDTO completeChunkedUpload(@PathVariable("uploadId") String uploadId) {
+        return attachmentService.convertToDto(attachmentService.completeChunkedUpload(uploadId));
+    }
+
+    @DeleteMapping("chunked_uploads/{uploadId}")
+    @ApiOperation("Aborts a chunked upload")
+    public void abortChunkedUpload(@PathVariable("uploadId") String uploadId) {
+        attachmentService.abortChunkedUpload(uploadId);
+    }
+
+    @PostMapping("thumbnails")
+    @ApiOperation("Generates missing thumbnails of local images in the background")
+    public void generateMissingThumbnails() {
+        attachmentService.generateMissingThumbnails();
+    }
+
     @GetMapping("media_types")
     @ApiOperation("Lists all of media types")
     public List<String> listMediaTypes() {
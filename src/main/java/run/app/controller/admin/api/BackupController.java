@@ -36,6 +36,8 @@ import run.app.config.properties.HaloProperties;
 import run.app.exception.BadRequestException;
 import run.app.exception.NotFoundException;
 import run.app.model.dto.BackupDTO;
+import run.app.model.dto.DataProgressDTO;
+import run.app.model.dto.WorkDirSnapshotDTO;
 import run.app.model.dto.post.BasePostDetailDTO;
 import run.app.model.params.PostMarkdownParam;
 import run.app.service.BackupService;
@@ -93,6 +95,33 @@ public class BackupController {
         return backupService.backupWorkDirectory(options);
     }
 
+    @PostMapping("work-dir/snapshots")
+    @ApiOperation("Creates an incremental work directory snapshot")
+    @DisableOnCondition
+    public WorkDirSnapshotDTO createSnapshot(@RequestBody List<String> options) {
+        return backupService.createWorkDirSnapshot(options);
+    }
+
+    @GetMapping("work-dir/snapshots")
+    @ApiOperation("Lists all work directory snapshots")
+    public List<WorkDirSnapshotDTO> listSnapshots() {
+        return backupService.listWorkDirSnapshots();
+    }
+
+    @PostMapping("work-dir/snapshots/{name}/restore")
+    @ApiOperation("Reassembles a work directory snapshot as a backup file")
+    @DisableOnCondition
+    public BackupDTO restoreSnapshot(@PathVariable("name") String name) {
+        return backupService.restoreWorkDirSnapshot(name);
+    }
+
+    @DeleteMapping("work-dir/snapshots/{name}")
+    @ApiOperation("Deletes a work directory snapshot")
+    @DisableOnCondition
+    public void deleteSnapshot(@PathVariable("name") String name) {
+        backupService.deleteWorkDirSnapshot(name);
+    }
+
     @GetMapping("work-dir/options")
     @ApiOperation("Gets items that can be backed up")
     public List<String> listBackupItems() throws IOException {
@@ -166,8 +195,15 @@ public class BackupController {
     @PostMapping("data")
     @ApiOperation("Exports all data")
     @DisableOnCondition
-    public BackupDTO exportData() {
-        return backupService.exportData();
+    public BackupDTO exportData(
+        @RequestParam(name = "gzip", required = false, defaultValue = "false") boolean gzip) {
+        return backupService.exportData(gzip);
+    }
+
+    @GetMapping("data/progress")
+    @ApiOperation("Gets progress of data export or import")
+    public DataProgressDTO getDataProgress() {
+        return backupService.getDataProgress();
     }
 
     @GetMapping("data")
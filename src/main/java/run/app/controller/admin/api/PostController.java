@@ -24,6 +24,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import run.app.cache.AbstractStringCacheStore;
+import run.app.model.dto.RenderProgressDTO;
 import run.app.model.dto.post.BasePostDetailDTO;
 import run.app.model.dto.post.BasePostMinimalDTO;
 import run.app.model.dto.post.BasePostSimpleDTO;
@@ -33,6 +34,7 @@ import run.app.model.params.PostContentParam;
 import run.app.model.params.PostParam;
 import run.app.model.params.PostQuery;
 import run.app.model.vo.PostDetailVO;
+import run.app.service.ContentRenderService;
 import run.app.service.OptionService;
 import run.app.service.PostService;
 import run.app.service.assembler.PostAssembler;
@@ -59,14 +61,18 @@ public class PostController {
 
     private final PostAssembler postAssembler;
 
+    private final ContentRenderService contentRenderService;
+
     public PostController(PostService postService,
         AbstractStringCacheStore cacheStore,
         OptionService optionService,
-        PostAssembler postAssembler) {
+        PostAssembler postAssembler,
+        ContentRenderService contentRenderService) {
         this.postService = postService;
         this.cacheStore = cacheStore;
         this.optionService = optionService;
         this.postAssembler = postAssembler;
+        this.contentRenderService = contentRenderService;
     }
 
     @GetMapping
@@ -191,6 +197,18 @@ public class PostController {
         return postService.removeByIds(ids);
     }
 
+    @PostMapping("contents/render")
+    @ApiOperation("Renders markdown contents of all posts and sheets again")
+    public RenderProgressDTO renderContents() {
+        return contentRenderService.renderAll();
+    }
+
+    @GetMapping("contents/render/progress")
+    @ApiOperation("Gets progress of rendering contents")
+    public RenderProgressDTO getRenderProgress() {
+        return contentRenderService.getRenderProgress();
+    }
+
     @GetMapping(value = {"preview/{postId:\\d+}", "{postId:\\d+}/preview"})
     @ApiOperation("Gets a post preview link")
     public String preview(@PathVariable("postId") Integer postId)
@@ -1,5 +1,6 @@
 package run.app.controller.content;
 
+import static run.app.model.support.HaloConst.CONTENT_AUTHENTICATED_SESSION_ATTRIBUTE;
 import static run.app.model.support.HaloConst.POST_PASSWORD_TEMPLATE;
 import static run.app.model.support.HaloConst.SUFFIX_FTL;
 
@@ -279,6 +280,8 @@ public class ContentContentController {
         authRequest.setPrincipal(EncryptTypeEnum.POST.getName());
         try {
             providerManager.authenticate(authRequest);
+            // Keep the session away from the page cache
+            request.getSession().setAttribute(CONTENT_AUTHENTICATED_SESSION_ATTRIBUTE, true);
             BasePostMinimalDTO basePostMinimal = postRenderAssembler.convertToMinimal(post);
             return "redirect:" + buildRedirectUrl(basePostMinimal.getFullPath());
         } catch (AuthenticationException e) {
@@ -300,6 +303,8 @@ public class ContentContentController {
         authRequest.setPrincipal(EncryptTypeEnum.CATEGORY.getName());
         try {
             providerManager.authenticate(authRequest);
+            // Keep the session away from the page cache
+            request.getSession().setAttribute(CONTENT_AUTHENTICATED_SESSION_ATTRIBUTE, true);
             CategoryDTO categoryDto = categoryService.convertTo(category);
             return "redirect:" + buildRedirectUrl(categoryDto.getFullPath());
         } catch (AuthenticationException e) {
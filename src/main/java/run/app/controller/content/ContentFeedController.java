@@ -4,20 +4,20 @@ import static org.springframework.data.domain.Sort.Direction.DESC;
 
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
+import java.io.InputStream;
 import java.util.List;
-import java.util.Locale;
-import java.util.OptionalLong;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RegExUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Controller;
@@ -27,15 +27,13 @@ import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
-import run.app.model.dto.CategoryDTO;
-import run.app.model.entity.Category;
 import run.app.model.entity.Post;
 import run.app.model.enums.PostStatus;
+import run.app.model.support.FeedDocument;
 import run.app.model.vo.PostDetailVO;
-import run.app.service.CategoryService;
-import run.app.service.OptionService;
-import run.app.service.PostCategoryService;
+import run.app.service.FeedService;
 import run.app.service.PostService;
 import run.app.service.assembler.PostRenderAssembler;
 
@@ -54,147 +52,109 @@ public class ContentFeedController {
 
     private static final String XML_MEDIA_TYPE = MediaType.APPLICATION_XML_VALUE + UTF_8_SUFFIX;
 
-    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String GZIP_ENCODING = "gzip";
 
     private final PostService postService;
 
     private final PostRenderAssembler postRenderAssembler;
 
-    private final CategoryService categoryService;
-
-    private final PostCategoryService postCategoryService;
-
-    private final OptionService optionService;
+    private final FeedService feedService;
 
     private final FreeMarkerConfigurer freeMarker;
 
     public ContentFeedController(PostService postService,
-        PostRenderAssembler postRenderAssembler, CategoryService categoryService,
-        PostCategoryService postCategoryService,
-        OptionService optionService,
+        PostRenderAssembler postRenderAssembler,
+        FeedService feedService,
         FreeMarkerConfigurer freeMarker) {
         this.postService = postService;
         this.postRenderAssembler = postRenderAssembler;
-        this.categoryService = categoryService;
-        this.postCategoryService = postCategoryService;
-        this.optionService = optionService;
+        this.feedService = feedService;
         this.freeMarker = freeMarker;
     }
 
     /**
      * Get post rss.
      *
-     * @param model model
-     * @return rss xml content
-     * @throws IOException       throw IOException
-     * @throws TemplateException throw TemplateException
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException throw IOException
      */
     @GetMapping(value = {"feed", "feed.xml", "rss", "rss.xml"}, produces = XML_MEDIA_TYPE)
-    @ResponseBody
-    public String feed(Model model, HttpServletResponse response)
-        throws IOException, TemplateException {
-        List<PostDetailVO> posts = buildPosts(buildPostPageable(optionService.getRssPageSize()));
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/rss.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public void feed(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        writeDocument(feedService.getRss(), request, response);
     }
 
     /**
      * Get category post rss.
      *
-     * @param model model
      * @param slug slug
-     * @return rss xml content
-     * @throws IOException       throw IOException
-     * @throws TemplateException throw TemplateException
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException throw IOException
      */
     @GetMapping(value = {"feed/categories/{slug}",
         "feed/categories/{slug}.xml"}, produces = XML_MEDIA_TYPE)
-    @ResponseBody
-    public String feed(Model model, @PathVariable(name = "slug") String slug,
-        HttpServletResponse response)
-        throws IOException, TemplateException {
-        Category category = categoryService.getBySlugOfNonNull(slug);
-        CategoryDTO categoryDTO = categoryService.convertTo(category);
-        List<PostDetailVO> posts =
-            buildCategoryPosts(buildPostPageable(optionService.getRssPageSize()), categoryDTO);
-        model.addAttribute("category", categoryDTO);
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/rss.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public void feed(@PathVariable(name = "slug") String slug,
+        HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        writeDocument(feedService.getRss(slug), request, response);
     }
 
     /**
      * Get atom.xml
      *
-     * @param model model
-     * @return atom xml content
-     * @throws IOException       IOException
-     * @throws TemplateException TemplateException
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException IOException
      */
     @GetMapping(value = {"atom", "atom.xml"}, produces = XML_MEDIA_TYPE)
-    @ResponseBody
-    public String atom(Model model, HttpServletResponse response)
-        throws IOException, TemplateException {
-        List<PostDetailVO> posts = buildPosts(buildPostPageable(optionService.getRssPageSize()));
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/atom.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public void atom(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        writeDocument(feedService.getAtom(), request, response);
     }
 
     /**
      * Get category posts atom.xml
      *
-     * @param model model
      * @param slug slug
-     * @return atom xml content
-     * @throws IOException       throw IOException
-     * @throws TemplateException throw TemplateException
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException throw IOException
      */
     @GetMapping(value = {"atom/categories/{slug}",
         "atom/categories/{slug}.xml"}, produces = XML_MEDIA_TYPE)
-    @ResponseBody
-    public String atom(Model model, @PathVariable(name = "slug") String slug,
-        HttpServletResponse response)
-        throws IOException, TemplateException {
-        Category category = categoryService.getBySlugOfNonNull(slug);
-        CategoryDTO categoryDTO = categoryService.convertTo(category);
-        List<PostDetailVO> posts =
-            buildCategoryPosts(buildPostPageable(optionService.getRssPageSize()), categoryDTO);
-        model.addAttribute("category", categoryDTO);
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/atom.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public void atom(@PathVariable(name = "slug") String slug,
+        HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        writeDocument(feedService.getAtom(slug), request, response);
     }
 
     /**
-     * Get sitemap.xml.
+     * Get sitemap.xml, which is a sitemap index if the blog has too many urls.
      *
-     * @param model model
-     * @return sitemap xml content.
-     * @throws IOException       IOException
-     * @throws TemplateException TemplateException
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException IOException
      */
     @GetMapping(value = {"sitemap", "sitemap.xml"}, produces = XML_MEDIA_TYPE)
-    @ResponseBody
-    public String sitemapXml(Model model,
-        @PageableDefault(size = Integer.MAX_VALUE, sort = "createTime", direction = DESC)
-            Pageable pageable) throws IOException, TemplateException {
-        model.addAttribute("posts", buildPosts(pageable));
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/sitemap_xml.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public void sitemapXml(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        writeDocument(feedService.getSitemap(), request, response);
+    }
+
+    /**
+     * Get a part of sitemap listed by the sitemap index.
+     *
+     * @param part part number
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException IOException
+     */
+    @GetMapping(value = "sitemap-{part:\\d+}.xml", produces = XML_MEDIA_TYPE)
+    public void sitemapXml(@PathVariable("part") Integer part,
+        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeDocument(feedService.getSitemapPart(part), request, response);
     }
 
     /**
@@ -226,17 +186,6 @@ public class ContentFeedController {
         return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
     }
 
-    /**
-     * Builds page info for post.
-     *
-     * @param size page size
-     * @return page info
-     */
-    @NonNull
-    private Pageable buildPostPageable(int size) {
-        return PageRequest.of(0, size, Sort.by(DESC, "createTime"));
-    }
-
     /**
      * Build posts.
      *
@@ -272,35 +221,32 @@ public class ContentFeedController {
     }
 
     /**
-     * Build category posts.
+     * Writes the document, compressed if the client accepts gzip.
      *
-     * @param pageable pageable must not be null.
-     * @param category category
-     * @return list of post detail vo.
+     * @param document feed document must not be null
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException throw IOException
      */
-    private List<PostDetailVO> buildCategoryPosts(@NonNull Pageable pageable,
-        @NonNull CategoryDTO category) {
-        Assert.notNull(pageable, "Pageable must not be null");
-        Assert.notNull(category, "Category slug must not be null");
-
-        Page<Post> postPage =
-            postCategoryService.pagePostBy(category.getId(), PostStatus.PUBLISHED, pageable);
-        Page<PostDetailVO> posts = convertToDetailPageVo(postPage);
-        return posts.getContent();
-    }
-
-    private Timestamp getLastModifiedTime(List<PostDetailVO> posts) {
-        OptionalLong lastModifiedTimestamp =
-            posts.stream().mapToLong(post -> post.getEditTime().getTime()).max();
-        if (lastModifiedTimestamp.isEmpty()) {
-            return new Timestamp(System.currentTimeMillis());
+    private void writeDocument(@NonNull FeedDocument document, HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (new ServletWebRequest(request, response)
+            .checkNotModified(document.getEtag(), document.getLastModified())) {
+            return;
         }
-        return new Timestamp(lastModifiedTimestamp.getAsLong());
-    }
 
-    private void lastModified2ResponseHeader(HttpServletResponse response, Timestamp time) {
-        SimpleDateFormat dateFormat =
-            new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
-        response.setHeader(LAST_MODIFIED_HEADER, dateFormat.format(time));
+        response.setContentType(XML_MEDIA_TYPE);
+        byte[] gzipContent = document.getGzipContent();
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (StringUtils.containsIgnoreCase(acceptEncoding, GZIP_ENCODING)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+            response.setContentLength(gzipContent.length);
+            response.getOutputStream().write(gzipContent);
+            return;
+        }
+        try (InputStream content = new GZIPInputStream(new ByteArrayInputStream(gzipContent))) {
+            content.transferTo(response.getOutputStream());
+        }
     }
 }
@@ -2,6 +2,8 @@ package run.app.controller.content;
 
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
+import java.util.Map;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,9 +19,11 @@ import org.springframework.web.util.HtmlUtils;
 import run.app.model.entity.Post;
 import run.app.model.vo.PostListVO;
 import run.app.service.OptionService;
+import run.app.service.PostSearchService;
 import run.app.service.PostService;
 import run.app.service.ThemeService;
 import run.app.service.assembler.PostRenderAssembler;
+import run.app.utils.ServiceUtils;
 
 /**
  * Search controller.
@@ -39,13 +43,16 @@ public class ContentSearchController {
 
     private final ThemeService themeService;
 
+    private final PostSearchService postSearchService;
+
     public ContentSearchController(PostService postService,
         PostRenderAssembler postRenderAssembler, OptionService optionService,
-        ThemeService themeService) {
+        ThemeService themeService, PostSearchService postSearchService) {
         this.postService = postService;
         this.postRenderAssembler = postRenderAssembler;
         this.optionService = optionService;
         this.themeService = themeService;
+        this.postSearchService = postSearchService;
     }
 
     /**
@@ -62,7 +69,7 @@ public class ContentSearchController {
     }
 
     /**
-     * Render post search page.
+     * Render post search page. Posts are ranked by relevance once the search index is ready.
      *
      * @param model model
      * @param keyword keyword
@@ -78,6 +85,12 @@ public class ContentSearchController {
 
         final Page<PostListVO> posts = postRenderAssembler.convertToListVo(postPage);
 
+        // Replace summaries with highlighted snippets
+        final Map<Integer, String> snippets = postSearchService.highlight(
+            ServiceUtils.fetchProperty(posts.getContent(), PostListVO::getId), keyword);
+        posts.forEach(post -> Optional.ofNullable(snippets.get(post.getId()))
+            .ifPresent(post::setSummary));
+
         model.addAttribute("is_search", true);
         model.addAttribute("keyword", HtmlUtils.htmlEscape(keyword));
         model.addAttribute("posts", posts);
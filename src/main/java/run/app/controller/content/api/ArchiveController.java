@@ -3,10 +3,11 @@ package run.app.controller.content.api;
 import java.util.List;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import run.app.model.vo.ArchiveMonthVO;
 import run.app.model.vo.ArchiveYearVO;
-import run.app.service.PostService;
+import run.app.service.PostArchiveService;
 
 /**
  * Content archive controller.
@@ -18,19 +19,29 @@ import run.app.service.PostService;
 @RequestMapping("/api/content/archives")
 public class ArchiveController {
 
-    private final PostService postService;
+    private final PostArchiveService postArchiveService;
 
-    public ArchiveController(PostService postService) {
-        this.postService = postService;
+    public ArchiveController(PostArchiveService postArchiveService) {
+        this.postArchiveService = postArchiveService;
     }
 
     @GetMapping("years")
-    public List<ArchiveYearVO> listYearArchives() {
-        return postService.listYearArchives();
+    public List<ArchiveYearVO> listYearArchives(
+        @RequestParam(value = "page", defaultValue = "0") Integer page,
+        @RequestParam(value = "size", required = false) Integer size) {
+        if (size == null) {
+            return postArchiveService.listYearArchives();
+        }
+        return postArchiveService.listYearArchives(page, size);
     }
 
     @GetMapping("months")
-    public List<ArchiveMonthVO> listMonthArchives() {
-        return postService.listMonthArchives();
+    public List<ArchiveMonthVO> listMonthArchives(
+        @RequestParam(value = "page", defaultValue = "0") Integer page,
+        @RequestParam(value = "size", required = false) Integer size) {
+        if (size == null) {
+            return postArchiveService.listMonthArchives();
+        }
+        return postArchiveService.listMonthArchives(page, size);
     }
 }
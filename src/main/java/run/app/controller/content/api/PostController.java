@@ -5,6 +5,8 @@ import static org.springframework.data.domain.Sort.Direction.DESC;
 import io.swagger.annotations.ApiOperation;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -40,9 +42,11 @@ import run.app.model.vo.PostDetailVO;
 import run.app.model.vo.PostListVO;
 import run.app.service.OptionService;
 import run.app.service.PostCommentService;
+import run.app.service.PostSearchService;
 import run.app.service.PostService;
 import run.app.service.assembler.PostRenderAssembler;
 import run.app.service.assembler.comment.PostCommentRenderAssembler;
+import run.app.utils.ServiceUtils;
 
 /**
  * Content post controller.
@@ -68,17 +72,21 @@ public class PostController {
 
     private final PostAuthentication postAuthentication;
 
+    private final PostSearchService postSearchService;
+
     public PostController(PostService postService,
         PostCommentRenderAssembler postCommentRenderAssembler,
         PostCommentService postCommentService,
         OptionService optionService, PostRenderAssembler postRenderAssembler,
-        PostAuthentication postAuthentication) {
+        PostAuthentication postAuthentication,
+        PostSearchService postSearchService) {
         this.postService = postService;
         this.postCommentRenderAssembler = postCommentRenderAssembler;
         this.postCommentService = postCommentService;
         this.optionService = optionService;
         this.postRenderAssembler = postRenderAssembler;
         this.postAuthentication = postAuthentication;
+        this.postSearchService = postSearchService;
     }
 
     //CS304 issue for https://github.com/halo-dev/halo/issues/1351
@@ -110,7 +118,14 @@ public class PostController {
     public Page<BasePostSimpleDTO> pageBy(@RequestParam(value = "keyword") String keyword,
         @PageableDefault(sort = "createTime", direction = DESC) Pageable pageable) {
         Page<Post> postPage = postService.pageBy(keyword, pageable);
-        return postRenderAssembler.convertToSimple(postPage);
+        Page<BasePostSimpleDTO> posts = postRenderAssembler.convertToSimple(postPage);
+
+        // Replace summaries with highlighted snippets
+        Map<Integer, String> snippets = postSearchService.highlight(
+            ServiceUtils.fetchProperty(posts.getContent(), BasePostSimpleDTO::getId), keyword);
+        posts.forEach(post -> Optional.ofNullable(snippets.get(post.getId()))
+            .ifPresent(post::setSummary));
+        return posts;
     }
 
     @GetMapping("{postId:\\d+}")
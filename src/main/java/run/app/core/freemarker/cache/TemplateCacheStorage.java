@@ -0,0 +1,273 @@
+package run.app.core.freemarker.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import freemarker.cache.CacheStorageWithGetSize;
+import freemarker.cache.ConcurrentCacheStorage;
+import freemarker.cache.TemplateLoader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Template cache storage which knows the template name of every entry.
+ *
+ * <p>Entries are bounded in number and the least recently used ones are evicted first. The
+ * templates under a path prefix can be dropped without clearing the whole cache. The cache keys
+ * of FreeMarker are opaque, the name is taken from the template loader returned by
+ * {@link #wrap(TemplateLoader)} while the template is being loaded.
+ */
+public class TemplateCacheStorage implements CacheStorageWithGetSize, ConcurrentCacheStorage {
+
+    /**
+     * Name of entries whose template could not be found.
+     */
+    private static final String UNKNOWN_NAME = "";
+
+    private final Cache<Object, Entry> entries;
+
+    /**
+     * Keys of the cached entries by template name.
+     */
+    private final Map<String, Set<Object>> keysByName = new ConcurrentHashMap<>();
+
+    private final List<Locale> supportedLocales;
+
+    private final Set<Locale> seenLocales = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final ThreadLocal<String> loadingName = new ThreadLocal<>();
+
+    private final ThreadLocal<Long> loadingStartTime = new ThreadLocal<>();
+
+    private final LongConsumer compileTimeListener;
+
+    /**
+     * Creates the storage.
+     *
+     * @param maximumSize maximum number of entries
+     * @param supportedLocales locales requests are rendered in must not be null
+     * @param compileTimeListener receives nanoseconds spent on reading and parsing a template
+     */
+    public TemplateCacheStorage(int maximumSize, @NonNull List<Locale> supportedLocales,
+        @NonNull LongConsumer compileTimeListener) {
+        Assert.isTrue(maximumSize > 0, "Maximum size must be greater than 0");
+        Assert.notNull(supportedLocales, "Supported locales must not be null");
+        Assert.notNull(compileTimeListener, "Compile time listener must not be null");
+        this.supportedLocales = List.copyOf(supportedLocales);
+        this.compileTimeListener = compileTimeListener;
+        this.entries = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .<Object, Entry>removalListener(notification -> {
+                Entry current = this.entries.getIfPresent(notification.getKey());
+                if (current == null || !current.name.equals(notification.getValue().name)) {
+                    unindex(notification.getValue().name, notification.getKey());
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Wraps the template loader, the configuration must use the returned loader together with
+     * this storage.
+     *
+     * @param templateLoader template loader
+     * @return a template loader recording the name of the template being loaded
+     */
+    @NonNull
+    public TemplateLoader wrap(@NonNull TemplateLoader templateLoader) {
+        Assert.notNull(templateLoader, "Template loader must not be null");
+        return new RecordingTemplateLoader(templateLoader);
+    }
+
+    @Override
+    public Object get(Object key) {
+        // Forget whatever an earlier lookup on this thread left behind
+        loadingName.remove();
+        loadingStartTime.remove();
+
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            misses.increment();
+            rememberLocale();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String name = loadingName.get();
+        Long startTime = loadingStartTime.get();
+        loadingName.remove();
+        loadingStartTime.remove();
+
+        String entryName = name == null ? UNKNOWN_NAME : name;
+        entries.put(key, new Entry(entryName, value));
+        keysByName.compute(entryName, (entryNameKey, keys) -> {
+            Set<Object> indexedKeys = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+            indexedKeys.add(key);
+            return indexedKeys;
+        });
+        if (startTime != null) {
+            compileTimeListener.accept(System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void remove(Object key) {
+        entries.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    @Override
+    public int getSize() {
+        return (int) entries.size();
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    /**
+     * Evicts templates whose name starts with the prefix. Cached lookups of missing templates
+     * are evicted as well, since they may exist now.
+     *
+     * @param namePrefix template name prefix
+     * @return number of evicted entries
+     */
+    public int evict(@NonNull String namePrefix) {
+        Assert.notNull(namePrefix, "Name prefix must not be null");
+        int evicted = 0;
+        for (Map.Entry<String, Set<Object>> indexEntry : keysByName.entrySet()) {
+            String name = indexEntry.getKey();
+            if (!UNKNOWN_NAME.equals(name) && !name.startsWith(namePrefix)) {
+                continue;
+            }
+            for (Object key : new ArrayList<>(indexEntry.getValue())) {
+                if (entries.asMap().remove(key) != null) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets locales of the requests which have missed the cache.
+     *
+     * @return an unmodifiable set of locales
+     */
+    @NonNull
+    public Set<Locale> getSeenLocales() {
+        return Collections.unmodifiableSet(seenLocales);
+    }
+
+    private void unindex(String name, Object key) {
+        keysByName.computeIfPresent(name, (indexedName, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private void rememberLocale() {
+        // Only requests resolve a locale context, warming up threads do not
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        if (localeContext == null || localeContext.getLocale() == null) {
+            return;
+        }
+        Locale locale = toSupportedLocale(localeContext.getLocale());
+        if (locale != null) {
+            seenLocales.add(locale);
+        }
+    }
+
+    @Nullable
+    private Locale toSupportedLocale(Locale locale) {
+        if (supportedLocales.contains(locale)) {
+            return locale;
+        }
+        return supportedLocales.stream()
+            .filter(supportedLocale -> supportedLocale.getLanguage().equals(locale.getLanguage()))
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static class Entry {
+
+        private final String name;
+
+        private final Object value;
+
+        private Entry(String name, Object value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private class RecordingTemplateLoader implements TemplateLoader {
+
+        private final TemplateLoader delegate;
+
+        private RecordingTemplateLoader(TemplateLoader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object findTemplateSource(String name) throws IOException {
+            Object templateSource = delegate.findTemplateSource(name);
+            if (templateSource != null) {
+                // Localized lookups try several names, keep the one actually found
+                loadingName.set(name);
+            }
+            return templateSource;
+        }
+
+        @Override
+        public long getLastModified(Object templateSource) {
+            return delegate.getLastModified(templateSource);
+        }
+
+        @Override
+        public Reader getReader(Object templateSource, String encoding) throws IOException {
+            // Only called when the template is going to be parsed
+            loadingStartTime.set(System.nanoTime());
+            return delegate.getReader(templateSource, encoding);
+        }
+
+        @Override
+        public void closeTemplateSource(Object templateSource) throws IOException {
+            delegate.closeTemplateSource(templateSource);
+        }
+    }
+}
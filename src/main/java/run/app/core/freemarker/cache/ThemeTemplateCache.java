@@ -0,0 +1,176 @@
+package run.app.core.freemarker.cache;
+
+import freemarker.template.Configuration;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import run.app.config.properties.HaloProperties;
+import run.app.handler.theme.config.support.ThemeProperty;
+
+/**
+ * Compiled template cache of themes.
+ *
+ * <p>In production mode templates are never checked for modification, they stay cached until
+ * the theme templates are evicted. Otherwise FreeMarker keeps checking the template files as
+ * usual.
+ */
+@Slf4j
+@Component
+public class ThemeTemplateCache {
+
+    public static final String THEME_TEMPLATE_PREFIX = "themes/";
+
+    private static final String TEMPLATE_SUFFIX = ".ftl";
+
+    private static final String GLOBAL_MACRO_TEMPLATE =
+        "common/macro/global_macro" + TEMPLATE_SUFFIX;
+
+    private final Configuration configuration;
+
+    private final TemplateCacheStorage cacheStorage;
+
+    private final ExecutorService warmUpExecutor;
+
+    /**
+     * Increased on every eviction, so that a running warm-up of a stale theme stops.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public ThemeTemplateCache(Configuration configuration,
+        HaloProperties haloProperties,
+        MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+
+        Timer compileTimer = Timer.builder("halo.template.compile")
+            .description("Time to read and parse a template")
+            .register(meterRegistry);
+        this.cacheStorage = new TemplateCacheStorage(
+            haloProperties.getTemplateCacheMaximumSize(),
+            haloProperties.getSupportedLocales(),
+            nanos -> compileTimer.record(nanos, TimeUnit.NANOSECONDS));
+        configuration.setTemplateLoader(cacheStorage.wrap(configuration.getTemplateLoader()));
+        configuration.setCacheStorage(cacheStorage);
+        if (haloProperties.getMode().isProductionEnv()) {
+            // Templates are evicted explicitly whenever a theme changes
+            configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+        }
+
+        FunctionCounter.builder("halo.template.cache.hits", cacheStorage,
+            TemplateCacheStorage::getHits)
+            .description("Template lookups served from the cache")
+            .register(meterRegistry);
+        FunctionCounter.builder("halo.template.cache.misses", cacheStorage,
+            TemplateCacheStorage::getMisses)
+            .description("Template lookups which missed the cache")
+            .register(meterRegistry);
+        Gauge.builder("halo.template.cache.size", cacheStorage, TemplateCacheStorage::getSize)
+            .description("Cached templates")
+            .register(meterRegistry);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.warmUpExecutor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread =
+                    new Thread(runnable, "template-warmer-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Evicts templates of all themes and stops the running warm-up.
+     */
+    public void evictThemeTemplates() {
+        generation.incrementAndGet();
+        int evicted = cacheStorage.evict(THEME_TEMPLATE_PREFIX);
+        log.debug("Evicted [{}] cached theme templates", evicted);
+    }
+
+    /**
+     * Compiles all templates of the theme in the background, for the default locale and the
+     * locales requested so far.
+     *
+     * @param themeProperty theme property
+     */
+    public void warmUp(@NonNull ThemeProperty themeProperty) {
+        Assert.notNull(themeProperty, "Theme property must not be null");
+
+        long warmUpGeneration = generation.get();
+        Path themePath = Paths.get(themeProperty.getThemePath());
+        List<String> templateNames = new ArrayList<>();
+        templateNames.add(GLOBAL_MACRO_TEMPLATE);
+        try (Stream<Path> pathStream = Files.walk(themePath)) {
+            templateNames.addAll(pathStream
+                .filter(path -> path.getFileName().toString().endsWith(TEMPLATE_SUFFIX))
+                .filter(Files::isRegularFile)
+                .map(path -> StringUtils.replace(themePath.relativize(path).toString(), "\\", "/"))
+                .map(relativePath -> THEME_TEMPLATE_PREFIX + themeProperty.getFolderName() + "/"
+                    + relativePath)
+                .collect(Collectors.toList()));
+        } catch (IOException e) {
+            log.warn("Failed to list templates of theme: [{}]", themeProperty.getId(), e);
+            return;
+        }
+
+        Set<Locale> locales = new LinkedHashSet<>();
+        locales.add(configuration.getLocale());
+        locales.addAll(cacheStorage.getSeenLocales());
+
+        long startTime = System.currentTimeMillis();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        templateNames.forEach(templateName -> locales.forEach(locale -> futures.add(
+            CompletableFuture.runAsync(() -> compile(templateName, locale, warmUpGeneration),
+                warmUpExecutor))));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .whenComplete((result, throwable) -> log.info(
+                "Warmed up [{}] templates of theme [{}] for locales {} in [{}] ms",
+                templateNames.size(), themeProperty.getId(), locales,
+                System.currentTimeMillis() - startTime));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        warmUpExecutor.shutdownNow();
+    }
+
+    private void compile(String templateName, Locale locale, long warmUpGeneration) {
+        if (generation.get() != warmUpGeneration) {
+            // The theme has changed since the warm-up started
+            return;
+        }
+        try {
+            configuration.getTemplate(templateName, locale);
+            if (generation.get() != warmUpGeneration) {
+                // Evicted while compiling, do not keep what might be the old content
+                configuration.removeTemplate(templateName, locale);
+            }
+        } catch (IOException e) {
+            // The error will show up again when the template is rendered
+            log.debug("Failed to warm up template: [{}], {}", templateName, e.getMessage());
+        }
+    }
+}
@@ -14,6 +14,8 @@ import org.springframework.stereotype.Component;
 import run.app.model.entity.Post;
 import run.app.model.enums.PostStatus;
 import run.app.model.support.HaloConst;
+import run.app.model.vo.ArchiveYearVO;
+import run.app.service.PostArchiveService;
 import run.app.service.PostCategoryService;
 import run.app.service.PostService;
 import run.app.service.PostTagService;
@@ -36,15 +38,19 @@ public class PostTagDirective implements TemplateDirectiveModel {
 
     private final PostCategoryService postCategoryService;
 
+    private final PostArchiveService postArchiveService;
+
     public PostTagDirective(Configuration configuration,
         PostService postService,
         PostRenderAssembler postRenderAssembler,
         PostTagService postTagService,
-        PostCategoryService postCategoryService) {
+        PostCategoryService postCategoryService,
+        PostArchiveService postArchiveService) {
         this.postService = postService;
         this.postRenderAssembler = postRenderAssembler;
         this.postTagService = postTagService;
         this.postCategoryService = postCategoryService;
+        this.postArchiveService = postArchiveService;
         configuration.setSharedVariable("postTag", this);
     }
 
@@ -67,17 +73,16 @@ public class PostTagDirective implements TemplateDirectiveModel {
                     break;
                 case "archiveYear":
                     env.setVariable("archives",
-                        builder.build().wrap(postService.listYearArchives()));
+                        builder.build().wrap(listArchives(true, params)));
                     break;
                 case "archiveMonth":
                     env.setVariable("archives",
-                        builder.build().wrap(postService.listMonthArchives()));
+                        builder.build().wrap(listArchives(false, params)));
                     break;
                 case "archive":
                     String type = params.get("type").toString();
-                    env.setVariable("archives", builder.build().wrap(
-                        "year".equals(type) ? postService.listYearArchives() :
-                            postService.listMonthArchives()));
+                    env.setVariable("archives",
+                        builder.build().wrap(listArchives("year".equals(type), params)));
                     break;
                 case "listByCategoryId":
                     Integer categoryId = Integer.parseInt(params.get("categoryId").toString());
@@ -114,4 +119,23 @@ public class PostTagDirective implements TemplateDirectiveModel {
         body.render(env.getOut());
     }
 
+    /**
+     * Lists archives of all posts, or of a page of posts if the size param is present.
+     *
+     * @param year true for year archives, false for month archives
+     * @param params directive params
+     * @return a list of archive
+     */
+    private List<? extends ArchiveYearVO> listArchives(boolean year, Map params) {
+        if (!params.containsKey("size")) {
+            return year ? postArchiveService.listYearArchives()
+                : postArchiveService.listMonthArchives();
+        }
+        int size = Integer.parseInt(params.get("size").toString());
+        int page = params.containsKey("page")
+            ? Integer.parseInt(params.get("page").toString()) : 0;
+        return year ? postArchiveService.listYearArchives(page, size)
+            : postArchiveService.listMonthArchives(page, size);
+    }
+
 }
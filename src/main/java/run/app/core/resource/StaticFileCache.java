@@ -0,0 +1,247 @@
+package run.app.core.resource;
+
+import static run.app.model.support.HaloConst.TEMP_DIR;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import run.app.config.properties.HaloProperties;
+
+/**
+ * Entity tags and precompressed variants of static files.
+ *
+ * <p>Both are computed in the background by a single worker with a bounded queue, a file is
+ * served with a weak tag until its strong tag is known. Generated variants are kept in a mirror
+ * of the work directory under the temporary directory, so that neither theme and upload folders
+ * nor backups of the work directory contain them.
+ */
+@Slf4j
+@Component
+public class StaticFileCache {
+
+    /**
+     * Content coding of brotli, only variants shipped with the files are served.
+     */
+    public static final String BROTLI = "br";
+
+    public static final String GZIP = "gzip";
+
+    private static final String VARIANT_DIR = "halo-static-cache";
+
+    private static final long COMPRESS_MIN_SIZE = 1024;
+
+    private static final long COMPRESS_MAX_SIZE = 32 * 1024 * 1024;
+
+    private static final int ETAG_CACHE_SIZE = 4096;
+
+    private static final int WORK_QUEUE_CAPACITY = 256;
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("css", "js", "mjs", "map",
+        "json", "xml", "svg", "html", "htm", "txt", "ttf", "otf", "eot", "ico", "wasm");
+
+    private final Path workPath;
+
+    private final Path variantRootPath;
+
+    /**
+     * Key: absolute file path.
+     */
+    private final Map<Path, FileTag> fileTags =
+        Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, FileTag> eldest) {
+                return size() > ETAG_CACHE_SIZE;
+            }
+        });
+
+    /**
+     * Files queued for hashing or compressing, to avoid queueing them twice.
+     */
+    private final Set<String> pendingWork = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor worker;
+
+    public StaticFileCache(HaloProperties haloProperties) {
+        this.workPath = Paths.get(haloProperties.getWorkDir()).toAbsolutePath().normalize();
+        this.variantRootPath = Paths.get(TEMP_DIR, VARIANT_DIR).toAbsolutePath().normalize();
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(WORK_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "static-file-worker");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+    }
+
+    /**
+     * Gets the entity tag of the file. Files are hashed in the background, until then a weak tag
+     * derived from the size and last modified time is returned.
+     *
+     * @param path absolute file path
+     * @param size file size
+     * @param lastModified last modified time of the file
+     * @return quoted strong entity tag, or a weak one if not hashed yet
+     */
+    @NonNull
+    public String getEtag(@NonNull Path path, long size, long lastModified) {
+        FileTag fileTag = fileTags.get(path);
+        if (fileTag != null && fileTag.size == size && fileTag.lastModified == lastModified) {
+            return fileTag.etag;
+        }
+        submit("hash:" + path, () -> hash(path, size, lastModified));
+        return "W/\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * Finds a precompressed variant of the file in the given coding. A variant shipped next to
+     * the file is preferred, otherwise a gzip variant is generated in the background.
+     *
+     * @param path absolute file path
+     * @param coding {@link #BROTLI} or {@link #GZIP}
+     * @param lastModified last modified time of the file
+     * @return path of the variant or null if absent
+     */
+    @Nullable
+    public Path getVariant(@NonNull Path path, @NonNull String coding, long lastModified) {
+        String suffix = BROTLI.equals(coding) ? ".br" : ".gz";
+        Path sibling = path.resolveSibling(path.getFileName() + suffix);
+        if (isFresh(sibling, lastModified, false)) {
+            return sibling;
+        }
+        if (!GZIP.equals(coding) || !path.startsWith(workPath)) {
+            return null;
+        }
+
+        Path generated = variantRootPath.resolve(workPath.relativize(path) + suffix);
+        if (isFresh(generated, lastModified, true)) {
+            return generated;
+        }
+        submit("gzip:" + path, () -> compress(path, generated));
+        return null;
+    }
+
+    /**
+     * Checks whether the file is worth compressing.
+     *
+     * @param fileName file name
+     * @param size file size
+     * @return true if the file is compressible
+     */
+    public boolean isCompressible(@NonNull String fileName, long size) {
+        String extension = StringUtils.substringAfterLast(fileName, ".").toLowerCase();
+        return size >= COMPRESS_MIN_SIZE && size <= COMPRESS_MAX_SIZE
+            && COMPRESSIBLE_EXTENSIONS.contains(extension);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        worker.shutdownNow();
+    }
+
+    private boolean isFresh(Path variant, long lastModified, boolean exact) {
+        try {
+            if (!Files.isRegularFile(variant)) {
+                return false;
+            }
+            long variantLastModified = Files.getLastModifiedTime(variant).toMillis();
+            return exact ? variantLastModified == lastModified
+                : variantLastModified >= lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void submit(String key, IoTask task) {
+        if (!pendingWork.add(key)) {
+            return;
+        }
+        try {
+            worker.execute(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    log.warn("Failed to process static file: [{}]", key, e);
+                } finally {
+                    pendingWork.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Try again on a later request
+            pendingWork.remove(key);
+        }
+    }
+
+    private void hash(Path path, long size, long lastModified) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            DigestUtils.updateDigest(digest, inputStream);
+        }
+        // Half of the digest is plenty for telling versions of a file apart
+        String etag = "\"" + Hex.encodeHexString(digest.digest()).substring(0, 32) + "\"";
+        fileTags.put(path, new FileTag(size, lastModified, etag));
+    }
+
+    private void compress(Path path, Path variant) throws IOException {
+        FileTime lastModifiedTime = Files.getLastModifiedTime(path);
+        Files.createDirectories(variant.getParent());
+        Path tempPath = Files.createTempFile(variant.getParent(), "variant-", ".tmp");
+        try {
+            try (OutputStream outputStream =
+                     new GZIPOutputStream(Files.newOutputStream(tempPath))) {
+                Files.copy(path, outputStream);
+            }
+            // Same time as the file marks the variant fresh
+            Files.setLastModifiedTime(tempPath, lastModifiedTime);
+            Files.move(tempPath, variant, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Generated gzip variant of [{}]", path);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoTask {
+
+        void run() throws IOException;
+    }
+
+    private static class FileTag {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private final String etag;
+
+        private FileTag(long size, long lastModified, String etag) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+    }
+}
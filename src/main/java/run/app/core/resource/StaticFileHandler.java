@@ -0,0 +1,270 @@
+package run.app.core.resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Serves files of a work directory folder.
+ *
+ * <p>Compared with the resource handler of Spring MVC, entity tags are strong and derived from
+ * the content once it has been hashed, and precompressed variants are served when the client
+ * accepts them. File content, or the requested range of it, is copied into the servlet output
+ * stream like any other response body.
+ */
+@Slf4j
+public class StaticFileHandler implements HttpRequestHandler {
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * Matches names carrying a content hash, e.g. app.3f2a9c1b.js or style-3f2a9c1b.css. The hash
+     * must mix digits and letters, so that dates like bg-20210101.jpg do not match.
+     */
+    private static final Pattern FINGERPRINTED_NAME = Pattern.compile(
+        "^.+[.-](?=[0-9a-f]*[a-f])(?=[0-9a-f]*[0-9])[0-9a-f]{8,}\\.[A-Za-z0-9]+$");
+
+    private final Path rootPath;
+
+    private final StaticFileCache staticFileCache;
+
+    @Nullable
+    private final String cacheControl;
+
+    private final boolean assets;
+
+    /**
+     * Creates a static file handler.
+     *
+     * @param rootPath folder to serve
+     * @param staticFileCache static file cache
+     * @param cacheControl cache control of the files, null to leave it to the client
+     * @param assets whether the files are front end assets, which are served precompressed
+     * and cached forever if fingerprinted
+     */
+    public StaticFileHandler(@NonNull Path rootPath,
+        @NonNull StaticFileCache staticFileCache,
+        @Nullable String cacheControl,
+        boolean assets) {
+        Assert.notNull(rootPath, "Root path must not be null");
+        Assert.notNull(staticFileCache, "Static file cache must not be null");
+        this.rootPath = rootPath.toAbsolutePath().normalize();
+        this.staticFileCache = staticFileCache;
+        this.cacheControl = cacheControl;
+        this.assets = assets;
+    }
+
+    @Override
+    public void handleRequest(@NonNull HttpServletRequest request,
+        @NonNull HttpServletResponse response) throws IOException {
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+        if (!head && !HttpMethod.GET.matches(request.getMethod())) {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        Path path = resolvePath(request);
+        BasicFileAttributes attributes = null;
+        if (path != null) {
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                // Not found
+            }
+        }
+        if (attributes == null || !attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String fileName = path.getFileName().toString();
+        String etag = staticFileCache.getEtag(path, size, lastModified);
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+
+        // Ranges are served from the file itself only
+        Path contentPath = path;
+        String contentCoding = null;
+        if (assets && rangeHeader == null && staticFileCache.isCompressible(fileName, size)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            for (String coding : List.of(StaticFileCache.BROTLI, StaticFileCache.GZIP)) {
+                if (accepts(acceptEncoding, coding)) {
+                    Path variant = staticFileCache.getVariant(path, coding, lastModified);
+                    if (variant != null) {
+                        contentPath = variant;
+                        contentCoding = coding;
+                        break;
+                    }
+                }
+            }
+        }
+        String contentEtag = contentCoding == null ? etag
+            : StringUtils.removeEnd(etag, "\"") + "-" + contentCoding + "\"";
+
+        String contentCacheControl = cacheControl;
+        if (assets && FINGERPRINTED_NAME.matcher(fileName).matches()) {
+            contentCacheControl = IMMUTABLE_CACHE_CONTROL;
+        }
+        if (contentCacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, contentCacheControl);
+        }
+
+        if (new ServletWebRequest(request, response).checkNotModified(contentEtag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(getMediaType(request, fileName));
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentCoding != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, contentCoding);
+        }
+
+        try (FileChannel channel = FileChannel.open(contentPath, StandardOpenOption.READ)) {
+            long contentLength = channel.size();
+            long start = 0;
+            long length = contentLength;
+
+            HttpRange range = getRange(request, rangeHeader, etag, lastModified);
+            if (range != null) {
+                if (contentLength == 0 || range.getRangeStart(contentLength) >= contentLength) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = range.getRangeStart(contentLength);
+                length = range.getRangeEnd(contentLength) - start + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + start + "-" + (start + length - 1) + "/" + contentLength);
+            }
+            response.setContentLengthLong(length);
+
+            if (!head) {
+                transfer(channel, start, length, response.getOutputStream());
+            }
+        } catch (IOException e) {
+            // Mostly the client has gone away
+            log.debug("Failed to send static file: [{}], {}", contentPath, e.getMessage());
+        }
+    }
+
+    @Nullable
+    private Path resolvePath(HttpServletRequest request) {
+        Object pathAttribute =
+            request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String relativePath = pathAttribute == null ? null : pathAttribute.toString();
+        if (StringUtils.isBlank(relativePath)
+            || relativePath.contains("..")
+            || relativePath.indexOf('\0') >= 0) {
+            return null;
+        }
+        try {
+            Path path = rootPath.resolve(StringUtils.removeStart(relativePath, "/")).normalize();
+            return path.startsWith(rootPath) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the single range to serve, multiple ranges are ignored and the whole file is served.
+     */
+    @Nullable
+    private HttpRange getRange(HttpServletRequest request, @Nullable String rangeHeader,
+        String etag, long lastModified) {
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean unchanged;
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // Weak tags do not tell whether the bytes are the same
+                unchanged = !etag.startsWith("W/") && ifRange.equals(etag);
+            } else {
+                try {
+                    unchanged = request.getDateHeader(HttpHeaders.IF_RANGE) / 1000
+                        == lastModified / 1000;
+                } catch (IllegalArgumentException e) {
+                    unchanged = false;
+                }
+            }
+            if (!unchanged) {
+                return null;
+            }
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String getMediaType(HttpServletRequest request, String fileName) {
+        String mediaType = request.getServletContext().getMimeType(fileName);
+        if (mediaType != null) {
+            return mediaType;
+        }
+        return MediaTypeFactory.getMediaType(fileName)
+            .orElse(MediaType.APPLICATION_OCTET_STREAM)
+            .toString();
+    }
+
+    private void transfer(FileChannel channel, long start, long length,
+        OutputStream outputStream) throws IOException {
+        long position = start;
+        long end = start + length;
+        // Not zero-copy, the target is a channel over the buffered servlet output stream
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    private static boolean accepts(@Nullable String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String accepted : StringUtils.split(acceptEncoding, ',')) {
+            String[] parts = StringUtils.split(accepted, ';');
+            if (parts.length == 0 || !coding.equalsIgnoreCase(parts[0].trim())) {
+                continue;
+            }
+            // Rejected by q=0
+            return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+}
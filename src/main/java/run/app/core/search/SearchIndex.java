@@ -0,0 +1,465 @@
+package run.app.core.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * In-memory inverted index ranked by BM25.
+ *
+ * <p>Every document has a title and a plain text body. Title terms are weighted by
+ * {@link #TITLE_BOOST}. A query matches the documents containing all of its terms.
+ */
+@Slf4j
+public class SearchIndex {
+
+    /**
+     * Version 2 added CJK unigrams to the index, version 3 stores terms of any length.
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final int TITLE_BOOST = 3;
+
+    /**
+     * Characters kept before the first match in a snippet.
+     */
+    private static final int SNIPPET_LEADING = 30;
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    /**
+     * Term to document id and weighted term frequency.
+     */
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long totalLength;
+
+    private volatile boolean dirty;
+
+    /**
+     * Adds or replaces a document.
+     *
+     * @param id document id must not be null
+     * @param version document version, used to detect stale documents
+     * @param title title
+     * @param text plain text body
+     */
+    public void put(@NonNull Integer id, long version, @Nullable String title,
+        @Nullable String text) {
+        Assert.notNull(id, "Document id must not be null");
+
+        Document document = new Document();
+        document.setId(id);
+        document.setVersion(version);
+        document.setTitle(title == null ? "" : title);
+        document.setText(text == null ? "" : text);
+
+        Map<String, Integer> frequencies = frequencies(document);
+        document.setLength(frequencies.values().stream().mapToInt(Integer::intValue).sum());
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            documents.put(id, document);
+            totalLength += document.getLength();
+            frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, frequency));
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a document.
+     *
+     * @param id document id must not be null
+     */
+    public void remove(@NonNull Integer id) {
+        Assert.notNull(id, "Document id must not be null");
+
+        lock.writeLock().lock();
+        try {
+            if (removeInternal(id)) {
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets versions of all documents.
+     *
+     * @return document id to version
+     */
+    @NonNull
+    public Map<Integer, Long> versions() {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Long> versions = new HashMap<>(documents.size());
+            documents.forEach((id, document) -> versions.put(id, document.getVersion()));
+            return versions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches documents containing all terms of the keyword.
+     *
+     * @param keyword keyword
+     * @return document ids ordered by descending relevance
+     */
+    @NonNull
+    public List<Integer> search(@Nullable String keyword) {
+        Set<String> terms = new LinkedHashSet<>(SearchTokenizer.tokenizeQuery(keyword));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            List<Map<Integer, Integer>> termPostings = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Integer, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                termPostings.add(posting);
+            }
+            termPostings.sort(Comparator.comparingInt(Map::size));
+
+            int documentCount = documents.size();
+            double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+
+            Map<Integer, Integer> shortest = termPostings.get(0);
+            candidates:
+            for (Integer id : shortest.keySet()) {
+                Document document = documents.get(id);
+                double score = 0;
+                for (Map<Integer, Integer> posting : termPostings) {
+                    Integer frequency = posting.get(id);
+                    if (frequency == null) {
+                        continue candidates;
+                    }
+                    double idf = Math.log(
+                        1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                    double norm = K1 * (1 - B + B * document.getLength() / averageLength);
+                    score += idf * frequency * (K1 + 1) / (frequency + norm);
+                }
+                scores.put(id, score);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Integer> ids = new ArrayList<>(scores.keySet());
+        ids.sort(Comparator.<Integer, Double>comparing(scores::get).reversed()
+            .thenComparing(Comparator.reverseOrder()));
+        return ids;
+    }
+
+    /**
+     * Builds an html snippet of the document body with the keyword terms wrapped in
+     * <code>&lt;mark&gt;</code>.
+     *
+     * @param id document id must not be null
+     * @param keyword keyword
+     * @param maxLength max characters of the snippet
+     * @return escaped html snippet, or null if the document is absent
+     */
+    @Nullable
+    public String highlight(@NonNull Integer id, @Nullable String keyword, int maxLength) {
+        String text;
+        lock.readLock().lock();
+        try {
+            Document document = documents.get(id);
+            if (document == null) {
+                return null;
+            }
+            text = document.getText();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<String> terms = new LinkedHashSet<>(SearchTokenizer.tokenizeQuery(keyword));
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        if (lowerText.length() != text.length()) {
+            // Lower-casing changed offsets, give up highlighting
+            return HtmlUtils.htmlEscape(text.substring(0, Math.min(maxLength, text.length())));
+        }
+
+        int first = text.length();
+        for (String term : terms) {
+            int index = lowerText.indexOf(term);
+            if (index >= 0) {
+                first = Math.min(first, index);
+            }
+        }
+        int start = first == text.length() ? 0 : Math.max(0, first - SNIPPET_LEADING);
+        int end = Math.min(text.length(), start + maxLength);
+
+        // Mark matched ranges in the window, merging overlapped ones
+        boolean[] marked = new boolean[end - start];
+        for (String term : terms) {
+            int index = lowerText.indexOf(term, start);
+            while (index >= 0 && index < end) {
+                for (int i = index; i < Math.min(end, index + term.length()); i++) {
+                    marked[i - start] = true;
+                }
+                index = lowerText.indexOf(term, index + 1);
+            }
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append("...");
+        }
+        int i = 0;
+        while (i < marked.length) {
+            int j = i;
+            while (j < marked.length && marked[j] == marked[i]) {
+                j++;
+            }
+            String segment = HtmlUtils.htmlEscape(text.substring(start + i, start + j));
+            if (marked[i]) {
+                snippet.append("<mark>").append(segment).append("</mark>");
+            } else {
+                snippet.append(segment);
+            }
+            i = j;
+        }
+        if (end < text.length()) {
+            snippet.append("...");
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Gets document count.
+     *
+     * @return document count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Determines whether the index has changed since it was last saved or loaded.
+     *
+     * @return true if changed
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Saves the index to the file atomically.
+     *
+     * @param file file path must not be null
+     * @throws IOException if writing fails
+     */
+    public void save(@NonNull Path file) throws IOException {
+        Assert.notNull(file, "File must not be null");
+
+        Files.createDirectories(file.getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(tempFile);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Saved again next time
+            dirty = true;
+            throw e;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void write(Path tempFile) throws IOException {
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(Files.newOutputStream(tempFile))))) {
+            out.writeInt(FORMAT_VERSION);
+
+            out.writeInt(documents.size());
+            for (Document document : documents.values()) {
+                out.writeInt(document.getId());
+                out.writeLong(document.getVersion());
+                out.writeInt(document.getLength());
+                writeString(out, document.getTitle());
+                writeString(out, document.getText());
+            }
+
+            out.writeInt(postings.size());
+            for (Map.Entry<String, Map<Integer, Integer>> entry : postings.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Map.Entry<Integer, Integer> posting : entry.getValue().entrySet()) {
+                    out.writeInt(posting.getKey());
+                    out.writeInt(posting.getValue());
+                }
+            }
+            dirty = false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the index from the file, replacing all documents.
+     *
+     * @param file file path must not be null
+     * @return true if loaded, false if the file is absent or of another format version
+     * @throws IOException if reading fails
+     */
+    public boolean load(@NonNull Path file) throws IOException {
+        Assert.notNull(file, "File must not be null");
+
+        if (Files.notExists(file)) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                log.info("Ignored search index [{}] of another format version", file);
+                return false;
+            }
+
+            Map<Integer, Document> loadedDocuments = new HashMap<>();
+            long loadedTotalLength = 0;
+            int documentCount = in.readInt();
+            for (int i = 0; i < documentCount; i++) {
+                Document document = new Document();
+                document.setId(in.readInt());
+                document.setVersion(in.readLong());
+                document.setLength(in.readInt());
+                document.setTitle(readString(in));
+                document.setText(readString(in));
+                loadedDocuments.put(document.getId(), document);
+                loadedTotalLength += document.getLength();
+            }
+
+            Map<String, Map<Integer, Integer>> loadedPostings = new HashMap<>();
+            int termCount = in.readInt();
+            for (int i = 0; i < termCount; i++) {
+                String term = readString(in);
+                int postingCount = in.readInt();
+                Map<Integer, Integer> posting = new HashMap<>(postingCount * 4 / 3 + 1);
+                for (int j = 0; j < postingCount; j++) {
+                    posting.put(in.readInt(), in.readInt());
+                }
+                loadedPostings.put(term, posting);
+            }
+
+            lock.writeLock().lock();
+            try {
+                documents.clear();
+                documents.putAll(loadedDocuments);
+                postings.clear();
+                postings.putAll(loadedPostings);
+                totalLength = loadedTotalLength;
+                dirty = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    private boolean removeInternal(Integer id) {
+        Document previous = documents.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        totalLength -= previous.getLength();
+        frequencies(previous).keySet().forEach(term -> {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        });
+        return true;
+    }
+
+    private Map<String, Integer> frequencies(Document document) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        SearchTokenizer.tokenize(document.getTitle())
+            .forEach(term -> frequencies.merge(term, TITLE_BOOST, Integer::sum));
+        SearchTokenizer.tokenize(document.getText())
+            .forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        return frequencies;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Indexed document.
+     */
+    @Data
+    private static class Document {
+
+        private Integer id;
+
+        private long version;
+
+        private String title;
+
+        private String text;
+
+        private int length;
+    }
+}
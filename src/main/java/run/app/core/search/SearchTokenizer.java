@@ -0,0 +1,115 @@
+package run.app.core.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.lang.NonNull;
+
+/**
+ * Search tokenizer.
+ *
+ * <p>Letters and digits are split into lower-cased words. Runs of CJK characters, which have no
+ * word separators, are split into overlapping bigrams, and a single CJK character is kept as is.
+ * Indexed text additionally keeps every CJK character as a unigram, so that a query of one
+ * character matches it anywhere in a run.
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Tokenizes the text to be indexed.
+     *
+     * @param text text
+     * @return tokens in text order
+     */
+    @NonNull
+    public static List<String> tokenize(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * Tokenizes the query. CJK unigrams are only kept for single characters, as the bigrams of a
+     * longer run already imply them.
+     *
+     * @param query query
+     * @return tokens in query order
+     */
+    @NonNull
+    public static List<String> tokenizeQuery(String query) {
+        return tokenize(query, false);
+    }
+
+    private static List<String> tokenize(String text, boolean unigrams) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder word = new StringBuilder();
+        int cjkStart = -1;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char ch = i < length ? text.charAt(i) : ' ';
+            boolean cjk = i < length && isCjk(ch);
+
+            if (cjk) {
+                flushWord(word, tokens);
+                if (cjkStart < 0) {
+                    cjkStart = i;
+                }
+                continue;
+            }
+
+            if (cjkStart >= 0) {
+                addCjkTokens(text, cjkStart, i, unigrams, tokens);
+                cjkStart = -1;
+            }
+
+            if (Character.isLetterOrDigit(ch)) {
+                word.append(ch);
+            } else {
+                flushWord(word, tokens);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Determines whether the character is a CJK ideograph, kana or hangul.
+     *
+     * @param ch character
+     * @return true if it is a CJK character
+     */
+    public static boolean isCjk(char ch) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(ch);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static void addCjkTokens(String text, int start, int end, boolean unigrams,
+        List<String> tokens) {
+        if (end - start == 1) {
+            tokens.add(text.substring(start, end));
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            if (unigrams) {
+                tokens.add(text.substring(i, i + 1));
+            }
+            if (i < end - 1) {
+                tokens.add(text.substring(i, i + 2));
+            }
+        }
+    }
+}
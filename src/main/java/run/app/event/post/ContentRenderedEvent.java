@@ -0,0 +1,29 @@
+package run.app.event.post;
+
+import java.util.Set;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.lang.NonNull;
+
+/**
+ * Published after the html of all markdown contents has been rendered again.
+ */
+public class ContentRenderedEvent extends ApplicationEvent {
+
+    private final Set<Integer> contentIds;
+
+    public ContentRenderedEvent(Object source, @NonNull Set<Integer> contentIds) {
+        super(source);
+        this.contentIds = contentIds;
+    }
+
+    /**
+     * Gets ids of the contents processed, including those skipped for having been modified
+     * meanwhile.
+     *
+     * @return a set of content id, which is the id of the post or sheet
+     */
+    @NonNull
+    public Set<Integer> getContentIds() {
+        return contentIds;
+    }
+}
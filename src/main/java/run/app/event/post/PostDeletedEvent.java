@@ -0,0 +1,20 @@
+package run.app.event.post;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Post deleted event.
+ */
+public class PostDeletedEvent extends ApplicationEvent {
+
+    private final Integer postId;
+
+    public PostDeletedEvent(Object source, Integer postId) {
+        super(source);
+        this.postId = postId;
+    }
+
+    public Integer getPostId() {
+        return postId;
+    }
+}
@@ -0,0 +1,43 @@
+package run.app.event.post;
+
+import java.util.Set;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.lang.NonNull;
+
+/**
+ * Published after the status of posts has been changed in bulk, e.g. a category became private.
+ */
+public class PostStatusRefreshedEvent extends ApplicationEvent {
+
+    private final Set<Integer> postIds;
+
+    private final int intimatedCount;
+
+    private final int publishedCount;
+
+    public PostStatusRefreshedEvent(Object source, @NonNull Set<Integer> postIds,
+        int intimatedCount, int publishedCount) {
+        super(source);
+        this.postIds = postIds;
+        this.intimatedCount = intimatedCount;
+        this.publishedCount = publishedCount;
+    }
+
+    /**
+     * Gets ids of the posts checked, including those whose status stayed unchanged.
+     *
+     * @return a set of post id
+     */
+    @NonNull
+    public Set<Integer> getPostIds() {
+        return postIds;
+    }
+
+    public int getIntimatedCount() {
+        return intimatedCount;
+    }
+
+    public int getPublishedCount() {
+        return publishedCount;
+    }
+}
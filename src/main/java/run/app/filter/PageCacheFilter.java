@@ -0,0 +1,231 @@
+package run.app.filter;
+
+import static run.app.model.support.HaloConst.ADMIN_TOKEN_QUERY_NAME;
+import static run.app.model.support.HaloConst.API_ACCESS_KEY_QUERY_NAME;
+import static run.app.model.support.HaloConst.CONTENT_AUTHENTICATED_SESSION_ATTRIBUTE;
+import static run.app.model.support.HaloConst.ONE_TIME_TOKEN_QUERY_NAME;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import run.app.cache.page.CachedPage;
+import run.app.cache.page.PageCache;
+import run.app.config.properties.HaloProperties;
+import run.app.model.enums.PostPermalinkType;
+import run.app.service.OptionService;
+import run.app.service.ThemeService;
+import run.app.utils.HaloUtils;
+
+/**
+ * Filter serving rendered theme pages from {@link PageCache} to anonymous visitors.
+ *
+ * <p>It runs before {@link run.app.security.filter.ContentFilter}, so a hit neither creates a
+ * session nor touches the database, except for the replayed visit events. Cache keys only keep
+ * the query parameters pages are rendered from and the resolved locale, so that arbitrary
+ * parameters or Accept-Language headers do not push real pages out of the cache.
+ */
+@Slf4j
+@Component
+@Order(-2)
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    private static final String[] PRIVATE_QUERY_NAMES = {
+        "token",
+        ADMIN_TOKEN_QUERY_NAME,
+        API_ACCESS_KEY_QUERY_NAME,
+        ONE_TIME_TOKEN_QUERY_NAME
+    };
+
+    /**
+     * Extensions of rendered pages, other files are streamed without being buffered.
+     */
+    private static final Set<String> PAGE_EXTENSIONS = Set.of("html", "htm");
+
+    private final HaloProperties haloProperties;
+
+    private final PageCache pageCache;
+
+    private final ThemeService themeService;
+
+    private final OptionService optionService;
+
+    private final LocaleResolver localeResolver;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    private final String[] excludeUrlPatterns;
+
+    public PageCacheFilter(HaloProperties haloProperties,
+        PageCache pageCache,
+        ThemeService themeService,
+        OptionService optionService,
+        LocaleResolver localeResolver) {
+        this.haloProperties = haloProperties;
+        this.pageCache = pageCache;
+        this.themeService = themeService;
+        this.optionService = optionService;
+        this.localeResolver = localeResolver;
+        this.excludeUrlPatterns = new String[] {
+            HaloUtils.ensureBoth(haloProperties.getAdminPath(), "/") + "**",
+            "/api/**",
+            "/install",
+            "/version",
+            // Rendered from any keyword
+            "/search",
+            "/search/**",
+            // Feeds and sitemaps without an extension
+            "/feed",
+            "/feed/**",
+            "/rss",
+            "/atom",
+            "/atom/**",
+            "/sitemap",
+            "/js/**",
+            "/css/**",
+            "/themes/**",
+            HaloUtils.ensureBoth(haloProperties.getUploadUrlPrefix(), "/") + "**"
+        };
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!haloProperties.isPageCacheEnabled()
+            || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!isPagePath(path) || Arrays.stream(excludeUrlPatterns)
+            .anyMatch(pattern -> antPathMatcher.match(pattern, path))) {
+            return true;
+        }
+
+        // Previews and authenticated requests are rendered for the requester only
+        if (Arrays.stream(PRIVATE_QUERY_NAMES)
+            .anyMatch(name -> request.getParameter(name) != null)) {
+            return true;
+        }
+        HttpSession session = request.getSession(false);
+        return session != null
+            && session.getAttribute(CONTENT_AUTHENTICATED_SESSION_ATTRIBUTE) != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+        FilterChain filterChain) throws ServletException, IOException {
+        String key = buildKey(request);
+
+        Optional<CachedPage> cachedPage = pageCache.get(key);
+        if (cachedPage.isPresent()) {
+            CachedPage page = cachedPage.get();
+            pageCache.replayVisits(page);
+            write(request, response, page);
+            return;
+        }
+
+        long generation = pageCache.generation();
+        pageCache.startRecording(request);
+
+        ContentCachingResponseWrapper responseWrapper =
+            new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, responseWrapper);
+
+        String contentType = responseWrapper.getContentType();
+        if (responseWrapper.getStatus() != HttpServletResponse.SC_OK
+            || !isHtml(contentType)
+            || responseWrapper.containsHeader(HttpHeaders.CACHE_CONTROL)) {
+            responseWrapper.copyBodyToResponse();
+            return;
+        }
+
+        CachedPage page = pageCache.createPage(request, responseWrapper.getContentAsByteArray(),
+            contentType);
+        pageCache.put(key, page, generation);
+        log.debug("Rendered page [{}] for the page cache", key);
+
+        responseWrapper.setHeader(HttpHeaders.ETAG, page.getEtag());
+        if (isNotModified(request, page)) {
+            responseWrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        responseWrapper.copyBodyToResponse();
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response,
+        CachedPage page) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, page.getEtag());
+        if (isNotModified(request, page)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(page.getContentType());
+        response.setContentLength(page.getBody().length);
+        response.getOutputStream().write(page.getBody());
+    }
+
+    private boolean isNotModified(HttpServletRequest request, CachedPage page) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        return Arrays.stream(StringUtils.split(ifNoneMatch, ','))
+            .map(String::trim)
+            .map(etag -> StringUtils.removeStart(etag, "W/"))
+            .anyMatch(etag -> "*".equals(etag) || page.getEtag().equals(etag));
+    }
+
+    /**
+     * Checks whether the path may be a rendered page, i.e. it has no extension, an html one or
+     * the path suffix of posts. Feeds, attachments and static files are thus never buffered.
+     */
+    private boolean isPagePath(String path) {
+        String fileName = StringUtils.substringAfterLast(path, "/");
+        String pathSuffix = optionService.getPathSuffix();
+        if (StringUtils.isNotEmpty(pathSuffix) && fileName.endsWith(pathSuffix)) {
+            return true;
+        }
+        String extension = StringUtils.substringAfterLast(fileName, ".").toLowerCase();
+        return extension.isEmpty() || PAGE_EXTENSIONS.contains(extension);
+    }
+
+    private boolean isHtml(String contentType) {
+        if (StringUtils.isBlank(contentType)) {
+            return false;
+        }
+        return MediaType.TEXT_HTML.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+
+    private String buildKey(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder()
+            .append(themeService.getActivatedThemeId())
+            .append('|')
+            .append(localeResolver.resolveLocale(request).toLanguageTag())
+            .append('|')
+            .append(request.getRequestURI());
+
+        // The index renders a post by ?p={id} if posts are linked by id
+        String postId = request.getParameter("p");
+        if (PostPermalinkType.ID.equals(optionService.getPostPermalinkType())
+            && StringUtils.isNumeric(postId)) {
+            key.append("?p=").append(postId);
+        }
+        return key.toString();
+    }
+}
@@ -4,9 +4,20 @@ import static run.app.model.support.HaloConst.URL_SEPARATOR;
 
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
 import com.aliyun.oss.model.DeleteObjectsRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
 import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.MediaType;
@@ -17,6 +28,7 @@ import org.springframework.web.multipart.MultipartFile;
 import run.app.exception.FileOperationException;
 import run.app.model.enums.AttachmentType;
 import run.app.model.properties.AliOssProperties;
+import run.app.model.support.ChunkedUpload;
 import run.app.model.support.UploadResult;
 import run.app.repository.AttachmentRepository;
 import run.app.service.OptionService;
@@ -32,7 +44,7 @@ import run.app.utils.ImageUtils;
  */
 @Slf4j
 @Component
-public class AliOssFileHandler implements FileHandler {
+public class AliOssFileHandler implements ChunkedFileHandler {
 
     private final OptionService optionService;
     private final AttachmentRepository attachmentRepository;
@@ -48,18 +60,6 @@ public class AliOssFileHandler implements FileHandler {
         Assert.notNull(file, "Multipart file must not be null");
 
         // Get config
-        String protocol =
-            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_PROTOCOL).toString();
-        String domain =
-            optionService.getByPropertyOrDefault(AliOssProperties.OSS_DOMAIN, String.class, "");
-        String source =
-            optionService.getByPropertyOrDefault(AliOssProperties.OSS_SOURCE, String.class, "");
-        String endPoint =
-            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ENDPOINT).toString();
-        String accessKey =
-            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ACCESS_KEY).toString();
-        String accessSecret =
-            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ACCESS_SECRET).toString();
         String bucketName =
             optionService.getByPropertyOfNonNull(AliOssProperties.OSS_BUCKET_NAME).toString();
         String styleRule =
@@ -68,32 +68,10 @@ public class AliOssFileHandler implements FileHandler {
             .getByPropertyOrDefault(AliOssProperties.OSS_THUMBNAIL_STYLE_RULE, String.class, "");
 
         // Init OSS client
-        OSS ossClient = new OSSClientBuilder().build(endPoint, accessKey, accessSecret);
-
-        StringBuilder basePath = new StringBuilder(protocol);
-
-        if (StringUtils.isNotEmpty(domain)) {
-            basePath.append(domain)
-                .append(URL_SEPARATOR);
-        } else {
-            basePath.append(bucketName)
-                .append(".")
-                .append(endPoint)
-                .append(URL_SEPARATOR);
-        }
+        OSS ossClient = buildClient();
 
         try {
-            FilePathDescriptor uploadFilePath = new FilePathDescriptor.Builder()
-                .setBasePath(basePath.toString())
-                .setSubPath(source)
-                .setAutomaticRename(true)
-                .setRenamePredicate(relativePath ->
-                    attachmentRepository
-                        .countByFileKeyAndType(relativePath, AttachmentType.ALIOSS) > 0)
-                .setOriginalName(file.getOriginalFilename())
-                .build();
-
-            log.info(basePath.toString());
+            FilePathDescriptor uploadFilePath = buildFilePath(file.getOriginalFilename());
 
             // Upload
             final PutObjectResult putObjectResult = ossClient.putObject(bucketName,
@@ -135,6 +113,115 @@ public class AliOssFileHandler implements FileHandler {
         }
     }
 
+    @Override
+    public void initiate(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_BUCKET_NAME).toString();
+        String styleRule =
+            optionService.getByPropertyOrDefault(AliOssProperties.OSS_STYLE_RULE, String.class, "");
+
+        OSS ossClient = buildClient();
+        try {
+            FilePathDescriptor uploadFilePath = buildFilePath(upload.getOriginalName());
+
+            InitiateMultipartUploadRequest request =
+                new InitiateMultipartUploadRequest(bucketName, uploadFilePath.getRelativePath());
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentType(upload.getMediaType());
+            request.setObjectMetadata(objectMetadata);
+            InitiateMultipartUploadResult result = ossClient.initiateMultipartUpload(request);
+
+            String fullPath = uploadFilePath.getFullPath();
+            upload.setName(uploadFilePath.getName());
+            upload.setSuffix(uploadFilePath.getExtension());
+            upload.setKey(uploadFilePath.getRelativePath());
+            upload.setFilePath(StringUtils.isBlank(styleRule) ? fullPath : fullPath + styleRule);
+            upload.setProviderUploadId(result.getUploadId());
+        } catch (Exception e) {
+            throw new FileOperationException("上传附件 " + upload.getOriginalName() + " 到阿里云失败 ", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
+    @NonNull
+    @Override
+    public String uploadChunk(@NonNull ChunkedUpload upload, int index,
+        @NonNull InputStream content, @NonNull String contentMd5) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_BUCKET_NAME).toString();
+
+        OSS ossClient = buildClient();
+        try {
+            UploadPartRequest request = new UploadPartRequest();
+            request.setBucketName(bucketName);
+            request.setKey(upload.getKey());
+            request.setUploadId(upload.getProviderUploadId());
+            request.setPartNumber(index + 1);
+            request.setPartSize(upload.sizeOfChunk(index));
+            request.setInputStream(content);
+            // Lets OSS reject a corrupted part
+            request.setMd5Digest(contentMd5);
+            return ossClient.uploadPart(request).getPartETag().getETag();
+        } catch (Exception e) {
+            throw new FileOperationException("上传附件分片到阿里云失败", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
+    @NonNull
+    @Override
+    public UploadResult complete(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_BUCKET_NAME).toString();
+        List<PartETag> partETags = upload.getChunkTags().entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new PartETag(entry.getKey() + 1, entry.getValue()))
+            .collect(Collectors.toList());
+
+        OSS ossClient = buildClient();
+        try {
+            ossClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName,
+                upload.getKey(), upload.getProviderUploadId(), partETags));
+        } catch (Exception e) {
+            throw new FileOperationException("上传附件 " + upload.getOriginalName() + " 到阿里云失败 ", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            ossClient.shutdown();
+        }
+
+        log.info("Uploaded file: [{}] in [{}] chunks successfully", upload.getOriginalName(),
+            upload.getChunkCount());
+        return buildUploadResult(upload);
+    }
+
+    @Override
+    public void abort(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_BUCKET_NAME).toString();
+
+        OSS ossClient = buildClient();
+        try {
+            ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName,
+                upload.getKey(), upload.getProviderUploadId()));
+        } catch (Exception e) {
+            throw new FileOperationException("取消上传附件 " + upload.getOriginalName() + " 失败", e);
+        } finally {
+            ossClient.shutdown();
+        }
+    }
+
     @Override
     public void delete(@NonNull String key) {
         Assert.notNull(key, "File key must not be blank");
@@ -166,4 +253,49 @@ public class AliOssFileHandler implements FileHandler {
         return AttachmentType.ALIOSS;
     }
 
+    private OSS buildClient() {
+        String endPoint =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ENDPOINT).toString();
+        String accessKey =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ACCESS_KEY).toString();
+        String accessSecret =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ACCESS_SECRET).toString();
+        return new OSSClientBuilder().build(endPoint, accessKey, accessSecret);
+    }
+
+    private FilePathDescriptor buildFilePath(String originalName) {
+        String protocol =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_PROTOCOL).toString();
+        String domain =
+            optionService.getByPropertyOrDefault(AliOssProperties.OSS_DOMAIN, String.class, "");
+        String source =
+            optionService.getByPropertyOrDefault(AliOssProperties.OSS_SOURCE, String.class, "");
+        String endPoint =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_ENDPOINT).toString();
+        String bucketName =
+            optionService.getByPropertyOfNonNull(AliOssProperties.OSS_BUCKET_NAME).toString();
+
+        StringBuilder basePath = new StringBuilder(protocol);
+
+        if (StringUtils.isNotEmpty(domain)) {
+            basePath.append(domain)
+                .append(URL_SEPARATOR);
+        } else {
+            basePath.append(bucketName)
+                .append(".")
+                .append(endPoint)
+                .append(URL_SEPARATOR);
+        }
+
+        return new FilePathDescriptor.Builder()
+            .setBasePath(basePath.toString())
+            .setSubPath(source)
+            .setAutomaticRename(true)
+            .setRenamePredicate(relativePath ->
+                attachmentRepository
+                    .countByFileKeyAndType(relativePath, AttachmentType.ALIOSS) > 0)
+            .setOriginalName(originalName)
+            .build();
+    }
+
 }
@@ -0,0 +1,180 @@
+package run.app.handler.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import run.app.config.properties.HaloProperties;
+import run.app.exception.BadRequestException;
+import run.app.exception.FileOperationException;
+
+/**
+ * Keeps chunks of uploads in local files until the uploads are completed.
+ *
+ * <p>Every upload has a single file, chunks are written at their own position so that they can
+ * arrive in any order and be uploaded again after a disconnection. A chunk is received into a
+ * temporary file first and only written to its position once its digest has been verified.
+ */
+@Slf4j
+@Component
+public class ChunkStore {
+
+    /**
+     * Uploads untouched for this long are abandoned.
+     */
+    public static final long EXPIRATION_HOURS = 24;
+
+    private static final String CHUNK_DIR = ".upload-chunks";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path chunkRootPath;
+
+    public ChunkStore(HaloProperties haloProperties) {
+        this.chunkRootPath = Paths.get(haloProperties.getWorkDir()).resolve(CHUNK_DIR);
+    }
+
+    /**
+     * Writes a chunk of the upload.
+     *
+     * @param uploadId upload id must not be blank
+     * @param position position of the chunk in the file
+     * @param content chunk content must not be null
+     * @param size chunk size
+     * @param contentMd5 base64 encoded md5 digest of the chunk must not be null
+     * @throws BadRequestException throws when the content is shorter than the chunk size or
+     * does not match the digest
+     * @throws FileOperationException throws when fail to write the chunk
+     */
+    public void write(@NonNull String uploadId, long position, @NonNull InputStream content,
+        long size, @NonNull String contentMd5) {
+        Assert.hasText(uploadId, "Upload id must not be blank");
+        Assert.notNull(content, "Chunk content must not be null");
+        Assert.notNull(contentMd5, "Content md5 must not be null");
+
+        byte[] expectedDigest;
+        try {
+            expectedDigest = Base64.getDecoder().decode(contentMd5);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("分片校验值不合法", e);
+        }
+
+        Path tempPath = null;
+        try {
+            Files.createDirectories(chunkRootPath);
+            tempPath = Files.createTempFile(chunkRootPath, uploadId + "-", ".part");
+
+            MessageDigest digest = DigestUtils.getMd5Digest();
+            long received = 0;
+            try (InputStream inputStream = new DigestInputStream(content, digest);
+                 OutputStream outputStream = Files.newOutputStream(tempPath)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while (received < size && (read = inputStream
+                    .read(buffer, 0, (int) Math.min(buffer.length, size - received))) != -1) {
+                    outputStream.write(buffer, 0, read);
+                    received += read;
+                }
+            }
+            if (received < size) {
+                throw new BadRequestException("分片数据不完整，请重新上传");
+            }
+            if (!MessageDigest.isEqual(expectedDigest, digest.digest())) {
+                throw new BadRequestException("分片校验失败，请重新上传");
+            }
+
+            try (FileChannel source = FileChannel.open(tempPath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(getPath(uploadId),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                long written = 0;
+                while (written < size && source.read(buffer) != -1) {
+                    buffer.flip();
+                    // Writing past the end leaves a gap for the chunks not arrived yet
+                    while (buffer.hasRemaining()) {
+                        written += target.write(buffer, position + written);
+                    }
+                    buffer.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("分片写入失败", e).setErrorData(uploadId);
+        } finally {
+            deleteTempFile(tempPath);
+        }
+    }
+
+    /**
+     * Gets path of the file holding the chunks.
+     *
+     * @param uploadId upload id must not be blank
+     * @return file path
+     */
+    @NonNull
+    public Path getPath(@NonNull String uploadId) {
+        Assert.hasText(uploadId, "Upload id must not be blank");
+        return chunkRootPath.resolve(uploadId);
+    }
+
+    /**
+     * Deletes the chunks of the upload.
+     *
+     * @param uploadId upload id must not be blank
+     */
+    public void delete(@NonNull String uploadId) {
+        try {
+            Files.deleteIfExists(getPath(uploadId));
+        } catch (IOException e) {
+            log.warn("Failed to delete chunks of upload: [{}]", uploadId, e);
+        }
+    }
+
+    private void deleteTempFile(Path tempPath) {
+        if (tempPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempPath);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary chunk: [{}]", tempPath, e);
+        }
+    }
+
+    /**
+     * Deletes the chunks of abandoned uploads.
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void deleteExpired() {
+        if (!Files.isDirectory(chunkRootPath)) {
+            return;
+        }
+        long expiredBefore =
+            System.currentTimeMillis() - TimeUnit.HOURS.toMillis(EXPIRATION_HOURS + 1);
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(chunkRootPath)) {
+            for (Path path : paths) {
+                if (Files.getLastModifiedTime(path).toMillis() < expiredBefore) {
+                    log.info("Deleting chunks of abandoned upload: [{}]", path.getFileName());
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete chunks of abandoned uploads", e);
+        }
+    }
+}
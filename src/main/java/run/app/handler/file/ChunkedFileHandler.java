@@ -0,0 +1,73 @@
+package run.app.handler.file;
+
+import java.io.InputStream;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import run.app.exception.FileOperationException;
+import run.app.model.support.ChunkedUpload;
+import run.app.model.support.UploadResult;
+
+/**
+ * File handler receiving files in chunks, e.g. through the multipart upload of an object store.
+ */
+public interface ChunkedFileHandler extends FileHandler {
+
+    /**
+     * Starts an upload, resolves the file key and path of the upload.
+     *
+     * @param upload chunked upload must not be null
+     * @throws FileOperationException throws when fail to start the upload
+     */
+    void initiate(@NonNull ChunkedUpload upload);
+
+    /**
+     * Uploads a chunk, a chunk uploaded again replaces the previous one.
+     *
+     * @param upload chunked upload must not be null
+     * @param index chunk index
+     * @param content chunk content of {@link ChunkedUpload#sizeOfChunk(int)} bytes
+     * @param contentMd5 base64 encoded md5 digest of the chunk
+     * @return tag of the chunk, which is needed to complete the upload
+     * @throws FileOperationException throws when fail to upload the chunk
+     */
+    @NonNull
+    String uploadChunk(@NonNull ChunkedUpload upload, int index, @NonNull InputStream content,
+        @NonNull String contentMd5);
+
+    /**
+     * Completes the upload after all chunks have been uploaded.
+     *
+     * @param upload chunked upload must not be null
+     * @return upload result
+     * @throws FileOperationException throws when fail to complete the upload
+     */
+    @NonNull
+    UploadResult complete(@NonNull ChunkedUpload upload);
+
+    /**
+     * Aborts the upload and discards the chunks uploaded.
+     *
+     * @param upload chunked upload must not be null
+     */
+    void abort(@NonNull ChunkedUpload upload);
+
+    /**
+     * Builds the result of a completed upload from the resolved file path.
+     *
+     * @param upload chunked upload must not be null
+     * @return upload result
+     */
+    @NonNull
+    default UploadResult buildUploadResult(@NonNull ChunkedUpload upload) {
+        UploadResult uploadResult = new UploadResult();
+        uploadResult.setFilename(upload.getName());
+        uploadResult.setFilePath(upload.getFilePath());
+        uploadResult.setKey(upload.getKey());
+        uploadResult.setSuffix(upload.getSuffix());
+        uploadResult.setMediaType(MediaType.valueOf(upload.getMediaType()));
+        uploadResult.setSize(upload.getSize());
+        // Images are not uploaded in chunks, so the file is its own thumbnail
+        uploadResult.setThumbPath(upload.getFilePath());
+        return uploadResult;
+    }
+}
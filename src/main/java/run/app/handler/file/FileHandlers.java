@@ -1,11 +1,13 @@
 package run.app.handler.file;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
@@ -19,6 +21,7 @@ import run.app.handler.prehandler.ByteMultipartFile;
 import run.app.handler.prehandler.FilePreHandlers;
 import run.app.model.entity.Attachment;
 import run.app.model.enums.AttachmentType;
+import run.app.model.support.ChunkedUpload;
 import run.app.model.support.UploadResult;
 
 /**
@@ -34,6 +37,9 @@ public class FileHandlers {
     @Autowired
     private FilePreHandlers filePreHandlers;
 
+    @Autowired
+    private ChunkStore chunkStore;
+
     /**
      * File handler container.
      */
@@ -68,6 +74,87 @@ public class FileHandlers {
         return getSupportedType(attachmentType).upload(file);
     }
 
+    /**
+     * Starts a chunked upload.
+     *
+     * <p>Chunks are streamed to file handlers supporting it. Chunks of images, which have to be
+     * preprocessed as a whole, and of other file handlers are kept locally and uploaded at once
+     * when the upload is completed.
+     *
+     * @param upload chunked upload must not be null
+     * @throws FileOperationException throws when fail to start the upload
+     */
+    public void initiateChunked(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        FileHandler handler = getSupportedType(upload.getType());
+        boolean image = FileHandler.IMAGE_TYPE.includes(MediaType.valueOf(upload.getMediaType()));
+        if (handler instanceof ChunkedFileHandler && !image) {
+            ((ChunkedFileHandler) handler).initiate(upload);
+        } else {
+            upload.setStaged(true);
+        }
+    }
+
+    /**
+     * Uploads a chunk.
+     *
+     * @param upload chunked upload must not be null
+     * @param index chunk index
+     * @param content chunk content must not be null
+     * @param contentMd5 base64 encoded md5 digest of the chunk
+     * @return tag of the chunk
+     * @throws FileOperationException throws when fail to upload the chunk
+     */
+    @NonNull
+    public String uploadChunk(@NonNull ChunkedUpload upload, int index,
+        @NonNull InputStream content, @NonNull String contentMd5) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        if (upload.isStaged()) {
+            chunkStore.write(upload.getUploadId(), upload.getChunkSize() * index, content,
+                upload.sizeOfChunk(index), contentMd5);
+            return contentMd5;
+        }
+        return getChunkedHandler(upload).uploadChunk(upload, index, content, contentMd5);
+    }
+
+    /**
+     * Completes a chunked upload.
+     *
+     * @param upload chunked upload must not be null
+     * @return upload result
+     * @throws FileOperationException throws when fail to complete the upload
+     */
+    @NonNull
+    public UploadResult completeChunked(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        if (!upload.isStaged()) {
+            return getChunkedHandler(upload).complete(upload);
+        }
+        MultipartFile file = new PathMultipartFile(chunkStore.getPath(upload.getUploadId()),
+            upload.getOriginalName(), upload.getMediaType());
+        UploadResult uploadResult = upload(file, upload.getType());
+        chunkStore.delete(upload.getUploadId());
+        return uploadResult;
+    }
+
+    /**
+     * Aborts a chunked upload.
+     *
+     * @param upload chunked upload must not be null
+     */
+    public void abortChunked(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        if (upload.isStaged()) {
+            chunkStore.delete(upload.getUploadId());
+        } else {
+            getChunkedHandler(upload).abort(upload);
+        }
+    }
+
     /**
      * Deletes attachment.
      *
@@ -100,6 +187,15 @@ public class FileHandlers {
         return this;
     }
 
+    private ChunkedFileHandler getChunkedHandler(ChunkedUpload upload) {
+        FileHandler handler = getSupportedType(upload.getType());
+        if (!(handler instanceof ChunkedFileHandler)) {
+            throw new FileOperationException("No available file handlers to upload the chunks")
+                .setErrorData(upload.getType());
+        }
+        return (ChunkedFileHandler) handler;
+    }
+
     private FileHandler getSupportedType(AttachmentType type) {
         FileHandler handler =
             fileHandlers.getOrDefault(type, fileHandlers.get(AttachmentType.LOCAL));
@@ -3,9 +3,20 @@ package run.app.handler.file;
 import static run.app.model.support.HaloConst.URL_SEPARATOR;
 
 import com.obs.services.ObsClient;
+import com.obs.services.model.AbortMultipartUploadRequest;
+import com.obs.services.model.CompleteMultipartUploadRequest;
+import com.obs.services.model.InitiateMultipartUploadRequest;
+import com.obs.services.model.InitiateMultipartUploadResult;
+import com.obs.services.model.ObjectMetadata;
+import com.obs.services.model.PartEtag;
 import com.obs.services.model.PutObjectResult;
+import com.obs.services.model.UploadPartRequest;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.MediaType;
@@ -16,6 +27,7 @@ import org.springframework.web.multipart.MultipartFile;
 import run.app.exception.FileOperationException;
 import run.app.model.enums.AttachmentType;
 import run.app.model.properties.HuaweiObsProperties;
+import run.app.model.support.ChunkedUpload;
 import run.app.model.support.UploadResult;
 import run.app.repository.AttachmentRepository;
 import run.app.service.OptionService;
@@ -30,7 +42,7 @@ import run.app.utils.ImageUtils;
  */
 @Slf4j
 @Component
-public class HuaweiObsFileHandler implements FileHandler {
+public class HuaweiObsFileHandler implements ChunkedFileHandler {
 
     private final OptionService optionService;
     private final AttachmentRepository attachmentRepository;
@@ -46,18 +58,6 @@ public class HuaweiObsFileHandler implements FileHandler {
         Assert.notNull(file, "Multipart file must not be null");
 
         // Get config
-        String protocol =
-            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_PROTOCOL).toString();
-        String domain =
-            optionService.getByPropertyOrDefault(HuaweiObsProperties.OSS_DOMAIN, String.class, "");
-        String source =
-            optionService.getByPropertyOrDefault(HuaweiObsProperties.OSS_SOURCE, String.class, "");
-        String endPoint =
-            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ENDPOINT).toString();
-        String accessKey =
-            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ACCESS_KEY).toString();
-        String accessSecret =
-            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ACCESS_SECRET).toString();
         String bucketName =
             optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_BUCKET_NAME).toString();
         String styleRule = optionService
@@ -66,32 +66,10 @@ public class HuaweiObsFileHandler implements FileHandler {
             .getByPropertyOrDefault(HuaweiObsProperties.OSS_THUMBNAIL_STYLE_RULE, String.class, "");
 
         // Init OSS client
-        final ObsClient obsClient = new ObsClient(accessKey, accessSecret, endPoint);
-
-        StringBuilder basePath = new StringBuilder(protocol);
-
-        if (StringUtils.isNotEmpty(domain)) {
-            basePath.append(domain)
-                .append(URL_SEPARATOR);
-        } else {
-            basePath.append(bucketName)
-                .append(".")
-                .append(endPoint)
-                .append(URL_SEPARATOR);
-        }
+        final ObsClient obsClient = buildClient();
 
         try {
-            FilePathDescriptor pathDescriptor = new FilePathDescriptor.Builder()
-                .setBasePath(basePath.toString())
-                .setSubPath(source)
-                .setAutomaticRename(true)
-                .setRenamePredicate(relativePath ->
-                    attachmentRepository
-                        .countByFileKeyAndType(relativePath, AttachmentType.HUAWEIOBS) > 0)
-                .setOriginalName(file.getOriginalFilename())
-                .build();
-
-            log.info(basePath.toString());
+            FilePathDescriptor pathDescriptor = buildFilePath(file.getOriginalFilename());
 
             // Upload
             PutObjectResult putObjectResult =
@@ -136,6 +114,113 @@ public class HuaweiObsFileHandler implements FileHandler {
         }
     }
 
+    @Override
+    public void initiate(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_BUCKET_NAME).toString();
+        String styleRule = optionService
+            .getByPropertyOrDefault(HuaweiObsProperties.OSS_STYLE_RULE, String.class, "");
+
+        ObsClient obsClient = buildClient();
+        try {
+            FilePathDescriptor pathDescriptor = buildFilePath(upload.getOriginalName());
+
+            InitiateMultipartUploadRequest request =
+                new InitiateMultipartUploadRequest(bucketName, pathDescriptor.getRelativePath());
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentType(upload.getMediaType());
+            request.setMetadata(objectMetadata);
+            InitiateMultipartUploadResult result = obsClient.initiateMultipartUpload(request);
+
+            String fullPath = pathDescriptor.getFullPath();
+            upload.setName(pathDescriptor.getName());
+            upload.setSuffix(pathDescriptor.getExtension());
+            upload.setKey(pathDescriptor.getRelativePath());
+            upload.setFilePath(StringUtils.isBlank(styleRule) ? fullPath : fullPath + styleRule);
+            upload.setProviderUploadId(result.getUploadId());
+        } catch (Exception e) {
+            throw new FileOperationException("上传附件 " + upload.getOriginalName() + " 到华为云失败 ", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            closeClient(obsClient);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String uploadChunk(@NonNull ChunkedUpload upload, int index,
+        @NonNull InputStream content, @NonNull String contentMd5) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_BUCKET_NAME).toString();
+
+        ObsClient obsClient = buildClient();
+        try {
+            UploadPartRequest request = new UploadPartRequest(bucketName, upload.getKey());
+            request.setUploadId(upload.getProviderUploadId());
+            request.setPartNumber(index + 1);
+            request.setPartSize(upload.sizeOfChunk(index));
+            request.setInput(content);
+            // Lets OBS reject a corrupted part
+            request.setContentMd5(contentMd5);
+            return obsClient.uploadPart(request).getEtag();
+        } catch (Exception e) {
+            throw new FileOperationException("上传附件分片到华为云失败", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            closeClient(obsClient);
+        }
+    }
+
+    @NonNull
+    @Override
+    public UploadResult complete(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_BUCKET_NAME).toString();
+        List<PartEtag> partEtags = upload.getChunkTags().entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new PartEtag(entry.getValue(), entry.getKey() + 1))
+            .collect(Collectors.toList());
+
+        ObsClient obsClient = buildClient();
+        try {
+            obsClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName,
+                upload.getKey(), upload.getProviderUploadId(), partEtags));
+        } catch (Exception e) {
+            throw new FileOperationException("上传附件 " + upload.getOriginalName() + " 到华为云失败 ", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            closeClient(obsClient);
+        }
+
+        log.info("Uploaded file: [{}] in [{}] chunks successfully", upload.getOriginalName(),
+            upload.getChunkCount());
+        return buildUploadResult(upload);
+    }
+
+    @Override
+    public void abort(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_BUCKET_NAME).toString();
+
+        ObsClient obsClient = buildClient();
+        try {
+            obsClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName,
+                upload.getKey(), upload.getProviderUploadId()));
+        } catch (Exception e) {
+            throw new FileOperationException("取消上传附件 " + upload.getOriginalName() + " 失败", e);
+        } finally {
+            closeClient(obsClient);
+        }
+    }
+
     @Override
     public void delete(@NonNull String key) {
         Assert.notNull(key, "File key must not be blank");
@@ -171,4 +256,57 @@ public class HuaweiObsFileHandler implements FileHandler {
         return AttachmentType.HUAWEIOBS;
     }
 
+    private ObsClient buildClient() {
+        String endPoint =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ENDPOINT).toString();
+        String accessKey =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ACCESS_KEY).toString();
+        String accessSecret =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ACCESS_SECRET).toString();
+        return new ObsClient(accessKey, accessSecret, endPoint);
+    }
+
+    private void closeClient(ObsClient obsClient) {
+        try {
+            obsClient.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    private FilePathDescriptor buildFilePath(String originalName) {
+        String protocol =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_PROTOCOL).toString();
+        String domain =
+            optionService.getByPropertyOrDefault(HuaweiObsProperties.OSS_DOMAIN, String.class, "");
+        String source =
+            optionService.getByPropertyOrDefault(HuaweiObsProperties.OSS_SOURCE, String.class, "");
+        String endPoint =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_ENDPOINT).toString();
+        String bucketName =
+            optionService.getByPropertyOfNonNull(HuaweiObsProperties.OSS_BUCKET_NAME).toString();
+
+        StringBuilder basePath = new StringBuilder(protocol);
+
+        if (StringUtils.isNotEmpty(domain)) {
+            basePath.append(domain)
+                .append(URL_SEPARATOR);
+        } else {
+            basePath.append(bucketName)
+                .append(".")
+                .append(endPoint)
+                .append(URL_SEPARATOR);
+        }
+
+        return new FilePathDescriptor.Builder()
+            .setBasePath(basePath.toString())
+            .setSubPath(source)
+            .setAutomaticRename(true)
+            .setRenamePredicate(relativePath ->
+                attachmentRepository
+                    .countByFileKeyAndType(relativePath, AttachmentType.HUAWEIOBS) > 0)
+            .setOriginalName(originalName)
+            .build();
+    }
+
 }
@@ -2,7 +2,6 @@ package run.app.handler.file;
 
 import static run.app.model.support.HaloConst.FILE_SEPARATOR;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -11,7 +10,6 @@ import java.nio.file.Paths;
 import java.util.Calendar;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
@@ -20,10 +18,9 @@ import org.springframework.web.multipart.MultipartFile;
 import run.app.config.properties.HaloProperties;
 import run.app.exception.FileOperationException;
 import run.app.model.enums.AttachmentType;
+import run.app.model.support.ChunkedUpload;
 import run.app.model.support.UploadResult;
 import run.app.repository.AttachmentRepository;
-import run.app.utils.FilenameUtils;
-import run.app.utils.ImageUtils;
 
 /**
  * Local file handler.
@@ -35,32 +32,28 @@ import run.app.utils.ImageUtils;
  */
 @Slf4j
 @Component
-public class LocalFileHandler implements FileHandler {
+public class LocalFileHandler implements ChunkedFileHandler {
 
     /**
      * Upload sub directory.
      */
     private static final String UPLOAD_SUB_DIR = "upload/";
 
-    private static final String THUMBNAIL_SUFFIX = "-thumbnail";
-
-    /**
-     * Thumbnail width.
-     */
-    private static final int THUMB_WIDTH = 256;
+    private final AttachmentRepository attachmentRepository;
 
-    /**
-     * Thumbnail height.
-     */
-    private static final int THUMB_HEIGHT = 256;
+    private final ThumbnailGenerator thumbnailGenerator;
 
-    private final AttachmentRepository attachmentRepository;
+    private final ChunkStore chunkStore;
 
     private final String workDir;
 
     public LocalFileHandler(AttachmentRepository attachmentRepository,
+        ThumbnailGenerator thumbnailGenerator,
+        ChunkStore chunkStore,
         HaloProperties haloProperties) {
         this.attachmentRepository = attachmentRepository;
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.chunkStore = chunkStore;
 
         // Get work dir
         workDir = FileHandler.normalizeDirectory(haloProperties.getWorkDir());
@@ -89,16 +82,7 @@ public class LocalFileHandler implements FileHandler {
     public UploadResult upload(@NonNull MultipartFile file) {
         Assert.notNull(file, "Multipart file must not be null");
 
-        FilePathDescriptor uploadFilePath = new FilePathDescriptor.Builder()
-            .setBasePath(workDir)
-            .setSubPath(generatePath())
-            .setSeparator(FILE_SEPARATOR)
-            .setAutomaticRename(true)
-            .setRenamePredicate(relativePath ->
-                attachmentRepository
-                    .countByFileKeyAndType(relativePath, AttachmentType.LOCAL) > 0)
-            .setOriginalName(file.getOriginalFilename())
-            .build();
+        FilePathDescriptor uploadFilePath = buildFilePath(file.getOriginalFilename());
         log.info("Uploading file: [{}] to directory: [{}]", file.getOriginalFilename(),
             uploadFilePath.getRelativePath());
         Path localFileFullPath = Paths.get(uploadFilePath.getFullPath());
@@ -123,28 +107,8 @@ public class LocalFileHandler implements FileHandler {
 
             // TODO refactor this: if image is svg ext. extension
             handleImageMetadata(file, uploadResult, () -> {
-                // Upload a thumbnail
-                FilePathDescriptor thumbnailFilePath = new FilePathDescriptor.Builder()
-                    .setBasePath(workDir)
-                    .setSubPath(uploadFilePath.getSubPath())
-                    .setSeparator(FILE_SEPARATOR)
-                    .setOriginalName(uploadFilePath.getFullName())
-                    .setNameSuffix(THUMBNAIL_SUFFIX)
-                    .build();
-                final Path thumbnailPath = Paths.get(thumbnailFilePath.getFullPath());
-                try (InputStream is = file.getInputStream()) {
-                    // Generate thumbnail
-                    BufferedImage originalImage =
-                        ImageUtils.getImageFromFile(is, uploadFilePath.getExtension());
-                    boolean result = generateThumbnail(originalImage, thumbnailPath,
-                        uploadFilePath.getExtension());
-                    if (result) {
-                        // Set thumb path
-                        return thumbnailFilePath.getRelativePath();
-                    }
-                } catch (Throwable e) {
-                    log.warn("Failed to open image file.", e);
-                }
+                // The image is its own thumbnail until the thumbnails are generated
+                thumbnailGenerator.submit(uploadFilePath.getRelativePath());
                 return uploadFilePath.getRelativePath();
             });
 
@@ -157,6 +121,60 @@ public class LocalFileHandler implements FileHandler {
         }
     }
 
+    @Override
+    public void initiate(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+        // Chunks are kept in the chunk store, the file path is resolved when completed
+    }
+
+    @NonNull
+    @Override
+    public String uploadChunk(@NonNull ChunkedUpload upload, int index,
+        @NonNull InputStream content, @NonNull String contentMd5) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        chunkStore.write(upload.getUploadId(), upload.getChunkSize() * index, content,
+            upload.sizeOfChunk(index), contentMd5);
+        return contentMd5;
+    }
+
+    @NonNull
+    @Override
+    public UploadResult complete(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        Path chunkPath = chunkStore.getPath(upload.getUploadId());
+        FilePathDescriptor uploadFilePath = buildFilePath(upload.getOriginalName());
+        Path localFileFullPath = Paths.get(uploadFilePath.getFullPath());
+        try {
+            if (Files.size(chunkPath) != upload.getSize()) {
+                throw new FileOperationException("上传附件失败，文件大小不一致")
+                    .setErrorData(upload.getOriginalName());
+            }
+            // Chunks are in the work directory, so the file is moved rather than copied
+            Files.createDirectories(localFileFullPath.getParent());
+            Files.move(chunkPath, localFileFullPath);
+        } catch (IOException e) {
+            throw new FileOperationException("上传附件失败", e)
+                .setErrorData(uploadFilePath.getFullPath());
+        }
+
+        upload.setName(uploadFilePath.getName());
+        upload.setSuffix(uploadFilePath.getExtension());
+        upload.setKey(uploadFilePath.getRelativePath());
+        upload.setFilePath(uploadFilePath.getRelativePath());
+
+        log.info("Uploaded file: [{}] to directory: [{}] in [{}] chunks successfully",
+            upload.getOriginalName(), uploadFilePath.getFullPath(), upload.getChunkCount());
+        return buildUploadResult(upload);
+    }
+
+    @Override
+    public void abort(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+        chunkStore.delete(upload.getUploadId());
+    }
+
     @Override
     public void delete(String key) {
         Assert.hasText(key, "File key must not be blank");
@@ -170,24 +188,13 @@ public class LocalFileHandler implements FileHandler {
             throw new FileOperationException("附件 " + key + " 删除失败", e);
         }
 
-        // Delete thumb if necessary
-        String basename = FilenameUtils.getBasename(key);
-        String extension = FilenameUtils.getExtension(key);
-
-        // Get thumbnail name
-        String thumbnailName = basename + THUMBNAIL_SUFFIX + '.' + extension;
-
-        // Get thumbnail path
-        Path thumbnailPath = Paths.get(path.getParent().toString(), thumbnailName);
-
-        // Delete thumbnail file
-        try {
-            boolean deleteResult = Files.deleteIfExists(thumbnailPath);
-            if (!deleteResult) {
-                log.warn("Thumbnail: [{}] may not exist", thumbnailPath.toString());
+        // Delete thumbnails if necessary
+        for (String thumbnailKey : thumbnailGenerator.getThumbnailKeys(key)) {
+            try {
+                Files.deleteIfExists(Paths.get(workDir, thumbnailKey));
+            } catch (IOException e) {
+                throw new FileOperationException("附件缩略图 " + thumbnailKey + " 删除失败", e);
             }
-        } catch (IOException e) {
-            throw new FileOperationException("附件缩略图 " + thumbnailName + " 删除失败", e);
         }
     }
 
@@ -196,6 +203,19 @@ public class LocalFileHandler implements FileHandler {
         return AttachmentType.LOCAL;
     }
 
+    private FilePathDescriptor buildFilePath(String originalName) {
+        return new FilePathDescriptor.Builder()
+            .setBasePath(workDir)
+            .setSubPath(generatePath())
+            .setSeparator(FILE_SEPARATOR)
+            .setAutomaticRename(true)
+            .setRenamePredicate(relativePath ->
+                attachmentRepository
+                    .countByFileKeyAndType(relativePath, AttachmentType.LOCAL) > 0)
+            .setOriginalName(originalName)
+            .build();
+    }
+
     private String generatePath() {
         // Get current time
         Calendar current = Calendar.getInstance();
@@ -208,29 +228,4 @@ public class LocalFileHandler implements FileHandler {
         // Build directory
         return UPLOAD_SUB_DIR + year + FILE_SEPARATOR + monthString + FILE_SEPARATOR;
     }
-
-    private boolean generateThumbnail(BufferedImage originalImage, Path thumbPath,
-        String extension) {
-        Assert.notNull(originalImage, "Image must not be null");
-        Assert.notNull(thumbPath, "Thumb path must not be null");
-
-        boolean result = false;
-        // Create the thumbnail
-        try {
-            Files.createFile(thumbPath);
-            // Convert to thumbnail and copy the thumbnail
-            log.debug("Trying to generate thumbnail: [{}]", thumbPath);
-            Thumbnails.of(originalImage).size(THUMB_WIDTH, THUMB_HEIGHT).keepAspectRatio(true)
-                .toFile(thumbPath.toFile());
-            log.info("Generated thumbnail image, and wrote the thumbnail to [{}]", thumbPath);
-            result = true;
-        } catch (Throwable t) {
-            // Ignore the error
-            log.warn("Failed to generate thumbnail: " + thumbPath, t);
-        } finally {
-            // Disposes of this graphics context and releases any system resources that it is using.
-            originalImage.getGraphics().dispose();
-        }
-        return result;
-    }
 }
@@ -0,0 +1,80 @@
+package run.app.handler.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import org.springframework.lang.NonNull;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Multipart file backed by a local file.
+ */
+class PathMultipartFile implements MultipartFile {
+
+    private final Path path;
+
+    private final String originalFilename;
+
+    private final String contentType;
+
+    PathMultipartFile(Path path, String originalFilename, String contentType) {
+        this.path = path;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+    }
+
+    @Override
+    @NonNull
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    @NonNull
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    @NonNull
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(@NonNull File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(@NonNull Path dest) throws IOException {
+        Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -6,19 +6,31 @@ import com.qcloud.cos.COSClient;
 import com.qcloud.cos.ClientConfig;
 import com.qcloud.cos.auth.BasicCOSCredentials;
 import com.qcloud.cos.auth.COSCredentials;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadResult;
 import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
 import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.UploadPartRequest;
 import com.qcloud.cos.region.Region;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.web.multipart.MultipartFile;
 import run.app.exception.FileOperationException;
 import run.app.model.enums.AttachmentType;
 import run.app.model.properties.TencentCosProperties;
+import run.app.model.support.ChunkedUpload;
 import run.app.model.support.UploadResult;
 import run.app.repository.AttachmentRepository;
 import run.app.service.OptionService;
@@ -33,7 +45,7 @@ import run.app.utils.ImageUtils;
  */
 @Slf4j
 @Component
-public class TencentCosFileHandler implements FileHandler {
+public class TencentCosFileHandler implements ChunkedFileHandler {
 
     private final OptionService optionService;
     private final AttachmentRepository attachmentRepository;
@@ -49,56 +61,19 @@ public class TencentCosFileHandler implements FileHandler {
         Assert.notNull(file, "Multipart file must not be null");
 
         // Get config
-        String protocol =
-            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_PROTOCOL).toString();
-        String domain =
-            optionService.getByPropertyOrDefault(TencentCosProperties.COS_DOMAIN, String.class, "");
-        String region =
-            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_REGION).toString();
-        String secretId =
-            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_SECRET_ID).toString();
-        String secretKey =
-            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_SECRET_KEY).toString();
         String bucketName =
             optionService.getByPropertyOfNonNull(TencentCosProperties.COS_BUCKET_NAME).toString();
-        String source =
-            optionService.getByPropertyOrDefault(TencentCosProperties.COS_SOURCE, String.class, "");
         String styleRule = optionService
             .getByPropertyOrDefault(TencentCosProperties.COS_STYLE_RULE, String.class, "");
         String thumbnailStyleRule = optionService
             .getByPropertyOrDefault(TencentCosProperties.COS_THUMBNAIL_STYLE_RULE, String.class,
                 "");
 
-        COSCredentials cred = new BasicCOSCredentials(secretId, secretKey);
-        Region regionConfig = new Region(region);
-        ClientConfig clientConfig = new ClientConfig(regionConfig);
-
         // Init OSS client
-        COSClient cosClient = new COSClient(cred, clientConfig);
-
-        StringBuilder basePath = new StringBuilder(protocol);
-
-        if (StringUtils.isNotEmpty(domain)) {
-            basePath.append(domain)
-                .append(URL_SEPARATOR);
-        } else {
-            basePath.append(bucketName)
-                .append(".cos.")
-                .append(region)
-                .append(".myqcloud.com")
-                .append(URL_SEPARATOR);
-        }
+        COSClient cosClient = buildClient();
 
         try {
-            FilePathDescriptor pathDescriptor = new FilePathDescriptor.Builder()
-                .setBasePath(basePath.toString())
-                .setSubPath(source)
-                .setAutomaticRename(true)
-                .setRenamePredicate(relativePath ->
-                    attachmentRepository
-                        .countByFileKeyAndType(relativePath, AttachmentType.TENCENTCOS) > 0)
-                .setOriginalName(file.getOriginalFilename())
-                .build();
+            FilePathDescriptor pathDescriptor = buildFilePath(file.getOriginalFilename());
 
             // Upload
             ObjectMetadata objectMetadata = new ObjectMetadata();
@@ -142,6 +117,113 @@ public class TencentCosFileHandler implements FileHandler {
         }
     }
 
+    @Override
+    public void initiate(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_BUCKET_NAME).toString();
+        String styleRule = optionService
+            .getByPropertyOrDefault(TencentCosProperties.COS_STYLE_RULE, String.class, "");
+
+        COSClient cosClient = buildClient();
+        try {
+            FilePathDescriptor pathDescriptor = buildFilePath(upload.getOriginalName());
+
+            InitiateMultipartUploadRequest request =
+                new InitiateMultipartUploadRequest(bucketName, pathDescriptor.getRelativePath());
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentType(upload.getMediaType());
+            request.setObjectMetadata(objectMetadata);
+            InitiateMultipartUploadResult result = cosClient.initiateMultipartUpload(request);
+
+            String fullPath = pathDescriptor.getFullPath();
+            upload.setName(pathDescriptor.getName());
+            upload.setSuffix(pathDescriptor.getExtension());
+            upload.setKey(pathDescriptor.getRelativePath());
+            upload.setFilePath(StringUtils.isBlank(styleRule) ? fullPath : fullPath + styleRule);
+            upload.setProviderUploadId(result.getUploadId());
+        } catch (Exception e) {
+            throw new FileOperationException("附件 " + upload.getOriginalName() + " 上传失败(腾讯云)", e);
+        } finally {
+            cosClient.shutdown();
+        }
+    }
+
+    @NonNull
+    @Override
+    public String uploadChunk(@NonNull ChunkedUpload upload, int index,
+        @NonNull InputStream content, @NonNull String contentMd5) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_BUCKET_NAME).toString();
+
+        COSClient cosClient = buildClient();
+        try {
+            UploadPartRequest request = new UploadPartRequest();
+            request.setBucketName(bucketName);
+            request.setKey(upload.getKey());
+            request.setUploadId(upload.getProviderUploadId());
+            request.setPartNumber(index + 1);
+            request.setPartSize(upload.sizeOfChunk(index));
+            request.setInputStream(content);
+            // Lets COS reject a corrupted part
+            request.setMd5Digest(contentMd5);
+            return cosClient.uploadPart(request).getETag();
+        } catch (Exception e) {
+            throw new FileOperationException("附件分片上传失败(腾讯云)", e)
+                .setErrorData(upload.getOriginalName());
+        } finally {
+            cosClient.shutdown();
+        }
+    }
+
+    @NonNull
+    @Override
+    public UploadResult complete(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_BUCKET_NAME).toString();
+        List<PartETag> partETags = upload.getChunkTags().entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .map(entry -> new PartETag(entry.getKey() + 1, entry.getValue()))
+            .collect(Collectors.toList());
+
+        COSClient cosClient = buildClient();
+        try {
+            cosClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName,
+                upload.getKey(), upload.getProviderUploadId(), partETags));
+        } catch (Exception e) {
+            throw new FileOperationException("附件 " + upload.getOriginalName() + " 上传失败(腾讯云)", e);
+        } finally {
+            cosClient.shutdown();
+        }
+
+        log.info("Uploaded file: [{}] in [{}] chunks successfully", upload.getOriginalName(),
+            upload.getChunkCount());
+        return buildUploadResult(upload);
+    }
+
+    @Override
+    public void abort(@NonNull ChunkedUpload upload) {
+        Assert.notNull(upload, "Chunked upload must not be null");
+
+        String bucketName =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_BUCKET_NAME).toString();
+
+        COSClient cosClient = buildClient();
+        try {
+            cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName,
+                upload.getKey(), upload.getProviderUploadId()));
+        } catch (Exception e) {
+            throw new FileOperationException("取消上传附件 " + upload.getOriginalName() + " 失败", e);
+        } finally {
+            cosClient.shutdown();
+        }
+    }
+
     @Override
     public void delete(String key) {
         Assert.notNull(key, "File key must not be blank");
@@ -176,4 +258,53 @@ public class TencentCosFileHandler implements FileHandler {
     public AttachmentType getAttachmentType() {
         return AttachmentType.TENCENTCOS;
     }
+
+    private COSClient buildClient() {
+        String region =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_REGION).toString();
+        String secretId =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_SECRET_ID).toString();
+        String secretKey =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_SECRET_KEY).toString();
+
+        COSCredentials cred = new BasicCOSCredentials(secretId, secretKey);
+        ClientConfig clientConfig = new ClientConfig(new Region(region));
+        return new COSClient(cred, clientConfig);
+    }
+
+    private FilePathDescriptor buildFilePath(String originalName) {
+        String protocol =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_PROTOCOL).toString();
+        String domain =
+            optionService.getByPropertyOrDefault(TencentCosProperties.COS_DOMAIN, String.class, "");
+        String region =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_REGION).toString();
+        String bucketName =
+            optionService.getByPropertyOfNonNull(TencentCosProperties.COS_BUCKET_NAME).toString();
+        String source =
+            optionService.getByPropertyOrDefault(TencentCosProperties.COS_SOURCE, String.class, "");
+
+        StringBuilder basePath = new StringBuilder(protocol);
+
+        if (StringUtils.isNotEmpty(domain)) {
+            basePath.append(domain)
+                .append(URL_SEPARATOR);
+        } else {
+            basePath.append(bucketName)
+                .append(".cos.")
+                .append(region)
+                .append(".myqcloud.com")
+                .append(URL_SEPARATOR);
+        }
+
+        return new FilePathDescriptor.Builder()
+            .setBasePath(basePath.toString())
+            .setSubPath(source)
+            .setAutomaticRename(true)
+            .setRenamePredicate(relativePath ->
+                attachmentRepository
+                    .countByFileKeyAndType(relativePath, AttachmentType.TENCENTCOS) > 0)
+            .setOriginalName(originalName)
+            .build();
+    }
 }
@@ -0,0 +1,268 @@
+package run.app.handler.file;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import lombok.extern.slf4j.Slf4j;
+import net.coobird.thumbnailator.Thumbnails;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import run.app.config.properties.HaloProperties;
+import run.app.model.entity.Attachment;
+import run.app.model.enums.AttachmentType;
+import run.app.repository.AttachmentRepository;
+import run.app.utils.FilenameUtils;
+import run.app.utils.HaloUtils;
+import run.app.utils.ImageUtils;
+
+/**
+ * Generates thumbnails of local images in the background.
+ *
+ * <p>An uploaded image uses itself as thumbnail until its thumbnails have been generated, then
+ * the thumbnail path of the attachment is updated.
+ */
+@Slf4j
+@Component
+public class ThumbnailGenerator {
+
+    private static final String THUMBNAIL_SUFFIX = "-thumbnail";
+
+    private static final String WEBP_FORMAT = "webp";
+
+    private static final int BACKFILL_BATCH_SIZE = 100;
+
+    /**
+     * The attachment may not have been saved when its thumbnails are ready.
+     */
+    private static final int UPDATE_MAX_ATTEMPTS = 5;
+
+    private static final long UPDATE_RETRY_DELAY_MILLIS = 1000;
+
+    private final AttachmentRepository attachmentRepository;
+
+    private final Path workPath;
+
+    private final List<Integer> sizes;
+
+    private final boolean webpEnabled;
+
+    private final Semaphore queuePermits;
+
+    private final ScheduledExecutorService executor;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    public ThumbnailGenerator(AttachmentRepository attachmentRepository,
+        HaloProperties haloProperties) {
+        this.attachmentRepository = attachmentRepository;
+        this.workPath = Paths.get(haloProperties.getWorkDir());
+        this.sizes = haloProperties.getThumbnailSizes().stream()
+            .filter(Objects::nonNull)
+            .filter(size -> size > 0)
+            .distinct()
+            .collect(Collectors.toList());
+        Assert.notEmpty(sizes, "Thumbnail sizes must not be empty");
+
+        boolean webpWritable = ImageIO.getImageWritersByFormatName(WEBP_FORMAT).hasNext();
+        if (haloProperties.isThumbnailWebpEnabled() && !webpWritable) {
+            log.warn("No webp image writer found, webp thumbnails will not be generated");
+        }
+        this.webpEnabled = haloProperties.isThumbnailWebpEnabled() && webpWritable;
+        this.queuePermits = new Semaphore(Math.max(1, haloProperties.getThumbnailQueueCapacity()));
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(
+            Math.min(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread =
+                    new Thread(runnable, "thumbnail-generator-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Queues thumbnail generation of the local image.
+     *
+     * @param fileKey file key of the image
+     * @return false if the queue is full
+     */
+    public boolean submit(@NonNull String fileKey) {
+        Assert.hasText(fileKey, "File key must not be blank");
+
+        if (!queuePermits.tryAcquire()) {
+            log.warn("Thumbnail queue is full, skipped thumbnail of [{}]", fileKey);
+            return false;
+        }
+        execute(fileKey);
+        return true;
+    }
+
+    /**
+     * Generates the missing thumbnails of all local images in the background.
+     *
+     * @return false if a backfill is already running
+     */
+    public boolean backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread backfillThread = new Thread(() -> {
+            try {
+                doBackfill();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Failed to backfill thumbnails", e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        }, "thumbnail-backfill");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
+        return true;
+    }
+
+    /**
+     * Gets keys of all thumbnails of the image, whether or not they exist.
+     *
+     * @param fileKey file key of the image
+     * @return a list of thumbnail key
+     */
+    @NonNull
+    public List<String> getThumbnailKeys(@NonNull String fileKey) {
+        List<String> thumbnailKeys = new ArrayList<>();
+        for (int i = 0; i < sizes.size(); i++) {
+            thumbnailKeys.add(getThumbnailKey(fileKey, i, null));
+            thumbnailKeys.add(getThumbnailKey(fileKey, i, WEBP_FORMAT));
+        }
+        return thumbnailKeys;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void execute(String fileKey) {
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(fileKey);
+                } finally {
+                    queuePermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            queuePermits.release();
+            log.warn("Failed to queue thumbnail of [{}]", fileKey, e);
+        }
+    }
+
+    private void doBackfill() throws InterruptedException {
+        int queued = 0;
+        Integer lastId = null;
+        List<Attachment> attachments;
+        while (!(attachments = attachmentRepository.findAllAfterId(lastId, BACKFILL_BATCH_SIZE))
+            .isEmpty()) {
+            for (Attachment attachment : attachments) {
+                if (isMissingThumbnail(attachment)) {
+                    // Wait for room instead of dropping, the queue is shared with uploads
+                    queuePermits.acquire();
+                    execute(attachment.getFileKey());
+                    queued++;
+                }
+            }
+            lastId = attachments.get(attachments.size() - 1).getId();
+        }
+        log.info("Queued [{}] attachments for thumbnail backfill", queued);
+    }
+
+    private boolean isMissingThumbnail(Attachment attachment) {
+        if (!AttachmentType.LOCAL.equals(attachment.getType())
+            || StringUtils.isBlank(attachment.getFileKey())
+            || !StringUtils.startsWith(attachment.getMediaType(), "image/")
+            || StringUtils.startsWith(attachment.getMediaType(), "image/svg")) {
+            return false;
+        }
+        String thumbnailKey = getThumbnailKey(attachment.getFileKey(), 0, null);
+        return !Objects.equals(attachment.getThumbPath(),
+            HaloUtils.changeFileSeparatorToUrlSeparator(thumbnailKey))
+            || Files.notExists(workPath.resolve(thumbnailKey));
+    }
+
+    private void generate(String fileKey) {
+        Path imagePath = workPath.resolve(fileKey);
+        String extension = FilenameUtils.getExtension(fileKey);
+        long startTime = System.currentTimeMillis();
+
+        BufferedImage image = null;
+        try {
+            image = ImageUtils.readSubsampledImage(imagePath, extension,
+                Collections.max(sizes));
+            for (int i = 0; i < sizes.size(); i++) {
+                int size = sizes.get(i);
+                Thumbnails.of(image).size(size, size).keepAspectRatio(true)
+                    .toFile(workPath.resolve(getThumbnailKey(fileKey, i, null)).toFile());
+                if (webpEnabled) {
+                    Thumbnails.of(image).size(size, size).keepAspectRatio(true)
+                        .outputFormat(WEBP_FORMAT)
+                        .toFile(workPath.resolve(getThumbnailKey(fileKey, i, WEBP_FORMAT))
+                            .toFile());
+                }
+            }
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            log.warn("Failed to generate thumbnail of [{}]", imagePath, e);
+            return;
+        } finally {
+            if (image != null) {
+                image.flush();
+            }
+        }
+        log.info("Generated thumbnails of [{}] in [{}] ms", imagePath,
+            System.currentTimeMillis() - startTime);
+
+        updateThumbPath(fileKey,
+            HaloUtils.changeFileSeparatorToUrlSeparator(getThumbnailKey(fileKey, 0, null)), 1);
+    }
+
+    private void updateThumbPath(String fileKey, String thumbPath, int attempt) {
+        if (attachmentRepository.updateThumbPath(thumbPath, fileKey, AttachmentType.LOCAL) > 0) {
+            return;
+        }
+        if (attempt >= UPDATE_MAX_ATTEMPTS) {
+            log.warn("Attachment of [{}] not found, thumbnail path was not updated", fileKey);
+            return;
+        }
+        executor.schedule(() -> updateThumbPath(fileKey, thumbPath, attempt + 1),
+            UPDATE_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds the thumbnail key, the first size keeps the name used before derivatives existed.
+     */
+    private String getThumbnailKey(String fileKey, int sizeIndex, String format) {
+        String basename = FilenameUtils.getBasename(fileKey);
+        String extension = format == null ? FilenameUtils.getExtension(fileKey) : format;
+        String name = basename + THUMBNAIL_SUFFIX
+            + (sizeIndex == 0 ? "" : "-" + sizes.get(sizeIndex)) + '.' + extension;
+        Path parent = Paths.get(fileKey).getParent();
+        return parent == null ? name : parent.resolve(name).toString();
+    }
+}
@@ -0,0 +1,60 @@
+package run.app.listener.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.app.event.category.CategoryUpdatedEvent;
+import run.app.event.options.OptionUpdatedEvent;
+import run.app.event.post.ContentRenderedEvent;
+import run.app.event.post.PostDeletedEvent;
+import run.app.event.post.PostStatusRefreshedEvent;
+import run.app.event.post.PostUpdatedEvent;
+import run.app.event.user.UserUpdatedEvent;
+import run.app.service.FeedService;
+
+/**
+ * Feed and sitemap invalidation listener.
+ */
+@Component
+public class FeedCacheListener {
+
+    private final FeedService feedService;
+
+    public FeedCacheListener(FeedService feedService) {
+        this.feedService = feedService;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdated(PostUpdatedEvent event) {
+        feedService.evictAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        feedService.evictAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostStatusRefreshed(PostStatusRefreshedEvent event) {
+        feedService.evictAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentRendered(ContentRenderedEvent event) {
+        feedService.evictAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryUpdated(CategoryUpdatedEvent event) {
+        feedService.evictAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOptionUpdated(OptionUpdatedEvent event) {
+        feedService.evictAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserUpdated(UserUpdatedEvent event) {
+        feedService.evictAll();
+    }
+}
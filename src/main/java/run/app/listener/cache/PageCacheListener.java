@@ -0,0 +1,113 @@
+package run.app.listener.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.app.cache.page.PageCache;
+import run.app.event.category.CategoryUpdatedEvent;
+import run.app.event.comment.AbstractCommentBaseEvent;
+import run.app.event.comment.CommentNewEvent;
+import run.app.event.comment.CommentReplyEvent;
+import run.app.event.options.OptionUpdatedEvent;
+import run.app.event.post.ContentRenderedEvent;
+import run.app.event.post.PostDeletedEvent;
+import run.app.event.post.PostStatusRefreshedEvent;
+import run.app.event.post.PostUpdatedEvent;
+import run.app.event.theme.ThemeActivatedEvent;
+import run.app.event.theme.ThemeUpdatedEvent;
+import run.app.model.entity.BaseComment;
+import run.app.model.entity.Post;
+import run.app.service.JournalCommentService;
+import run.app.service.base.BaseCommentService;
+
+/**
+ * Page cache invalidation listener.
+ *
+ * <p>Pages are evicted after the transaction publishing the event has been committed, so that
+ * they can not be rendered again from the data before the change.
+ */
+@Slf4j
+@Component
+public class PageCacheListener {
+
+    private final PageCache pageCache;
+
+    public PageCacheListener(PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdated(PostUpdatedEvent event) {
+        Post post = event.getPost();
+        if (post != null) {
+            pageCache.evictPost(post.getId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        pageCache.evictPost(event.getPostId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryUpdated(CategoryUpdatedEvent event) {
+        pageCache.evict(PageCache.LIST_DEPENDENCY);
+        if (event.getPostIds() != null) {
+            event.getPostIds()
+                .forEach(postId -> pageCache.evict(PageCache.postDependency(postId)));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentNew(CommentNewEvent event) {
+        evictCommented(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentReply(CommentReplyEvent event) {
+        evictCommented(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostStatusRefreshed(PostStatusRefreshedEvent event) {
+        pageCache.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentRendered(ContentRenderedEvent event) {
+        pageCache.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOptionUpdated(OptionUpdatedEvent event) {
+        pageCache.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onThemeUpdated(ThemeUpdatedEvent event) {
+        pageCache.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onThemeActivated(ThemeActivatedEvent event) {
+        pageCache.clear();
+    }
+
+    private void evictCommented(AbstractCommentBaseEvent event) {
+        if (!(event.getSource() instanceof BaseCommentService)) {
+            return;
+        }
+        BaseComment comment = ((BaseCommentService<?>) event.getSource())
+            .getByIdOfNullable(event.getCommentId());
+        if (comment == null) {
+            log.debug("Comment [{}] has gone before evicting its page", event.getCommentId());
+            return;
+        }
+        if (event.getSource() instanceof JournalCommentService) {
+            // Journals are rendered by the journal listing pages only
+            pageCache.evict(PageCache.LIST_DEPENDENCY);
+            return;
+        }
+        pageCache.evict(PageCache.postDependency(comment.getPostId()));
+    }
+}
@@ -4,7 +4,6 @@ import java.util.HashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionalEventListener;
 import run.app.event.comment.CommentNewEvent;
@@ -93,7 +92,6 @@ public class CommentEventListener {
      *
      * @param newEvent new comment event.
      */
-    @Async
     @TransactionalEventListener
     public void handleCommentNewEvent(CommentNewEvent newEvent) {
         Boolean newCommentNotice = optionService
@@ -185,7 +183,7 @@ public class CommentEventListener {
             template = themeService.renderWithSuffix("mail_template/mail_notice");
         }
 
-        mailService.sendTemplateMail(user.getEmail(), subject.toString(), data, template);
+        sendTemplateMail(user.getEmail(), subject.toString(), data, template);
     }
 
     /**
@@ -193,7 +191,6 @@ public class CommentEventListener {
      *
      * @param replyEvent reply comment event.
      */
-    @Async
     @TransactionalEventListener
     public void handleCommentReplyEvent(CommentReplyEvent replyEvent) {
         Boolean replyCommentNotice = optionService
@@ -341,6 +338,19 @@ public class CommentEventListener {
             template = themeService.renderWithSuffix("mail_template/mail_reply");
         }
 
-        mailService.sendTemplateMail(baseAuthorEmail, subject.toString(), data, template);
+        sendTemplateMail(baseAuthorEmail, subject.toString(), data, template);
+    }
+
+    /**
+     * Queues the notice into the mail outbox. It runs after the comment has been committed, so
+     * failures are logged instead of failing the request.
+     */
+    private void sendTemplateMail(String to, String subject, Map<String, Object> data,
+        String template) {
+        try {
+            mailService.sendTemplateMail(to, subject, data, template);
+        } catch (RuntimeException e) {
+            log.error("Failed to queue comment notice to [{}]", to, e);
+        }
     }
 }
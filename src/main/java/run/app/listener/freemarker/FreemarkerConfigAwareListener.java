@@ -1,7 +1,5 @@
 package run.app.listener.freemarker;
 
-import static run.app.model.support.HaloConst.OPTIONS_CACHE_KEY;
-
 import freemarker.core.TemplateClassResolver;
 import freemarker.template.Configuration;
 import freemarker.template.TemplateModel;
@@ -16,7 +14,6 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
-import run.app.cache.AbstractStringCacheStore;
 import run.app.core.freemarker.inheritance.ThemeExtendsDirective;
 import run.app.event.options.OptionUpdatedEvent;
 import run.app.event.theme.ThemeActivatedEvent;
@@ -52,20 +49,16 @@ public class FreemarkerConfigAwareListener {
 
     private final UserService userService;
 
-    private final AbstractStringCacheStore cacheStore;
-
     public FreemarkerConfigAwareListener(ClientOptionService optionService,
         Configuration configuration,
         ThemeService themeService,
         ThemeSettingService themeSettingService,
-        UserService userService,
-        AbstractStringCacheStore cacheStore) throws TemplateModelException {
+        UserService userService) throws TemplateModelException {
         this.optionService = optionService;
         this.configuration = configuration;
         this.themeService = themeService;
         this.themeSettingService = themeSettingService;
         this.userService = userService;
-        this.cacheStore = cacheStore;
 
         this.initFreemarkerConfig();
     }
@@ -119,9 +112,8 @@ public class FreemarkerConfigAwareListener {
     public void onOptionUpdate(OptionUpdatedEvent event) throws TemplateModelException {
         log.debug("Received option updated event");
 
-        // refresh options cache
+        // the option snapshot has been evicted by the option service already
         optionService.flush();
-        cacheStore.delete(OPTIONS_CACHE_KEY);
 
         loadOptionsConfig();
         loadThemeConfig();
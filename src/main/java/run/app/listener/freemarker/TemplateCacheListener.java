@@ -0,0 +1,53 @@
+package run.app.listener.freemarker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import run.app.core.freemarker.cache.ThemeTemplateCache;
+import run.app.event.theme.ThemeActivatedEvent;
+import run.app.event.theme.ThemeUpdatedEvent;
+import run.app.service.ThemeService;
+
+/**
+ * Evicts and warms up compiled templates of the activated theme.
+ */
+@Slf4j
+@Component
+public class TemplateCacheListener {
+
+    private final ThemeTemplateCache themeTemplateCache;
+
+    private final ThemeService themeService;
+
+    public TemplateCacheListener(ThemeTemplateCache themeTemplateCache,
+        ThemeService themeService) {
+        this.themeTemplateCache = themeTemplateCache;
+        this.themeService = themeService;
+    }
+
+    @EventListener
+    public void onApplicationStartedEvent(ApplicationStartedEvent event) {
+        warmUpActivatedTheme();
+    }
+
+    @EventListener
+    public void onThemeActivatedEvent(ThemeActivatedEvent event) {
+        log.debug("Received theme activated event, reloading theme templates");
+
+        themeTemplateCache.evictThemeTemplates();
+        warmUpActivatedTheme();
+    }
+
+    @EventListener
+    public void onThemeUpdatedEvent(ThemeUpdatedEvent event) {
+        log.debug("Received theme updated event, reloading theme templates");
+
+        themeTemplateCache.evictThemeTemplates();
+        warmUpActivatedTheme();
+    }
+
+    private void warmUpActivatedTheme() {
+        themeService.fetchActivatedTheme().ifPresent(themeTemplateCache::warmUp);
+    }
+}
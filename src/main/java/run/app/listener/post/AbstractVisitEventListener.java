@@ -1,11 +1,16 @@
 package run.app.listener.post;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PreDestroy;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.Assert;
@@ -15,44 +20,75 @@ import run.app.service.base.BasePostService;
 /**
  * Abstract visit event listener.
  *
+ * <p>Visits are aggregated in memory per post and written behind in batches, either on a fixed
+ * period or as soon as the pending visits reach {@link #FLUSH_THRESHOLD}.
+ *
  * @author johnniang
  * @date 19-4-24
  */
 @Slf4j
 public abstract class AbstractVisitEventListener {
 
-    private final Map<Integer, BlockingQueue<Integer>> visitQueueMap;
+    /**
+     * Flush schedule period. (ms)
+     */
+    private static final long FLUSH_PERIOD = 5 * 1000;
+
+    /**
+     * Pending visits which trigger an early flush.
+     */
+    private static final long FLUSH_THRESHOLD = 1000;
 
-    private final Map<Integer, PostVisitTask> visitTaskMap;
+    /**
+     * Shutdown wait timeout. (ms)
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10 * 1000;
 
-    private final BasePostService basePostService;
+    /**
+     * Visit deltas keyed by post id. Entries are reset rather than removed on flush, so the
+     * size is bounded by the number of visited posts.
+     */
+    private final Map<Integer, LongAdder> pendingVisitMap = new ConcurrentHashMap<>();
 
-    private final ExecutorService executor;
+    private final LongAdder pendingVisits = new LongAdder();
 
-    protected AbstractVisitEventListener(BasePostService basePostService) {
-        this.basePostService = basePostService;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
 
-        int initCapacity = 8;
+    private final BasePostService<?> basePostService;
 
-        long count = basePostService.count();
+    private final ScheduledExecutorService scheduler;
 
-        if (count < initCapacity) {
-            initCapacity = (int) count;
-        }
+    private volatile long lastFlushTime = System.currentTimeMillis();
 
-        visitQueueMap = new ConcurrentHashMap<>(initCapacity << 1);
-        visitTaskMap = new ConcurrentHashMap<>(initCapacity << 1);
+    protected AbstractVisitEventListener(BasePostService<?> basePostService,
+        MeterRegistry meterRegistry, String name) {
+        this.basePostService = basePostService;
 
-        this.executor = Executors.newCachedThreadPool();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-visit-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::scheduledFlush, FLUSH_PERIOD, FLUSH_PERIOD,
+            TimeUnit.MILLISECONDS);
+
+        Gauge.builder("halo.visits.pending", this, AbstractVisitEventListener::getPendingVisits)
+            .description("Visits not yet written to the database")
+            .tag("type", name)
+            .register(meterRegistry);
+        Gauge.builder("halo.visits.flush.lag", this, AbstractVisitEventListener::getFlushLag)
+            .description("Milliseconds since the pending visits were last flushed")
+            .tag("type", name)
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
     }
 
     /**
      * Handle visit event.
      *
      * @param event visit event must not be null
-     * @throws InterruptedException interrupted exception
      */
-    protected void handleVisitEvent(@NonNull AbstractVisitEvent event) throws InterruptedException {
+    protected void handleVisitEvent(@NonNull AbstractVisitEvent event) {
         Assert.notNull(event, "Visit event must not be null");
 
         // Get post id
@@ -60,66 +96,83 @@ public abstract class AbstractVisitEventListener {
 
         log.debug("Received a visit event, post id: [{}]", id);
 
-        // Get post visit queue
-        BlockingQueue<Integer> postVisitQueue =
-            visitQueueMap.computeIfAbsent(id, this::createEmptyQueue);
-
-        visitTaskMap.computeIfAbsent(id, this::createPostVisitTask);
+        pendingVisitMap.computeIfAbsent(id, postId -> new LongAdder()).increment();
+        pendingVisits.increment();
 
-        // Put a visit for the post
-        postVisitQueue.put(id);
+        if (pendingVisits.sum() >= FLUSH_THRESHOLD && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::scheduledFlush);
+        }
     }
 
-
-    private PostVisitTask createPostVisitTask(Integer postId) {
-        // Create new post visit task
-        PostVisitTask postVisitTask = new PostVisitTask(postId);
-        // Start a post visit task
-        executor.execute(postVisitTask);
-
-        log.debug("Created a new post visit task for post id: [{}]", postId);
-        return postVisitTask;
+    /**
+     * Gets the number of visits not yet written to the database.
+     *
+     * @return pending visits
+     */
+    public long getPendingVisits() {
+        return pendingVisits.sum();
     }
 
-    private BlockingQueue<Integer> createEmptyQueue(Integer postId) {
-        // Create a new queue
-        return new LinkedBlockingQueue<>();
+    /**
+     * Gets milliseconds since the last flush, or 0 if nothing is pending.
+     *
+     * @return flush lag in milliseconds
+     */
+    public long getFlushLag() {
+        if (pendingVisits.sum() == 0) {
+            return 0;
+        }
+        return System.currentTimeMillis() - lastFlushTime;
     }
 
-
     /**
-     * Post visit task.
+     * Writes all pending visits to the database.
      */
-    private class PostVisitTask implements Runnable {
+    public synchronized void flush() {
+        Map<Integer, Long> visits = new HashMap<>();
+        pendingVisitMap.forEach((postId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta > 0) {
+                visits.put(postId, delta);
+            }
+        });
 
-        private final Integer id;
+        if (visits.isEmpty()) {
+            lastFlushTime = System.currentTimeMillis();
+            return;
+        }
 
-        private PostVisitTask(Integer id) {
-            this.id = id;
+        long total = visits.values().stream().mapToLong(Long::longValue).sum();
+        try {
+            basePostService.increaseVisits(visits);
+            pendingVisits.add(-total);
+            lastFlushTime = System.currentTimeMillis();
+            log.debug("Flushed [{}] visits of [{}] posts", total, visits.size());
+        } catch (Exception e) {
+            // Put the deltas back and retry on the next flush
+            visits.forEach((postId, delta) ->
+                pendingVisitMap.computeIfAbsent(postId, id -> new LongAdder()).add(delta));
+            log.warn("Failed to flush [{}] visits, will retry later", total, e);
         }
+    }
 
-        @Override
-        public void run() {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    BlockingQueue<Integer> postVisitQueue = visitQueueMap.get(id);
-                    Integer postId = postVisitQueue.take();
-
-                    log.debug("Took a new visit for post id: [{}]", postId);
-
-                    // Increase the visit
-                    basePostService.increaseVisit(postId);
-
-                    log.debug("Increased visits for post id: [{}]", postId);
-                } catch (InterruptedException e) {
-                    log.debug(
-                        "Post visit task: " + Thread.currentThread().getName() + " was interrupted",
-                        e);
-                    // Ignore this exception
-                }
-            }
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        try {
+            flush();
+        } catch (Throwable t) {
+            // Keep the scheduler alive
+            log.error("Unexpected error while flushing visits", t);
+        }
+    }
 
-            log.debug("Thread: [{}] has been interrupted", Thread.currentThread().getName());
+    @PreDestroy
+    public void preDestroy() throws InterruptedException {
+        log.debug("Shutting down visit flusher and draining pending visits");
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            scheduler.shutdownNow();
         }
+        flush();
     }
 }
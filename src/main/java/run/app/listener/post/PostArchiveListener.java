@@ -0,0 +1,67 @@
+package run.app.listener.post;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.app.event.category.CategoryUpdatedEvent;
+import run.app.event.comment.CommentNewEvent;
+import run.app.event.comment.CommentReplyEvent;
+import run.app.event.post.PostDeletedEvent;
+import run.app.event.post.PostStatusRefreshedEvent;
+import run.app.event.post.PostUpdatedEvent;
+import run.app.service.PostArchiveService;
+
+/**
+ * Keeps the post archive index up to date.
+ */
+@Component
+public class PostArchiveListener {
+
+    private final PostArchiveService postArchiveService;
+
+    public PostArchiveListener(PostArchiveService postArchiveService) {
+        this.postArchiveService = postArchiveService;
+    }
+
+    /**
+     * Refreshes the post after the transaction is committed, so that the final status and create
+     * time are seen.
+     *
+     * @param event post updated event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdated(PostUpdatedEvent event) {
+        postArchiveService.refresh(event.getPost().getId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        postArchiveService.remove(event.getPostId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryUpdated(CategoryUpdatedEvent event) {
+        // Status of the posts is refreshed later, see PostStatusRefreshedEvent
+        postArchiveService.invalidate();
+    }
+
+    /**
+     * Rebuilds the index once after the status of many posts has been changed.
+     *
+     * @param event post status refreshed event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostStatusRefreshed(PostStatusRefreshedEvent event) {
+        postArchiveService.rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentNew(CommentNewEvent event) {
+        // Comment counts are shown with the archived posts
+        postArchiveService.invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentReply(CommentReplyEvent event) {
+        postArchiveService.invalidate();
+    }
+}
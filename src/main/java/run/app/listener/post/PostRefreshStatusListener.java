@@ -1,12 +1,16 @@
 package run.app.listener.post;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.CollectionUtils;
 import run.app.event.category.CategoryUpdatedEvent;
+import run.app.event.post.PostStatusRefreshedEvent;
 import run.app.event.post.PostUpdatedEvent;
 import run.app.model.entity.Category;
 import run.app.model.entity.Post;
@@ -21,87 +25,71 @@ import run.app.service.PostService;
  * @author guqing
  * @date 2022-02-28
  */
+@Slf4j
 @Component
 public class PostRefreshStatusListener {
 
     private final PostService postService;
     private final CategoryService categoryService;
     private final PostCategoryService postCategoryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public PostRefreshStatusListener(PostService postService,
         CategoryService categoryService,
-        PostCategoryService postCategoryService) {
+        PostCategoryService postCategoryService,
+        ApplicationEventPublisher eventPublisher) {
         this.postService = postService;
         this.categoryService = categoryService;
         this.postCategoryService = postCategoryService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
      * If the current category is encrypted, refresh all post referencing the category to
-     * INTIMATE status.
+     * INTIMATE status, otherwise publish the posts which are protected no more.
+     *
+     * <p>Runs after the category change has been committed, status of the posts is changed by a
+     * few bulk updates instead of saving post by post.
      *
      * @param event category updated event
      */
-    @EventListener(CategoryUpdatedEvent.class)
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
     public void categoryUpdatedListener(CategoryUpdatedEvent event) {
         Category category = event.getCategory();
         Category beforeUpdated = event.getBeforeUpdated();
         boolean beforeIsPrivate = event.isBeforeIsPrivate();
         RecordState recordState = determineRecordState(beforeUpdated, category);
 
-        List<Post> posts = postService.listAllByIds(event.getPostIds());
+        Set<Integer> postIds = event.getPostIds();
+        if (CollectionUtils.isEmpty(postIds)) {
+            return;
+        }
 
-        // handle delete action
+        int intimatedCount = 0;
+        int publishedCount = 0;
         if (RecordState.DELETED.equals(recordState) || category == null) {
+            // handle delete action
             if (beforeUpdated == null || !beforeIsPrivate) {
                 return;
             }
             // Cancel the encryption status of the posts
-            changeStatusToPublishIfNecessary(posts, beforeUpdated.getId());
-            return;
-        }
-
-        // now
-        boolean isPrivate = categoryService.isPrivate(category.getId());
-        if (isPrivate) {
-            List<Post> postsToUpdate = new ArrayList<>();
-            posts.forEach(post -> {
-                if (post.getStatus() == PostStatus.PUBLISHED) {
-                    post.setStatus(PostStatus.INTIMATE);
-                    postsToUpdate.add(post);
-                }
-            });
-            postService.updateInBatch(postsToUpdate);
+            publishedCount = postService.publishIntimatePosts(postIds,
+                categoryService.listPrivateCategoryIds());
+        } else if (categoryService.isPrivate(category.getId())) {
+            intimatedCount = postService.intimatePublishedPosts(postIds);
         } else if (beforeIsPrivate && RecordState.UPDATED.equals(recordState)) {
             // Cancel the encryption status of the posts
-            changeStatusToPublishIfNecessary(posts, category.getId());
+            publishedCount = postService.publishIntimatePosts(postIds,
+                categoryService.listPrivateCategoryIds());
         }
-    }
 
-    private void changeStatusToPublishIfNecessary(List<Post> posts, Integer categoryId) {
-        List<Post> postsToUpdate = new ArrayList<>();
-        for (Post post : posts) {
-            boolean belongsToEncryptedCategory = postBelongsToEncryptedCategory(post.getId());
-            if (!belongsToEncryptedCategory && StringUtils.isBlank(post.getPassword())
-                && post.getStatus() == PostStatus.INTIMATE) {
-                post.setStatus(PostStatus.PUBLISHED);
-                postsToUpdate.add(post);
-            }
-        }
-        postService.updateInBatch(postsToUpdate);
-    }
-
-    private boolean postBelongsToEncryptedCategory(Integer postId) {
-        Set<Integer> categoryIds = postCategoryService.listCategoryIdsByPostId(postId);
-
-        boolean encrypted = false;
-        for (Integer categoryId : categoryIds) {
-            if (categoryService.isPrivate(categoryId)) {
-                encrypted = true;
-                break;
-            }
+        log.debug("Refreshed status of [{}] posts, intimated: [{}], published: [{}]",
+            postIds.size(), intimatedCount, publishedCount);
+        if (intimatedCount + publishedCount > 0) {
+            eventPublisher.publishEvent(
+                new PostStatusRefreshedEvent(this, postIds, intimatedCount, publishedCount));
         }
-        return encrypted;
     }
 
     private RecordState determineRecordState(Category before, Category updated) {
@@ -150,9 +138,8 @@ public class PostRefreshStatusListener {
         if (PostStatus.RECYCLE.equals(status)) {
             return;
         }
-        boolean isPrivate = postCategoryService.listByPostId(post.getId())
-            .stream()
-            .anyMatch(postCategory -> categoryService.isPrivate(postCategory.getCategoryId()));
+        boolean isPrivate = categoryService.isAnyPrivate(
+            postCategoryService.listCategoryIdsByPostId(post.getId()));
         if (post.getStatus() != PostStatus.DRAFT) {
             if (isPrivate || StringUtils.isNotEmpty(post.getPassword())) {
                 status = PostStatus.INTIMATE;
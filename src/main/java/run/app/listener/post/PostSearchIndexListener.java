@@ -0,0 +1,67 @@
+package run.app.listener.post;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.app.event.post.ContentRenderedEvent;
+import run.app.event.post.PostDeletedEvent;
+import run.app.event.post.PostStatusRefreshedEvent;
+import run.app.event.post.PostUpdatedEvent;
+import run.app.service.PostSearchService;
+
+/**
+ * Keeps the post search index up to date.
+ */
+@Slf4j
+@Component
+public class PostSearchIndexListener {
+
+    private final PostSearchService postSearchService;
+
+    public PostSearchIndexListener(PostSearchService postSearchService) {
+        this.postSearchService = postSearchService;
+    }
+
+    @Async
+    @EventListener(ApplicationStartedEvent.class)
+    public void onApplicationStarted() {
+        log.debug("Building post search index");
+        postSearchService.rebuild();
+    }
+
+    /**
+     * Re-indexes the post after the transaction is committed, so that the final status is seen.
+     *
+     * @param event post updated event
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdated(PostUpdatedEvent event) {
+        postSearchService.refresh(event.getPost().getId());
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        postSearchService.remove(event.getPostId());
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostStatusRefreshed(PostStatusRefreshedEvent event) {
+        log.debug("Rebuilding post search index after refreshing [{}] posts",
+            event.getIntimatedCount() + event.getPublishedCount());
+        postSearchService.rebuild();
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentRendered(ContentRenderedEvent event) {
+        log.debug("Re-indexing [{}] posts after rendering contents",
+            event.getContentIds().size());
+        postSearchService.refresh(event.getContentIds());
+    }
+}
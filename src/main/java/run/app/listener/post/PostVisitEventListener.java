@@ -1,5 +1,6 @@
 package run.app.listener.post;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
@@ -15,13 +16,13 @@ import run.app.service.PostService;
 @Component
 public class PostVisitEventListener extends AbstractVisitEventListener {
 
-    public PostVisitEventListener(PostService postService) {
-        super(postService);
+    public PostVisitEventListener(PostService postService, MeterRegistry meterRegistry) {
+        super(postService, meterRegistry, "post");
     }
 
     @Async
     @EventListener
-    public void onPostVisitEvent(PostVisitEvent event) throws InterruptedException {
+    public void onPostVisitEvent(PostVisitEvent event) {
         handleVisitEvent(event);
     }
 }
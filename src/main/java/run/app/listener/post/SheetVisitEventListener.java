@@ -1,5 +1,6 @@
 package run.app.listener.post;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
@@ -15,13 +16,13 @@ import run.app.service.SheetService;
 @Component
 public class SheetVisitEventListener extends AbstractVisitEventListener {
 
-    protected SheetVisitEventListener(SheetService sheetService) {
-        super(sheetService);
+    protected SheetVisitEventListener(SheetService sheetService, MeterRegistry meterRegistry) {
+        super(sheetService, meterRegistry, "sheet");
     }
 
     @Async
     @EventListener
-    public void onSheetVisitEvent(SheetVisitEvent event) throws InterruptedException {
+    public void onSheetVisitEvent(SheetVisitEvent event) {
         handleVisitEvent(event);
     }
 
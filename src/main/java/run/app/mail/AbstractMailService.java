@@ -1,12 +1,16 @@
 package run.app.mail;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import javax.mail.MessagingException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
@@ -14,11 +18,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.util.Assert;
+import org.springframework.web.util.HtmlUtils;
 import run.app.exception.EmailException;
+import run.app.model.entity.OutboxMail;
 import run.app.model.properties.EmailProperties;
 import run.app.service.OptionService;
 
@@ -30,33 +39,26 @@ import run.app.service.OptionService;
 @Slf4j
 public abstract class AbstractMailService implements MailService {
 
-    private static final int DEFAULT_POOL_SIZE = 5;
+    private static final long DISPATCH_PERIOD = 5000;
+
+    /**
+     * Maximum recipients sent to over one connection.
+     */
+    private static final int DISPATCH_BATCH_SIZE = 50;
 
     protected final OptionService optionService;
 
+    private final MailOutbox mailOutbox;
+
     private JavaMailSender cachedMailSender;
 
     private MailProperties cachedMailProperties;
 
     private String cachedFromName;
 
-    @Nullable
-    private ExecutorService executorService;
-
-    protected AbstractMailService(OptionService optionService) {
+    protected AbstractMailService(OptionService optionService, MailOutbox mailOutbox) {
         this.optionService = optionService;
-    }
-
-    @NonNull
-    public ExecutorService getExecutorService() {
-        if (this.executorService == null) {
-            this.executorService = Executors.newFixedThreadPool(DEFAULT_POOL_SIZE);
-        }
-        return executorService;
-    }
-
-    public void setExecutorService(@Nullable ExecutorService executorService) {
-        this.executorService = executorService;
+        this.mailOutbox = mailOutbox;
     }
 
     /**
@@ -87,10 +89,7 @@ public abstract class AbstractMailService implements MailService {
         }
 
         // check if mail is enable
-        Boolean emailEnabled =
-            optionService.getByPropertyOrDefault(EmailProperties.ENABLED, Boolean.class);
-
-        if (!emailEnabled) {
+        if (!isEmailEnabled()) {
             // If disabled
             log.info(
                 "Email has been disabled by yourself, you can re-enable it through email settings"
@@ -126,23 +125,136 @@ public abstract class AbstractMailService implements MailService {
     }
 
     /**
-     * Send mail template if executor service is enable.
+     * Queue a html mail into the outbox, it is sent by the dispatcher in the background.
      *
-     * @param callback callback message handler
-     * @param tryToAsync if the send procedure should try to asynchronous
+     * @param to recipient
+     * @param subject subject
+     * @param content html content
+     */
+    protected void queueMail(@NonNull String to, @NonNull String subject,
+        @NonNull String content) {
+        if (!isEmailEnabled()) {
+            log.info(
+                "Email has been disabled by yourself, you can re-enable it through email settings"
+                    + " on admin page.");
+            return;
+        }
+
+        try {
+            mailOutbox.enqueue(to, subject, content);
+        } catch (RuntimeException e) {
+            log.error("Failed to queue mail to [{}], subject: [{}]", to, subject, e);
+        }
+    }
+
+    /**
+     * Sends all due mails of the outbox.
      */
-    protected void sendMailTemplate(boolean tryToAsync,
-        @Nullable Consumer<MimeMessageHelper> callback) {
-        ExecutorService executorService = getExecutorService();
-        if (tryToAsync) {
-            // send mail asynchronously
-            executorService.execute(() -> sendMailTemplate(callback));
-        } else {
-            // send mail synchronously
-            sendMailTemplate(callback);
+    @Scheduled(initialDelay = DISPATCH_PERIOD, fixedDelay = DISPATCH_PERIOD)
+    public void dispatch() {
+        try {
+            while (dispatchBatch()) {
+                log.debug("Dispatched a batch of mails, [{}] mails are left in the outbox",
+                    mailOutbox.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to dispatch mails", e);
         }
     }
 
+    /**
+     * Sends a batch of due mails over one connection, mails to the same recipient are sent as one
+     * digest.
+     *
+     * @return true if any mail was sent, so more mails may be due
+     */
+    private boolean dispatchBatch() {
+        if (mailOutbox.size() == 0 || !isEmailEnabled()) {
+            return false;
+        }
+        List<List<OutboxMail>> batch = mailOutbox.listDue(DISPATCH_BATCH_SIZE);
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        JavaMailSender mailSender = getMailSender();
+        printMailConfig();
+
+        Map<MimeMessage, List<OutboxMail>> messageMap = new LinkedHashMap<>();
+        List<OutboxMail> failedMails = new ArrayList<>();
+        for (List<OutboxMail> mails : batch) {
+            try {
+                messageMap.put(createMessage(mailSender, mails), mails);
+            } catch (MessagingException | UnsupportedEncodingException e) {
+                log.error("Failed to create mail to [{}]", mails.get(0).getRecipient(), e);
+                failedMails.addAll(mails);
+            }
+        }
+
+        if (messageMap.isEmpty()) {
+            mailOutbox.retry(failedMails);
+            return false;
+        }
+
+        Set<?> failedMessages = Collections.emptySet();
+        long startTime = System.nanoTime();
+        try {
+            mailSender.send(messageMap.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            log.warn("Failed to send [{}] of [{}] mails: {}", e.getFailedMessages().size(),
+                messageMap.size(), e.getMessage());
+            failedMessages = e.getFailedMessages().keySet();
+        } catch (MailException e) {
+            log.warn("Failed to send [{}] mails: {}", messageMap.size(), e.getMessage());
+            failedMessages = messageMap.keySet();
+        } finally {
+            mailOutbox.recordSend(System.nanoTime() - startTime);
+        }
+
+        List<OutboxMail> sentMails = new ArrayList<>();
+        for (Map.Entry<MimeMessage, List<OutboxMail>> entry : messageMap.entrySet()) {
+            if (failedMessages.contains(entry.getKey())) {
+                failedMails.addAll(entry.getValue());
+            } else {
+                sentMails.addAll(entry.getValue());
+            }
+        }
+        mailOutbox.remove(sentMails);
+        mailOutbox.retry(failedMails);
+
+        log.info("Sent [{}] mails to [{}] recipients, [{}] mails failed", sentMails.size(),
+            messageMap.size() - failedMessages.size(), failedMails.size());
+        return !sentMails.isEmpty();
+    }
+
+    /**
+     * Creates the message of outbox mails to the same recipient.
+     */
+    private MimeMessage createMessage(JavaMailSender mailSender, List<OutboxMail> mails)
+        throws MessagingException, UnsupportedEncodingException {
+        MimeMessageHelper messageHelper = new MimeMessageHelper(mailSender.createMimeMessage());
+        messageHelper.setFrom(getFromAddress(mailSender));
+        messageHelper.setTo(mails.get(0).getRecipient());
+
+        if (mails.size() == 1) {
+            messageHelper.setSubject(mails.get(0).getSubject());
+            messageHelper.setText(mails.get(0).getContent(), true);
+            return messageHelper.getMimeMessage();
+        }
+
+        messageHelper.setSubject("您有 " + mails.size() + " 条新的通知");
+        String content = mails.stream()
+            .map(mail -> "<h3>" + HtmlUtils.htmlEscape(mail.getSubject()) + "</h3>"
+                + mail.getContent())
+            .collect(Collectors.joining("<hr>"));
+        messageHelper.setText(content, true);
+        return messageHelper.getMimeMessage();
+    }
+
+    private boolean isEmailEnabled() {
+        return optionService.getByPropertyOrDefault(EmailProperties.ENABLED, Boolean.class);
+    }
+
     /**
      * Get java mail sender.
      *
@@ -0,0 +1,219 @@
+package run.app.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import run.app.config.properties.HaloProperties;
+import run.app.model.entity.OutboxMail;
+import run.app.repository.OutboxMailRepository;
+
+/**
+ * Bounded outbox of html mails.
+ *
+ * <p>Mails are kept in the database until they have been sent, so that a restart does not lose
+ * them. Mails to the same recipient are handed out together once the first of them is due, and
+ * are sent as one digest.
+ */
+@Slf4j
+@Component
+public class MailOutbox {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final long RETRY_BASE_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Maximum mails coalesced into one digest, the rest follow in the next one.
+     */
+    private static final int MAX_DIGEST_SIZE = 50;
+
+    private final OutboxMailRepository outboxMailRepository;
+
+    private final int capacity;
+
+    private final long digestWindowMillis;
+
+    private final AtomicLong size;
+
+    private final Timer sendTimer;
+
+    private final Counter rejectedCounter;
+
+    private final Counter abandonedCounter;
+
+    public MailOutbox(OutboxMailRepository outboxMailRepository,
+        HaloProperties haloProperties,
+        MeterRegistry meterRegistry) {
+        this.outboxMailRepository = outboxMailRepository;
+        this.capacity = Math.max(1, haloProperties.getMailOutboxCapacity());
+        this.digestWindowMillis = Math.max(0, haloProperties.getMailDigestWindow().toMillis());
+        this.size = new AtomicLong(outboxMailRepository.count());
+
+        Gauge.builder("halo.mail.outbox.size", size, AtomicLong::get)
+            .description("Mails waiting in the outbox")
+            .register(meterRegistry);
+        this.sendTimer = Timer.builder("halo.mail.send")
+            .description("Time taken to send the due mails over one connection")
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("halo.mail.outbox.dropped")
+            .description("Mails dropped without being sent")
+            .tag("reason", "full")
+            .register(meterRegistry);
+        this.abandonedCounter = Counter.builder("halo.mail.outbox.dropped")
+            .description("Mails dropped without being sent")
+            .tag("reason", "failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Puts a mail into the outbox. It is saved in a new transaction, as notifications are mostly
+     * queued after the transaction of the event has been committed.
+     *
+     * @param recipient recipient email must not be blank
+     * @param subject subject must not be null
+     * @param content html content must not be null
+     * @return false if the outbox is full
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public boolean enqueue(@NonNull String recipient, @NonNull String subject,
+        @NonNull String content) {
+        Assert.hasText(recipient, "Recipient must not be blank");
+        Assert.notNull(subject, "Subject must not be null");
+        Assert.notNull(content, "Content must not be null");
+
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("Mail outbox is full, dropped mail to [{}], subject: [{}]", recipient,
+                subject);
+            return false;
+        }
+
+        OutboxMail mail = new OutboxMail();
+        mail.setRecipient(recipient);
+        mail.setSubject(subject);
+        mail.setContent(content);
+        mail.setNextSendTime(new Date(System.currentTimeMillis() + digestWindowMillis));
+        try {
+            outboxMailRepository.save(mail);
+        } catch (RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Lists mails of the recipients which have a mail due, grouped by recipient. Mails waiting
+     * for a retry are left until they are due themselves.
+     *
+     * @param maxRecipients maximum number of recipients
+     * @return a list of mails of the same recipient, ordered by id
+     */
+    @NonNull
+    public List<List<OutboxMail>> listDue(int maxRecipients) {
+        Date now = new Date();
+        List<String> recipients = outboxMailRepository
+            .findDueRecipients(now, PageRequest.of(0, maxRecipients));
+        if (recipients.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int digestSize = digestWindowMillis > 0 ? MAX_DIGEST_SIZE : 1;
+        Map<String, List<OutboxMail>> mailMap = new LinkedHashMap<>();
+        recipients.forEach(recipient -> mailMap.put(recipient, new ArrayList<>()));
+        List<OutboxMail> sendableMails = outboxMailRepository.findSendable(recipients, now,
+            PageRequest.of(0, digestSize * recipients.size()));
+        sendableMails.forEach(mail -> {
+            List<OutboxMail> mails = mailMap.get(mail.getRecipient());
+            if (mails != null && mails.size() < digestSize) {
+                mails.add(mail);
+            }
+        });
+        return mailMap.values().stream()
+            .filter(mails -> !mails.isEmpty())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Removes sent mails.
+     *
+     * @param mails sent mails
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void remove(Collection<OutboxMail> mails) {
+        if (CollectionUtils.isEmpty(mails)) {
+            return;
+        }
+        long removed = outboxMailRepository.deleteByIdIn(
+            mails.stream().map(OutboxMail::getId).collect(Collectors.toList()));
+        size.addAndGet(-removed);
+    }
+
+    /**
+     * Schedules failed mails for another attempt with exponential backoff. Mails which have been
+     * attempted too many times are dropped.
+     *
+     * @param mails failed mails
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void retry(Collection<OutboxMail> mails) {
+        if (CollectionUtils.isEmpty(mails)) {
+            return;
+        }
+        List<OutboxMail> abandonedMails = new ArrayList<>();
+        List<OutboxMail> retriedMails = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        mails.forEach(mail -> {
+            int attempts = mail.getAttempts() + 1;
+            if (attempts >= MAX_ATTEMPTS) {
+                log.warn("Failed to send mail to [{}] for [{}] times, dropped it, subject: [{}]",
+                    mail.getRecipient(), attempts, mail.getSubject());
+                abandonedMails.add(mail);
+                return;
+            }
+            mail.setAttempts(attempts);
+            mail.setNextSendTime(new Date(now + (RETRY_BASE_DELAY_MILLIS << (attempts - 1))));
+            retriedMails.add(mail);
+        });
+        outboxMailRepository.saveAll(retriedMails);
+        remove(abandonedMails);
+        abandonedCounter.increment(abandonedMails.size());
+    }
+
+    /**
+     * Records the time taken to send mails.
+     *
+     * @param nanos elapsed time in nanoseconds
+     */
+    public void recordSend(long nanos) {
+        sendTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets number of mails in the outbox.
+     *
+     * @return number of mails
+     */
+    public long size() {
+        return size.get();
+    }
+}
@@ -11,7 +11,7 @@ import java.util.Map;
 public interface MailService {
 
     /**
-     * Send a simple email
+     * Send a simple email synchronously
      *
      * @param to recipient
      * @param subject subject
@@ -20,7 +20,8 @@ public interface MailService {
     void sendTextMail(String to, String subject, String content);
 
     /**
-     * Send a email with html
+     * Queue a email with html into the outbox. Mails to the same recipient within the digest
+     * window are sent as one digest.
      *
      * @param to recipient
      * @param subject subject
@@ -31,7 +32,7 @@ public interface MailService {
         String templateName);
 
     /**
-     * Send mail with attachments
+     * Send mail with attachments synchronously
      *
      * @param to recipient
      * @param subject subject
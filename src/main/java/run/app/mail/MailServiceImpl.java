@@ -31,14 +31,15 @@ public class MailServiceImpl extends AbstractMailService
     private final FreeMarkerConfigurer freeMarker;
 
     public MailServiceImpl(FreeMarkerConfigurer freeMarker,
-        OptionService optionService) {
-        super(optionService);
+        OptionService optionService,
+        MailOutbox mailOutbox) {
+        super(optionService, mailOutbox);
         this.freeMarker = freeMarker;
     }
 
     @Override
     public void sendTextMail(String to, String subject, String content) {
-        sendMailTemplate(true, messageHelper -> {
+        sendMailTemplate(messageHelper -> {
             try {
                 messageHelper.setSubject(subject);
                 messageHelper.setTo(to);
@@ -52,28 +53,22 @@ public class MailServiceImpl extends AbstractMailService
     @Override
     public void sendTemplateMail(String to, String subject, Map<String, Object> content,
         String templateName) {
-        sendMailTemplate(true, messageHelper -> {
-            // build message content with freemarker
-            try {
-                Template template = freeMarker.getConfiguration().getTemplate(templateName);
-                String contentResult = FreeMarkerTemplateUtils.processTemplateIntoString(template,
-                    content);
-                messageHelper.setSubject(subject);
-                messageHelper.setTo(to);
-                messageHelper.setText(contentResult, true);
-            } catch (IOException | TemplateException e) {
-                throw new RuntimeException("Failed to convert template to html!", e);
-            } catch (MessagingException e) {
-                throw new RuntimeException("Failed to set message subject, to or test", e);
-            }
+        // build message content with freemarker
+        String contentResult;
+        try {
+            Template template = freeMarker.getConfiguration().getTemplate(templateName);
+            contentResult = FreeMarkerTemplateUtils.processTemplateIntoString(template, content);
+        } catch (IOException | TemplateException e) {
+            throw new RuntimeException("Failed to convert template to html!", e);
+        }
 
-        });
+        queueMail(to, subject, contentResult);
     }
 
     @Override
     public void sendAttachMail(String to, String subject, Map<String, Object> content,
         String templateName, String attachFilePath) {
-        sendMailTemplate(true, messageHelper -> {
+        sendMailTemplate(messageHelper -> {
             try {
                 messageHelper.setSubject(subject);
                 messageHelper.setTo(to);
@@ -0,0 +1,30 @@
+package run.app.model.dto;
+
+import java.util.Set;
+import lombok.Data;
+import run.app.model.dto.base.OutputConverter;
+import run.app.model.support.ChunkedUpload;
+
+/**
+ * Chunked upload output dto.
+ */
+@Data
+public class ChunkedUploadDTO implements OutputConverter<ChunkedUploadDTO, ChunkedUpload> {
+
+    private String uploadId;
+
+    private String originalName;
+
+    private String mediaType;
+
+    private Long size;
+
+    private Long chunkSize;
+
+    private Integer chunkCount;
+
+    /**
+     * Indexes of the chunks uploaded, the others are to be uploaded when resuming.
+     */
+    private Set<Integer> uploadedChunks;
+}
@@ -0,0 +1,44 @@
+package run.app.model.dto;
+
+import lombok.Data;
+
+/**
+ * Progress of the running or the last finished data export or import.
+ */
+@Data
+public class DataProgressDTO {
+
+    private Operation operation;
+
+    private boolean running;
+
+    /**
+     * Name of the section being processed, e.g. posts.
+     */
+    private String section;
+
+    private long processedRows;
+
+    /**
+     * Total rows to export, always 0 when importing.
+     */
+    private long totalRows;
+
+    /**
+     * Bytes of the uploaded file read so far, always 0 when exporting.
+     */
+    private long processedBytes;
+
+    private long totalBytes;
+
+    private String error;
+
+    private Long startTime;
+
+    private Long finishTime;
+
+    public enum Operation {
+        EXPORT,
+        IMPORT
+    }
+}
@@ -0,0 +1,32 @@
+package run.app.model.dto;
+
+import lombok.Data;
+
+/**
+ * Progress of the running or the last finished content rendering.
+ */
+@Data
+public class RenderProgressDTO {
+
+    private boolean running;
+
+    private long processed;
+
+    /**
+     * Contents whose html has been updated.
+     */
+    private long rendered;
+
+    /**
+     * Contents modified while being rendered, they keep the html saved by the editor.
+     */
+    private long skipped;
+
+    private long total;
+
+    private String error;
+
+    private Long startTime;
+
+    private Long finishTime;
+}
@@ -0,0 +1,27 @@
+package run.app.model.dto;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Summary of an incremental work directory snapshot.
+ */
+@Data
+public class WorkDirSnapshotDTO {
+
+    private String name;
+
+    private String version;
+
+    private Long createTime;
+
+    private List<String> options;
+
+    private long fileCount;
+
+    private long totalSize;
+
+    private long changedFileCount;
+
+    private long addedSize;
+}
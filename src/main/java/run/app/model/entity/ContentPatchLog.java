@@ -52,6 +52,14 @@ public class ContentPatchLog extends BaseEntity {
     @Column(name = "version", nullable = false)
     private Integer version;
 
+    /**
+     * Version of the snapshot which the diffs are based on, a snapshot stores the full content
+     * and is based on itself. Records created before snapshots have no value and are based on
+     * the base version.
+     */
+    @Column(name = "base_version")
+    private Integer baseVersion;
+
     @ColumnDefault("1")
     @Column(name = "status")
     private PostStatus status;
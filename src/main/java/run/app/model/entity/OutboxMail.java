@@ -0,0 +1,78 @@
+package run.app.model.entity;
+
+import java.util.Date;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+
+/**
+ * Mail waiting in the outbox to be sent.
+ */
+@Data
+@Entity
+@Table(name = "outbox_mails", indexes = {
+    @Index(name = "outbox_mails_recipient", columnList = "recipient"),
+    @Index(name = "outbox_mails_next_send_time", columnList = "next_send_time")})
+@ToString(exclude = "content")
+@EqualsAndHashCode(callSuper = true)
+public class OutboxMail extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY, generator = "custom-id")
+    @GenericGenerator(name = "custom-id",
+        strategy = "run.app.model.entity.support.CustomIdGenerator")
+    private Long id;
+
+    /**
+     * Recipient email.
+     */
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "subject", length = 1023, nullable = false)
+    private String subject;
+
+    /**
+     * Rendered html content.
+     */
+    @Lob
+    @Column(name = "content", nullable = false)
+    private String content;
+
+    /**
+     * Failed attempts of sending.
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    /**
+     * The mail is sent at or after this time.
+     */
+    @Column(name = "next_send_time", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextSendTime;
+
+    @Override
+    protected void prePersist() {
+        super.prePersist();
+
+        if (attempts == null) {
+            attempts = 0;
+        }
+
+        if (nextSendTime == null) {
+            nextSendTime = getCreateTime();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package run.app.model.params;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * Chunked upload params.
+ */
+@Data
+public class ChunkedUploadParam {
+
+    @NotBlank(message = "文件名称不能为空")
+    @Size(max = 255, message = "文件名称的字符长度不能超过 {max}")
+    private String name;
+
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小必须大于 0")
+    private Long size;
+
+    /**
+     * Guessed from the file name if absent.
+     */
+    private String mediaType;
+
+    /**
+     * Size of every chunk but the last, default chunk size is used if absent.
+     */
+    private Long chunkSize;
+}
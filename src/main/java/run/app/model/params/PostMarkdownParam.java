@@ -14,4 +14,10 @@ public class PostMarkdownParam {
      * default false
      */
     private Boolean needFrontMatter;
+
+    /**
+     * true if need the upload files referenced by posts
+     * default true
+     */
+    private Boolean needUploadFiles;
 }
@@ -0,0 +1,25 @@
+package run.app.model.projection;
+
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Post id with create time projection, which places the post in the archives.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostArchiveProjection {
+
+    /**
+     * Post id.
+     */
+    private Integer postId;
+
+    /**
+     * Post create time.
+     */
+    private Date createTime;
+}
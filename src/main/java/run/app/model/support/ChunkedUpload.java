@@ -0,0 +1,72 @@
+package run.app.model.support;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.util.Assert;
+import run.app.model.enums.AttachmentType;
+
+/**
+ * State of an attachment uploaded in chunks.
+ */
+@Data
+public class ChunkedUpload {
+
+    private String uploadId;
+
+    /**
+     * Attachment type chosen when the upload started.
+     */
+    private AttachmentType type;
+
+    /**
+     * Whether the chunks are kept locally until completed, instead of being passed to the file
+     * handler one by one.
+     */
+    private boolean staged;
+
+    private String originalName;
+
+    private String mediaType;
+
+    private long size;
+
+    private long chunkSize;
+
+    private int chunkCount;
+
+    /**
+     * File name without extension, resolved by the file handler.
+     */
+    private String name;
+
+    private String suffix;
+
+    private String key;
+
+    private String filePath;
+
+    /**
+     * Id of the multipart upload of the object store.
+     */
+    private String providerUploadId;
+
+    /**
+     * Key: chunk index, value: tag of the chunk returned by the file handler.
+     */
+    private Map<Integer, String> chunkTags = new HashMap<>();
+
+    private Date createTime;
+
+    /**
+     * Gets size of the chunk, all chunks but the last are of the chunk size.
+     *
+     * @param index chunk index
+     * @return chunk size
+     */
+    public long sizeOfChunk(int index) {
+        Assert.isTrue(index >= 0 && index < chunkCount, "Chunk index is out of range");
+        return index == chunkCount - 1 ? size - chunkSize * index : chunkSize;
+    }
+}
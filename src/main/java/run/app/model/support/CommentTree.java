@@ -0,0 +1,110 @@
+package run.app.model.support;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import org.springframework.lang.NonNull;
+import run.app.model.dto.BaseCommentDTO;
+
+/**
+ * Comment tree indexed by parent id, built in a single pass over the comments.
+ *
+ * <p>The tree is not modified after construction and may be shared between threads, so the
+ * nodes must be copied before being handed out.
+ */
+public class CommentTree {
+
+    /**
+     * Parent id of top comments.
+     */
+    public static final long TOP_PARENT_ID = 0L;
+
+    private final Map<Long, List<BaseCommentDTO>> childrenMap;
+
+    private final Collection<BaseCommentDTO> nodes;
+
+    private final long createTime;
+
+    public CommentTree(@NonNull Collection<? extends BaseCommentDTO> comments) {
+        Map<Long, List<BaseCommentDTO>> childrenMap = new HashMap<>();
+        List<BaseCommentDTO> nodes = new ArrayList<>(comments.size());
+        comments.forEach(comment -> {
+            Long parentId = comment.getParentId() == null ? TOP_PARENT_ID : comment.getParentId();
+            childrenMap.computeIfAbsent(parentId, id -> new ArrayList<>()).add(comment);
+            nodes.add(comment);
+        });
+        childrenMap.replaceAll((parentId, children) -> {
+            children.sort(Comparator.comparing(BaseCommentDTO::getId));
+            return Collections.unmodifiableList(children);
+        });
+
+        this.childrenMap = childrenMap;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.createTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets top comments ordered by id.
+     *
+     * @return an unmodifiable list of top comment
+     */
+    @NonNull
+    public List<BaseCommentDTO> getTopComments() {
+        return getChildren(TOP_PARENT_ID);
+    }
+
+    /**
+     * Gets direct children of the comment ordered by id.
+     *
+     * @param parentId parent comment id
+     * @return an unmodifiable list of child comment
+     */
+    @NonNull
+    public List<BaseCommentDTO> getChildren(Long parentId) {
+        return childrenMap.getOrDefault(parentId, Collections.emptyList());
+    }
+
+    /**
+     * Lists all descendants of the comment.
+     *
+     * @param parentId parent comment id
+     * @return a list of descendant comment
+     */
+    @NonNull
+    public List<BaseCommentDTO> listDescendants(Long parentId) {
+        List<BaseCommentDTO> descendants = new ArrayList<>();
+        Queue<Long> parentIds = new ArrayDeque<>();
+        parentIds.add(parentId);
+        while (!parentIds.isEmpty()) {
+            getChildren(parentIds.poll()).forEach(child -> {
+                descendants.add(child);
+                parentIds.add(child.getId());
+            });
+        }
+        return descendants;
+    }
+
+    /**
+     * Gets all comments of the tree, including those whose parent is absent.
+     *
+     * @return an unmodifiable collection of comment
+     */
+    @NonNull
+    public Collection<BaseCommentDTO> getNodes() {
+        return nodes;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+}
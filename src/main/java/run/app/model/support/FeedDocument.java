@@ -0,0 +1,55 @@
+package run.app.model.support;
+
+/**
+ * Pre-serialised feed or sitemap document.
+ */
+public class FeedDocument {
+
+    private final byte[] gzipContent;
+
+    private final String etag;
+
+    private final long lastModified;
+
+    private final long generation;
+
+    private final long createTime;
+
+    public FeedDocument(byte[] gzipContent, String etag, long lastModified, long generation) {
+        this.gzipContent = gzipContent;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.generation = generation;
+        this.createTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the gzip compressed document.
+     *
+     * @return gzip compressed document
+     */
+    public byte[] getGzipContent() {
+        return gzipContent;
+    }
+
+    /**
+     * Gets the strong ETag of the uncompressed document.
+     *
+     * @return quoted ETag
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+}
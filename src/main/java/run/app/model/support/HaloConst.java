@@ -150,6 +150,13 @@ public class HaloConst {
     public static final String API_ACCESS_KEY_QUERY_NAME = "api_access_key";
     public static final String ONE_TIME_TOKEN_QUERY_NAME = "ott";
     public static final String ONE_TIME_TOKEN_HEADER_NAME = "ott";
+
+    /**
+     * Session attribute marking a session authenticated to some encrypted content.
+     */
+    public static final String CONTENT_AUTHENTICATED_SESSION_ATTRIBUTE =
+        "halo.content.authenticated";
+
     /**
      * Version constant. (Available in production environment)
      */
@@ -0,0 +1,204 @@
+package run.app.model.support;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.app.model.enums.PostPermalinkType;
+import run.app.model.enums.SheetPermalinkType;
+import run.app.model.properties.BlogProperties;
+import run.app.model.properties.CommentProperties;
+import run.app.model.properties.OtherProperties;
+import run.app.model.properties.PermalinkProperties;
+import run.app.model.properties.PostProperties;
+import run.app.model.properties.PrimaryProperties;
+import run.app.model.properties.PropertyEnum;
+import run.app.model.properties.SeoProperties;
+
+/**
+ * Immutable view of all options at a point in time.
+ *
+ * <p>Options read on every request are converted once when the snapshot is built, a new
+ * snapshot is built after options have been updated.
+ */
+@Slf4j
+@Getter
+public class OptionSnapshot {
+
+    /**
+     * Increased whenever options are updated.
+     */
+    private final long version;
+
+    /**
+     * Unmodifiable option map, key: option key, value: option value converted by the type of the
+     * property.
+     */
+    private final Map<String, Object> options;
+
+    private final int postPageSize;
+
+    private final int archivesPageSize;
+
+    private final int commentPageSize;
+
+    private final int rssPageSize;
+
+    private final Locale locale;
+
+    /**
+     * Blog base url without trailing /.
+     */
+    private final String blogBaseUrl;
+
+    private final String blogTitle;
+
+    private final String seoKeywords;
+
+    private final String seoDescription;
+
+    private final long birthday;
+
+    private final PostPermalinkType postPermalinkType;
+
+    private final SheetPermalinkType sheetPermalinkType;
+
+    private final String sheetPrefix;
+
+    private final String linksPrefix;
+
+    private final String photosPrefix;
+
+    private final String journalsPrefix;
+
+    private final String archivesPrefix;
+
+    private final String categoriesPrefix;
+
+    private final String tagsPrefix;
+
+    private final String pathSuffix;
+
+    private final boolean absolutePathEnabled;
+
+    /**
+     * Creates an option snapshot.
+     *
+     * @param version options version
+     * @param options option map must not be null
+     * @param defaultBlogBaseUrl blog base url used if the blog url is not set
+     * @param defaultPostPageSize default page size of posts
+     * @param defaultArchivesPageSize default page size of archives
+     * @param defaultCommentPageSize default page size of comments
+     * @param defaultRssPageSize default page size of rss
+     */
+    public OptionSnapshot(long version,
+        @NonNull Map<String, Object> options,
+        @NonNull String defaultBlogBaseUrl,
+        int defaultPostPageSize,
+        int defaultArchivesPageSize,
+        int defaultCommentPageSize,
+        int defaultRssPageSize) {
+        Assert.notNull(options, "Options must not be null");
+        Assert.hasText(defaultBlogBaseUrl, "Default blog base url must not be blank");
+
+        this.version = version;
+        this.options = Collections.unmodifiableMap(options);
+
+        this.postPageSize = getPageSize(PostProperties.INDEX_PAGE_SIZE, defaultPostPageSize);
+        this.archivesPageSize =
+            getPageSize(PostProperties.ARCHIVES_PAGE_SIZE, defaultArchivesPageSize);
+        this.commentPageSize = getPageSize(CommentProperties.PAGE_SIZE, defaultCommentPageSize);
+        this.rssPageSize = getPageSize(PostProperties.RSS_PAGE_SIZE, defaultRssPageSize);
+
+        Object localeValue = options.get(BlogProperties.BLOG_LOCALE.getValue());
+        this.locale = localeValue == null ? Locale.getDefault()
+            : Locale.forLanguageTag(localeValue.toString());
+
+        String blogUrl = getString(BlogProperties.BLOG_URL, "");
+        this.blogBaseUrl = StringUtils.isNotBlank(blogUrl) ? StringUtils.removeEnd(blogUrl, "/")
+            : defaultBlogBaseUrl;
+        this.blogTitle = getString(BlogProperties.BLOG_TITLE, "");
+        this.seoKeywords = getString(SeoProperties.KEYWORDS, "");
+        this.seoDescription = getString(SeoProperties.DESCRIPTION, "");
+        this.birthday = parseBirthday(options);
+
+        this.postPermalinkType = getEnum(PermalinkProperties.POST_PERMALINK_TYPE,
+            PostPermalinkType.class, PostPermalinkType.DEFAULT);
+        this.sheetPermalinkType = getEnum(PermalinkProperties.SHEET_PERMALINK_TYPE,
+            SheetPermalinkType.class, SheetPermalinkType.SECONDARY);
+        this.sheetPrefix = getString(PermalinkProperties.SHEET_PREFIX);
+        this.linksPrefix = getString(PermalinkProperties.LINKS_PREFIX);
+        this.photosPrefix = getString(PermalinkProperties.PHOTOS_PREFIX);
+        this.journalsPrefix = getString(PermalinkProperties.JOURNALS_PREFIX);
+        this.archivesPrefix = getString(PermalinkProperties.ARCHIVES_PREFIX);
+        this.categoriesPrefix = getString(PermalinkProperties.CATEGORIES_PREFIX);
+        this.tagsPrefix = getString(PermalinkProperties.TAGS_PREFIX);
+        this.pathSuffix = getString(PermalinkProperties.PATH_SUFFIX);
+
+        Object absolutePathValue =
+            options.get(OtherProperties.GLOBAL_ABSOLUTE_PATH_ENABLED.getValue());
+        this.absolutePathEnabled =
+            absolutePathValue == null || Boolean.parseBoolean(absolutePathValue.toString());
+    }
+
+    /**
+     * Gets option value by key.
+     *
+     * @param key option key
+     * @return option value or null
+     */
+    @Nullable
+    public Object get(@NonNull String key) {
+        return options.get(key);
+    }
+
+    private int getPageSize(PropertyEnum property, int defaultPageSize) {
+        Object value = options.get(property.getValue());
+        if (value == null) {
+            return defaultPageSize;
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            log.error(property.getValue() + " option is not a number format", e);
+            return defaultPageSize;
+        }
+    }
+
+    private String getString(PropertyEnum property) {
+        return getString(property, property.defaultValue());
+    }
+
+    private String getString(PropertyEnum property, String defaultValue) {
+        Object value = options.get(property.getValue());
+        return value == null ? defaultValue : value.toString();
+    }
+
+    private <T extends Enum<T>> T getEnum(PropertyEnum property, Class<T> type, T defaultValue) {
+        Object value = options.get(property.getValue());
+        if (value == null || StringUtils.isBlank(value.toString())) {
+            return defaultValue;
+        }
+        T result = PropertyEnum.convertToEnum(value.toString(), type);
+        return result == null ? defaultValue : result;
+    }
+
+    private static long parseBirthday(Map<String, Object> options) {
+        Object value = options.get(PrimaryProperties.BIRTHDAY.getValue());
+        if (value == null) {
+            return Long.parseLong(PrimaryProperties.BIRTHDAY.defaultValue());
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            log.error(PrimaryProperties.BIRTHDAY.getValue() + " option is not a number format", e);
+            return Long.parseLong(PrimaryProperties.BIRTHDAY.defaultValue());
+        }
+    }
+}
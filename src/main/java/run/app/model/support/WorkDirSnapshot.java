@@ -0,0 +1,66 @@
+package run.app.model.support;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * Manifest of an incremental work directory snapshot.
+ *
+ * <p>File contents are not part of the manifest, every entry refers to content-addressed chunks
+ * which may be shared by many snapshots. Entries are written last so that the summary can be
+ * read without parsing them.
+ */
+@Data
+@JsonPropertyOrder({"name", "version", "createTime", "options", "fileCount", "totalSize",
+    "changedFileCount", "addedSize", "entries"})
+public class WorkDirSnapshot {
+
+    private String name;
+
+    private String version;
+
+    private Long createTime;
+
+    private List<String> options;
+
+    private long fileCount;
+
+    private long totalSize;
+
+    /**
+     * Count of files which were hashed again, because they are new or changed since the previous
+     * snapshot.
+     */
+    private long changedFileCount;
+
+    /**
+     * Size of the chunks stored by this snapshot, after compression.
+     */
+    private long addedSize;
+
+    private List<Entry> entries;
+
+    @Data
+    public static class Entry {
+
+        /**
+         * Path relative to the work directory, separated by '/'.
+         */
+        private String path;
+
+        private long size;
+
+        private long lastModified;
+
+        /**
+         * Whether the chunks are deflated, already compressed media are stored as is.
+         */
+        private boolean compressed;
+
+        /**
+         * SHA-256 of the chunks in order.
+         */
+        private List<String> chunks;
+    }
+}
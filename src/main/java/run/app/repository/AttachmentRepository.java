@@ -2,8 +2,11 @@ package run.app.repository;
 
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
+import org.springframework.transaction.annotation.Transactional;
 import run.app.model.entity.Attachment;
 import run.app.model.enums.AttachmentType;
 import run.app.repository.base.BaseRepository;
@@ -50,4 +53,20 @@ public interface AttachmentRepository
      * @return count of the given path and type
      */
     long countByFileKeyAndType(@NonNull String fileKey, @NonNull AttachmentType type);
+
+    /**
+     * Updates thumbnail path of the attachment.
+     *
+     * @param thumbPath thumbnail path must not be null
+     * @param fileKey file key must not be null
+     * @param type attachment type must not be null
+     * @return updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("update Attachment a set a.thumbPath = :thumbPath "
+        + "where a.fileKey = :fileKey and a.type = :type")
+    int updateThumbPath(@Param("thumbPath") @NonNull String thumbPath,
+        @Param("fileKey") @NonNull String fileKey,
+        @Param("type") @NonNull AttachmentType type);
 }
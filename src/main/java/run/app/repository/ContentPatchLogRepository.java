@@ -1,6 +1,9 @@
 package run.app.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import run.app.model.entity.ContentPatchLog;
 import run.app.model.enums.PostStatus;
@@ -44,6 +47,19 @@ public interface ContentPatchLogRepository extends BaseRepository<ContentPatchLo
     List<ContentPatchLog> findByPostIdAndStatusAndVersionLessThan(Integer postId, Integer version,
         PostStatus status);
 
+    /**
+     * Finds snapshot records below the specified version number by post id, the base version
+     * is always a snapshot.
+     *
+     * @param postId post id
+     * @param version version number
+     * @param pageable page info
+     * @return snapshot records based on version number descending order
+     */
+    @Query("from ContentPatchLog c where c.postId = :postId and c.version < :version"
+        + " and (c.version = 1 or c.baseVersion = c.version) order by c.version desc")
+    List<ContentPatchLog> findSnapshotsBefore(Integer postId, Integer version, Pageable pageable);
+
     /**
      * Finds by post id and version
      *
@@ -70,4 +86,16 @@ public interface ContentPatchLogRepository extends BaseRepository<ContentPatchLo
      * @return a list of {@link ContentPatchLog} queried by post id
      */
     List<ContentPatchLog> findAllByPostId(Integer postId);
+
+    /**
+     * Finds post ids having any record in the given statuses.
+     *
+     * @param postIds post ids to query
+     * @param statuses record statuses
+     * @return post ids having such records
+     */
+    @Query("select distinct c.postId from ContentPatchLog c where c.postId in :postIds"
+        + " and c.status in :statuses")
+    Set<Integer> findAllPostIdsByPostIdInAndStatusIn(Collection<Integer> postIds,
+        Collection<PostStatus> statuses);
 }
@@ -1,6 +1,14 @@
 package run.app.repository;
 
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.lang.NonNull;
 import run.app.model.entity.Content;
+import run.app.model.enums.PostEditorType;
 import run.app.repository.base.BaseRepository;
 
 /**
@@ -11,4 +19,41 @@ import run.app.repository.base.BaseRepository;
  */
 public interface ContentRepository extends BaseRepository<Content, Integer> {
 
+    /**
+     * Counts contents of posts and sheets edited by the editor type.
+     *
+     * @param editorType editor type must not be null
+     * @return count of contents
+     */
+    @Query("select count(c) from Content c, BasePost p "
+        + "where p.id = c.id and p.editorType = :editorType")
+    long countByEditorType(@Param("editorType") @NonNull PostEditorType editorType);
+
+    /**
+     * Finds content ids of posts and sheets edited by the editor type, ordered by id.
+     *
+     * @param editorType editor type must not be null
+     * @param id ids must be greater than it
+     * @param pageable page size, the page number must be 0
+     * @return a list of content id
+     */
+    @Query("select c.id from Content c, BasePost p "
+        + "where p.id = c.id and p.editorType = :editorType and c.id > :id order by c.id")
+    List<Integer> findIdsByEditorTypeAndIdGreaterThan(
+        @Param("editorType") @NonNull PostEditorType editorType,
+        @Param("id") @NonNull Integer id, @NonNull Pageable pageable);
+
+    /**
+     * Updates the rendered content unless the content has been modified since it was read.
+     *
+     * @param content rendered content
+     * @param id content id must not be null
+     * @param updateTime update time of the content when it was read
+     * @return updated rows
+     */
+    @Modifying
+    @Query("update Content c set c.content = :content "
+        + "where c.id = :id and c.updateTime = :updateTime")
+    int updateContentByIdAndUpdateTime(@Param("content") String content,
+        @Param("id") @NonNull Integer id, @Param("updateTime") Date updateTime);
 }
@@ -0,0 +1,44 @@
+package run.app.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.lang.NonNull;
+import run.app.model.entity.OutboxMail;
+import run.app.repository.base.BaseRepository;
+
+/**
+ * Outbox mail repository.
+ */
+public interface OutboxMailRepository extends BaseRepository<OutboxMail, Long> {
+
+    /**
+     * Finds recipients having a mail due, the longest waiting first.
+     *
+     * @param now current time must not be null
+     * @param pageable page info must not be null
+     * @return a list of recipient
+     */
+    @NonNull
+    @Query("select mail.recipient from OutboxMail mail where mail.nextSendTime <= :now "
+        + "group by mail.recipient order by min(mail.nextSendTime)")
+    List<String> findDueRecipients(@NonNull @Param("now") Date now, @NonNull Pageable pageable);
+
+    /**
+     * Finds mails of the recipients which may be sent now, ordered by id. Those are the due mails
+     * and the never attempted ones, which are coalesced into the digest of a due mail.
+     *
+     * @param recipients recipients must not be null
+     * @param now current time must not be null
+     * @param pageable page info must not be null
+     * @return a list of outbox mail
+     */
+    @NonNull
+    @Query("select mail from OutboxMail mail where mail.recipient in :recipients "
+        + "and (mail.nextSendTime <= :now or mail.attempts = 0) order by mail.id")
+    List<OutboxMail> findSendable(@NonNull @Param("recipients") Collection<String> recipients,
+        @NonNull @Param("now") Date now, @NonNull Pageable pageable);
+}
@@ -1,11 +1,15 @@
 package run.app.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import run.app.model.entity.Post;
 import run.app.model.enums.PostStatus;
+import run.app.model.projection.PostArchiveProjection;
 import run.app.repository.base.BasePostRepository;
 
 
@@ -36,6 +40,17 @@ public interface PostRepository extends BasePostRepository<Post>, JpaSpecificati
     @Query("select sum(p.likes) from Post p")
     Long countLike();
 
+    /**
+     * Lists archive projections of posts by status.
+     *
+     * @param status post status must not be null
+     * @return a list of post archive projection
+     */
+    @Query("select new run.app.model.projection.PostArchiveProjection(p.id, p.createTime)"
+        + " from Post p where p.status = :status")
+    List<PostArchiveProjection> findAllArchiveProjectionByStatus(
+        @Param("status") PostStatus status);
+
     /**
      * Find by post year and month and slug.
      *
@@ -103,4 +118,40 @@ public interface PostRepository extends BasePostRepository<Post>, JpaSpecificati
         + ".status = :status")
     Optional<Post> findBy(@Param("year") Integer year, @Param("month") Integer month,
         @Param("day") Integer day, @Param("slug") String slug, @Param("status") PostStatus status);
+
+    /**
+     * Updates status of the posts which are in the given status.
+     *
+     * @param status new post status must not be null
+     * @param postIds post ids must not be empty
+     * @param currentStatus current post status must not be null
+     * @return count of posts updated
+     */
+    @Modifying
+    @Query("update Post p set p.status = :status"
+        + " where p.id in :postIds and p.status = :currentStatus")
+    int updateStatusByIdInAndStatus(@Param("status") PostStatus status,
+        @Param("postIds") Collection<Integer> postIds,
+        @Param("currentStatus") PostStatus currentStatus);
+
+    /**
+     * Updates status of the posts which are in the given status, have no password and belong to
+     * none of the given categories.
+     *
+     * @param status new post status must not be null
+     * @param postIds post ids must not be empty
+     * @param currentStatus current post status must not be null
+     * @param excludedCategoryIds ids of the categories to exclude must not be empty
+     * @return count of posts updated
+     */
+    @Modifying
+    @Query("update Post p set p.status = :status"
+        + " where p.id in :postIds and p.status = :currentStatus"
+        + " and (p.password is null or trim(p.password) = '')"
+        + " and p.id not in (select pc.postId from PostCategory pc"
+        + " where pc.categoryId in :excludedCategoryIds)")
+    int updateStatusOfUnprotectedByIdInAndStatus(@Param("status") PostStatus status,
+        @Param("postIds") Collection<Integer> postIds,
+        @Param("currentStatus") PostStatus currentStatus,
+        @Param("excludedCategoryIds") Collection<Integer> excludedCategoryIds);
 }
@@ -40,6 +40,15 @@ public interface ThemeRepository {
      */
     List<ThemeProperty> listAll();
 
+    /**
+     * Checks whether the template exists in the theme, without touching the file system.
+     *
+     * @param themeId theme id
+     * @param template template path relative to the theme folder
+     * @return true if the template exists
+     */
+    boolean templateExists(String themeId, String template);
+
     /**
      * Set activated theme.
      *
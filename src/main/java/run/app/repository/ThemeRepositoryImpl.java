@@ -11,16 +11,21 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.Assert;
 import run.app.config.properties.HaloProperties;
 import run.app.event.options.OptionUpdatedEvent;
+import run.app.event.theme.ThemeUpdatedEvent;
 import run.app.exception.AlreadyExistsException;
 import run.app.exception.NotFoundException;
 import run.app.exception.ServiceException;
@@ -30,6 +35,8 @@ import run.app.handler.theme.config.support.ThemeProperty;
 import run.app.model.entity.Option;
 import run.app.model.support.HaloConst;
 import run.app.theme.ThemePropertyScanner;
+import run.app.theme.ThemeRegistry;
+import run.app.utils.BeanUtils;
 import run.app.utils.FileUtils;
 import run.app.utils.Version;
 
@@ -49,7 +56,17 @@ public class ThemeRepositoryImpl
 
     private final ApplicationEventPublisher eventPublisher;
 
-    private volatile ThemeProperty currentTheme;
+    private final ThemeRegistry themeRegistry;
+
+    private final Object activatedThemeLock = new Object();
+
+    private volatile String activatedThemeId;
+
+    /**
+     * Bumped whenever options are updated, so that a theme id read before the update is never
+     * kept after it.
+     */
+    private long activatedThemeVersion;
 
     public ThemeRepositoryImpl(OptionRepository optionRepository,
         HaloProperties properties,
@@ -57,56 +74,76 @@ public class ThemeRepositoryImpl
         this.optionRepository = optionRepository;
         this.properties = properties;
         this.eventPublisher = eventPublisher;
+        this.themeRegistry = new ThemeRegistry(getThemeRootPath());
     }
 
     @Override
     public String getActivatedThemeId() {
-        return this.optionRepository.findByKey(THEME.getValue())
+        String themeId = this.activatedThemeId;
+        if (themeId != null) {
+            return themeId;
+        }
+
+        long version;
+        synchronized (activatedThemeLock) {
+            if (this.activatedThemeId != null) {
+                return this.activatedThemeId;
+            }
+            version = activatedThemeVersion;
+        }
+
+        themeId = this.optionRepository.findByKey(THEME.getValue())
             .map(Option::getValue)
             .orElse(DEFAULT_THEME_ID);
+
+        synchronized (activatedThemeLock) {
+            if (activatedThemeVersion == version && this.activatedThemeId == null) {
+                this.activatedThemeId = themeId;
+            }
+        }
+        return themeId;
     }
 
     @Override
     public ThemeProperty getActivatedThemeProperty() {
-        ThemeProperty themeProperty = this.currentTheme;
-        if (themeProperty == null) {
-            AtomicBoolean fallbackTheme = new AtomicBoolean(false);
-            synchronized (this) {
-                if (this.currentTheme == null) {
-                    // get current theme id
-                    String currentThemeId = getActivatedThemeId();
-
-                    // fetch current theme
-                    this.currentTheme =
-                        this.fetchThemePropertyByThemeId(currentThemeId).orElseGet(() -> {
-                            if (!StringUtils.equalsIgnoreCase(currentThemeId, DEFAULT_THEME_ID)) {
-                                fallbackTheme.set(true);
-                                return this.getThemeByThemeId(DEFAULT_THEME_ID);
-                            }
-                            throw new ThemeNotFoundException(
-                                "Default theme: " + DEFAULT_THEME_ID + " was not found!");
-                        });
-                }
+        Optional<ThemeProperty> themeProperty =
+            fetchThemePropertyByThemeId(getActivatedThemeId());
+        if (themeProperty.isPresent()) {
+            return themeProperty.get();
+        }
+        synchronized (this) {
+            // get current theme id
+            String currentThemeId = getActivatedThemeId();
+            themeProperty = fetchThemePropertyByThemeId(currentThemeId);
+            if (themeProperty.isPresent()) {
+                return themeProperty.get();
             }
-            if (fallbackTheme.get()) {
-                // need set default theme as fallback theme
-                setActivatedTheme(DEFAULT_THEME_ID);
+            if (StringUtils.equalsIgnoreCase(currentThemeId, DEFAULT_THEME_ID)) {
+                throw new ThemeNotFoundException(
+                    "Default theme: " + DEFAULT_THEME_ID + " was not found!");
             }
+            ThemeProperty defaultTheme = getThemeByThemeId(DEFAULT_THEME_ID);
+            // need set default theme as fallback theme
+            setActivatedTheme(DEFAULT_THEME_ID);
+            return defaultTheme;
         }
-        return this.currentTheme;
     }
 
     @Override
     public Optional<ThemeProperty> fetchThemePropertyByThemeId(String themeId) {
-        return listAll()
-            .stream()
-            .filter(property -> Objects.equals(themeId, property.getId()))
-            .findFirst();
+        return themeRegistry.get(themeId).map(this::markActivated);
     }
 
     @Override
     public List<ThemeProperty> listAll() {
-        return ThemePropertyScanner.INSTANCE.scan(getThemeRootPath(), getActivatedThemeId());
+        return themeRegistry.listAll().stream()
+            .map(this::markActivated)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean templateExists(String themeId, String template) {
+        return themeRegistry.exists(themeId, template);
     }
 
     @Override
@@ -162,6 +199,7 @@ public class ThemeRepositoryImpl
             deleteFolderQuietly(sourceThemePath);
         }
 
+        themeRegistry.invalidate();
         // or else throw should never happen
         return ThemePropertyScanner.INSTANCE.fetchThemeProperty(targetThemePath).orElseThrow();
     }
@@ -180,6 +218,8 @@ public class ThemeRepositoryImpl
             FileUtils.deleteFolder(themePath);
         } catch (IOException e) {
             throw new ServiceException("Failed to delete theme path: " + themePath, e);
+        } finally {
+            themeRegistry.invalidate();
         }
     }
 
@@ -198,12 +238,48 @@ public class ThemeRepositoryImpl
 
     @Override
     public void onApplicationEvent(OptionUpdatedEvent event) {
-        synchronized (this) {
-            // reset current theme with null
-            this.currentTheme = null;
+        // reload activated theme id on the next access
+        evictActivatedThemeId();
+    }
+
+    /**
+     * Evicts the activated theme id again once the transaction has completed, since an id
+     * loaded in the meantime may be read before the option was committed.
+     *
+     * @param event option updated event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION,
+        fallbackExecution = true)
+    public void onOptionUpdateCompleted(OptionUpdatedEvent event) {
+        evictActivatedThemeId();
+    }
+
+    @EventListener
+    public void onThemeUpdated(ThemeUpdatedEvent event) {
+        themeRegistry.invalidate();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        themeRegistry.close();
+    }
+
+    private void evictActivatedThemeId() {
+        synchronized (activatedThemeLock) {
+            activatedThemeVersion++;
+            this.activatedThemeId = null;
         }
     }
 
+    /**
+     * Copies the theme property of the registry, marked whether the theme is activated.
+     */
+    private ThemeProperty markActivated(ThemeProperty themeProperty) {
+        ThemeProperty copy = BeanUtils.transformFrom(themeProperty, ThemeProperty.class);
+        copy.setActivated(Objects.equals(getActivatedThemeId(), themeProperty.getId()));
+        return copy;
+    }
+
     @NonNull
     protected ThemeProperty getThemeByThemeId(String themeId) {
         return fetchThemePropertyByThemeId(themeId).orElseThrow(
@@ -195,6 +195,30 @@ public interface BaseCommentRepository<COMMENT extends BaseComment>
     @SensitiveConceal
     List<COMMENT> findAllByPostIdAndParentId(@NonNull Integer postId, @NonNull Long parentId);
 
+    /**
+     * Finds comments by post id and parent id.
+     *
+     * @param postId post id must not be null
+     * @param parentId comment parent id must not be null
+     * @param pageable page info must not be null
+     * @return a page of comment
+     */
+    @NonNull
+    @SensitiveConceal
+    Page<COMMENT> findAllByPostIdAndParentId(@NonNull Integer postId, @NonNull Long parentId,
+        @NonNull Pageable pageable);
+
+    /**
+     * Finds comments by post id excluding those with the given parent id.
+     *
+     * @param postId post id must not be null
+     * @param parentId excluded comment parent id must not be null
+     * @return a list of comment
+     */
+    @NonNull
+    @SensitiveConceal
+    List<COMMENT> findAllByPostIdAndParentIdNot(@NonNull Integer postId, @NonNull Long parentId);
+
     /**
      * Finds all comments by status and parent id collection.
      *
@@ -204,6 +204,21 @@ public interface BasePostRepository<POST extends BasePost> extends BaseRepositor
     @Query("update BasePost p set p.visits = p.visits + :visits where p.id = :postId")
     int updateVisit(@Param("visits") long visits, @Param("postId") @NonNull Integer postId);
 
+    /**
+     * Updates post visits unless the post is in the given status.
+     *
+     * @param visits visit delta
+     * @param postId post id must not be null
+     * @param status status to skip must not be null
+     * @return updated rows
+     */
+    @Modifying
+    @Query("update BasePost p set p.visits = p.visits + :visits "
+        + "where p.id = :postId and p.status <> :status")
+    int updateVisitByStatusNot(@Param("visits") long visits,
+        @Param("postId") @NonNull Integer postId,
+        @Param("status") @NonNull PostStatus status);
+
     /**
      * Updates post likes.
      *
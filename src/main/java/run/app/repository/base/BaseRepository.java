@@ -8,6 +8,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
 /**
  * Base repository interface contains some common methods.
@@ -49,4 +50,14 @@ public interface BaseRepository<D, I> extends JpaRepository<D, I> {
      */
     long deleteByIdIn(@NonNull Collection<I> ids);
 
+    /**
+     * Finds domains with an id greater than the given one, ordered by id.
+     *
+     * @param id last id of the previous slice, null to start from the beginning
+     * @param size maximum number of domains
+     * @return a list of domains
+     */
+    @NonNull
+    List<D> findAllAfterId(@Nullable I id, int size);
+
 }
@@ -147,6 +147,28 @@ public class BaseRepositoryImpl<DOMAIN, ID> extends SimpleJpaRepository<DOMAIN,
         return domains.size();
     }
 
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<DOMAIN> findAllAfterId(@Nullable ID id, int size) {
+        Assert.isTrue(size > 0, "Size must be greater than 0");
+
+        if (entityInformation.hasCompositeId()) {
+            throw new UnsupportedOperationException(
+                "Unsupported find all after composite id");
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DOMAIN> query = cb.createQuery(getDomainClass());
+        Root<DOMAIN> root = query.from(getDomainClass());
+        Path<Comparable> idPath = root.get(entityInformation.getIdAttribute().getName());
+        if (id != null) {
+            query.where(cb.greaterThan(idPath, (Comparable) id));
+        }
+        query.select(root).orderBy(cb.asc(idPath));
+
+        return entityManager.createQuery(query).setMaxResults(size).getResultList();
+    }
+
     protected <S extends DOMAIN> Page<S> readPage(TypedQuery<S> query, Class<S> domainClass,
         Pageable pageable, TypedQuery<Long> countQuery) {
 
@@ -1,5 +1,6 @@
 package run.app.service;
 
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
@@ -8,9 +9,11 @@ import org.springframework.lang.NonNull;
 import org.springframework.web.multipart.MultipartFile;
 import run.app.exception.FileOperationException;
 import run.app.model.dto.AttachmentDTO;
+import run.app.model.dto.ChunkedUploadDTO;
 import run.app.model.entity.Attachment;
 import run.app.model.enums.AttachmentType;
 import run.app.model.params.AttachmentQuery;
+import run.app.model.params.ChunkedUploadParam;
 import run.app.service.base.CrudService;
 
 
@@ -42,6 +45,57 @@ public interface AttachmentService extends CrudService<Attachment, Integer> {
     @NonNull
     Attachment upload(@NonNull MultipartFile file);
 
+    /**
+     * Starts uploading a file in chunks.
+     *
+     * @param chunkedUploadParam chunked upload param must not be null
+     * @return chunked upload
+     * @throws FileOperationException throws when failed to start the upload
+     */
+    @NonNull
+    ChunkedUploadDTO initiateChunkedUpload(@NonNull ChunkedUploadParam chunkedUploadParam);
+
+    /**
+     * Gets a chunked upload, e.g. to find the chunks to upload when resuming.
+     *
+     * @param uploadId upload id must not be blank
+     * @return chunked upload
+     */
+    @NonNull
+    ChunkedUploadDTO getChunkedUpload(@NonNull String uploadId);
+
+    /**
+     * Uploads a chunk, the content is streamed to the file handler.
+     *
+     * @param uploadId upload id must not be blank
+     * @param index chunk index
+     * @param content chunk content must not be null
+     * @param contentLength length of the content
+     * @param contentMd5 base64 encoded md5 digest of the content
+     * @return chunked upload
+     * @throws FileOperationException throws when failed to upload the chunk
+     */
+    @NonNull
+    ChunkedUploadDTO uploadChunk(@NonNull String uploadId, int index,
+        @NonNull InputStream content, long contentLength, @NonNull String contentMd5);
+
+    /**
+     * Completes a chunked upload after all chunks have been uploaded.
+     *
+     * @param uploadId upload id must not be blank
+     * @return attachment info
+     * @throws FileOperationException throws when failed to complete the upload
+     */
+    @NonNull
+    Attachment completeChunkedUpload(@NonNull String uploadId);
+
+    /**
+     * Aborts a chunked upload.
+     *
+     * @param uploadId upload id must not be blank
+     */
+    void abortChunkedUpload(@NonNull String uploadId);
+
     /**
      * Removes attachment permanently.
      *
@@ -82,4 +136,9 @@ public interface AttachmentService extends CrudService<Attachment, Integer> {
      * @return list of type.
      */
     List<AttachmentType> listAllType();
+
+    /**
+     * Generates missing thumbnails of local images in the background.
+     */
+    void generateMissingThumbnails();
 }
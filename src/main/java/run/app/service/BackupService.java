@@ -8,6 +8,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.lang.NonNull;
 import org.springframework.web.multipart.MultipartFile;
 import run.app.model.dto.BackupDTO;
+import run.app.model.dto.DataProgressDTO;
+import run.app.model.dto.WorkDirSnapshotDTO;
 import run.app.model.dto.post.BasePostDetailDTO;
 import run.app.model.params.PostMarkdownParam;
 
@@ -38,6 +40,40 @@ public interface BackupService {
     @NonNull
     BackupDTO backupWorkDirectory(List<String> options);
 
+    /**
+     * Creates an incremental snapshot of the work directory. Only files changed since the latest
+     * snapshot are read, and their chunks are stored once by content.
+     *
+     * @param options items of the work directory to backup
+     * @return snapshot summary
+     */
+    @NonNull
+    WorkDirSnapshotDTO createWorkDirSnapshot(List<String> options);
+
+    /**
+     * Lists all work directory snapshots, the newest first.
+     *
+     * @return a list of snapshot summary
+     */
+    @NonNull
+    List<WorkDirSnapshotDTO> listWorkDirSnapshots();
+
+    /**
+     * Reassembles the snapshot as a work directory backup archive.
+     *
+     * @param name snapshot name must not be blank
+     * @return backup dto of the archive
+     */
+    @NonNull
+    BackupDTO restoreWorkDirSnapshot(@NonNull String name);
+
+    /**
+     * Deletes the snapshot and chunks no longer used by others.
+     *
+     * @param name snapshot name must not be blank
+     */
+    void deleteWorkDirSnapshot(@NonNull String name);
+
     /**
      * Lists all backups.
      *
@@ -82,6 +118,15 @@ public interface BackupService {
     @NonNull
     BackupDTO exportData();
 
+    /**
+     * Export all database's data, tables are read in slices and streamed to the file.
+     *
+     * @param gzip whether to compress the exported file with gzip
+     * @return data
+     */
+    @NonNull
+    BackupDTO exportData(boolean gzip);
+
     /**
      * List all exported data.
      *
@@ -97,13 +142,21 @@ public interface BackupService {
     void deleteExportedData(@NonNull String fileName);
 
     /**
-     * Import data
+     * Import data, plain or gzip compressed json is accepted
      *
      * @param file file
      * @throws IOException throws IOException
      */
     void importData(MultipartFile file) throws IOException;
 
+    /**
+     * Gets progress of the running or the last finished data export or import.
+     *
+     * @return data progress
+     */
+    @NonNull
+    DataProgressDTO getDataProgress();
+
     /**
      * Export Markdown content
      *
@@ -1,5 +1,6 @@
 package run.app.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -117,6 +118,22 @@ public interface CategoryService extends CrudService<Category, Integer> {
      */
     boolean isPrivate(Integer categoryId);
 
+    /**
+     * Determine whether any of the categories is encrypted.
+     *
+     * @param categoryIds category ids
+     * @return true if at least one category is encrypted, false otherwise
+     */
+    boolean isAnyPrivate(@Nullable Collection<Integer> categoryIds);
+
+    /**
+     * Lists ids of the categories which are encrypted or have an encrypted ancestor.
+     *
+     * @return a set of category id
+     */
+    @NonNull
+    Set<Integer> listPrivateCategoryIds();
+
     /**
      * This method will first query all categories and create a tree, then start from the node
      * whose ID is <code>categoryId</code> and recursively look up the first encryption category.
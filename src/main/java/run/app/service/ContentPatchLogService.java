@@ -1,6 +1,8 @@
 package run.app.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import run.app.model.entity.Content.ContentDiff;
 import run.app.model.entity.Content.PatchedContent;
 import run.app.model.entity.ContentPatchLog;
@@ -25,7 +27,7 @@ public interface ContentPatchLogService extends CrudService<ContentPatchLog, Int
     ContentPatchLog createOrUpdate(Integer postId, String content, String originalContent);
 
     /**
-     * Apply content patch to v1.
+     * Apply content patch to the snapshot it is based on.
      *
      * @param patchLog content patch log
      * @return real content of the post.
@@ -50,6 +52,14 @@ public interface ContentPatchLogService extends CrudService<ContentPatchLog, Int
      */
     ContentPatchLog getDraftByPostId(Integer postId);
 
+    /**
+     * Lists ids of the posts which have a draft patch log record.
+     *
+     * @param postIds post ids
+     * @return ids of posts having drafts
+     */
+    Set<Integer> listDraftPostIds(Collection<Integer> postIds);
+
     /**
      * Gets content patch log by post id.
      *
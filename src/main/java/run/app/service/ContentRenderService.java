@@ -0,0 +1,27 @@
+package run.app.service;
+
+import org.springframework.lang.NonNull;
+import run.app.model.dto.RenderProgressDTO;
+
+/**
+ * Content render service.
+ */
+public interface ContentRenderService {
+
+    /**
+     * Renders html of all posts and sheets written in markdown again in the background, e.g.
+     * after the markdown extensions have changed.
+     *
+     * @return progress of the started rendering
+     */
+    @NonNull
+    RenderProgressDTO renderAll();
+
+    /**
+     * Gets progress of the running or the last finished rendering.
+     *
+     * @return render progress
+     */
+    @NonNull
+    RenderProgressDTO getRenderProgress();
+}
@@ -1,5 +1,8 @@
 package run.app.service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 import run.app.model.entity.Content;
 import run.app.model.entity.ContentPatchLog;
 import run.app.service.base.CrudService;
@@ -42,4 +45,28 @@ public interface ContentService extends CrudService<Content, Integer> {
      *  otherwise {@code false}
      */
     Boolean draftingInProgress(Integer postId);
+
+    /**
+     * Lists ids of the posts which have a draft being drafted.
+     *
+     * @param postIds post ids
+     * @return ids of posts drafting in progress
+     */
+    Set<Integer> listDraftingInProgressIds(Collection<Integer> postIds);
+
+    /**
+     * Lists contents as a map by post ids.
+     *
+     * @param postIds post ids
+     * @return a map with post id as key and content as value
+     */
+    Map<Integer, Content> listContentMapBy(Collection<Integer> postIds);
+
+    /**
+     * Updates rendered html of the contents. A content modified since it was read is skipped.
+     *
+     * @param contents contents with rendered html
+     * @return number of updated contents
+     */
+    int updateRenderedContents(Collection<Content> contents);
 }
@@ -0,0 +1,76 @@
+package run.app.service;
+
+import org.springframework.lang.NonNull;
+import run.app.model.support.FeedDocument;
+
+/**
+ * Feed and sitemap service.
+ *
+ * <p>Documents are written incrementally with a StAX writer and kept gzip compressed until the
+ * next content change.
+ */
+public interface FeedService {
+
+    /**
+     * Maximum URLs of a sitemap, larger sitemaps are split into parts listed by a sitemap index.
+     */
+    int SITEMAP_MAX_URLS = 50000;
+
+    /**
+     * Gets the RSS 2.0 feed of latest posts.
+     *
+     * @return rss document
+     */
+    @NonNull
+    FeedDocument getRss();
+
+    /**
+     * Gets the RSS 2.0 feed of latest posts in the category.
+     *
+     * @param categorySlug category slug must not be blank
+     * @return rss document
+     */
+    @NonNull
+    FeedDocument getRss(@NonNull String categorySlug);
+
+    /**
+     * Gets the Atom feed of latest posts.
+     *
+     * @return atom document
+     */
+    @NonNull
+    FeedDocument getAtom();
+
+    /**
+     * Gets the Atom feed of latest posts in the category.
+     *
+     * @param categorySlug category slug must not be blank
+     * @return atom document
+     */
+    @NonNull
+    FeedDocument getAtom(@NonNull String categorySlug);
+
+    /**
+     * Gets the sitemap, which is a sitemap index when there are more than
+     * {@link #SITEMAP_MAX_URLS} URLs.
+     *
+     * @return sitemap document
+     */
+    @NonNull
+    FeedDocument getSitemap();
+
+    /**
+     * Gets a part of the sitemap listed by the sitemap index.
+     *
+     * @param part part number, starting from 1
+     * @return sitemap document
+     * @throws run.app.exception.NotFoundException if the part does not exist
+     */
+    @NonNull
+    FeedDocument getSitemapPart(int part);
+
+    /**
+     * Discards all documents.
+     */
+    void evictAll();
+}
@@ -9,6 +9,7 @@ import run.app.model.dto.OptionSimpleDTO;
 import run.app.model.entity.Option;
 import run.app.model.params.OptionParam;
 import run.app.model.properties.PropertyEnum;
+import run.app.model.support.OptionSnapshot;
 import run.app.service.base.CrudService;
 
 /**
@@ -87,6 +88,14 @@ public interface OptionService extends CrudService<Option, Integer>, OptionProvi
     @NonNull
     Option removePermanently(@NonNull Integer id);
 
+    /**
+     * Gets the snapshot of current options, it is rebuilt after options have been updated.
+     *
+     * @return option snapshot
+     */
+    @NonNull
+    OptionSnapshot getSnapshot();
+
     /**
      * Converts to option output dto.
      *
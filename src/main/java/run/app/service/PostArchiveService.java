@@ -0,0 +1,80 @@
+package run.app.service;
+
+import java.util.List;
+import org.springframework.lang.NonNull;
+import run.app.model.vo.ArchiveMonthVO;
+import run.app.model.vo.ArchiveYearVO;
+
+/**
+ * Archive service of published posts, backed by an index of post ids ordered by create time.
+ */
+public interface PostArchiveService {
+
+    /**
+     * Lists year archives of all published posts.
+     *
+     * @return a list of year archive
+     */
+    @NonNull
+    List<ArchiveYearVO> listYearArchives();
+
+    /**
+     * Lists month archives of all published posts.
+     *
+     * @return a list of month archive
+     */
+    @NonNull
+    List<ArchiveMonthVO> listMonthArchives();
+
+    /**
+     * Lists year archives of a page of published posts, newest first.
+     *
+     * @param page page number, starting from 0
+     * @param size page size, must be greater than 0
+     * @return a list of year archive containing the posts of the page only
+     */
+    @NonNull
+    List<ArchiveYearVO> listYearArchives(int page, int size);
+
+    /**
+     * Lists month archives of a page of published posts, newest first.
+     *
+     * @param page page number, starting from 0
+     * @param size page size, must be greater than 0
+     * @return a list of month archive containing the posts of the page only
+     */
+    @NonNull
+    List<ArchiveMonthVO> listMonthArchives(int page, int size);
+
+    /**
+     * Counts archived posts.
+     *
+     * @return count of published posts
+     */
+    long count();
+
+    /**
+     * Refreshes the post in the index after it was published, unpublished or re-dated.
+     *
+     * @param postId post id must not be null
+     */
+    void refresh(@NonNull Integer postId);
+
+    /**
+     * Removes the post from the index.
+     *
+     * @param postId post id must not be null
+     */
+    void remove(@NonNull Integer postId);
+
+    /**
+     * Discards the converted archives after data shown with the posts, such as categories, was
+     * changed.
+     */
+    void invalidate();
+
+    /**
+     * Rebuilds the index from the database.
+     */
+    void rebuild();
+}
@@ -0,0 +1,69 @@
+package run.app.service;
+
+import java.util.Collection;
+import java.util.Map;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import run.app.model.entity.Post;
+
+/**
+ * Full-text search service of published posts.
+ */
+public interface PostSearchService {
+
+    /**
+     * Determines whether the index has been built and can serve searches.
+     *
+     * @return true if ready
+     */
+    boolean isReady();
+
+    /**
+     * Searches published posts by keyword, ranked by relevance. The sort of the pageable is
+     * ignored.
+     *
+     * @param keyword keyword must not be null
+     * @param pageable page info must not be null
+     * @return a page of posts
+     */
+    @NonNull
+    Page<Post> search(@NonNull String keyword, @NonNull Pageable pageable);
+
+    /**
+     * Builds highlighted html snippets of posts.
+     *
+     * @param postIds post ids must not be null
+     * @param keyword keyword
+     * @return post id to snippet, posts absent from the index are skipped
+     */
+    @NonNull
+    Map<Integer, String> highlight(@NonNull Collection<Integer> postIds, String keyword);
+
+    /**
+     * Re-indexes a post, or removes it from the index if it is not published any more.
+     *
+     * @param postId post id must not be null
+     */
+    void refresh(@NonNull Integer postId);
+
+    /**
+     * Re-indexes posts regardless of their version, or removes those not published any more.
+     * Ids of sheets are ignored.
+     *
+     * @param postIds post ids must not be null
+     */
+    void refresh(@NonNull Collection<Integer> postIds);
+
+    /**
+     * Removes a post from the index.
+     *
+     * @param postId post id must not be null
+     */
+    void remove(@NonNull Integer postId);
+
+    /**
+     * Loads the persisted index and brings it up to date with the database.
+     */
+    void rebuild();
+}
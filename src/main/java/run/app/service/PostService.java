@@ -239,4 +239,32 @@ public interface PostService extends BasePostService<Post> {
      */
     @NonNull
     List<PostMarkdownVO> listPostMarkdowns();
+
+    /**
+     * Converts posts to PostMarkdown vos, contents, categories and tags are fetched in bulk.
+     *
+     * @param posts posts must not be null
+     * @return a list of PostMarkdown vo in the order of posts
+     */
+    @NonNull
+    List<PostMarkdownVO> convertToPostMarkdowns(@NonNull List<Post> posts);
+
+    /**
+     * Moves the published posts to intimate status in bulk.
+     *
+     * @param postIds post ids must not be null
+     * @return count of posts updated
+     */
+    int intimatePublishedPosts(@NonNull Collection<Integer> postIds);
+
+    /**
+     * Moves the intimate posts back to published status in bulk, except for posts with a
+     * password or belonging to any of the encrypted categories.
+     *
+     * @param postIds post ids must not be null
+     * @param encryptedCategoryIds ids of all encrypted categories must not be null
+     * @return count of posts updated
+     */
+    int publishIntimatePosts(@NonNull Collection<Integer> postIds,
+        @NonNull Collection<Integer> encryptedCategoryIds);
 }
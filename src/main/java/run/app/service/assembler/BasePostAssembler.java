@@ -1,7 +1,10 @@
 package run.app.service.assembler;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -21,6 +24,7 @@ import run.app.model.properties.PostProperties;
 import run.app.service.ContentService;
 import run.app.service.OptionService;
 import run.app.utils.HaloUtils;
+import run.app.utils.ServiceUtils;
 
 /**
  * @author guqing
@@ -115,8 +119,12 @@ public class BasePostAssembler<POST extends BasePost> {
             return Collections.emptyList();
         }
 
+        Map<Integer, Content> contentMap = listContentMapForSummary(posts);
+        Set<Integer> inProgressIds = contentService.listDraftingInProgressIds(
+            ServiceUtils.fetchProperty(posts, BasePost::getId));
+
         return posts.stream()
-            .map(this::convertToSimple)
+            .map(post -> convertToSimple(post, contentMap, inProgressIds))
             .collect(Collectors.toList());
     }
 
@@ -130,7 +138,25 @@ public class BasePostAssembler<POST extends BasePost> {
     public Page<BasePostSimpleDTO> convertToSimple(Page<POST> postPage) {
         Assert.notNull(postPage, "Post page must not be null");
 
-        return postPage.map(this::convertToSimple);
+        List<POST> posts = postPage.getContent();
+        Map<Integer, Content> contentMap = listContentMapForSummary(posts);
+        Set<Integer> inProgressIds = contentService.listDraftingInProgressIds(
+            ServiceUtils.fetchProperty(posts, BasePost::getId));
+
+        return postPage.map(post -> convertToSimple(post, contentMap, inProgressIds));
+    }
+
+    private BasePostSimpleDTO convertToSimple(POST post, Map<Integer, Content> contentMap,
+        Set<Integer> inProgressIds) {
+        BasePostSimpleDTO basePostSimpleDTO = new BasePostSimpleDTO().convertFrom(post);
+
+        // Set summary
+        generateAndSetSummaryIfAbsent(post, basePostSimpleDTO, contentMap);
+
+        // Post currently drafting in process
+        basePostSimpleDTO.setInProgress(inProgressIds.contains(post.getId()));
+
+        return basePostSimpleDTO;
     }
 
     /**
@@ -189,4 +215,50 @@ public class BasePostAssembler<POST extends BasePost> {
             postVo.setSummary(generateSummary(patchedContent.getContent()));
         }
     }
+
+    /**
+     * Generates and sets summary if absent, with contents loaded in bulk by
+     * {@link #listContentMapForSummary(Collection)}.
+     *
+     * @param post post must not be null
+     * @param postVo post vo must not be null
+     * @param contentMap contents keyed by post id must not be null
+     */
+    protected <T extends BasePostSimpleDTO> void generateAndSetSummaryIfAbsent(POST post,
+        T postVo, Map<Integer, Content> contentMap) {
+        Assert.notNull(post, "The post must not be null.");
+        if (StringUtils.isNotBlank(postVo.getSummary())) {
+            return;
+        }
+
+        PatchedContent patchedContent = post.getContentOfNullable();
+        if (patchedContent != null) {
+            postVo.setSummary(generateSummary(patchedContent.getContent()));
+            return;
+        }
+
+        Content postContent = contentMap.get(post.getId());
+        postVo.setSummary(
+            postContent == null ? StringUtils.EMPTY : generateSummary(postContent.getContent()));
+    }
+
+    /**
+     * Lists contents of the posts whose summary has to be generated from the content.
+     *
+     * @param posts posts
+     * @return contents keyed by post id
+     */
+    @NonNull
+    protected Map<Integer, Content> listContentMapForSummary(Collection<POST> posts) {
+        if (CollectionUtils.isEmpty(posts)) {
+            return Collections.emptyMap();
+        }
+
+        Set<Integer> postIds = posts.stream()
+            .filter(post -> StringUtils.isBlank(post.getSummary())
+                && post.getContentOfNullable() == null)
+            .map(BasePost::getId)
+            .collect(Collectors.toSet());
+        return contentService.listContentMapBy(postIds);
+    }
 }
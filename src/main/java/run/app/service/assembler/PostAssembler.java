@@ -20,6 +20,7 @@ import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import run.app.model.dto.post.BasePostMinimalDTO;
 import run.app.model.entity.Category;
+import run.app.model.entity.Content;
 import run.app.model.entity.Content.PatchedContent;
 import run.app.model.entity.Post;
 import run.app.model.entity.PostMeta;
@@ -132,7 +133,38 @@ public class PostAssembler extends BasePostAssembler<Post> {
      */
     public Page<PostDetailVO> convertToDetailVo(Page<Post> postPage) {
         Assert.notNull(postPage, "Post page must not be null");
-        return postPage.map(this::convertToDetailVo);
+
+        List<Post> posts = postPage.getContent();
+
+        Set<Integer> postIds = ServiceUtils.fetchProperty(posts, Post::getId);
+
+        // Get tag list map
+        Map<Integer, List<Tag>> tagListMap = postTagService.listTagListMapBy(postIds);
+
+        // Get category list map
+        Map<Integer, List<Category>> categoryListMap = postCategoryService
+            .listCategoryListMap(postIds);
+
+        // Get post meta list map
+        Map<Integer, List<PostMeta>> postMetaListMap = postMetaService.listPostMetaAsMap(postIds);
+
+        // Get comment count
+        Map<Integer, Long> commentCountMap = postCommentService.countByStatusAndPostIds(
+            CommentStatus.PUBLISHED, postIds);
+
+        // Get contents for summary generation
+        Map<Integer, Content> contentMap = listContentMapForSummary(posts);
+
+        // Get posts currently drafting in process
+        Set<Integer> inProgressIds = contentService.listDraftingInProgressIds(postIds);
+
+        return postPage.map(post -> convertTo(post,
+            tagListMap.getOrDefault(post.getId(), Collections.emptyList()),
+            categoryListMap.getOrDefault(post.getId(), Collections.emptyList()),
+            postMetaListMap.getOrDefault(post.getId(), Collections.emptyList()),
+            contentMap,
+            commentCountMap.getOrDefault(post.getId(), 0L),
+            inProgressIds.contains(post.getId())));
     }
 
     /**
@@ -163,10 +195,16 @@ public class PostAssembler extends BasePostAssembler<Post> {
         // Get post meta list map
         Map<Integer, List<PostMeta>> postMetaListMap = postMetaService.listPostMetaAsMap(postIds);
 
+        // Get contents for summary generation
+        Map<Integer, Content> contentMap = listContentMapForSummary(posts);
+
+        // Get posts currently drafting in process
+        Set<Integer> inProgressIds = contentService.listDraftingInProgressIds(postIds);
+
         return postPage.map(post -> {
             PostListVO postListVO = new PostListVO().convertFrom(post);
 
-            generateAndSetSummaryIfAbsent(post, postListVO);
+            generateAndSetSummaryIfAbsent(post, postListVO, contentMap);
 
             Optional.ofNullable(tagListMap.get(post.getId())).orElseGet(LinkedList::new);
 
@@ -197,8 +235,7 @@ public class PostAssembler extends BasePostAssembler<Post> {
             postListVO.setFullPath(buildFullPath(post));
 
             // Post currently drafting in process
-            Boolean isInProcess = contentService.draftingInProgress(post.getId());
-            postListVO.setInProgress(isInProcess);
+            postListVO.setInProgress(inProgressIds.contains(post.getId()));
 
             return postListVO;
         });
@@ -223,10 +260,13 @@ public class PostAssembler extends BasePostAssembler<Post> {
         // Get post meta list map
         Map<Integer, List<PostMeta>> postMetaListMap = postMetaService.listPostMetaAsMap(postIds);
 
+        // Get contents for summary generation
+        Map<Integer, Content> contentMap = listContentMapForSummary(posts);
+
         return posts.stream().map(post -> {
             PostListVO postListVO = new PostListVO().convertFrom(post);
 
-            generateAndSetSummaryIfAbsent(post, postListVO);
+            generateAndSetSummaryIfAbsent(post, postListVO, contentMap);
 
             Optional.ofNullable(tagListMap.get(post.getId())).orElseGet(LinkedList::new);
 
@@ -275,9 +315,18 @@ public class PostAssembler extends BasePostAssembler<Post> {
         @Nullable List<Category> categories, List<PostMeta> postMetaList) {
         Assert.notNull(post, "Post must not be null");
 
+        return convertTo(post, tags, categories, postMetaList,
+            listContentMapForSummary(Collections.singletonList(post)),
+            postCommentService.countByStatusAndPostId(CommentStatus.PUBLISHED, post.getId()),
+            contentService.draftingInProgress(post.getId()));
+    }
+
+    private PostDetailVO convertTo(Post post, @Nullable List<Tag> tags,
+        @Nullable List<Category> categories, List<PostMeta> postMetaList,
+        Map<Integer, Content> contentMap, long commentCount, boolean inProgress) {
         // Convert to base detail vo
         PostDetailVO postDetailVO = new PostDetailVO().convertFrom(post);
-        generateAndSetSummaryIfAbsent(post, postDetailVO);
+        generateAndSetSummaryIfAbsent(post, postDetailVO, contentMap);
 
         // Extract ids
         Set<Integer> tagIds = ServiceUtils.fetchProperty(tags, Tag::getId);
@@ -296,8 +345,7 @@ public class PostAssembler extends BasePostAssembler<Post> {
         postDetailVO.setMetaIds(metaIds);
         postDetailVO.setMetas(postMetaService.convertTo(postMetaList));
 
-        postDetailVO.setCommentCount(postCommentService.countByStatusAndPostId(
-            CommentStatus.PUBLISHED, post.getId()));
+        postDetailVO.setCommentCount(commentCount);
 
         postDetailVO.setFullPath(buildFullPath(post));
 
@@ -306,7 +354,6 @@ public class PostAssembler extends BasePostAssembler<Post> {
         postDetailVO.setOriginalContent(postContent.getOriginalContent());
 
         // Post currently drafting in process
-        Boolean inProgress = contentService.draftingInProgress(post.getId());
         postDetailVO.setInProgress(inProgress);
 
         return postDetailVO;
@@ -1,5 +1,6 @@
 package run.app.service.assembler;
 
+import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
@@ -16,6 +17,7 @@ import run.app.service.PostCommentService;
 import run.app.service.PostMetaService;
 import run.app.service.PostTagService;
 import run.app.service.TagService;
+import run.app.utils.ServiceUtils;
 
 /**
  * Post assembler for theme render.
@@ -47,12 +49,18 @@ public class PostRenderAssembler extends PostAssembler {
     @Override
     public Page<PostDetailVO> convertToDetailVo(Page<Post> postPage) {
         Assert.notNull(postPage, "Post page must not be null");
-        // Populate post content
+        // Populate post content in bulk
+        Map<Integer, Content> contentMap = contentService.listContentMapBy(
+            ServiceUtils.fetchProperty(postPage.getContent(), Post::getId));
         postPage.getContent().forEach(post -> {
-            Content postContent = contentService.getById(post.getId());
-            post.setContent(Content.PatchedContent.of(postContent));
+            Content postContent = contentMap.get(post.getId());
+            if (postContent == null) {
+                // Let the content service report the missing content
+                postContent = contentService.getById(post.getId());
+            }
+            post.setContent(PatchedContent.of(postContent));
         });
-        return postPage.map(this::convertToDetailVo);
+        return super.convertToDetailVo(postPage);
     }
 
     @Override
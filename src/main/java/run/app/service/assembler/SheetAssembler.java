@@ -73,6 +73,9 @@ public class SheetAssembler extends BasePostAssembler<Sheet> {
         Map<Integer, Long> sheetCommentCountMap = sheetCommentService.countByStatusAndPostIds(
             CommentStatus.PUBLISHED, sheetIds);
 
+        // Get sheets currently drafting in process
+        Set<Integer> inProgressIds = contentService.listDraftingInProgressIds(sheetIds);
+
         return sheetPage.map(sheet -> {
             SheetListVO sheetListVO = new SheetListVO().convertFrom(sheet);
             sheetListVO.setCommentCount(sheetCommentCountMap.getOrDefault(sheet.getId(), 0L));
@@ -80,8 +83,7 @@ public class SheetAssembler extends BasePostAssembler<Sheet> {
             sheetListVO.setFullPath(buildFullPath(sheet));
 
             // Post currently drafting in process
-            Boolean isInProcess = contentService.draftingInProgress(sheet.getId());
-            sheetListVO.setInProgress(isInProcess);
+            sheetListVO.setInProgress(inProgressIds.contains(sheet.getId()));
 
             return sheetListVO;
         });
@@ -1,12 +1,13 @@
 package run.app.service.assembler.comment;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Queue;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -21,9 +22,11 @@ import run.app.model.dto.BaseCommentDTO;
 import run.app.model.entity.BaseComment;
 import run.app.model.properties.CommentProperties;
 import run.app.model.support.CommentPage;
+import run.app.model.support.CommentTree;
 import run.app.model.vo.BaseCommentVO;
 import run.app.model.vo.BaseCommentWithParentVO;
 import run.app.service.OptionService;
+import run.app.utils.BeanUtils;
 
 /**
  * Base comment assembler.
@@ -86,6 +89,22 @@ public abstract class BaseCommentAssembler<COMMENT extends BaseComment> {
         return commentPage.map(this::convertTo);
     }
 
+    /**
+     * Builds an indexed comment tree.
+     *
+     * @param comments comments could be null
+     * @return a comment tree
+     */
+    @NonNull
+    public CommentTree buildTree(@Nullable Collection<COMMENT> comments) {
+        if (CollectionUtils.isEmpty(comments)) {
+            return new CommentTree(Collections.emptyList());
+        }
+        return new CommentTree(comments.stream()
+            .map(this::convertTo)
+            .collect(Collectors.toList()));
+    }
+
     /**
      * Converts to base comment vo tree.
      *
@@ -101,11 +120,11 @@ public abstract class BaseCommentAssembler<COMMENT extends BaseComment> {
 
         // Init the top virtual comment
         BaseCommentVO topVirtualComment = new BaseCommentVO();
-        topVirtualComment.setId(0L);
+        topVirtualComment.setId(CommentTree.TOP_PARENT_ID);
         topVirtualComment.setChildren(new LinkedList<>());
 
         // Concrete the comment tree
-        concreteTree(topVirtualComment, new LinkedList<>(comments), comparator);
+        concreteTree(topVirtualComment, comments, comparator);
 
         return topVirtualComment.getChildren();
     }
@@ -123,32 +142,74 @@ public abstract class BaseCommentAssembler<COMMENT extends BaseComment> {
         Assert.notNull(comments, "Comments must not be null");
         Assert.notNull(pageable, "Page info must not be null");
 
-        Comparator<BaseCommentVO> commentComparator =
+        return pageVosBy(buildTree(comments), pageable);
+    }
+
+    /**
+     * Lists comment vos by comment tree, only the top comments of the page and their
+     * descendants are converted.
+     *
+     * @param commentTree comment tree must not be null
+     * @param pageable page info must not be null
+     * @return a page of comment vo
+     */
+    @NonNull
+    public Page<BaseCommentVO> pageVosBy(@NonNull CommentTree commentTree,
+        @NonNull Pageable pageable) {
+        Assert.notNull(commentTree, "Comment tree must not be null");
+        Assert.notNull(pageable, "Page info must not be null");
+
+        Comparator<BaseCommentDTO> commentComparator =
             buildCommentComparator(pageable.getSortOr(Sort.by(Sort.Direction.DESC, "createTime")));
 
-        // Convert to vo
-        List<BaseCommentVO> topComments = convertToVo(comments, commentComparator);
+        List<BaseCommentDTO> topComments = new ArrayList<>(commentTree.getTopComments());
+        topComments.sort(commentComparator);
 
         List<BaseCommentVO> pageContent;
 
         // Calc the shear index
-        int startIndex = pageable.getPageNumber() * pageable.getPageSize();
+        long startIndex = pageable.getOffset();
         if (startIndex >= topComments.size() || startIndex < 0) {
             pageContent = Collections.emptyList();
         } else {
-            int endIndex = startIndex + pageable.getPageSize();
-            if (endIndex > topComments.size()) {
-                endIndex = topComments.size();
-            }
+            int endIndex = (int) Math.min(startIndex + pageable.getPageSize(), topComments.size());
 
             log.debug("Top comments size: [{}]", topComments.size());
             log.debug("Start index: [{}]", startIndex);
             log.debug("End index: [{}]", endIndex);
 
-            pageContent = topComments.subList(startIndex, endIndex);
+            pageContent = topComments.subList((int) startIndex, endIndex).stream()
+                .map(topComment -> convertToVo(commentTree, topComment, commentComparator))
+                .collect(Collectors.toList());
         }
 
-        return new CommentPage<>(pageContent, pageable, topComments.size(), comments.size());
+        return new CommentPage<>(pageContent, pageable, topComments.size(), commentTree.size());
+    }
+
+    /**
+     * Lists comment vos by a page of top comments and the replies of the same target.
+     *
+     * @param topCommentPage page of top comments must not be null
+     * @param replies replies containing the descendants of the top comments
+     * @param commentCount total comment count of the target
+     * @return a page of comment vo
+     */
+    @NonNull
+    public Page<BaseCommentVO> pageVosBy(@NonNull Page<COMMENT> topCommentPage,
+        @Nullable Collection<COMMENT> replies, long commentCount) {
+        Assert.notNull(topCommentPage, "Top comment page must not be null");
+
+        Sort sort = topCommentPage.getSort().isSorted()
+            ? topCommentPage.getSort() : Sort.by(Sort.Direction.DESC, "createTime");
+        Comparator<BaseCommentDTO> commentComparator = buildCommentComparator(sort);
+        CommentTree replyTree = buildTree(replies);
+
+        List<BaseCommentVO> pageContent = topCommentPage.getContent().stream()
+            .map(topComment -> convertToVo(replyTree, convertTo(topComment), commentComparator))
+            .collect(Collectors.toList());
+
+        return new CommentPage<>(pageContent, topCommentPage.getPageable(),
+            topCommentPage.getTotalElements(), commentCount);
     }
 
     /**
@@ -167,37 +228,58 @@ public abstract class BaseCommentAssembler<COMMENT extends BaseComment> {
             return;
         }
 
-        // Get children
-        List<COMMENT> children = comments.stream()
-            .filter(comment -> Objects.equals(parentComment.getId(), comment.getParentId()))
-            .collect(Collectors.toList());
-
-        // Add children
-        children.forEach(comment -> {
-            // Convert to comment vo
-            BaseCommentVO commentVo = new BaseCommentVO().convertFrom(comment);
+        CommentTree commentTree = buildTree(comments);
+        List<BaseCommentVO> children = commentTree.getChildren(parentComment.getId()).stream()
+            .map(child -> convertToVo(commentTree, child, commentComparator))
+            .collect(Collectors.toCollection(LinkedList::new));
+        if (children.isEmpty()) {
+            return;
+        }
 
-            commentVo.setAvatar(buildAvatarUrl(commentVo.getGravatarMd5()));
+        if (parentComment.getChildren() == null) {
+            parentComment.setChildren(new LinkedList<>());
+        }
+        parentComment.getChildren().addAll(children);
+        // Sort the children
+        if (commentComparator != null) {
+            parentComment.getChildren().sort(commentComparator);
+        }
+    }
 
-            if (parentComment.getChildren() == null) {
-                parentComment.setChildren(new LinkedList<>());
+    /**
+     * Converts the comment with all its descendants in the tree to comment vo.
+     *
+     * @param commentTree comment tree must not be null
+     * @param comment comment must not be null
+     * @param commentComparator children comparator could be null
+     * @return comment vo
+     */
+    @NonNull
+    private BaseCommentVO convertToVo(@NonNull CommentTree commentTree,
+        @NonNull BaseCommentDTO comment,
+        @Nullable Comparator<? super BaseCommentVO> commentComparator) {
+        BaseCommentVO commentVo = BeanUtils.transformFrom(comment, BaseCommentVO.class);
+
+        // Walk the tree without recursion, deep reply chains are not unusual
+        Deque<BaseCommentVO> parents = new ArrayDeque<>();
+        parents.push(commentVo);
+        while (!parents.isEmpty()) {
+            BaseCommentVO parent = parents.pop();
+            List<BaseCommentDTO> children = commentTree.getChildren(parent.getId());
+            if (children.isEmpty()) {
+                continue;
             }
 
-            parentComment.getChildren().add(commentVo);
-        });
-
-        // Remove children
-        comments.removeAll(children);
-
-        if (!CollectionUtils.isEmpty(parentComment.getChildren())) {
-            // Recursively concrete the children
-            parentComment.getChildren()
-                .forEach(childComment -> concreteTree(childComment, comments, commentComparator));
-            // Sort the children
+            List<BaseCommentVO> childVos = new LinkedList<>();
+            children.forEach(
+                child -> childVos.add(BeanUtils.transformFrom(child, BaseCommentVO.class)));
             if (commentComparator != null) {
-                parentComment.getChildren().sort(commentComparator);
+                childVos.sort(commentComparator);
             }
+            parent.setChildren(childVos);
+            childVos.forEach(parents::push);
         }
+        return commentVo;
     }
 
     /**
@@ -221,7 +303,7 @@ public abstract class BaseCommentAssembler<COMMENT extends BaseComment> {
      * @param sort sort info
      * @return comment comparator
      */
-    protected Comparator<BaseCommentVO> buildCommentComparator(Sort sort) {
+    protected Comparator<BaseCommentDTO> buildCommentComparator(Sort sort) {
         return (currentComment, toCompareComment) -> {
             Assert.notNull(currentComment, "Current comment must not be null");
             Assert.notNull(toCompareComment, "Comment to compare must not be null");
@@ -288,6 +370,18 @@ public abstract class BaseCommentAssembler<COMMENT extends BaseComment> {
         }
     }
 
+    /**
+     * clear sensitive field value for theme render.
+     *
+     * @param commentTree comment tree
+     */
+    public void clearSensitiveField(@Nullable CommentTree commentTree) {
+        if (commentTree == null) {
+            return;
+        }
+        commentTree.getNodes().forEach(this::clearSensitiveField);
+    }
+
     /**
      * clear sensitive field value for theme render.
      *
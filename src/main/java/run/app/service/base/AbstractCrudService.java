@@ -87,6 +87,20 @@ public abstract class AbstractCrudService<DOMAIN, ID> implements CrudService<DOM
         return repository.findAll(pageable);
     }
 
+    /**
+     * List a slice of domains ordered by id
+     *
+     * @param id last id of the previous slice
+     * @param size slice size
+     * @return List
+     */
+    @Override
+    public List<DOMAIN> listAllAfter(ID id, int size) {
+        Assert.isTrue(size > 0, "Size must be greater than 0");
+
+        return repository.findAllAfterId(id, size);
+    }
+
     /**
      * List all by ids
      *
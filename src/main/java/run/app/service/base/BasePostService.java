@@ -1,6 +1,7 @@
 package run.app.service.base;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -197,6 +198,14 @@ public interface BasePostService<POST extends BasePost> extends CrudService<POST
      */
     void increaseVisit(@NonNull Integer postId);
 
+    /**
+     * Increases visits of multiple posts in one transaction. Drafts and missing posts are
+     * skipped.
+     *
+     * @param visits visit deltas keyed by post id must not be null
+     */
+    void increaseVisits(@NonNull Map<Integer, Long> visits);
+
     /**
      * Increase post likes.
      *
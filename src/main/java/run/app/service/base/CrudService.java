@@ -47,6 +47,16 @@ public interface CrudService<D, I> {
     @NonNull
     Page<D> listAll(@NonNull Pageable pageable);
 
+    /**
+     * List a slice of domains ordered by id, which keeps reading large tables cheap
+     *
+     * @param id last id of the previous slice, null to start from the beginning
+     * @param size slice size
+     * @return List
+     */
+    @NonNull
+    List<D> listAllAfter(@Nullable I id, int size);
+
     /**
      * List all by ids
      *
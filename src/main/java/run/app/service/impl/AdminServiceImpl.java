@@ -8,8 +8,12 @@ import java.io.RandomAccessFile;
 import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -163,20 +167,23 @@ public class AdminServiceImpl implements AdminService {
         // Get current user
         User user = authentication.getDetail().getUser();
 
-        // Clear access token
-        cacheStore.getAny(SecurityUtils.buildAccessTokenKey(user), String.class)
-            .ifPresent(accessToken -> {
-                // Delete token
-                cacheStore.delete(SecurityUtils.buildTokenAccessKey(accessToken));
-                cacheStore.delete(SecurityUtils.buildAccessTokenKey(user));
-            });
-
-        // Clear refresh token
-        cacheStore.getAny(SecurityUtils.buildRefreshTokenKey(user), String.class)
-            .ifPresent(refreshToken -> {
-                cacheStore.delete(SecurityUtils.buildTokenRefreshKey(refreshToken));
-                cacheStore.delete(SecurityUtils.buildRefreshTokenKey(user));
-            });
+        // Get access token and refresh token
+        String accessTokenKey = SecurityUtils.buildAccessTokenKey(user);
+        String refreshTokenKey = SecurityUtils.buildRefreshTokenKey(user);
+        Map<String, String> tokens =
+            cacheStore.getAllAny(Arrays.asList(accessTokenKey, refreshTokenKey), String.class);
+
+        // Clear access token and refresh token
+        List<String> keysToDelete = new ArrayList<>(4);
+        Optional.ofNullable(tokens.get(accessTokenKey)).ifPresent(accessToken -> {
+            keysToDelete.add(SecurityUtils.buildTokenAccessKey(accessToken));
+            keysToDelete.add(accessTokenKey);
+        });
+        Optional.ofNullable(tokens.get(refreshTokenKey)).ifPresent(refreshToken -> {
+            keysToDelete.add(SecurityUtils.buildTokenRefreshKey(refreshToken));
+            keysToDelete.add(refreshTokenKey);
+        });
+        cacheStore.deleteAll(keysToDelete);
 
         eventPublisher.publishEvent(
             new LogEvent(this, user.getUsername(), LogType.LOGGED_OUT, user.getNickname()));
@@ -279,12 +286,14 @@ public class AdminServiceImpl implements AdminService {
         User user = userService.getById(userId);
 
         // Remove all token
+        List<String> keysToDelete = new ArrayList<>(4);
         cacheStore.getAny(SecurityUtils.buildAccessTokenKey(user), String.class)
             .ifPresent(
-                accessToken -> cacheStore.delete(SecurityUtils.buildTokenAccessKey(accessToken)));
-        cacheStore.delete(SecurityUtils.buildTokenRefreshKey(refreshToken));
-        cacheStore.delete(SecurityUtils.buildAccessTokenKey(user));
-        cacheStore.delete(SecurityUtils.buildRefreshTokenKey(user));
+                accessToken -> keysToDelete.add(SecurityUtils.buildTokenAccessKey(accessToken)));
+        keysToDelete.add(SecurityUtils.buildTokenRefreshKey(refreshToken));
+        keysToDelete.add(SecurityUtils.buildAccessTokenKey(user));
+        keysToDelete.add(SecurityUtils.buildRefreshTokenKey(user));
+        cacheStore.deleteAll(keysToDelete);
 
         return buildAuthToken(user);
     }
@@ -306,17 +315,17 @@ public class AdminServiceImpl implements AdminService {
         token.setExpiredIn(ACCESS_TOKEN_EXPIRED_SECONDS);
         token.setRefreshToken(HaloUtils.randomUUIDWithoutDash());
 
-        // Cache those tokens, just for clearing
-        cacheStore.putAny(SecurityUtils.buildAccessTokenKey(user), token.getAccessToken(),
-            ACCESS_TOKEN_EXPIRED_SECONDS, TimeUnit.SECONDS);
-        cacheStore.putAny(SecurityUtils.buildRefreshTokenKey(user), token.getRefreshToken(),
-            REFRESH_TOKEN_EXPIRED_DAYS, TimeUnit.DAYS);
-
-        // Cache those tokens with user id
-        cacheStore.putAny(SecurityUtils.buildTokenAccessKey(token.getAccessToken()), user.getId(),
-            ACCESS_TOKEN_EXPIRED_SECONDS, TimeUnit.SECONDS);
-        cacheStore.putAny(SecurityUtils.buildTokenRefreshKey(token.getRefreshToken()), user.getId(),
-            REFRESH_TOKEN_EXPIRED_DAYS, TimeUnit.DAYS);
+        // Cache those tokens for clearing, and with user id
+        Map<String, Object> accessTokens = new LinkedHashMap<>(2);
+        accessTokens.put(SecurityUtils.buildAccessTokenKey(user), token.getAccessToken());
+        accessTokens.put(SecurityUtils.buildTokenAccessKey(token.getAccessToken()), user.getId());
+        cacheStore.putAllAny(accessTokens, ACCESS_TOKEN_EXPIRED_SECONDS, TimeUnit.SECONDS);
+
+        Map<String, Object> refreshTokens = new LinkedHashMap<>(2);
+        refreshTokens.put(SecurityUtils.buildRefreshTokenKey(user), token.getRefreshToken());
+        refreshTokens.put(SecurityUtils.buildTokenRefreshKey(token.getRefreshToken()),
+            user.getId());
+        cacheStore.putAllAny(refreshTokens, REFRESH_TOKEN_EXPIRED_DAYS, TimeUnit.DAYS);
 
         return token;
     }
@@ -1,18 +1,30 @@
 package run.app.service.impl;
 
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.persistence.criteria.Predicate;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
@@ -20,18 +32,27 @@ import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.util.UriUtils;
+import run.app.cache.AbstractStringCacheStore;
 import run.app.exception.AlreadyExistsException;
+import run.app.exception.BadRequestException;
+import run.app.exception.NotFoundException;
+import run.app.handler.file.ChunkStore;
 import run.app.handler.file.FileHandlers;
+import run.app.handler.file.ThumbnailGenerator;
 import run.app.model.dto.AttachmentDTO;
+import run.app.model.dto.ChunkedUploadDTO;
 import run.app.model.entity.Attachment;
 import run.app.model.enums.AttachmentType;
 import run.app.model.params.AttachmentQuery;
+import run.app.model.params.ChunkedUploadParam;
 import run.app.model.properties.AttachmentProperties;
+import run.app.model.support.ChunkedUpload;
 import run.app.model.support.UploadResult;
 import run.app.repository.AttachmentRepository;
 import run.app.service.AttachmentService;
 import run.app.service.OptionService;
 import run.app.service.base.AbstractCrudService;
+import run.app.utils.BeanUtils;
 import run.app.utils.FilenameUtils;
 import run.app.utils.HaloUtils;
 
@@ -47,19 +68,48 @@ import run.app.utils.HaloUtils;
 public class AttachmentServiceImpl extends AbstractCrudService<Attachment, Integer>
     implements AttachmentService {
 
+    private static final String CHUNKED_UPLOAD_CACHE_PREFIX = "chunked_upload.";
+
+    /**
+     * Object stores reject parts smaller than 5 MB except the last one.
+     */
+    private static final long MIN_CHUNK_SIZE = 5 * 1024 * 1024;
+
+    private static final long MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final long DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Object stores accept at most 10000 parts.
+     */
+    private static final int MAX_CHUNK_COUNT = 10000;
+
     private final AttachmentRepository attachmentRepository;
 
     private final OptionService optionService;
 
     private final FileHandlers fileHandlers;
 
+    private final ThumbnailGenerator thumbnailGenerator;
+
+    private final AbstractStringCacheStore cacheStore;
+
+    /**
+     * Guards reading and writing the chunked uploads in the cache store.
+     */
+    private final Object chunkedUploadLock = new Object();
+
     public AttachmentServiceImpl(AttachmentRepository attachmentRepository,
         OptionService optionService,
-        FileHandlers fileHandlers) {
+        FileHandlers fileHandlers,
+        ThumbnailGenerator thumbnailGenerator,
+        AbstractStringCacheStore cacheStore) {
         super(attachmentRepository);
         this.attachmentRepository = attachmentRepository;
         this.optionService = optionService;
         this.fileHandlers = fileHandlers;
+        this.thumbnailGenerator = thumbnailGenerator;
+        this.cacheStore = cacheStore;
     }
 
     @Override
@@ -121,6 +171,146 @@ public class AttachmentServiceImpl extends AbstractCrudService<Attachment, Integ
         log.debug("Attachment type: [{}]", attachmentType);
         log.debug("Upload result: [{}]", uploadResult);
 
+        return createBy(uploadResult, attachmentType);
+    }
+
+    @Override
+    public ChunkedUploadDTO initiateChunkedUpload(ChunkedUploadParam chunkedUploadParam) {
+        Assert.notNull(chunkedUploadParam, "Chunked upload param must not be null");
+
+        long size = chunkedUploadParam.getSize();
+        long chunkSize = chunkedUploadParam.getChunkSize() == null ? DEFAULT_CHUNK_SIZE
+            : chunkedUploadParam.getChunkSize();
+        if (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE) {
+            throw new BadRequestException("分片大小必须在 5 MB 到 64 MB 之间");
+        }
+        long chunkCount = (size + chunkSize - 1) / chunkSize;
+        if (chunkCount > MAX_CHUNK_COUNT) {
+            throw new BadRequestException("分片数量不能超过 " + MAX_CHUNK_COUNT + "，请增大分片大小");
+        }
+
+        String mediaType = chunkedUploadParam.getMediaType();
+        try {
+            mediaType = StringUtils.isBlank(mediaType)
+                ? MediaTypeFactory.getMediaType(chunkedUploadParam.getName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString()
+                : MediaType.valueOf(mediaType).toString();
+        } catch (InvalidMediaTypeException e) {
+            throw new BadRequestException("文件类型 " + mediaType + " 不合法", e);
+        }
+
+        ChunkedUpload upload = new ChunkedUpload();
+        upload.setUploadId(HaloUtils.randomUUIDWithoutDash());
+        upload.setType(getAttachmentType());
+        upload.setOriginalName(chunkedUploadParam.getName());
+        upload.setMediaType(mediaType);
+        upload.setSize(size);
+        upload.setChunkSize(chunkSize);
+        upload.setChunkCount((int) chunkCount);
+        upload.setCreateTime(new Date());
+
+        fileHandlers.initiateChunked(upload);
+
+        log.debug("Initiated chunked upload: [{}]", upload);
+        saveChunkedUpload(upload);
+        return convertToDto(upload);
+    }
+
+    @Override
+    public ChunkedUploadDTO getChunkedUpload(String uploadId) {
+        synchronized (chunkedUploadLock) {
+            return convertToDto(getChunkedUploadBy(uploadId));
+        }
+    }
+
+    @Override
+    public ChunkedUploadDTO uploadChunk(String uploadId, int index, InputStream content,
+        long contentLength, String contentMd5) {
+        Assert.notNull(content, "Chunk content must not be null");
+
+        ChunkedUpload upload = getChunkedUploadBy(uploadId);
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new BadRequestException("分片序号 " + index + " 不合法");
+        }
+        long chunkSize = upload.sizeOfChunk(index);
+        if (contentLength != chunkSize) {
+            throw new BadRequestException("分片 " + index + " 的大小应为 " + chunkSize + " 字节");
+        }
+        byte[] expectedDigest;
+        try {
+            expectedDigest = Base64.getDecoder().decode(StringUtils.defaultString(contentMd5));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("分片校验值不合法", e);
+        }
+        if (expectedDigest.length != 16) {
+            throw new BadRequestException("分片校验值不合法");
+        }
+
+        synchronized (chunkedUploadLock) {
+            // Forgotten until written again, so that a failed rewrite is never completed
+            upload = getChunkedUploadBy(uploadId);
+            if (upload.getChunkTags().remove(index) != null) {
+                saveChunkedUpload(upload);
+            }
+        }
+
+        // The chunk is digested while it is streamed to the file handler
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        String chunkTag = fileHandlers.uploadChunk(upload, index,
+            new DigestInputStream(content, digest), contentMd5);
+        if (!MessageDigest.isEqual(expectedDigest, digest.digest())) {
+            // Not recorded, so that the chunk is uploaded again
+            throw new BadRequestException("分片 " + index + " 校验失败，请重新上传");
+        }
+
+        synchronized (chunkedUploadLock) {
+            // Chunks may have been uploaded in parallel
+            upload = getChunkedUploadBy(uploadId);
+            upload.getChunkTags().put(index, chunkTag);
+            saveChunkedUpload(upload);
+            return convertToDto(upload);
+        }
+    }
+
+    @Override
+    public Attachment completeChunkedUpload(String uploadId) {
+        ChunkedUpload upload;
+        synchronized (chunkedUploadLock) {
+            upload = getChunkedUploadBy(uploadId);
+            int missingCount = upload.getChunkCount() - upload.getChunkTags().size();
+            if (missingCount > 0) {
+                throw new BadRequestException("还有 " + missingCount + " 个分片未上传");
+            }
+            // Taken away so that the upload is completed only once
+            cacheStore.delete(buildChunkedUploadKey(uploadId));
+        }
+
+        UploadResult uploadResult;
+        try {
+            uploadResult = fileHandlers.completeChunked(upload);
+        } catch (RuntimeException e) {
+            // Put back to be completed again
+            saveChunkedUpload(upload);
+            throw e;
+        }
+        log.debug("Upload result: [{}]", uploadResult);
+
+        return createBy(uploadResult, upload.getType());
+    }
+
+    @Override
+    public void abortChunkedUpload(String uploadId) {
+        ChunkedUpload upload;
+        synchronized (chunkedUploadLock) {
+            upload = getChunkedUploadBy(uploadId);
+            cacheStore.delete(buildChunkedUploadKey(uploadId));
+        }
+        fileHandlers.abortChunked(upload);
+    }
+
+    @NonNull
+    private Attachment createBy(@NonNull UploadResult uploadResult,
+        @NonNull AttachmentType attachmentType) {
         // Build attachment
         Attachment attachment = new Attachment();
         attachment.setName(uploadResult.getFilename());
@@ -206,6 +396,39 @@ public class AttachmentServiceImpl extends AbstractCrudService<Attachment, Integ
         return attachmentDTO;
     }
 
+    /**
+     * Gets a copy of the chunked upload, the cached one is shared by all requests.
+     */
+    @NonNull
+    private ChunkedUpload getChunkedUploadBy(@NonNull String uploadId) {
+        Assert.hasText(uploadId, "Upload id must not be blank");
+        synchronized (chunkedUploadLock) {
+            ChunkedUpload cachedUpload =
+                cacheStore.getAny(buildChunkedUploadKey(uploadId), ChunkedUpload.class)
+                    .orElseThrow(() ->
+                        new NotFoundException("上传任务不存在或已过期").setErrorData(uploadId));
+            ChunkedUpload upload = BeanUtils.transformFrom(cachedUpload, ChunkedUpload.class);
+            upload.setChunkTags(new HashMap<>(cachedUpload.getChunkTags()));
+            return upload;
+        }
+    }
+
+    private void saveChunkedUpload(@NonNull ChunkedUpload upload) {
+        cacheStore.putAny(buildChunkedUploadKey(upload.getUploadId()), upload,
+            ChunkStore.EXPIRATION_HOURS, TimeUnit.HOURS);
+    }
+
+    private String buildChunkedUploadKey(String uploadId) {
+        return CHUNKED_UPLOAD_CACHE_PREFIX + uploadId;
+    }
+
+    @NonNull
+    private ChunkedUploadDTO convertToDto(@NonNull ChunkedUpload upload) {
+        ChunkedUploadDTO chunkedUploadDTO = new ChunkedUploadDTO().convertFrom(upload);
+        chunkedUploadDTO.setUploadedChunks(new TreeSet<>(upload.getChunkTags().keySet()));
+        return chunkedUploadDTO;
+    }
+
     private String encodeValue(String value) {
         return UriUtils.encode(value, StandardCharsets.UTF_8);
     }
@@ -257,4 +480,11 @@ public class AttachmentServiceImpl extends AbstractCrudService<Attachment, Integ
             .getEnumByPropertyOrDefault(AttachmentProperties.ATTACHMENT_TYPE, AttachmentType.class,
                 AttachmentType.LOCAL));
     }
+
+    @Override
+    public void generateMissingThumbnails() {
+        if (!thumbnailGenerator.backfill()) {
+            throw new BadRequestException("缩略图正在生成中，请稍后再试");
+        }
+    }
 }
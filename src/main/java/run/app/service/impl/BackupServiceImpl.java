@@ -3,31 +3,63 @@ package run.app.service.impl;
 import static run.app.model.support.HaloConst.HALO_BACKUP_MARKDOWN_PREFIX;
 import static run.app.model.support.HaloConst.HALO_BACKUP_PREFIX;
 import static run.app.model.support.HaloConst.HALO_DATA_EXPORT_PREFIX;
+import static run.app.service.support.WorkDirSnapshotStore.SNAPSHOT_PREFIX;
 import static run.app.utils.DateTimeUtils.HORIZONTAL_LINE_DATETIME_FORMATTER;
 import static run.app.utils.FileUtils.checkDirectoryTraversal;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingInputStream;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.pool.HikariPool;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -39,10 +71,12 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriUtils;
 import run.app.config.properties.HaloProperties;
 import run.app.event.options.OptionUpdatedEvent;
 import run.app.event.theme.ThemeUpdatedEvent;
@@ -51,6 +85,8 @@ import run.app.exception.NotFoundException;
 import run.app.exception.ServiceException;
 import run.app.handler.file.FileHandler;
 import run.app.model.dto.BackupDTO;
+import run.app.model.dto.DataProgressDTO;
+import run.app.model.dto.WorkDirSnapshotDTO;
 import run.app.model.dto.post.BasePostDetailDTO;
 import run.app.model.entity.Attachment;
 import run.app.model.entity.Category;
@@ -77,6 +113,7 @@ import run.app.model.entity.ThemeSetting;
 import run.app.model.entity.User;
 import run.app.model.params.PostMarkdownParam;
 import run.app.model.support.HaloConst;
+import run.app.model.support.WorkDirSnapshot;
 import run.app.model.vo.PostMarkdownVO;
 import run.app.security.service.OneTimeTokenService;
 import run.app.service.AttachmentService;
@@ -103,6 +140,8 @@ import run.app.service.SheetService;
 import run.app.service.TagService;
 import run.app.service.ThemeSettingService;
 import run.app.service.UserService;
+import run.app.service.base.CrudService;
+import run.app.service.support.WorkDirSnapshotStore;
 import run.app.utils.DateTimeUtils;
 import run.app.utils.DateUtils;
 import run.app.utils.FileUtils;
@@ -133,6 +172,19 @@ public class BackupServiceImpl implements BackupService {
 
     private static final String UPLOAD_SUB_DIR = "upload/";
 
+    private static final String SNAPSHOT_DIR = "snapshots";
+
+    /**
+     * Rows read or inserted at a time while exporting or importing data.
+     */
+    private static final int DATA_BATCH_SIZE = 500;
+
+    private static final int DATA_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MARKDOWN_EXPORT_PAGE_SIZE = 100;
+
+    private static final int MARKDOWN_EXPORT_MAX_THREADS = 4;
+
     private final AttachmentService attachmentService;
 
     private final CategoryService categoryService;
@@ -187,6 +239,12 @@ public class BackupServiceImpl implements BackupService {
 
     private final ApplicationContext appContext;
 
+    private final AtomicBoolean dataTaskRunning = new AtomicBoolean();
+
+    private volatile DataProgress dataProgress;
+
+    private final WorkDirSnapshotStore workDirSnapshotStore;
+
     public BackupServiceImpl(AttachmentService attachmentService, CategoryService categoryService,
         CommentBlackListService commentBlackListService, JournalService journalService,
         JournalCommentService journalCommentService, LinkService linkService, LogService logService,
@@ -227,6 +285,8 @@ public class BackupServiceImpl implements BackupService {
         this.haloProperties = haloProperties;
         this.eventPublisher = eventPublisher;
         this.appContext = appContext;
+        this.workDirSnapshotStore = new WorkDirSnapshotStore(
+            Paths.get(haloProperties.getBackupDir(), SNAPSHOT_DIR));
     }
 
     @Override
@@ -261,49 +321,14 @@ public class BackupServiceImpl implements BackupService {
             }
             Path haloZipPath = Files.createFile(haloZipFilePath);
 
-            boolean dbClosed = false;
-            if (options.contains("db") && SystemUtils.IS_OS_WINDOWS) {
-                try {
-                    HikariDataSource dataSource = appContext.getBean(HikariDataSource.class);
-                    if (dataSource.getDriverClassName().equals("org.h2.Driver")) {
-                        try {
-                            Field poolField = HikariDataSource.class.getDeclaredField(
-                                "pool");
-                            HikariPool pool =
-                                (HikariPool) ReflectionUtil.getFieldValue(poolField, dataSource);
-                            pool.shutdown();
-                            dbClosed = true;
-                        } catch (InterruptedException | NoSuchFieldException e) {
-                            throw new ServiceException("Failed to close H2 database", e);
-                        }
-                    }
-                } catch (NoSuchBeanDefinitionException e) {
-                    throw new ServiceException("Bean HikariDataSource doesn't exists");
-                }
-            }
+            boolean dbClosed = closeH2DatabaseIfNecessary(options);
             // Zip halo
             run.app.utils.FileUtils
                 .zip(Paths.get(this.haloProperties.getWorkDir()), haloZipPath,
-                    path -> {
-                        for (String itemToBackup : options) {
-                            Path backupItemPath =
-                                Paths.get(this.haloProperties.getWorkDir()).resolve(itemToBackup);
-                            if (path.startsWith(backupItemPath)) {
-                                return true;
-                            }
-                        }
-                        return false;
-                    });
+                    buildWorkDirFilter(options));
 
             if (dbClosed) {
-                try {
-                    Field poolField = HikariDataSource.class.getDeclaredField(
-                        "pool");
-                    HikariDataSource dataSource = appContext.getBean(HikariDataSource.class);
-                    ReflectionUtil.setFieldValue(poolField, dataSource, new HikariPool(dataSource));
-                } catch (NoSuchFieldException e) {
-                    throw new ServiceException("Failed to reopen H2 database", e);
-                }
+                reopenH2Database();
             }
             // Build backup dto
             return buildBackupDto(BACKUP_RESOURCE_BASE_URI, haloZipPath);
@@ -312,6 +337,76 @@ public class BackupServiceImpl implements BackupService {
         }
     }
 
+    @Override
+    public WorkDirSnapshotDTO createWorkDirSnapshot(List<String> options) {
+        if (CollectionUtils.isEmpty(options)) {
+            throw new BadRequestException("The options parameter is missing, at least one.");
+        }
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        boolean dbClosed = closeH2DatabaseIfNecessary(options);
+        try {
+            WorkDirSnapshot snapshot = workDirSnapshotStore.create(
+                Paths.get(haloProperties.getWorkDir()), buildWorkDirFilter(options), options,
+                executor);
+            log.info("Created work directory snapshot: [{}], changed files: [{}], "
+                    + "added size: [{}]", snapshot.getName(), snapshot.getChangedFileCount(),
+                snapshot.getAddedSize());
+            return convertTo(snapshot);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to create work directory snapshot", e);
+        } finally {
+            executor.shutdownNow();
+            if (dbClosed) {
+                reopenH2Database();
+            }
+        }
+    }
+
+    @Override
+    public List<WorkDirSnapshotDTO> listWorkDirSnapshots() {
+        try {
+            return workDirSnapshotStore.listSummaries().stream()
+                .map(this::convertTo)
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ServiceException("Failed to fetch work directory snapshots", e);
+        }
+    }
+
+    @Override
+    public BackupDTO restoreWorkDirSnapshot(String name) {
+        Assert.hasText(name, "Snapshot name must not be blank");
+
+        try {
+            Path backupRootPath = Paths.get(haloProperties.getBackupDir());
+            Path haloZipFilePath = backupRootPath.resolve(
+                HALO_BACKUP_PREFIX + StringUtils.removeStart(name, SNAPSHOT_PREFIX) + ".zip");
+            checkDirectoryTraversal(backupRootPath, haloZipFilePath);
+            Files.createDirectories(backupRootPath);
+            // Name the root folder after the work directory, just like a full backup does
+            String rootName =
+                Objects.requireNonNull(Paths.get(haloProperties.getWorkDir()).getFileName())
+                    .toString();
+            workDirSnapshotStore.reassemble(name, rootName, haloZipFilePath);
+            return buildBackupDto(BACKUP_RESOURCE_BASE_URI, haloZipFilePath);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to restore work directory snapshot " + name, e);
+        }
+    }
+
+    @Override
+    public void deleteWorkDirSnapshot(String name) {
+        Assert.hasText(name, "Snapshot name must not be blank");
+
+        try {
+            workDirSnapshotStore.delete(name);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to delete work directory snapshot " + name, e);
+        }
+    }
+
     @Override
     public List<BackupDTO> listWorkDirBackups() {
         // Ensure the parent folder exist
@@ -403,48 +498,56 @@ public class BackupServiceImpl implements BackupService {
 
     @Override
     public BackupDTO exportData() {
-        Map<String, Object> data = new HashMap<>();
-        data.put("version", HaloConst.HALO_VERSION);
-        data.put("export_date", DateUtils.now());
-        data.put("attachments", attachmentService.listAll());
-        data.put("categories", categoryService.listAll());
-        data.put("comment_black_list", commentBlackListService.listAll());
-        data.put("journals", journalService.listAll());
-        data.put("journal_comments", journalCommentService.listAll());
-        data.put("links", linkService.listAll());
-        data.put("logs", logService.listAll());
-        data.put("menus", menuService.listAll());
-        data.put("options", optionService.listAll());
-        data.put("photos", photoService.listAll());
-        data.put("posts", postService.listAll());
-        data.put("contents", contentService.listAll());
-        data.put("content_patch_logs", contentPatchLogService.listAll());
-        data.put("post_categories", postCategoryService.listAll());
-        data.put("post_comments", postCommentService.listAll());
-        data.put("post_metas", postMetaService.listAll());
-        data.put("post_tags", postTagService.listAll());
-        data.put("sheets", sheetService.listAll());
-        data.put("sheet_comments", sheetCommentService.listAll());
-        data.put("sheet_metas", sheetMetaService.listAll());
-        data.put("tags", tagService.listAll());
-        data.put("theme_settings", themeSettingService.listAll());
-        data.put("user", userService.listAll());
+        return exportData(false);
+    }
 
+    @Override
+    public BackupDTO exportData(boolean gzip) {
+        DataProgress progress = startDataTask(DataProgressDTO.Operation.EXPORT);
+        Path haloDataPath = null;
         try {
+            List<DataSection<?, ?>> sections = listDataSections();
+            progress.totalRows = sections.stream()
+                .mapToLong(section -> section.getService().count())
+                .sum();
+
             String haloDataFileName = HALO_DATA_EXPORT_PREFIX
                 + DateTimeUtils.format(LocalDateTime.now(), HORIZONTAL_LINE_DATETIME_FORMATTER)
-                + HaloUtils.simpleUUID().hashCode() + ".json";
+                + HaloUtils.simpleUUID().hashCode() + (gzip ? ".json.gz" : ".json");
 
             Path haloDataFilePath = Paths.get(haloProperties.getDataExportDir(), haloDataFileName);
             if (!Files.exists(haloDataFilePath.getParent())) {
                 Files.createDirectories(haloDataFilePath.getParent());
             }
-            Path haloDataPath = Files.createFile(haloDataFilePath);
+            haloDataPath = Files.createFile(haloDataFilePath);
+
+            try (OutputStream outputStream = openDataOutputStream(haloDataPath, gzip);
+                 JsonGenerator generator = JsonUtils.DEFAULT_JSON_MAPPER.getFactory()
+                     .createGenerator(outputStream, JsonEncoding.UTF8)) {
+                generator.writeStartObject();
+                // Version goes first, so that the import is able to check it before any insert
+                generator.writeStringField("version", HaloConst.HALO_VERSION);
+                generator.writeObjectField("export_date", DateUtils.now());
+                for (DataSection<?, ?> section : sections) {
+                    progress.section = section.getName();
+                    generator.writeArrayFieldStart(section.getName());
+                    writeDataSection(generator, section, progress);
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
 
-            FileUtils.writeStringToFile(haloDataPath.toFile(), JsonUtils.objectToJson(data));
             return buildBackupDto(DATA_EXPORT_BASE_URI, haloDataPath);
         } catch (IOException e) {
+            failDataTask(progress, e);
+            deleteQuietly(haloDataPath);
             throw new ServiceException("导出数据失败", e);
+        } catch (RuntimeException e) {
+            failDataTask(progress, e);
+            deleteQuietly(haloDataPath);
+            throw e;
+        } finally {
+            finishDataTask(progress);
         }
     }
 
@@ -491,159 +594,253 @@ public class BackupServiceImpl implements BackupService {
 
     @Override
     public void importData(MultipartFile file) throws IOException {
-        String jsonContent = FileUtils.readString(file.getInputStream());
-
-        ObjectMapper mapper = JsonUtils.createDefaultJsonMapper();
-        TypeReference<HashMap<String, Object>> typeRef =
-            new TypeReference<>() {
-            };
-        HashMap<String, Object> data = mapper.readValue(jsonContent, typeRef);
-
-        String version = (String) Objects.requireNonNullElse(data.get("version"), "");
-        if (!VersionUtil.hasSameMajorAndMinorVersion(HaloConst.HALO_VERSION, version)) {
-            throw new BadRequestException("导入数据的主次版本号与当前系统版本号不匹配，不支持导入！");
+        DataProgress progress = startDataTask(DataProgressDTO.Operation.IMPORT);
+        progress.totalBytes = file.getSize();
+        try {
+            doImportData(file, progress);
+        } catch (IOException | RuntimeException e) {
+            failDataTask(progress, e);
+            throw e;
+        } finally {
+            finishDataTask(progress);
         }
+    }
 
-        List<Attachment> attachments = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("attachments")), Attachment[].class));
-        attachmentService.createInBatch(attachments);
-
-        List<Category> categories = Arrays.asList(
-            mapper.readValue(mapper.writeValueAsString(data.get("categories")), Category[].class));
-        categoryService.createInBatch(categories);
-
-        List<Tag> tags = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("tags")), Tag[].class));
-        tagService.createInBatch(tags);
-
-        List<CommentBlackList> commentBlackList = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("comment_black_list")),
-                CommentBlackList[].class));
-        commentBlackListService.createInBatch(commentBlackList);
-
-        List<Journal> journals = Arrays.asList(
-            mapper.readValue(mapper.writeValueAsString(data.get("journals")), Journal[].class));
-        journalService.createInBatch(journals);
-
-        List<JournalComment> journalComments = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("journal_comments")),
-                JournalComment[].class));
-        journalCommentService.createInBatch(journalComments);
-
-        List<Link> links = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("links")), Link[].class));
-        linkService.createInBatch(links);
-
-        List<Log> logs = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("logs")), Log[].class));
-        logService.createInBatch(logs);
+    @Override
+    public DataProgressDTO getDataProgress() {
+        DataProgress progress = dataProgress;
+        if (progress == null) {
+            return new DataProgressDTO();
+        }
+        return progress.toDto(dataTaskRunning.get());
+    }
 
-        List<Menu> menus = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("menus")), Menu[].class));
-        menuService.createInBatch(menus);
+    private void doImportData(MultipartFile file, DataProgress progress) throws IOException {
+        ObjectMapper mapper = JsonUtils.createDefaultJsonMapper();
+        Map<String, DataSection<?, ?>> sections = listDataSections().stream()
+            .collect(Collectors.toMap(DataSection::getName, Function.identity()));
+
+        boolean versionChecked = false;
+        try (CountingInputStream countingInputStream =
+                 new CountingInputStream(file.getInputStream());
+             JsonParser parser = mapper.getFactory()
+                 .createParser(openDataInputStream(countingInputStream))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BadRequestException("导入数据的格式不正确");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if ("version".equals(fieldName)) {
+                    checkDataVersion(parser.getValueAsString());
+                    versionChecked = true;
+                    continue;
+                }
+                DataSection<?, ?> section = sections.get(fieldName);
+                if (section == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (!versionChecked) {
+                    // Data exported by earlier versions does not put the version first
+                    checkDataVersion(readDataVersion(file, mapper));
+                    versionChecked = true;
+                }
+                progress.section = fieldName;
+                readDataSection(parser, section, progress, countingInputStream);
+            }
+        }
 
-        List<Option> options = Arrays.asList(
-            mapper.readValue(mapper.writeValueAsString(data.get("options")), Option[].class));
-        optionService.createInBatch(options);
+        if (!versionChecked) {
+            checkDataVersion(null);
+        }
 
         eventPublisher.publishEvent(new OptionUpdatedEvent(this));
+        eventPublisher.publishEvent(new ThemeUpdatedEvent(this));
+    }
 
-        List<Photo> photos = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("photos")), Photo[].class));
-        photoService.createInBatch(photos);
-
-        List<Post> posts = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("posts")), Post[].class));
-        postService.createInBatch(posts);
-
-        List<Content> contents = Arrays
-            .asList(
-                mapper.readValue(mapper.writeValueAsString(data.get("contents")), Content[].class));
-        contentService.createInBatch(contents);
-
-        List<ContentPatchLog> contentPatchLogs = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("content_patch_logs")),
-                ContentPatchLog[].class));
-        contentPatchLogService.createInBatch(contentPatchLogs);
-
-        List<PostCategory> postCategories = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("post_categories")),
-                PostCategory[].class));
-        postCategoryService.createInBatch(postCategories);
+    /**
+     * Reads the version of the data file without loading the sections.
+     */
+    @Nullable
+    private String readDataVersion(MultipartFile file, ObjectMapper mapper) throws IOException {
+        try (JsonParser parser = mapper.getFactory()
+            .createParser(openDataInputStream(file.getInputStream()))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if ("version".equals(fieldName)) {
+                    return parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
 
-        List<PostComment> postComments = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("post_comments")), PostComment[].class));
-        postCommentService.createInBatch(postComments);
+    private void checkDataVersion(@Nullable String version) {
+        if (!VersionUtil.hasSameMajorAndMinorVersion(HaloConst.HALO_VERSION,
+            Objects.requireNonNullElse(version, ""))) {
+            throw new BadRequestException("导入数据的主次版本号与当前系统版本号不匹配，不支持导入！");
+        }
+    }
 
-        List<PostMeta> postMetas = Arrays.asList(
-            mapper.readValue(mapper.writeValueAsString(data.get("post_metas")), PostMeta[].class));
-        postMetaService.createInBatch(postMetas);
+    private <T, I> void writeDataSection(JsonGenerator generator, DataSection<T, I> section,
+        DataProgress progress) throws IOException {
+        I lastId = null;
+        List<T> slice;
+        do {
+            slice = section.getService().listAllAfter(lastId, DATA_BATCH_SIZE);
+            for (T domain : slice) {
+                generator.writeObject(domain);
+            }
+            if (!slice.isEmpty()) {
+                lastId = section.getIdGetter().apply(slice.get(slice.size() - 1));
+            }
+            progress.processedRows.addAndGet(slice.size());
+        } while (slice.size() == DATA_BATCH_SIZE);
+    }
 
-        List<PostTag> postTags = Arrays.asList(
-            mapper.readValue(mapper.writeValueAsString(data.get("post_tags")), PostTag[].class));
-        postTagService.createInBatch(postTags);
+    private <T, I> void readDataSection(JsonParser parser, DataSection<T, I> section,
+        DataProgress progress, CountingInputStream countingInputStream) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new BadRequestException("导入数据的格式不正确：" + section.getName())
+                .setErrorData(section.getName());
+        }
 
-        List<Sheet> sheets = Arrays
-            .asList(mapper.readValue(mapper.writeValueAsString(data.get("sheets")), Sheet[].class));
-        sheetService.createInBatch(sheets);
+        List<T> batch = new ArrayList<>(DATA_BATCH_SIZE);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new BadRequestException("导入数据不完整：" + section.getName())
+                    .setErrorData(section.getName());
+            }
+            batch.add(parser.readValueAs(section.getType()));
+            if (batch.size() >= DATA_BATCH_SIZE) {
+                section.getImporter().accept(batch);
+                progress.processedRows.addAndGet(batch.size());
+                progress.processedBytes = countingInputStream.getCount();
+                batch = new ArrayList<>(DATA_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            section.getImporter().accept(batch);
+            progress.processedRows.addAndGet(batch.size());
+        }
+        progress.processedBytes = countingInputStream.getCount();
+    }
 
-        List<SheetComment> sheetComments = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("sheet_comments")),
-                SheetComment[].class));
-        sheetCommentService.createInBatch(sheetComments);
+    private OutputStream openDataOutputStream(Path path, boolean gzip) throws IOException {
+        OutputStream outputStream =
+            new BufferedOutputStream(Files.newOutputStream(path), DATA_BUFFER_SIZE);
+        return gzip ? new GZIPOutputStream(outputStream, DATA_BUFFER_SIZE) : outputStream;
+    }
 
-        List<SheetMeta> sheetMetas = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("sheet_metas")), SheetMeta[].class));
-        sheetMetaService.createInBatch(sheetMetas);
+    /**
+     * Opens the data input stream, gzip compressed data is detected by the magic number.
+     */
+    private InputStream openDataInputStream(InputStream inputStream) throws IOException {
+        BufferedInputStream bufferedInputStream =
+            new BufferedInputStream(inputStream, DATA_BUFFER_SIZE);
+        bufferedInputStream.mark(2);
+        int magic = bufferedInputStream.read() | (bufferedInputStream.read() << 8);
+        bufferedInputStream.reset();
+        if (magic == GZIPInputStream.GZIP_MAGIC) {
+            return new GZIPInputStream(bufferedInputStream, DATA_BUFFER_SIZE);
+        }
+        return bufferedInputStream;
+    }
 
-        List<ThemeSetting> themeSettings = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("theme_settings")),
-                ThemeSetting[].class));
-        themeSettingService.createInBatch(themeSettings);
+    private DataProgress startDataTask(DataProgressDTO.Operation operation) {
+        if (!dataTaskRunning.compareAndSet(false, true)) {
+            throw new BadRequestException("已有数据导入或导出任务正在进行，请稍后再试");
+        }
+        DataProgress progress = new DataProgress(operation);
+        dataProgress = progress;
+        return progress;
+    }
 
-        eventPublisher.publishEvent(new ThemeUpdatedEvent(this));
+    private void failDataTask(DataProgress progress, Exception e) {
+        log.error("Failed to {} data", progress.operation.name().toLowerCase(), e);
+        progress.error = e.getMessage();
+    }
 
-        List<User> users = Arrays.asList(mapper
-            .readValue(mapper.writeValueAsString(data.get("user")),
-                User[].class));
+    private void finishDataTask(DataProgress progress) {
+        progress.finishTime = System.currentTimeMillis();
+        dataTaskRunning.set(false);
+    }
 
-        if (users.size() > 0) {
-            userService.create(users.get(0));
+    private void deleteQuietly(@Nullable Path path) {
+        if (path == null) {
+            return;
         }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete incomplete file: [{}]", path, e);
+        }
+    }
+
+    /**
+     * Lists all sections of the exported data, in the order of export.
+     */
+    private List<DataSection<?, ?>> listDataSections() {
+        AtomicBoolean userCreated = new AtomicBoolean();
+        return List.of(
+            new DataSection<>("attachments", Attachment.class, attachmentService,
+                Attachment::getId),
+            new DataSection<>("categories", Category.class, categoryService, Category::getId),
+            new DataSection<>("tags", Tag.class, tagService, Tag::getId),
+            new DataSection<>("comment_black_list", CommentBlackList.class,
+                commentBlackListService, CommentBlackList::getId),
+            new DataSection<>("journals", Journal.class, journalService, Journal::getId),
+            new DataSection<>("journal_comments", JournalComment.class, journalCommentService,
+                JournalComment::getId),
+            new DataSection<>("links", Link.class, linkService, Link::getId),
+            new DataSection<>("logs", Log.class, logService, Log::getId),
+            new DataSection<>("menus", Menu.class, menuService, Menu::getId),
+            new DataSection<>("options", Option.class, optionService, Option::getId),
+            new DataSection<>("photos", Photo.class, photoService, Photo::getId),
+            new DataSection<>("posts", Post.class, postService, Post::getId),
+            new DataSection<>("contents", Content.class, contentService, Content::getId),
+            new DataSection<>("content_patch_logs", ContentPatchLog.class,
+                contentPatchLogService, ContentPatchLog::getId),
+            new DataSection<>("post_categories", PostCategory.class, postCategoryService,
+                PostCategory::getId),
+            new DataSection<>("post_comments", PostComment.class, postCommentService,
+                PostComment::getId),
+            new DataSection<>("post_metas", PostMeta.class, postMetaService, PostMeta::getId),
+            new DataSection<>("post_tags", PostTag.class, postTagService, PostTag::getId),
+            new DataSection<>("sheets", Sheet.class, sheetService, Sheet::getId),
+            new DataSection<>("sheet_comments", SheetComment.class, sheetCommentService,
+                SheetComment::getId),
+            new DataSection<>("sheet_metas", SheetMeta.class, sheetMetaService,
+                SheetMeta::getId),
+            new DataSection<>("theme_settings", ThemeSetting.class, themeSettingService,
+                ThemeSetting::getId),
+            // Only the first user is imported
+            new DataSection<>("user", User.class, userService, User::getId, users -> {
+                if (!users.isEmpty() && userCreated.compareAndSet(false, true)) {
+                    userService.create(users.get(0));
+                }
+            })
+        );
     }
 
     @Override
     public BackupDTO exportMarkdowns(PostMarkdownParam postMarkdownParam) throws IOException {
-        // Query all Post data
-        List<PostMarkdownVO> postMarkdownList = postService.listPostMarkdowns();
-        Assert.notEmpty(postMarkdownList, "当前无文章可以导出");
-
-        // Write files to the temporary directory
-        String markdownFileTempPathName =
-            haloProperties.getBackupMarkdownDir() + HaloUtils.simpleUUID().hashCode();
-        for (PostMarkdownVO postMarkdownVo : postMarkdownList) {
-            StringBuilder content = new StringBuilder();
-            Boolean needFrontMatter =
-                Optional.ofNullable(postMarkdownParam.getNeedFrontMatter()).orElse(false);
-            if (needFrontMatter) {
-                // Add front-matter
-                content.append(postMarkdownVo.getFrontMatter()).append("\n");
-            }
-            content.append(postMarkdownVo.getOriginalContent());
-            try {
-                String filename = postMarkdownVo.getTitle() + "-" + postMarkdownVo.getSlug();
-                String markdownFileName =
-                    FilenameUtils.sanitizeFilename(filename) + ".md";
-                Path markdownFilePath = Paths.get(markdownFileTempPathName, markdownFileName);
-                if (!Files.exists(markdownFilePath.getParent())) {
-                    Files.createDirectories(markdownFilePath.getParent());
-                }
-                Path markdownDataPath = Files.createFile(markdownFilePath);
-                FileUtils.writeStringToFile(markdownDataPath.toFile(), content.toString());
-            } catch (IOException e) {
-                throw new ServiceException("导出数据失败", e);
-            }
-        }
+        Assert.isTrue(postService.count() > 0, "当前无文章可以导出");
+
+        boolean needFrontMatter =
+            Optional.ofNullable(postMarkdownParam.getNeedFrontMatter()).orElse(false);
+        boolean needUploadFiles =
+            Optional.ofNullable(postMarkdownParam.getNeedUploadFiles()).orElse(true);
 
         // Create zip path
         String markdownZipFileName = HALO_BACKUP_MARKDOWN_PREFIX
@@ -657,30 +854,59 @@ public class BackupServiceImpl implements BackupService {
             Files.createDirectories(markdownZipFilePath.getParent());
         }
         Path markdownZipPath = Files.createFile(markdownZipFilePath);
-        // Zip file
-        try (ZipOutputStream markdownZipOut = new ZipOutputStream(
-            Files.newOutputStream(markdownZipPath))) {
-
-            // Zip temporary directory
-            Path markdownFileTempPath = Paths.get(markdownFileTempPathName);
-            run.app.utils.FileUtils.zip(markdownFileTempPath, markdownZipOut);
-
-            // Zip upload sub-directory
-            String uploadPathName =
-                FileHandler.normalizeDirectory(haloProperties.getWorkDir()) + UPLOAD_SUB_DIR;
-            Path uploadPath = Paths.get(uploadPathName);
-            if (Files.exists(uploadPath)) {
-                run.app.utils.FileUtils.zip(uploadPath, markdownZipOut);
-            }
 
-            // Remove files in the temporary directory
-            run.app.utils.FileUtils.deleteFolder(markdownFileTempPath);
+        Path uploadPath = Paths.get(
+            FileHandler.normalizeDirectory(haloProperties.getWorkDir()) + UPLOAD_SUB_DIR);
+        int threads = Math.min(MARKDOWN_EXPORT_MAX_THREADS,
+            Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // Posts are fetched page by page, converted by the workers and written in order, at most
+        // a few pages are in memory at the same time
+        Deque<Future<List<PostMarkdownVO>>> pendingPages = new ArrayDeque<>();
+        try (ZipOutputStream markdownZipOut = new ZipOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(markdownZipPath), DATA_BUFFER_SIZE))) {
+            MarkdownZipWriter markdownZipWriter = new MarkdownZipWriter(markdownZipOut,
+                needFrontMatter, needUploadFiles ? uploadPath : null,
+                haloProperties.getUploadUrlPrefix());
+
+            Integer lastPostId = null;
+            List<Post> posts;
+            do {
+                posts = postService.listAllAfter(lastPostId, MARKDOWN_EXPORT_PAGE_SIZE);
+                if (!posts.isEmpty()) {
+                    lastPostId = posts.get(posts.size() - 1).getId();
+                    List<Post> page = posts;
+                    pendingPages.add(
+                        executor.submit(() -> postService.convertToPostMarkdowns(page)));
+                }
+                if (pendingPages.size() >= threads * 2) {
+                    markdownZipWriter.write(pendingPages.poll().get());
+                }
+            } while (posts.size() == MARKDOWN_EXPORT_PAGE_SIZE);
 
-            // Build backup dto
-            return buildBackupDto(DATA_EXPORT_MARKDOWN_BASE_URI, markdownZipPath);
+            while (!pendingPages.isEmpty()) {
+                markdownZipWriter.write(pendingPages.poll().get());
+            }
         } catch (IOException e) {
+            deleteQuietly(markdownZipPath);
             throw new ServiceException("Failed to export markdowns", e);
+        } catch (RuntimeException e) {
+            deleteQuietly(markdownZipPath);
+            throw e;
+        } catch (InterruptedException e) {
+            deleteQuietly(markdownZipPath);
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Markdown export was interrupted", e);
+        } catch (ExecutionException e) {
+            deleteQuietly(markdownZipPath);
+            throw new ServiceException("Failed to export markdowns", e.getCause());
+        } finally {
+            pendingPages.forEach(future -> future.cancel(true));
+            executor.shutdownNow();
         }
+
+        // Build backup dto
+        return buildBackupDto(DATA_EXPORT_MARKDOWN_BASE_URI, markdownZipPath);
     }
 
     @Override
@@ -727,6 +953,72 @@ public class BackupServiceImpl implements BackupService {
         }
     }
 
+    /**
+     * Builds filter of the work directory items to backup.
+     */
+    private Predicate<Path> buildWorkDirFilter(List<String> options) {
+        Path workDir = Paths.get(haloProperties.getWorkDir());
+        return path -> {
+            for (String itemToBackup : options) {
+                Path backupItemPath = workDir.resolve(itemToBackup);
+                if (path.startsWith(backupItemPath)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Closes the H2 database on Windows, which locks the database files while open.
+     *
+     * @return true if the database was closed
+     */
+    private boolean closeH2DatabaseIfNecessary(List<String> options) {
+        if (!options.contains("db") || !SystemUtils.IS_OS_WINDOWS) {
+            return false;
+        }
+        try {
+            HikariDataSource dataSource = appContext.getBean(HikariDataSource.class);
+            if (!dataSource.getDriverClassName().equals("org.h2.Driver")) {
+                return false;
+            }
+            try {
+                Field poolField = HikariDataSource.class.getDeclaredField("pool");
+                HikariPool pool = (HikariPool) ReflectionUtil.getFieldValue(poolField, dataSource);
+                pool.shutdown();
+                return true;
+            } catch (InterruptedException | NoSuchFieldException e) {
+                throw new ServiceException("Failed to close H2 database", e);
+            }
+        } catch (NoSuchBeanDefinitionException e) {
+            throw new ServiceException("Bean HikariDataSource doesn't exists");
+        }
+    }
+
+    private void reopenH2Database() {
+        try {
+            Field poolField = HikariDataSource.class.getDeclaredField("pool");
+            HikariDataSource dataSource = appContext.getBean(HikariDataSource.class);
+            ReflectionUtil.setFieldValue(poolField, dataSource, new HikariPool(dataSource));
+        } catch (NoSuchFieldException e) {
+            throw new ServiceException("Failed to reopen H2 database", e);
+        }
+    }
+
+    private WorkDirSnapshotDTO convertTo(WorkDirSnapshot snapshot) {
+        WorkDirSnapshotDTO snapshotDto = new WorkDirSnapshotDTO();
+        snapshotDto.setName(snapshot.getName());
+        snapshotDto.setVersion(snapshot.getVersion());
+        snapshotDto.setCreateTime(snapshot.getCreateTime());
+        snapshotDto.setOptions(snapshot.getOptions());
+        snapshotDto.setFileCount(snapshot.getFileCount());
+        snapshotDto.setTotalSize(snapshot.getTotalSize());
+        snapshotDto.setChangedFileCount(snapshot.getChangedFileCount());
+        snapshotDto.setAddedSize(snapshot.getAddedSize());
+        return snapshotDto;
+    }
+
     /**
      * Builds backup dto.
      *
@@ -775,4 +1067,188 @@ public class BackupServiceImpl implements BackupService {
             + "=" + oneTimeToken;
     }
 
+    /**
+     * Section of the exported data, which is backed by a single table.
+     *
+     * @param <T> domain type
+     * @param <I> id type
+     */
+    private static class DataSection<T, I> {
+
+        private final String name;
+
+        private final Class<T> type;
+
+        private final CrudService<T, I> service;
+
+        private final Function<T, I> idGetter;
+
+        private final Consumer<List<T>> importer;
+
+        private DataSection(String name, Class<T> type, CrudService<T, I> service,
+            Function<T, I> idGetter) {
+            this(name, type, service, idGetter, service::createInBatch);
+        }
+
+        private DataSection(String name, Class<T> type, CrudService<T, I> service,
+            Function<T, I> idGetter, Consumer<List<T>> importer) {
+            this.name = name;
+            this.type = type;
+            this.service = service;
+            this.idGetter = idGetter;
+            this.importer = importer;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<T> getType() {
+            return type;
+        }
+
+        public CrudService<T, I> getService() {
+            return service;
+        }
+
+        public Function<T, I> getIdGetter() {
+            return idGetter;
+        }
+
+        public Consumer<List<T>> getImporter() {
+            return importer;
+        }
+    }
+
+    /**
+     * Writes markdown files and the upload files referenced by them into a zip archive.
+     */
+    private static class MarkdownZipWriter {
+
+        private static final String MARKDOWN_DIR = "posts/";
+
+        private final ZipOutputStream zipOut;
+
+        private final boolean needFrontMatter;
+
+        @Nullable
+        private final Path uploadPath;
+
+        private final Pattern uploadUrlPattern;
+
+        private final Set<String> fileNames = new HashSet<>();
+
+        private final Set<String> uploadFiles = new HashSet<>();
+
+        private MarkdownZipWriter(ZipOutputStream zipOut, boolean needFrontMatter,
+            @Nullable Path uploadPath, String uploadUrlPrefix) {
+            this.zipOut = zipOut;
+            this.needFrontMatter = needFrontMatter;
+            this.uploadPath = uploadPath == null ? null : uploadPath.toAbsolutePath().normalize();
+            this.uploadUrlPattern = Pattern.compile(
+                "/" + Pattern.quote(StringUtils.strip(uploadUrlPrefix, "/"))
+                    + "/([^\\s()\\[\\]\"'<>?#]+)");
+        }
+
+        private void write(List<PostMarkdownVO> postMarkdowns) throws IOException {
+            for (PostMarkdownVO postMarkdownVo : postMarkdowns) {
+                String content = StringUtils.defaultString(postMarkdownVo.getOriginalContent());
+
+                zipOut.setLevel(Deflater.DEFAULT_COMPRESSION);
+                zipOut.putNextEntry(new ZipEntry(MARKDOWN_DIR + nextFileName(postMarkdownVo)));
+                Writer writer = new OutputStreamWriter(zipOut, StandardCharsets.UTF_8);
+                if (needFrontMatter) {
+                    // Add front-matter
+                    writer.write(postMarkdownVo.getFrontMatter());
+                    writer.write("\n");
+                }
+                writer.write(content);
+                // Do not close the writer, which closes the zip output stream
+                writer.flush();
+                zipOut.closeEntry();
+
+                if (uploadPath != null) {
+                    writeUploadFiles(content);
+                }
+            }
+        }
+
+        private String nextFileName(PostMarkdownVO postMarkdownVo) {
+            String baseName = FilenameUtils.sanitizeFilename(
+                postMarkdownVo.getTitle() + "-" + postMarkdownVo.getSlug());
+            String fileName = baseName + ".md";
+            for (int i = 1; !fileNames.add(fileName); i++) {
+                fileName = baseName + "-" + i + ".md";
+            }
+            return fileName;
+        }
+
+        private void writeUploadFiles(String content) throws IOException {
+            Matcher matcher = uploadUrlPattern.matcher(content);
+            while (matcher.find()) {
+                String relativePath = UriUtils.decode(matcher.group(1), StandardCharsets.UTF_8);
+                if (!uploadFiles.add(relativePath)) {
+                    continue;
+                }
+                Path uploadFile;
+                try {
+                    uploadFile = uploadPath.resolve(relativePath).normalize();
+                } catch (InvalidPathException e) {
+                    continue;
+                }
+                if (!uploadFile.startsWith(uploadPath) || !Files.isRegularFile(uploadFile)) {
+                    continue;
+                }
+                zipOut.setLevel(WorkDirSnapshotStore.isCompressedMedia(relativePath)
+                    ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                zipOut.putNextEntry(new ZipEntry(UPLOAD_SUB_DIR + StringUtils.replace(
+                    uploadPath.relativize(uploadFile).toString(), File.separator, "/")));
+                Files.copy(uploadFile, zipOut);
+                zipOut.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Mutable progress of a data task, updated by the task thread and read by others.
+     */
+    private static class DataProgress {
+
+        private final DataProgressDTO.Operation operation;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private final AtomicLong processedRows = new AtomicLong();
+
+        private volatile String section;
+
+        private volatile long totalRows;
+
+        private volatile long processedBytes;
+
+        private volatile long totalBytes;
+
+        private volatile String error;
+
+        private volatile Long finishTime;
+
+        private DataProgress(DataProgressDTO.Operation operation) {
+            this.operation = operation;
+        }
+
+        private DataProgressDTO toDto(boolean running) {
+            DataProgressDTO progress = new DataProgressDTO();
+            progress.setOperation(operation);
+            progress.setRunning(running && finishTime == null);
+            progress.setSection(section);
+            progress.setProcessedRows(processedRows.get());
+            progress.setTotalRows(totalRows);
+            progress.setProcessedBytes(processedBytes);
+            progress.setTotalBytes(totalBytes);
+            progress.setError(error);
+            progress.setStartTime(startTime);
+            progress.setFinishTime(finishTime);
+            return progress;
+        }
+    }
 }
@@ -2,17 +2,21 @@ package run.app.service.impl;
 
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import javax.persistence.criteria.Predicate;
 import lombok.extern.slf4j.Slf4j;
@@ -27,12 +31,15 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import run.app.event.comment.CommentNewEvent;
 import run.app.event.comment.CommentReplyEvent;
 import run.app.exception.BadRequestException;
 import run.app.exception.NotFoundException;
+import run.app.model.dto.BaseCommentDTO;
 import run.app.model.entity.BaseComment;
 import run.app.model.entity.User;
 import run.app.model.enums.CommentStatus;
@@ -42,6 +49,7 @@ import run.app.model.projection.CommentChildrenCountProjection;
 import run.app.model.projection.CommentCountProjection;
 import run.app.model.properties.BlogProperties;
 import run.app.model.properties.CommentProperties;
+import run.app.model.support.CommentTree;
 import run.app.model.vo.BaseCommentVO;
 import run.app.model.vo.BaseCommentWithParentVO;
 import run.app.model.vo.CommentWithHasChildrenVO;
@@ -69,12 +77,36 @@ import run.app.utils.ValidationUtils;
 public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
     extends AbstractCrudService<COMMENT, Long> implements BaseCommentService<COMMENT> {
 
+    /**
+     * Maximum number of cached published comment trees.
+     */
+    private static final int TREE_CACHE_MAXIMUM_SIZE = 256;
+
+    /**
+     * Published comment trees are reloaded after this time in case a change was missed.
+     */
+    private static final long TREE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
     protected final OptionService optionService;
     protected final UserService userService;
     protected final ApplicationEventPublisher eventPublisher;
     private final BaseCommentRepository<COMMENT> baseCommentRepository;
     private final BaseCommentAssembler<COMMENT> commentAssembler;
 
+    /**
+     * Published comment trees, key: target id. The least recently used trees are evicted once
+     * the cache is full.
+     */
+    private final Map<Integer, CommentTree> publishedTrees = CacheBuilder.newBuilder()
+        .maximumSize(TREE_CACHE_MAXIMUM_SIZE)
+        .<Integer, CommentTree>build()
+        .asMap();
+
+    /**
+     * Bumped on every eviction so that trees loaded before a change are not cached.
+     */
+    private final AtomicLong treeGeneration = new AtomicLong();
+
     public BaseCommentServiceImpl(BaseCommentRepository<COMMENT> baseCommentRepository,
         OptionService optionService,
         UserService userService, ApplicationEventPublisher eventPublisher,
@@ -138,10 +170,17 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
 
         log.debug("Getting comment tree view of post: [{}], page info: [{}]", postId, pageable);
 
-        // List all the top comments (Caution: This list will be cleared)
-        List<COMMENT> comments = baseCommentRepository.findAllByPostId(postId);
+        // Page the top comments and fetch all replies at once
+        Page<COMMENT> topCommentPage = baseCommentRepository
+            .findAllByPostIdAndParentId(postId, CommentTree.TOP_PARENT_ID, pageable);
+        List<COMMENT> replies = Collections.emptyList();
+        if (!topCommentPage.isEmpty()) {
+            replies = baseCommentRepository
+                .findAllByPostIdAndParentIdNot(postId, CommentTree.TOP_PARENT_ID);
+        }
 
-        return commentAssembler.pageVosBy(comments, pageable);
+        return commentAssembler.pageVosBy(topCommentPage, replies,
+            baseCommentRepository.countByPostId(postId));
     }
 
     @Override
@@ -152,11 +191,7 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
 
         log.debug("Getting comment tree view of post: [{}], page info: [{}]", postId, pageable);
 
-        // List all the top comments (Caution: This list will be cleared)
-        List<COMMENT> comments =
-            baseCommentRepository.findAllByPostIdAndStatus(postId, CommentStatus.PUBLISHED);
-
-        return commentAssembler.pageVosBy(comments, pageable);
+        return commentAssembler.pageVosBy(getPublishedTree(postId), pageable);
     }
 
     @Override
@@ -324,6 +359,8 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
         // Create comment
         COMMENT createdComment = super.create(comment);
 
+        evictCommentTree(createdComment.getPostId());
+
         if (ServiceUtils.isEmptyId(createdComment.getParentId())) {
             if (authentication == null) {
                 // New comment of guest
@@ -396,6 +433,24 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
         return update(comment);
     }
 
+    @Override
+    @NonNull
+    @Transactional(rollbackFor = Exception.class)
+    public COMMENT update(@NonNull COMMENT comment) {
+        COMMENT updatedComment = super.update(comment);
+        evictCommentTree(updatedComment.getPostId());
+        return updatedComment;
+    }
+
+    @Override
+    @NonNull
+    @Transactional(rollbackFor = Exception.class)
+    public List<COMMENT> createInBatch(@NonNull Collection<COMMENT> comments) {
+        List<COMMENT> createdComments = super.createInBatch(comments);
+        evictCommentTrees();
+        return createdComments;
+    }
+
     @Override
     @NonNull
     @Transactional(rollbackFor = Exception.class)
@@ -412,7 +467,9 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
     @Transactional(rollbackFor = Exception.class)
     public List<COMMENT> removeByPostId(@NonNull Integer postId) {
         Assert.notNull(postId, "Post id must not be null");
-        return baseCommentRepository.deleteByPostId(postId);
+        List<COMMENT> deletedComments = baseCommentRepository.deleteByPostId(postId);
+        evictCommentTree(postId);
+        return deletedComments;
     }
 
     @Override
@@ -433,6 +490,7 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
             });
         }
 
+        evictCommentTree(comment.getPostId());
         return super.removeById(id);
     }
 
@@ -523,23 +581,28 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
         Assert.notNull(commentParentId, "Comment parent id must not be null");
         Assert.notNull(sort, "Sort info must not be null");
 
-        // Get comments recursively
-
-        // Get direct children
-        List<COMMENT> directChildren = baseCommentRepository
-            .findAllByPostIdAndStatusAndParentId(targetId, status, commentParentId);
-
-        // Create result container
-        Set<COMMENT> children = new HashSet<>();
-
-        // Get children comments
-        getChildrenRecursively(directChildren, status, children);
+        List<COMMENT> children;
+        if (CommentStatus.PUBLISHED.equals(status)) {
+            // Resolve the descendants from the published tree and fetch them at once
+            Set<Long> childrenIds = getPublishedTree(targetId).listDescendants(commentParentId)
+                .stream()
+                .map(BaseCommentDTO::getId)
+                .collect(Collectors.toSet());
+            children = new ArrayList<>();
+            if (!childrenIds.isEmpty()) {
+                listAllByIds(childrenIds).stream()
+                    .filter(comment -> status.equals(comment.getStatus()))
+                    .forEach(children::add);
+            }
+        } else {
+            children = listDescendants(
+                baseCommentRepository.findAllByPostIdAndStatus(targetId, status), commentParentId);
+        }
 
         // Sort children
-        List<COMMENT> childrenList = new ArrayList<>(children);
-        childrenList.sort(Comparator.comparing(BaseComment::getId));
+        children.sort(Comparator.comparing(BaseComment::getId));
 
-        return childrenList;
+        return children;
     }
 
     @Override
@@ -550,79 +613,109 @@ public abstract class BaseCommentServiceImpl<COMMENT extends BaseComment>
         Assert.notNull(commentParentId, "Comment parent id must not be null");
         Assert.notNull(sort, "Sort info must not be null");
 
-        // Get comments recursively
-
-        // Get direct children
-        List<COMMENT> directChildren =
-            baseCommentRepository.findAllByPostIdAndParentId(targetId, commentParentId);
-
-        // Create result container
-        Set<COMMENT> children = new HashSet<>();
-
-        // Get children comments
-        getChildrenRecursively(directChildren, children);
+        List<COMMENT> children =
+            listDescendants(baseCommentRepository.findAllByPostId(targetId), commentParentId);
 
         // Sort children
-        List<COMMENT> childrenList = new ArrayList<>(children);
-        childrenList.sort(Comparator.comparing(BaseComment::getId));
+        children.sort(Comparator.comparing(BaseComment::getId));
 
-        return childrenList;
+        return children;
     }
 
     /**
-     * Get children comments recursively.
+     * Lists descendants of the comment with a single pass parent index.
      *
-     * @param topComments top comment list
-     * @param status comment status must not be null
-     * @param children children result must not be null
+     * @param comments comments of the target must not be null
+     * @param commentParentId parent comment id must not be null
+     * @return a list of descendant comment
      */
-    private void getChildrenRecursively(@Nullable List<COMMENT> topComments,
-        @NonNull CommentStatus status, @NonNull Set<COMMENT> children) {
-        Assert.notNull(status, "Comment status must not be null");
-        Assert.notNull(children, "Children comment set must not be null");
-
-        if (CollectionUtils.isEmpty(topComments)) {
-            return;
+    @NonNull
+    private List<COMMENT> listDescendants(@NonNull List<COMMENT> comments,
+        @NonNull Long commentParentId) {
+        Map<Long, List<COMMENT>> childrenMap = comments.stream()
+            .collect(Collectors.groupingBy(comment -> comment.getParentId() == null
+                ? CommentTree.TOP_PARENT_ID : comment.getParentId()));
+
+        List<COMMENT> descendants = new ArrayList<>();
+        Queue<Long> parentIds = new ArrayDeque<>();
+        parentIds.add(commentParentId);
+        while (!parentIds.isEmpty()) {
+            childrenMap.getOrDefault(parentIds.poll(), Collections.emptyList())
+                .forEach(child -> {
+                    descendants.add(child);
+                    parentIds.add(child.getId());
+                });
         }
+        return descendants;
+    }
 
-        // Convert comment id set
-        Set<Long> commentIds = ServiceUtils.fetchProperty(topComments, COMMENT::getId);
-
-        // Get direct children
-        List<COMMENT> directChildren =
-            baseCommentRepository.findAllByStatusAndParentIdIn(status, commentIds);
+    /**
+     * Gets the published comment tree of the target, loading it if absent or expired.
+     *
+     * @param targetId target id must not be null
+     * @return published comment tree without sensitive fields
+     */
+    @NonNull
+    private CommentTree getPublishedTree(@NonNull Integer targetId) {
+        CommentTree commentTree = publishedTrees.get(targetId);
+        if (commentTree != null
+            && System.currentTimeMillis() - commentTree.getCreateTime() < TREE_TIMEOUT_MILLIS) {
+            return commentTree;
+        }
 
-        // Recursively invoke
-        getChildrenRecursively(directChildren, status, children);
+        long generation = treeGeneration.get();
+        commentTree = commentAssembler.buildTree(
+            baseCommentRepository.findAllByPostIdAndStatus(targetId, CommentStatus.PUBLISHED));
+        commentAssembler.clearSensitiveField(commentTree);
 
-        // Add direct children to children result
-        children.addAll(topComments);
+        if (generation == treeGeneration.get()) {
+            publishedTrees.put(targetId, commentTree);
+        }
+        return commentTree;
     }
 
     /**
-     * Get children comments recursively.
+     * Evicts the published comment tree of the target now and again after the current
+     * transaction is committed, so that it can not be reloaded from uncommitted data.
      *
-     * @param topComments top comment list
-     * @param children children result must not be null
+     * @param targetId target id
      */
-    private void getChildrenRecursively(@Nullable List<COMMENT> topComments,
-        @NonNull Set<COMMENT> children) {
-        Assert.notNull(children, "Children comment set must not be null");
-
-        if (CollectionUtils.isEmpty(topComments)) {
+    private void evictCommentTree(@Nullable Integer targetId) {
+        if (targetId == null) {
             return;
         }
+        doEvictCommentTree(targetId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        doEvictCommentTree(targetId);
+                    }
+                });
+        }
+    }
 
-        // Convert comment id set
-        Set<Long> commentIds = ServiceUtils.fetchProperty(topComments, COMMENT::getId);
-
-        // Get direct children
-        List<COMMENT> directChildren = baseCommentRepository.findAllByParentIdIn(commentIds);
-
-        // Recursively invoke
-        getChildrenRecursively(directChildren, children);
+    private void doEvictCommentTree(Integer targetId) {
+        treeGeneration.incrementAndGet();
+        publishedTrees.remove(targetId);
+    }
 
-        // Add direct children to children result
-        children.addAll(topComments);
+    /**
+     * Evicts all published comment trees.
+     */
+    private void evictCommentTrees() {
+        treeGeneration.incrementAndGet();
+        publishedTrees.clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        treeGeneration.incrementAndGet();
+                        publishedTrees.clear();
+                    }
+                });
+        }
     }
 }
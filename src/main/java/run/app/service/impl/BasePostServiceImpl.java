@@ -5,6 +5,7 @@ import static org.springframework.data.domain.Sort.Direction.DESC;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -273,6 +274,21 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         increaseVisit(1L, postId);
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void increaseVisits(Map<Integer, Long> visits) {
+        Assert.notNull(visits, "Visits must not be null");
+
+        visits.forEach((postId, delta) -> {
+            if (postId == null || delta == null || delta <= 0) {
+                return;
+            }
+            if (basePostRepository.updateVisitByStatusNot(delta, postId, PostStatus.DRAFT) != 1) {
+                log.debug("Skipped [{}] visits for post with id: [{}]", delta, postId);
+            }
+        });
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void increaseLike(long likes, Integer postId) {
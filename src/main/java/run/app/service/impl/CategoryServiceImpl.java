@@ -2,26 +2,24 @@ package run.app.service.impl;
 
 import static run.app.model.support.HaloConst.URL_SEPARATOR;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.domain.Sort.Order;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import run.app.event.category.CategoryUpdatedEvent;
@@ -36,8 +34,8 @@ import run.app.service.CategoryService;
 import run.app.service.OptionService;
 import run.app.service.PostCategoryService;
 import run.app.service.base.AbstractCrudService;
+import run.app.service.support.CategoryGraph;
 import run.app.utils.BeanUtils;
-import run.app.utils.HaloUtils;
 import run.app.utils.ServiceUtils;
 
 /**
@@ -61,6 +59,15 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
 
     private final ApplicationContext applicationContext;
 
+    private final Object categoryGraphLock = new Object();
+
+    /**
+     * Guarded by categoryGraphLock.
+     */
+    private long categoryGraphVersion;
+
+    private volatile CategoryGraph categoryGraph;
+
     public CategoryServiceImpl(CategoryRepository categoryRepository,
         PostCategoryService postCategoryService,
         OptionService optionService,
@@ -102,7 +109,16 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
         }
 
         // Create it
-        return super.create(category);
+        Category createdCategory = super.create(category);
+        evictCategoryGraph();
+        return createdCategory;
+    }
+
+    @Override
+    public List<Category> createInBatch(Collection<Category> categories) {
+        List<Category> createdCategories = super.createInBatch(categories);
+        evictCategoryGraph();
+        return createdCategories;
     }
 
     @Override
@@ -113,6 +129,7 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
         boolean beforeIsPrivate = isPrivate(category.getId());
 
         Category updated = super.update(category);
+        evictCategoryGraph();
 
         Set<Integer> postIds = listPostIdsByCategoryIdRecursively(category.getId());
         applicationContext.publishEvent(
@@ -217,60 +234,7 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
     @Override
     public List<Category> listAllByParentId(@NonNull Integer id) {
         Assert.notNull(id, "Parent id must not be null");
-        List<Category> categories = super.listAll(Sort.by(Order.asc("name")));
-        List<CategoryVO> categoryTree = listToTree(categories);
-        return findCategoryTreeNodeById(categoryTree, id)
-            .map(this::walkCategoryTree)
-            .orElse(Collections.emptyList());
-    }
-
-    /**
-     * Walk a category tree with root node.
-     *
-     * @param root a root node of category tree.
-     * @return a flattened category list
-     */
-    @NonNull
-    private List<Category> walkCategoryTree(CategoryVO root) {
-        Assert.notNull(root, "The category 'root' must not be null");
-        List<Category> categories = new LinkedList<>();
-        Queue<CategoryVO> queue = new ArrayDeque<>();
-        queue.add(root);
-        while (!queue.isEmpty()) {
-            CategoryVO categoryNode = queue.poll();
-
-            Category category = new Category();
-            BeanUtils.updateProperties(categoryNode, category);
-            categories.add(category);
-
-            if (HaloUtils.isNotEmpty(categoryNode.getChildren())) {
-                queue.addAll(categoryNode.getChildren());
-            }
-        }
-        return categories;
-    }
-
-    /**
-     * Find the node with id equal to <code>categoryId</code> from the multi-tree of category.
-     *
-     * @param categoryVos source category multi-tree vos to walk.
-     * @param categoryId category id to be found.
-     * @return the root node of the subtree.
-     */
-    private Optional<CategoryVO> findCategoryTreeNodeById(List<CategoryVO> categoryVos,
-        Integer categoryId) {
-        Assert.notNull(categoryId, "categoryId id must not be null");
-        Queue<CategoryVO> queue = new ArrayDeque<>(categoryVos);
-        while (!queue.isEmpty()) {
-            CategoryVO category = queue.poll();
-            if (Objects.equals(category.getId(), categoryId)) {
-                return Optional.of(category);
-            }
-            if (HaloUtils.isNotEmpty(category.getChildren())) {
-                queue.addAll(category.getChildren());
-            }
-        }
-        return Optional.empty();
+        return getCategoryGraph().listDescendants(id);
     }
 
     @Override
@@ -297,7 +261,17 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
 
     @Override
     public boolean isPrivate(Integer categoryId) {
-        return lookupFirstEncryptedBy(categoryId).isPresent();
+        return getCategoryGraph().isPrivate(categoryId);
+    }
+
+    @Override
+    public boolean isAnyPrivate(Collection<Integer> categoryIds) {
+        return getCategoryGraph().isAnyPrivate(categoryIds);
+    }
+
+    @Override
+    public Set<Integer> listPrivateCategoryIds() {
+        return getCategoryGraph().getPrivateIds();
     }
 
     @Override
@@ -329,34 +303,7 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
 
     @Override
     public Optional<Category> lookupFirstEncryptedBy(Integer categoryId) {
-        List<Category> categories = listAll();
-        Map<Integer, Category> categoryMap =
-            ServiceUtils.convertToMap(categories, Category::getId);
-        return Optional.ofNullable(findFirstEncryptedCategoryBy(categoryMap, categoryId));
-    }
-
-    /**
-     * Find whether the parent category is encrypted.
-     * If it is found, the result will be returned immediately.
-     * Otherwise, it will be found recursively according to parentId.
-     *
-     * @param idToCategoryMap find category by id
-     * @param categoryId category id
-     * @return whether to encrypt
-     */
-    private Category findFirstEncryptedCategoryBy(Map<Integer, Category> idToCategoryMap,
-        Integer categoryId) {
-        Category category = idToCategoryMap.get(categoryId);
-
-        if (categoryId == 0 || category == null) {
-            return null;
-        }
-
-        if (StringUtils.isNotBlank(category.getPassword())) {
-            return category;
-        }
-
-        return findFirstEncryptedCategoryBy(idToCategoryMap, category.getParentId());
+        return getCategoryGraph().lookupFirstEncrypted(categoryId);
     }
 
     @Override
@@ -368,30 +315,61 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
         Set<Integer> categoryIds = ServiceUtils.fetchProperty(categories, Category::getId);
         Map<Integer, Category> idCategoryParamMap =
             ServiceUtils.convertToMap(categories, Category::getId);
-        return categoryRepository.findAllById(categoryIds)
-            .stream()
-            .map(categoryToUpdate -> {
-                // 将持久化状态的对象转非session管理对象否则数据会被更新
-                Category categoryBefore = BeanUtils.transformFrom(categoryToUpdate, Category.class);
-                boolean beforeIsPrivate = isPrivate(categoryToUpdate.getId());
-
-                Category categoryParam = idCategoryParamMap.get(categoryToUpdate.getId());
-                BeanUtils.updateProperties(categoryParam, categoryToUpdate);
-                Category categoryUpdated = update(categoryToUpdate);
-
-                Set<Integer> postIds = listPostIdsByCategoryIdRecursively(categoryUpdated.getId());
-                applicationContext.publishEvent(new CategoryUpdatedEvent(this,
-                    categoryUpdated, categoryBefore, beforeIsPrivate, postIds));
-                return categoryUpdated;
-            })
-            .collect(Collectors.toList());
+
+        // Privacy before the update is taken from the hierarchy before the whole batch
+        CategoryGraph graphBefore = getCategoryGraph();
+        List<Category> categoriesToUpdate = categoryRepository.findAllById(categoryIds);
+        Map<Integer, Category> categoriesBefore = new HashMap<>(categoriesToUpdate.size());
+        categoriesToUpdate.forEach(categoryToUpdate -> {
+            // 将持久化状态的对象转非session管理对象否则数据会被更新
+            categoriesBefore.put(categoryToUpdate.getId(),
+                BeanUtils.transformFrom(categoryToUpdate, Category.class));
+
+            Category categoryParam = idCategoryParamMap.get(categoryToUpdate.getId());
+            BeanUtils.updateProperties(categoryParam, categoryToUpdate);
+        });
+
+        List<Category> updatedCategories = super.updateInBatch(categoriesToUpdate);
+        flush();
+        evictCategoryGraph();
+
+        updatedCategories.forEach(categoryUpdated -> {
+            Set<Integer> postIds = listPostIdsByCategoryIdRecursively(categoryUpdated.getId());
+            applicationContext.publishEvent(new CategoryUpdatedEvent(this, categoryUpdated,
+                categoriesBefore.get(categoryUpdated.getId()),
+                graphBefore.isPrivate(categoryUpdated.getId()), postIds));
+        });
+        return updatedCategories;
+    }
+
+    @Override
+    public void remove(Category category) {
+        super.remove(category);
+        evictCategoryGraph();
+    }
+
+    @Override
+    public void removeInBatch(Collection<Integer> ids) {
+        super.removeInBatch(ids);
+        evictCategoryGraph();
+    }
+
+    @Override
+    public void removeAll(Collection<Category> categories) {
+        super.removeAll(categories);
+        evictCategoryGraph();
+    }
+
+    @Override
+    public void removeAll() {
+        super.removeAll();
+        evictCategoryGraph();
     }
 
     @NonNull
     @Override
     public Set<Integer> listPostIdsByCategoryIdRecursively(@NonNull Integer categoryId) {
-        Set<Integer> categoryIds = ServiceUtils.fetchProperty(listAllByParentId(categoryId),
-            Category::getId);
+        Set<Integer> categoryIds = getCategoryGraph().getDescendantIds(categoryId);
         if (CollectionUtils.isEmpty(categoryIds)) {
             return Collections.emptySet();
         }
@@ -400,4 +378,63 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
         return ServiceUtils.fetchProperty(postCategories, PostCategory::getPostId);
     }
 
+    /**
+     * Gets the category hierarchy, it is built from all categories on first use after categories
+     * have been changed.
+     *
+     * @return category graph
+     */
+    @NonNull
+    private CategoryGraph getCategoryGraph() {
+        CategoryGraph currentGraph = categoryGraph;
+        if (currentGraph != null) {
+            return currentGraph;
+        }
+
+        long version;
+        synchronized (categoryGraphLock) {
+            if (categoryGraph != null) {
+                return categoryGraph;
+            }
+            version = categoryGraphVersion;
+        }
+
+        CategoryGraph builtGraph = CategoryGraph.build(version, listAll());
+
+        synchronized (categoryGraphLock) {
+            if (categoryGraphVersion != version) {
+                // Categories have been changed meanwhile, do not keep the graph
+                return builtGraph;
+            }
+            if (categoryGraph == null) {
+                categoryGraph = builtGraph;
+            }
+            return categoryGraph;
+        }
+    }
+
+    /**
+     * Evicts the category hierarchy now, and again when the current transaction completes, since
+     * a graph built in the transaction contains changes which may be rolled back.
+     */
+    private void evictCategoryGraph() {
+        clearCategoryGraph();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        clearCategoryGraph();
+                    }
+                });
+        }
+    }
+
+    private void clearCategoryGraph() {
+        synchronized (categoryGraphLock) {
+            categoryGraphVersion++;
+            categoryGraph = null;
+        }
+    }
 }
@@ -1,16 +1,18 @@
 package run.app.service.impl;
 
-import static java.util.stream.Collectors.toMap;
-
 import com.qiniu.storage.Region;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import run.app.model.dto.OptionSimpleDTO;
 import run.app.model.params.OptionQuery;
+import run.app.model.support.OptionSnapshot;
 import run.app.service.ClientOptionService;
 import run.app.service.OptionService;
 
@@ -28,6 +30,11 @@ public class ClientOptionServiceImpl implements ClientOptionService {
 
     private final OptionFilter optionFilter;
 
+    /**
+     * Filtered options of the latest option snapshot.
+     */
+    private volatile FilteredOptions filteredOptions;
+
     ClientOptionServiceImpl(OptionService optionService) {
         this.optionService = optionService;
         this.optionFilter = new OptionFilter(optionService);
@@ -36,9 +43,19 @@ public class ClientOptionServiceImpl implements ClientOptionService {
     @Override
     @Transactional
     public Map<String, Object> listOptions() {
-        Map<String, Object> options = optionService.listOptions();
-        return optionFilter.filter(options.keySet()).parallelStream()
-            .collect(toMap(optionName -> optionName, options::get));
+        OptionSnapshot snapshot = optionService.getSnapshot();
+        FilteredOptions currentOptions = filteredOptions;
+        if (currentOptions != null && currentOptions.version == snapshot.getVersion()) {
+            return currentOptions.options;
+        }
+
+        Set<String> optionKeys = optionFilter.filter(snapshot.getOptions().keySet());
+        Map<String, Object> options = new HashMap<>(optionKeys.size() * 4 / 3 + 1);
+        optionKeys.forEach(optionKey -> options.put(optionKey, snapshot.get(optionKey)));
+        currentOptions =
+            new FilteredOptions(snapshot.getVersion(), Collections.unmodifiableMap(options));
+        filteredOptions = currentOptions;
+        return currentOptions.options;
     }
 
     @Override
@@ -90,4 +107,16 @@ public class ClientOptionServiceImpl implements ClientOptionService {
     public void flush() {
         optionService.flush();
     }
+
+    private static class FilteredOptions {
+
+        private final long version;
+
+        private final Map<String, Object> options;
+
+        private FilteredOptions(long version, Map<String, Object> options) {
+            this.version = version;
+            this.options = options;
+        }
+    }
 }
@@ -1,13 +1,21 @@
 package run.app.service.impl;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
 import run.app.exception.NotFoundException;
 import run.app.model.entity.Content;
 import run.app.model.entity.Content.ContentDiff;
@@ -35,10 +43,32 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
      */
     public static final int BASE_VERSION = 1;
 
+    /**
+     * A version is stored as a full snapshot once it is this many versions away from the
+     * previous snapshot, which bounds the drift a diff has to carry.
+     */
+    public static final int SNAPSHOT_INTERVAL = 20;
+
+    /**
+     * Maximum number of restored contents kept in memory.
+     */
+    private static final int RESTORED_CACHE_SIZE = 128;
+
     private final ContentPatchLogRepository contentPatchLogRepository;
 
     private final ContentRepository contentRepository;
 
+    /**
+     * Recently restored contents of diff records, key: patch log id.
+     */
+    private final Map<Integer, RestoredContent> restoredContents =
+        Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, RestoredContent> eldest) {
+                return size() > RESTORED_CACHE_SIZE;
+            }
+        });
+
     public ContentPatchLogServiceImpl(ContentPatchLogRepository contentPatchLogRepository,
         ContentRepository contentRepository) {
         super(contentPatchLogRepository);
@@ -111,14 +141,6 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
     private ContentPatchLog buildPatchLog(Integer postId, Integer version, String formatContent,
         String originalContent) {
         ContentPatchLog contentPatchLog = new ContentPatchLog();
-        if (Objects.equals(version, BASE_VERSION)) {
-            contentPatchLog.setContentDiff(formatContent);
-            contentPatchLog.setOriginalContentDiff(originalContent);
-        } else {
-            ContentDiff contentDiff = generateDiff(postId, formatContent, originalContent);
-            contentPatchLog.setContentDiff(contentDiff.getDiff());
-            contentPatchLog.setOriginalContentDiff(contentDiff.getOriginalDiff());
-        }
         contentPatchLog.setPostId(postId);
         contentPatchLog.setStatus(PostStatus.DRAFT);
         ContentPatchLog latestPatchLog =
@@ -128,6 +150,7 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
         } else {
             contentPatchLog.setVersion(BASE_VERSION);
         }
+        writeContent(contentPatchLog, formatContent, originalContent);
 
         return contentPatchLog;
     }
@@ -159,22 +182,51 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
         if (draftPatchLog == null) {
             throw new NotFoundException("The latest draft version must not be null to update.");
         }
-        // Is the draft version 1
-        if (Objects.equals(draftPatchLog.getVersion(), BASE_VERSION)) {
-            // If it is V1, modify the content directly.
-            draftPatchLog.setContentDiff(formatContent);
-            draftPatchLog.setOriginalContentDiff(originalContent);
-            contentPatchLogRepository.save(draftPatchLog);
-            return draftPatchLog;
-        }
-        // Generate content diff.
-        ContentDiff contentDiff = generateDiff(postId, formatContent, originalContent);
-        draftPatchLog.setContentDiff(contentDiff.getDiff());
-        draftPatchLog.setOriginalContentDiff(contentDiff.getOriginalDiff());
+        writeContent(draftPatchLog, formatContent, originalContent);
+        restoredContents.remove(draftPatchLog.getId());
         contentPatchLogRepository.save(draftPatchLog);
         return draftPatchLog;
     }
 
+    /**
+     * Writes the content of the record, either as a full snapshot or as a diff against the
+     * nearest snapshot below its version.
+     *
+     * @param patchLog patch log with post id and version
+     * @param formatContent formatted content
+     * @param originalContent original content
+     */
+    private void writeContent(ContentPatchLog patchLog, String formatContent,
+        String originalContent) {
+        Integer version = patchLog.getVersion();
+        ContentPatchLog snapshot = null;
+        if (!Objects.equals(version, BASE_VERSION)) {
+            snapshot = contentPatchLogRepository
+                .findSnapshotsBefore(patchLog.getPostId(), version, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElse(null);
+        }
+
+        if (snapshot == null || version - snapshot.getVersion() >= SNAPSHOT_INTERVAL) {
+            // Store the full content
+            patchLog.setContentDiff(formatContent);
+            patchLog.setOriginalContentDiff(originalContent);
+            patchLog.setBaseVersion(version);
+            return;
+        }
+
+        ContentDiff contentDiff = generateDiff(snapshot, formatContent, originalContent);
+        patchLog.setContentDiff(contentDiff.getDiff());
+        patchLog.setOriginalContentDiff(contentDiff.getOriginalDiff());
+        patchLog.setBaseVersion(snapshot.getVersion());
+    }
+
+    private boolean isSnapshot(ContentPatchLog patchLog) {
+        return Objects.equals(patchLog.getVersion(), BASE_VERSION)
+            || Objects.equals(patchLog.getBaseVersion(), patchLog.getVersion());
+    }
+
     private ContentPatchLog findLatestDraftBy(Integer postId) {
         ContentPatchLog draftPatchLog =
             contentPatchLogRepository.findFirstByPostIdAndStatusOrderByVersionDesc(postId,
@@ -193,38 +245,53 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
         Assert.notNull(patchLog.getVersion(), "The contentRecord.version must not be null.");
         Assert.notNull(patchLog.getPostId(), "The contentRecord.postId must not be null.");
 
-        PatchedContent patchedContent = new PatchedContent();
-        if (patchLog.getVersion() == BASE_VERSION) {
-            patchedContent.setContent(patchLog.getContentDiff());
-            patchedContent.setOriginalContent(patchLog.getOriginalContentDiff());
-            return patchedContent;
+        if (isSnapshot(patchLog)) {
+            return new PatchedContent(patchLog.getContentDiff(),
+                patchLog.getOriginalContentDiff());
+        }
+
+        RestoredContent restored = restoredContents.get(patchLog.getId());
+        if (restored != null && restored.updateTime == timeOf(patchLog.getUpdateTime())) {
+            return new PatchedContent(restored.content, restored.originalContent);
         }
 
-        ContentPatchLog baseContentRecord =
-            contentPatchLogRepository.findByPostIdAndVersion(patchLog.getPostId(), BASE_VERSION);
+        // Records without base version were diffed against the base version
+        int baseVersion = patchLog.getBaseVersion() == null ? BASE_VERSION
+            : patchLog.getBaseVersion();
+        ContentPatchLog snapshot =
+            contentPatchLogRepository.findByPostIdAndVersion(patchLog.getPostId(), baseVersion);
+        if (snapshot == null) {
+            throw new NotFoundException("The snapshot of the content patch log was not found.")
+                .setErrorData(baseVersion);
+        }
 
         String content = PatchUtils.restoreContent(patchLog.getContentDiff(),
-            baseContentRecord.getContentDiff());
-        patchedContent.setContent(content);
-
+            snapshot.getContentDiff());
         String originalContent = PatchUtils.restoreContent(patchLog.getOriginalContentDiff(),
-            baseContentRecord.getOriginalContentDiff());
-        patchedContent.setOriginalContent(originalContent);
-        return patchedContent;
+            snapshot.getOriginalContentDiff());
+        if (patchLog.getId() != null) {
+            restoredContents.put(patchLog.getId(),
+                new RestoredContent(timeOf(patchLog.getUpdateTime()), content, originalContent));
+        }
+        return new PatchedContent(content, originalContent);
     }
 
     @Override
     public ContentDiff generateDiff(Integer postId, String formatContent, String originalContent) {
         ContentPatchLog basePatchLog =
             contentPatchLogRepository.findByPostIdAndVersion(postId, BASE_VERSION);
+        return generateDiff(basePatchLog, formatContent, originalContent);
+    }
 
+    private ContentDiff generateDiff(ContentPatchLog snapshot, String formatContent,
+        String originalContent) {
         ContentDiff contentDiff = new ContentDiff();
         String contentChanges =
-            PatchUtils.diffToJsonPatch(basePatchLog.getContentDiff(), formatContent);
+            PatchUtils.diffToBinaryPatch(snapshot.getContentDiff(), formatContent);
         contentDiff.setDiff(contentChanges);
 
         String originalContentChanges =
-            PatchUtils.diffToJsonPatch(basePatchLog.getOriginalContentDiff(), originalContent);
+            PatchUtils.diffToBinaryPatch(snapshot.getOriginalContentDiff(), originalContent);
         contentDiff.setOriginalDiff(originalContentChanges);
         return contentDiff;
     }
@@ -234,6 +301,16 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
         return findLatestDraftBy(postId);
     }
 
+    @Override
+    public Set<Integer> listDraftPostIds(Collection<Integer> postIds) {
+        if (CollectionUtils.isEmpty(postIds)) {
+            return Collections.emptySet();
+        }
+        // Same statuses as findLatestDraftBy
+        return contentPatchLogRepository.findAllPostIdsByPostIdInAndStatusIn(postIds,
+            Set.of(PostStatus.DRAFT, PostStatus.RECYCLE));
+    }
+
     @Override
     public PatchedContent getByPostId(Integer postId) {
         ContentPatchLog contentPatchLog =
@@ -264,6 +341,26 @@ public class ContentPatchLogServiceImpl extends AbstractCrudService<ContentPatch
     public List<ContentPatchLog> removeByPostId(Integer postId) {
         List<ContentPatchLog> patchLogsToDelete = contentPatchLogRepository.findAllByPostId(postId);
         contentPatchLogRepository.deleteAllInBatch(patchLogsToDelete);
+        patchLogsToDelete.forEach(patchLog -> restoredContents.remove(patchLog.getId()));
         return patchLogsToDelete;
     }
+
+    private static long timeOf(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+    private static class RestoredContent {
+
+        private final long updateTime;
+
+        private final String content;
+
+        private final String originalContent;
+
+        private RestoredContent(long updateTime, String content, String originalContent) {
+            this.updateTime = updateTime;
+            this.content = content;
+            this.originalContent = originalContent;
+        }
+    }
 }
@@ -0,0 +1,162 @@
+package run.app.service.impl;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import run.app.event.post.ContentRenderedEvent;
+import run.app.exception.BadRequestException;
+import run.app.model.dto.RenderProgressDTO;
+import run.app.model.entity.Content;
+import run.app.model.enums.PostEditorType;
+import run.app.repository.ContentRepository;
+import run.app.service.ContentRenderService;
+import run.app.service.ContentService;
+import run.app.utils.MarkdownUtils;
+
+/**
+ * Content render service implementation.
+ */
+@Slf4j
+@Service
+public class ContentRenderServiceImpl implements ContentRenderService {
+
+    private static final int RENDER_BATCH_SIZE = 100;
+
+    private final ContentRepository contentRepository;
+
+    private final ContentService contentService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ExecutorService renderExecutor;
+
+    private final AtomicBoolean renderRunning = new AtomicBoolean();
+
+    private volatile RenderProgress renderProgress;
+
+    public ContentRenderServiceImpl(ContentRepository contentRepository,
+        ContentService contentService,
+        ApplicationEventPublisher eventPublisher) {
+        this.contentRepository = contentRepository;
+        this.contentService = contentService;
+        this.eventPublisher = eventPublisher;
+        this.renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "content-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    @NonNull
+    public RenderProgressDTO renderAll() {
+        if (!renderRunning.compareAndSet(false, true)) {
+            throw new BadRequestException("已有内容渲染任务正在进行，请稍后再试");
+        }
+        RenderProgress progress = new RenderProgress();
+        renderProgress = progress;
+        try {
+            renderExecutor.execute(() -> render(progress));
+        } catch (RuntimeException e) {
+            renderRunning.set(false);
+            throw e;
+        }
+        return progress.toDto(true);
+    }
+
+    @Override
+    @NonNull
+    public RenderProgressDTO getRenderProgress() {
+        RenderProgress progress = renderProgress;
+        if (progress == null) {
+            return new RenderProgressDTO();
+        }
+        return progress.toDto(renderRunning.get());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        renderExecutor.shutdownNow();
+    }
+
+    private void render(RenderProgress progress) {
+        Set<Integer> contentIds = new HashSet<>();
+        try {
+            progress.total = contentRepository.countByEditorType(PostEditorType.MARKDOWN);
+
+            Integer lastId = 0;
+            List<Integer> ids;
+            while (!(ids = contentRepository.findIdsByEditorTypeAndIdGreaterThan(
+                PostEditorType.MARKDOWN, lastId, PageRequest.of(0, RENDER_BATCH_SIZE)))
+                .isEmpty()) {
+                renderBatch(ids, progress);
+                contentIds.addAll(ids);
+                lastId = ids.get(ids.size() - 1);
+            }
+            log.info("Rendered [{}] contents, skipped [{}] modified contents",
+                progress.rendered, progress.skipped);
+        } catch (RuntimeException e) {
+            log.error("Failed to render contents", e);
+            progress.error = e.getMessage();
+        } finally {
+            progress.finishTime = System.currentTimeMillis();
+            renderRunning.set(false);
+            eventPublisher.publishEvent(new ContentRenderedEvent(this, contentIds));
+        }
+    }
+
+    private void renderBatch(List<Integer> ids, RenderProgress progress) {
+        List<Content> contents = contentService.listAllByIds(ids);
+        List<String> htmls = MarkdownUtils.renderHtml(contents.stream()
+            .map(Content::getOriginalContent)
+            .collect(Collectors.toList()));
+        for (int i = 0; i < contents.size(); i++) {
+            contents.get(i).setContent(htmls.get(i));
+        }
+
+        int rendered = contentService.updateRenderedContents(contents);
+        progress.rendered += rendered;
+        progress.skipped += contents.size() - rendered;
+        progress.processed += contents.size();
+    }
+
+    private static class RenderProgress {
+
+        private final long startTime = System.currentTimeMillis();
+
+        private volatile long processed;
+
+        private volatile long rendered;
+
+        private volatile long skipped;
+
+        private volatile long total;
+
+        private volatile String error;
+
+        private volatile Long finishTime;
+
+        private RenderProgressDTO toDto(boolean running) {
+            RenderProgressDTO progressDTO = new RenderProgressDTO();
+            progressDTO.setRunning(running);
+            progressDTO.setProcessed(processed);
+            progressDTO.setRendered(rendered);
+            progressDTO.setSkipped(skipped);
+            progressDTO.setTotal(total);
+            progressDTO.setError(error);
+            progressDTO.setStartTime(startTime);
+            progressDTO.setFinishTime(finishTime);
+            return progressDTO;
+        }
+    }
+}
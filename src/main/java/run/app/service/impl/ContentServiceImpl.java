@@ -1,12 +1,17 @@
 package run.app.service.impl;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
 import run.app.exception.NotFoundException;
 import run.app.model.entity.Content;
 import run.app.model.entity.Content.PatchedContent;
@@ -16,6 +21,7 @@ import run.app.repository.ContentRepository;
 import run.app.service.ContentPatchLogService;
 import run.app.service.ContentService;
 import run.app.service.base.AbstractCrudService;
+import run.app.utils.ServiceUtils;
 
 /**
  * Base content service implementation.
@@ -104,4 +110,31 @@ public class ContentServiceImpl extends AbstractCrudService<Content, Integer>
         ContentPatchLog draft = contentPatchLogService.getDraftByPostId(postId);
         return Objects.nonNull(draft);
     }
+
+    @Override
+    public Set<Integer> listDraftingInProgressIds(Collection<Integer> postIds) {
+        return contentPatchLogService.listDraftPostIds(postIds);
+    }
+
+    @Override
+    public Map<Integer, Content> listContentMapBy(Collection<Integer> postIds) {
+        if (CollectionUtils.isEmpty(postIds)) {
+            return Collections.emptyMap();
+        }
+        return ServiceUtils.convertToMap(listAllByIds(postIds), Content::getId);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int updateRenderedContents(Collection<Content> contents) {
+        if (CollectionUtils.isEmpty(contents)) {
+            return 0;
+        }
+        int updated = 0;
+        for (Content content : contents) {
+            updated += contentRepository.updateContentByIdAndUpdateTime(content.getContent(),
+                content.getId(), content.getUpdateTime());
+        }
+        return updated;
+    }
 }
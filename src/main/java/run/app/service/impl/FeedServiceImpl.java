@@ -0,0 +1,563 @@
+package run.app.service.impl;
+
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.domain.Sort.Direction.DESC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.RegExUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import run.app.exception.NotFoundException;
+import run.app.exception.ServiceException;
+import run.app.model.dto.CategoryDTO;
+import run.app.model.dto.CategoryWithPostCountDTO;
+import run.app.model.dto.TagWithPostCountDTO;
+import run.app.model.dto.post.BasePostMinimalDTO;
+import run.app.model.entity.Post;
+import run.app.model.entity.User;
+import run.app.model.enums.PostStatus;
+import run.app.model.properties.PostProperties;
+import run.app.model.support.FeedDocument;
+import run.app.model.support.HaloConst;
+import run.app.model.vo.PostDetailVO;
+import run.app.service.CategoryService;
+import run.app.service.FeedService;
+import run.app.service.OptionService;
+import run.app.service.PostCategoryService;
+import run.app.service.PostService;
+import run.app.service.PostTagService;
+import run.app.service.UserService;
+import run.app.service.assembler.PostRenderAssembler;
+
+/**
+ * Feed service implementation.
+ *
+ * <p>Documents are cached per generation, which is bumped on every content change, and are
+ * rebuilt by one thread at a time while the others wait for the result. A document is built
+ * outside of the map, which only holds a future of it, so that building never blocks other keys.
+ */
+@Slf4j
+@Service
+public class FeedServiceImpl implements FeedService {
+
+    private static final String XML_INVALID_CHAR = "[\\x00-\\x1F\\x7F]";
+
+    private static final String SITEMAP_NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+
+    private static final String ATOM_NAMESPACE = "http://www.w3.org/2005/Atom";
+
+    /**
+     * Posts read at once while writing a sitemap.
+     */
+    private static final int POST_BATCH_SIZE = 500;
+
+    /**
+     * Maximum age of a document, which bounds the staleness caused by changes without events,
+     * e.g. tags.
+     */
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final Map<String, CompletableFuture<FeedDocument>> documents =
+        new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final PostService postService;
+
+    private final PostRenderAssembler postRenderAssembler;
+
+    private final CategoryService categoryService;
+
+    private final PostCategoryService postCategoryService;
+
+    private final PostTagService postTagService;
+
+    private final OptionService optionService;
+
+    private final UserService userService;
+
+    public FeedServiceImpl(PostService postService,
+        PostRenderAssembler postRenderAssembler,
+        CategoryService categoryService,
+        PostCategoryService postCategoryService,
+        PostTagService postTagService,
+        OptionService optionService,
+        UserService userService) {
+        this.postService = postService;
+        this.postRenderAssembler = postRenderAssembler;
+        this.categoryService = categoryService;
+        this.postCategoryService = postCategoryService;
+        this.postTagService = postTagService;
+        this.optionService = optionService;
+        this.userService = userService;
+    }
+
+    @Override
+    public FeedDocument getRss() {
+        return getDocument("rss", gen -> buildRss(gen, null));
+    }
+
+    @Override
+    public FeedDocument getRss(String categorySlug) {
+        Assert.hasText(categorySlug, "Category slug must not be blank");
+
+        return getDocument("rss:" + categorySlug, gen -> buildRss(gen,
+            categoryService.convertTo(categoryService.getBySlugOfNonNull(categorySlug))));
+    }
+
+    @Override
+    public FeedDocument getAtom() {
+        return getDocument("atom", gen -> buildAtom(gen, null));
+    }
+
+    @Override
+    public FeedDocument getAtom(String categorySlug) {
+        Assert.hasText(categorySlug, "Category slug must not be blank");
+
+        return getDocument("atom:" + categorySlug, gen -> buildAtom(gen,
+            categoryService.convertTo(categoryService.getBySlugOfNonNull(categorySlug))));
+    }
+
+    @Override
+    public FeedDocument getSitemap() {
+        return getDocument("sitemap", this::buildSitemap);
+    }
+
+    @Override
+    public FeedDocument getSitemapPart(int part) {
+        return getDocument("sitemap:" + part, gen -> buildSitemapPart(gen, part));
+    }
+
+    @Override
+    public void evictAll() {
+        generation.incrementAndGet();
+        documents.clear();
+        log.debug("Evicted all feed documents");
+    }
+
+    private FeedDocument getDocument(String key, LongFunction<FeedDocument> builder) {
+        while (true) {
+            CompletableFuture<FeedDocument> future = documents.get(key);
+            if (future != null && !isStale(future)) {
+                try {
+                    return future.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+
+            CompletableFuture<FeedDocument> building = new CompletableFuture<>();
+            boolean owner = future == null ? documents.putIfAbsent(key, building) == null
+                : documents.replace(key, future, building);
+            if (!owner) {
+                // Another thread has started building, wait for it
+                continue;
+            }
+            try {
+                FeedDocument document = builder.apply(generation.get());
+                building.complete(document);
+                return document;
+            } catch (RuntimeException | Error e) {
+                documents.remove(key, building);
+                building.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the document is to be rebuilt, a document being built is never stale.
+     */
+    private boolean isStale(CompletableFuture<FeedDocument> future) {
+        if (!future.isDone()) {
+            return false;
+        }
+        if (future.isCompletedExceptionally()) {
+            return true;
+        }
+        FeedDocument document = future.join();
+        return document.getGeneration() != generation.get()
+            || System.currentTimeMillis() - document.getCreateTime() >= MAX_AGE_MILLIS;
+    }
+
+    private FeedDocument buildRss(long generation, @Nullable CategoryDTO category) {
+        List<PostDetailVO> posts = listFeedPosts(category);
+        long lastModified = lastModifiedOf(posts);
+        String blogTitle = optionService.getBlogTitle();
+        String blogUrl = optionService.getBlogBaseUrl();
+        boolean fullContent = isFullContent();
+
+        return write(generation, lastModified, writer -> {
+            writer.writeStartDocument("utf-8", "1.0");
+            writer.writeStartElement("rss");
+            writer.writeAttribute("version", "2.0");
+            writer.writeStartElement("channel");
+
+            writeElement(writer, "title", category == null ? blogTitle
+                : "分类：" + category.getName() + " - " + blogTitle);
+            writeElement(writer, "link", category == null ? blogUrl : category.getFullPath());
+            String description = describe(category);
+            if (StringUtils.isNotEmpty(description)) {
+                writeElement(writer, "description", description);
+            }
+            writeElement(writer, "generator", "Halo " + HaloConst.HALO_VERSION);
+            writeElement(writer, "lastBuildDate", formatRfc1123(lastModified));
+
+            for (PostDetailVO post : posts) {
+                writer.writeStartElement("item");
+                writer.writeStartElement("title");
+                writeCData(writer, post.getTitle());
+                writer.writeEndElement();
+                writeElement(writer, "link", buildUrl(post.getFullPath()));
+                writer.writeStartElement("description");
+                writeCData(writer, fullContent ? post.getContent() : post.getSummary());
+                writer.writeEndElement();
+                writeElement(writer, "pubDate", formatRfc1123(post.getCreateTime().getTime()));
+                writer.writeEndElement();
+            }
+
+            writer.writeEndElement();
+            writer.writeEndElement();
+        });
+    }
+
+    private FeedDocument buildAtom(long generation, @Nullable CategoryDTO category) {
+        List<PostDetailVO> posts = listFeedPosts(category);
+        long lastModified = lastModifiedOf(posts);
+        String blogTitle = optionService.getBlogTitle();
+        String blogUrl = optionService.getBlogBaseUrl();
+        boolean fullContent = isFullContent();
+        String nickname = userService.getCurrentUser().map(User::getNickname).orElse(null);
+
+        return write(generation, lastModified, writer -> {
+            writer.writeStartDocument("utf-8", "1.0");
+            writer.setDefaultNamespace(ATOM_NAMESPACE);
+            writer.writeStartElement("feed");
+            writer.writeDefaultNamespace(ATOM_NAMESPACE);
+
+            writer.writeStartElement("title");
+            writer.writeAttribute("type", "text");
+            writeText(writer, category == null ? blogTitle
+                : "分类：" + category.getName() + " - " + blogTitle);
+            writer.writeEndElement();
+            String description = describe(category);
+            if (StringUtils.isNotEmpty(description)) {
+                writer.writeStartElement("subtitle");
+                writer.writeAttribute("type", "text");
+                writeText(writer, description);
+                writer.writeEndElement();
+            }
+            writeElement(writer, "updated", formatIso(lastModified));
+            writeElement(writer, "id", category == null ? blogUrl : category.getFullPath());
+            writeLink(writer, "alternate", "text/html",
+                category == null ? blogUrl : category.getFullPath());
+            writeLink(writer, "self", "application/atom+xml", category == null
+                ? blogUrl + "/atom.xml"
+                : blogUrl + "/feed/categories/" + category.getSlug() + ".xml");
+            writeElement(writer, "rights", "Copyright © "
+                + ZonedDateTime.now().getYear() + ", " + blogTitle);
+            writer.writeStartElement("generator");
+            writer.writeAttribute("uri", "https://halo.run/");
+            writer.writeAttribute("version", HaloConst.HALO_VERSION);
+            writer.writeCharacters("Halo");
+            writer.writeEndElement();
+
+            for (PostDetailVO post : posts) {
+                writer.writeStartElement("entry");
+                writer.writeStartElement("title");
+                writeCData(writer, post.getTitle());
+                writer.writeEndElement();
+                writeLink(writer, "alternate", "text/html", buildUrl(post.getFullPath()));
+                writeElement(writer, "id", "tag:" + blogUrl + ","
+                    + DateTimeFormatter.ISO_LOCAL_DATE.format(toZoned(post.getCreateTime()))
+                    + ":" + post.getSlug());
+                writeElement(writer, "published", formatIso(post.getCreateTime().getTime()));
+                writeElement(writer, "updated", formatIso(post.getEditTime().getTime()));
+                writer.writeStartElement("author");
+                writeElement(writer, "name", nickname);
+                writeElement(writer, "uri", blogUrl);
+                writer.writeEndElement();
+                writer.writeStartElement("content");
+                writer.writeAttribute("type", "html");
+                writeCData(writer, fullContent ? post.getContent() : post.getSummary());
+                writer.writeEndElement();
+                writer.writeEndElement();
+            }
+
+            writer.writeEndElement();
+        });
+    }
+
+    private FeedDocument buildSitemap(long generation) {
+        SitemapCounts counts = countSitemapUrls();
+        if (counts.total() <= SITEMAP_MAX_URLS) {
+            return buildUrlset(generation, counts, 0, counts.total());
+        }
+
+        int parts = (int) ((counts.total() + SITEMAP_MAX_URLS - 1) / SITEMAP_MAX_URLS);
+        String blogUrl = optionService.getBlogBaseUrl();
+        String lastModified = formatIso(System.currentTimeMillis());
+        return write(generation, System.currentTimeMillis(), writer -> {
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.setDefaultNamespace(SITEMAP_NAMESPACE);
+            writer.writeStartElement("sitemapindex");
+            writer.writeDefaultNamespace(SITEMAP_NAMESPACE);
+            for (int part = 1; part <= parts; part++) {
+                writer.writeStartElement("sitemap");
+                writeElement(writer, "loc", blogUrl + "/sitemap-" + part + ".xml");
+                writeElement(writer, "lastmod", lastModified);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        });
+    }
+
+    private FeedDocument buildSitemapPart(long generation, int part) {
+        SitemapCounts counts = countSitemapUrls();
+        long from = (long) (part - 1) * SITEMAP_MAX_URLS;
+        if (part < 1 || counts.total() <= SITEMAP_MAX_URLS || from >= counts.total()) {
+            throw new NotFoundException("站点地图不存在：" + part);
+        }
+        return buildUrlset(generation, counts, from,
+            Math.min(from + SITEMAP_MAX_URLS, counts.total()));
+    }
+
+    /**
+     * Writes the sitemap URLs in [from, to), which are the index page, published posts newest
+     * first, categories and tags.
+     */
+    private FeedDocument buildUrlset(long generation, SitemapCounts counts, long from, long to) {
+        return write(generation, System.currentTimeMillis(), writer -> {
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.setDefaultNamespace(SITEMAP_NAMESPACE);
+            writer.writeStartElement("urlset");
+            writer.writeDefaultNamespace(SITEMAP_NAMESPACE);
+
+            long index = 0;
+            if (from == 0) {
+                writeUrl(writer, optionService.getBlogBaseUrl(), optionService.getBirthday());
+            }
+            index++;
+
+            // Posts, read page by page from the first page overlapping the range
+            long postFrom = Math.max(from - index, 0);
+            long postTo = Math.min(to - index, counts.posts);
+            if (postFrom < postTo) {
+                int pageNumber = (int) (postFrom / POST_BATCH_SIZE);
+                long position = (long) pageNumber * POST_BATCH_SIZE;
+                while (position < postTo) {
+                    Pageable pageable =
+                        PageRequest.of(pageNumber++, POST_BATCH_SIZE, Sort.by(DESC, "createTime"));
+                    Page<Post> postPage = postService.pageBy(PostStatus.PUBLISHED, pageable);
+                    if (postPage.isEmpty()) {
+                        break;
+                    }
+                    List<BasePostMinimalDTO> posts =
+                        postRenderAssembler.convertToMinimal(postPage.getContent());
+                    for (BasePostMinimalDTO post : posts) {
+                        if (position >= postFrom && position < postTo) {
+                            writeUrl(writer, buildUrl(post.getFullPath()),
+                                post.getCreateTime().getTime());
+                        }
+                        position++;
+                    }
+                }
+            }
+            index += counts.posts;
+
+            for (CategoryWithPostCountDTO category : counts.categories) {
+                if (index >= from && index < to) {
+                    writeUrl(writer, buildUrl(category.getFullPath()),
+                        category.getCreateTime().getTime());
+                }
+                index++;
+            }
+
+            for (TagWithPostCountDTO tag : counts.tags) {
+                if (index >= from && index < to) {
+                    writeUrl(writer, buildUrl(tag.getFullPath()), tag.getCreateTime().getTime());
+                }
+                index++;
+            }
+
+            writer.writeEndElement();
+        });
+    }
+
+    private SitemapCounts countSitemapUrls() {
+        return new SitemapCounts(postService.countByStatus(PostStatus.PUBLISHED),
+            postCategoryService.listCategoryWithPostCountDto(Sort.by(ASC, "priority")),
+            postTagService.listTagWithCountDtos(Sort.by(DESC, "createTime")));
+    }
+
+    private List<PostDetailVO> listFeedPosts(@Nullable CategoryDTO category) {
+        Pageable pageable =
+            PageRequest.of(0, optionService.getRssPageSize(), Sort.by(DESC, "createTime"));
+        Page<Post> postPage = category == null
+            ? postService.pageBy(PostStatus.PUBLISHED, pageable)
+            : postCategoryService.pagePostBy(category.getId(), PostStatus.PUBLISHED, pageable);
+
+        List<PostDetailVO> posts = postRenderAssembler.convertToDetailVo(postPage).getContent();
+        posts.forEach(post -> {
+            post.setContent(RegExUtils.replaceAll(post.getContent(), XML_INVALID_CHAR, ""));
+            post.setSummary(RegExUtils.replaceAll(post.getSummary(), XML_INVALID_CHAR, ""));
+        });
+        return posts;
+    }
+
+    private long lastModifiedOf(List<PostDetailVO> posts) {
+        return posts.stream()
+            .mapToLong(post -> post.getEditTime().getTime())
+            .max()
+            .orElseGet(System::currentTimeMillis);
+    }
+
+    private boolean isFullContent() {
+        return "full".equals(optionService.getByPropertyOrDefault(
+            PostProperties.RSS_CONTENT_TYPE, String.class, "full"));
+    }
+
+    @Nullable
+    private String describe(@Nullable CategoryDTO category) {
+        if (category != null) {
+            return category.getDescription();
+        }
+        return userService.getCurrentUser().map(User::getDescription).orElse(null);
+    }
+
+    private String buildUrl(String fullPath) {
+        if (optionService.isEnabledAbsolutePath()) {
+            return fullPath;
+        }
+        return optionService.getBlogBaseUrl() + fullPath;
+    }
+
+    private FeedDocument write(long generation, long lastModified, XmlWriterCallback callback) {
+        MessageDigest digest = DigestUtils.getMd5Digest();
+        ByteArrayOutputStream gzipContent = new ByteArrayOutputStream();
+        try (OutputStream out = new DigestOutputStream(new GZIPOutputStream(gzipContent),
+            digest)) {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            callback.write(writer);
+            writer.writeEndDocument();
+            writer.close();
+        } catch (IOException | XMLStreamException e) {
+            throw new ServiceException("生成订阅文档失败", e);
+        }
+        String etag = "\"" + Hex.encodeHexString(digest.digest()) + "\"";
+        return new FeedDocument(gzipContent.toByteArray(), etag, lastModified, generation);
+    }
+
+    private void writeUrl(XMLStreamWriter writer, String loc, long lastModified)
+        throws XMLStreamException {
+        writer.writeStartElement("url");
+        writeElement(writer, "loc", loc);
+        writeElement(writer, "lastmod", formatIso(lastModified));
+        writer.writeEndElement();
+    }
+
+    private void writeLink(XMLStreamWriter writer, String rel, String type, String href)
+        throws XMLStreamException {
+        writer.writeEmptyElement("link");
+        writer.writeAttribute("rel", rel);
+        writer.writeAttribute("type", type);
+        writer.writeAttribute("href", StringUtils.defaultString(href));
+    }
+
+    private void writeElement(XMLStreamWriter writer, String name, @Nullable String text)
+        throws XMLStreamException {
+        writer.writeStartElement(name);
+        writeText(writer, text);
+        writer.writeEndElement();
+    }
+
+    private void writeText(XMLStreamWriter writer, @Nullable String text)
+        throws XMLStreamException {
+        writer.writeCharacters(RegExUtils.replaceAll(StringUtils.defaultString(text),
+            XML_INVALID_CHAR, ""));
+    }
+
+    private void writeCData(XMLStreamWriter writer, @Nullable String text)
+        throws XMLStreamException {
+        // A CDATA section can not contain its own terminator
+        writer.writeCData(StringUtils.replace(StringUtils.defaultString(text), "]]>",
+            "]]]]><![CDATA[>"));
+    }
+
+    private String formatRfc1123(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()));
+    }
+
+    private String formatIso(long millis) {
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(Instant.ofEpochMilli(millis)
+            .truncatedTo(ChronoUnit.SECONDS)
+            .atZone(ZoneId.systemDefault()));
+    }
+
+    private ZonedDateTime toZoned(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault());
+    }
+
+    @FunctionalInterface
+    private interface XmlWriterCallback {
+
+        void write(XMLStreamWriter writer) throws XMLStreamException;
+    }
+
+    private static class SitemapCounts {
+
+        private final long posts;
+
+        private final List<CategoryWithPostCountDTO> categories;
+
+        private final List<TagWithPostCountDTO> tags;
+
+        private SitemapCounts(long posts, List<CategoryWithPostCountDTO> categories,
+            List<TagWithPostCountDTO> tags) {
+            this.posts = posts;
+            this.categories = categories;
+            this.tags = tags;
+        }
+
+        private long total() {
+            return 1 + posts + categories.size() + tags.size();
+        }
+    }
+}
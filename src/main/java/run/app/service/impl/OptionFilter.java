@@ -111,11 +111,12 @@ public class OptionFilter {
             return Collections.emptySet();
         }
 
+        Set<String> configuredPrivateOptionKeys = getConfiguredPrivateOptionKeys();
         return optionKeys.stream()
             .filter(Objects::nonNull)
             .filter(optionKey -> !optionKey.isBlank())
             .filter(optionKey -> !defaultPrivateOptionKeys.contains(optionKey))
-            .filter(optionKey -> !getConfiguredPrivateOptionKeys().contains(optionKey))
+            .filter(optionKey -> !configuredPrivateOptionKeys.contains(optionKey))
             .collect(Collectors.toUnmodifiableSet());
     }
 
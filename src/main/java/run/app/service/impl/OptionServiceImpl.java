@@ -14,6 +14,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -21,9 +24,10 @@ import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
-import run.app.cache.AbstractStringCacheStore;
 import run.app.event.options.OptionUpdatedEvent;
 import run.app.model.dto.OptionSimpleDTO;
 import run.app.model.entity.Option;
@@ -31,13 +35,9 @@ import run.app.model.enums.PostPermalinkType;
 import run.app.model.enums.SheetPermalinkType;
 import run.app.model.params.OptionParam;
 import run.app.model.params.OptionQuery;
-import run.app.model.properties.BlogProperties;
-import run.app.model.properties.CommentProperties;
-import run.app.model.properties.PermalinkProperties;
-import run.app.model.properties.PostProperties;
-import run.app.model.properties.PrimaryProperties;
 import run.app.model.properties.PropertyEnum;
 import run.app.model.properties.QiniuOssProperties;
+import run.app.model.support.OptionSnapshot;
 import run.app.repository.OptionRepository;
 import run.app.service.OptionService;
 import run.app.service.base.AbstractCrudService;
@@ -58,18 +58,23 @@ public class OptionServiceImpl extends AbstractCrudService<Option, Integer>
 
     private final OptionRepository optionRepository;
     private final ApplicationContext applicationContext;
-    private final AbstractStringCacheStore cacheStore;
     private final Map<String, PropertyEnum> propertyEnumMap;
     private final ApplicationEventPublisher eventPublisher;
+    private final Object snapshotLock = new Object();
+
+    /**
+     * Guarded by snapshotLock.
+     */
+    private long snapshotVersion;
+
+    private volatile OptionSnapshot snapshot;
 
     public OptionServiceImpl(OptionRepository optionRepository,
         ApplicationContext applicationContext,
-        AbstractStringCacheStore cacheStore,
         ApplicationEventPublisher eventPublisher) {
         super(optionRepository);
         this.optionRepository = optionRepository;
         this.applicationContext = applicationContext;
-        this.cacheStore = cacheStore;
         this.eventPublisher = eventPublisher;
 
         propertyEnumMap = Collections.unmodifiableMap(PropertyEnum.getValuePropertyEnumMap());
@@ -174,45 +179,113 @@ public class OptionServiceImpl extends AbstractCrudService<Option, Integer>
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Map<String, Object> listOptions() {
-        // Get options from cache
-        return cacheStore.getAny(OPTIONS_KEY, Map.class).orElseGet(() -> {
-            List<Option> options = listAll();
+        return getSnapshot().getOptions();
+    }
 
-            Set<String> keys = ServiceUtils.fetchProperty(options, Option::getKey);
+    @Override
+    @NonNull
+    public OptionSnapshot getSnapshot() {
+        OptionSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot;
+        }
 
-            Map<String, Object> userDefinedOptionMap =
-                ServiceUtils.convertToMap(options, Option::getKey, option -> {
-                    String key = option.getKey();
+        long version;
+        synchronized (snapshotLock) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            version = snapshotVersion;
+        }
 
-                    PropertyEnum propertyEnum = propertyEnumMap.get(key);
+        // Build it outside of the lock, because loading options may wait for a connection
+        OptionSnapshot builtSnapshot = new OptionSnapshot(version, loadOptions(),
+            getDefaultBlogBaseUrl(), DEFAULT_POST_PAGE_SIZE, DEFAULT_ARCHIVES_PAGE_SIZE,
+            DEFAULT_COMMENT_PAGE_SIZE, DEFAULT_RSS_PAGE_SIZE);
 
-                    if (propertyEnum == null) {
-                        return option.getValue();
-                    }
+        synchronized (snapshotLock) {
+            if (snapshotVersion != version) {
+                // Options have been updated meanwhile, do not keep the snapshot
+                return builtSnapshot;
+            }
+            if (snapshot == null) {
+                snapshot = builtSnapshot;
+            }
+            return snapshot;
+        }
+    }
 
-                    return PropertyEnum.convertTo(option.getValue(), propertyEnum);
-                });
+    /**
+     * Evicts the snapshot before other listeners of the event read options.
+     *
+     * @param event option updated event
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onOptionUpdated(OptionUpdatedEvent event) {
+        evictSnapshot();
+    }
 
-            Map<String, Object> result = new HashMap<>(userDefinedOptionMap);
+    /**
+     * Evicts the snapshot again once the transaction has completed, since a snapshot built in
+     * the transaction contains options which were not committed yet.
+     *
+     * @param event option updated event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION,
+        fallbackExecution = true)
+    public void onOptionUpdateCompleted(OptionUpdatedEvent event) {
+        evictSnapshot();
+    }
+
+    private void evictSnapshot() {
+        synchronized (snapshotLock) {
+            snapshotVersion++;
+            snapshot = null;
+        }
+    }
 
-            // Add default property
-            propertyEnumMap.keySet()
-                .stream()
-                .filter(key -> !keys.contains(key))
-                .forEach(key -> {
-                    PropertyEnum propertyEnum = propertyEnumMap.get(key);
+    @NonNull
+    private Map<String, Object> loadOptions() {
+        List<Option> options = listAll();
 
-                    result.put(key,
-                        PropertyEnum.convertTo(propertyEnum.defaultValue(), propertyEnum));
-                });
+        Set<String> keys = ServiceUtils.fetchProperty(options, Option::getKey);
 
-            // Cache the result
-            cacheStore.putAny(OPTIONS_KEY, result);
+        Map<String, Object> userDefinedOptionMap =
+            ServiceUtils.convertToMap(options, Option::getKey, option -> {
+                String key = option.getKey();
 
-            return result;
-        });
+                PropertyEnum propertyEnum = propertyEnumMap.get(key);
+
+                if (propertyEnum == null) {
+                    return option.getValue();
+                }
+
+                return PropertyEnum.convertTo(option.getValue(), propertyEnum);
+            });
+
+        Map<String, Object> result = new HashMap<>(userDefinedOptionMap);
+
+        // Add default property
+        propertyEnumMap.keySet()
+            .stream()
+            .filter(key -> !keys.contains(key))
+            .forEach(key -> {
+                PropertyEnum propertyEnum = propertyEnumMap.get(key);
+
+                result.put(key, PropertyEnum.convertTo(propertyEnum.defaultValue(), propertyEnum));
+            });
+
+        return result;
+    }
+
+    @NonNull
+    private String getDefaultBlogBaseUrl() {
+        // Get server port
+        String serverPort = applicationContext.getEnvironment().getProperty("server.port", "8080");
+
+        return String.format("http://%s:%s", "127.0.0.1", serverPort);
     }
 
     @Override
@@ -260,49 +333,22 @@ public class OptionServiceImpl extends AbstractCrudService<Option, Integer>
 
     @Override
     public int getPostPageSize() {
-        try {
-            return getByPropertyOrDefault(PostProperties.INDEX_PAGE_SIZE, Integer.class,
-                DEFAULT_POST_PAGE_SIZE);
-        } catch (NumberFormatException e) {
-            log.error(PostProperties.INDEX_PAGE_SIZE.getValue() + " option is not a number format",
-                e);
-            return DEFAULT_POST_PAGE_SIZE;
-        }
+        return getSnapshot().getPostPageSize();
     }
 
     @Override
     public int getArchivesPageSize() {
-        try {
-            return getByPropertyOrDefault(PostProperties.ARCHIVES_PAGE_SIZE, Integer.class,
-                DEFAULT_ARCHIVES_PAGE_SIZE);
-        } catch (NumberFormatException e) {
-            log.error(
-                PostProperties.ARCHIVES_PAGE_SIZE.getValue() + " option is not a number format", e);
-            return DEFAULT_POST_PAGE_SIZE;
-        }
+        return getSnapshot().getArchivesPageSize();
     }
 
     @Override
     public int getCommentPageSize() {
-        try {
-            return getByPropertyOrDefault(CommentProperties.PAGE_SIZE, Integer.class,
-                DEFAULT_COMMENT_PAGE_SIZE);
-        } catch (NumberFormatException e) {
-            log.error(CommentProperties.PAGE_SIZE.getValue() + " option is not a number format", e);
-            return DEFAULT_COMMENT_PAGE_SIZE;
-        }
+        return getSnapshot().getCommentPageSize();
     }
 
     @Override
     public int getRssPageSize() {
-        try {
-            return getByPropertyOrDefault(PostProperties.RSS_PAGE_SIZE, Integer.class,
-                DEFAULT_RSS_PAGE_SIZE);
-        } catch (NumberFormatException e) {
-            log.error(PostProperties.RSS_PAGE_SIZE.getValue() + " setting is not a number format",
-                e);
-            return DEFAULT_RSS_PAGE_SIZE;
-        }
+        return getSnapshot().getRssPageSize();
     }
 
     @Override
@@ -337,94 +383,87 @@ public class OptionServiceImpl extends AbstractCrudService<Option, Integer>
 
     @Override
     public Locale getLocale() {
-        return getByProperty(BlogProperties.BLOG_LOCALE).map(localeStr -> {
-            try {
-                return Locale.forLanguageTag(localeStr.toString());
-            } catch (Exception e) {
-                return Locale.getDefault();
-            }
-        }).orElseGet(Locale::getDefault);
+        return getSnapshot().getLocale();
     }
 
     @Override
     public String getBlogBaseUrl() {
-        // Get server port
-        String serverPort = applicationContext.getEnvironment().getProperty("server.port", "8080");
+        return getSnapshot().getBlogBaseUrl();
+    }
 
-        String blogUrl = getByProperty(BlogProperties.BLOG_URL).orElse("").toString();
+    @Override
+    public String getBlogTitle() {
+        return getSnapshot().getBlogTitle();
+    }
 
-        if (StringUtils.isNotBlank(blogUrl)) {
-            blogUrl = StringUtils.removeEnd(blogUrl, "/");
-        } else {
-            blogUrl = String.format("http://%s:%s", "127.0.0.1", serverPort);
-        }
+    @Override
+    public String getSeoKeywords() {
+        return getSnapshot().getSeoKeywords();
+    }
 
-        return blogUrl;
+    @Override
+    public String getSeoDescription() {
+        return getSnapshot().getSeoDescription();
     }
 
     @Override
     public long getBirthday() {
-        return Long.parseLong(getByPropertyOrDefault(PrimaryProperties.BIRTHDAY, String.class));
+        return getSnapshot().getBirthday();
     }
 
     @Override
     public PostPermalinkType getPostPermalinkType() {
-        return getEnumByPropertyOrDefault(PermalinkProperties.POST_PERMALINK_TYPE,
-            PostPermalinkType.class, PostPermalinkType.DEFAULT);
+        return getSnapshot().getPostPermalinkType();
     }
 
     @Override
     public SheetPermalinkType getSheetPermalinkType() {
-        return getEnumByPropertyOrDefault(PermalinkProperties.SHEET_PERMALINK_TYPE,
-            SheetPermalinkType.class, SheetPermalinkType.SECONDARY);
+        return getSnapshot().getSheetPermalinkType();
     }
 
     @Override
     public String getSheetPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.SHEET_PREFIX, String.class,
-            PermalinkProperties.SHEET_PREFIX.defaultValue());
+        return getSnapshot().getSheetPrefix();
     }
 
     @Override
     public String getLinksPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.LINKS_PREFIX, String.class,
-            PermalinkProperties.LINKS_PREFIX.defaultValue());
+        return getSnapshot().getLinksPrefix();
     }
 
     @Override
     public String getPhotosPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.PHOTOS_PREFIX, String.class,
-            PermalinkProperties.PHOTOS_PREFIX.defaultValue());
+        return getSnapshot().getPhotosPrefix();
     }
 
     @Override
     public String getJournalsPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.JOURNALS_PREFIX, String.class,
-            PermalinkProperties.JOURNALS_PREFIX.defaultValue());
+        return getSnapshot().getJournalsPrefix();
     }
 
     @Override
     public String getArchivesPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.ARCHIVES_PREFIX, String.class,
-            PermalinkProperties.ARCHIVES_PREFIX.defaultValue());
+        return getSnapshot().getArchivesPrefix();
     }
 
     @Override
     public String getCategoriesPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.CATEGORIES_PREFIX, String.class,
-            PermalinkProperties.CATEGORIES_PREFIX.defaultValue());
+        return getSnapshot().getCategoriesPrefix();
     }
 
     @Override
     public String getTagsPrefix() {
-        return getByPropertyOrDefault(PermalinkProperties.TAGS_PREFIX, String.class,
-            PermalinkProperties.TAGS_PREFIX.defaultValue());
+        return getSnapshot().getTagsPrefix();
     }
 
     @Override
     public String getPathSuffix() {
-        return getByPropertyOrDefault(PermalinkProperties.PATH_SUFFIX, String.class,
-            PermalinkProperties.PATH_SUFFIX.defaultValue());
+        return getSnapshot().getPathSuffix();
+    }
+
+    @Override
+    public Boolean isEnabledAbsolutePath() {
+        return getSnapshot().isAbsolutePathEnabled();
     }
 
     @Override
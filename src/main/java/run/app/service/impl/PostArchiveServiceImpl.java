@@ -0,0 +1,290 @@
+package run.app.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import run.app.model.entity.Post;
+import run.app.model.enums.PostStatus;
+import run.app.model.projection.PostArchiveProjection;
+import run.app.model.vo.ArchiveMonthVO;
+import run.app.model.vo.ArchiveYearVO;
+import run.app.repository.PostRepository;
+import run.app.service.PostArchiveService;
+import run.app.service.assembler.PostAssembler;
+
+/**
+ * Post archive service implementation.
+ *
+ * <p>The index keeps the id and create time of every published post, newest first, and is
+ * built lazily on first use. Archives of all posts are converted once per index version, and
+ * again after a while, as visits, likes, tags and metas shown with them change without any
+ * version.
+ */
+@Slf4j
+@Service
+public class PostArchiveServiceImpl implements PostArchiveService {
+
+    /**
+     * Posts loaded at once while converting archives.
+     */
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    /**
+     * Maximum age of converted archives.
+     */
+    private static final long CONVERTED_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Comparator<ArchiveEntry> NEWEST_FIRST =
+        Comparator.comparingLong((ArchiveEntry entry) -> entry.createTime)
+            .thenComparingInt(entry -> entry.postId)
+            .reversed();
+
+    private final NavigableSet<ArchiveEntry> entries = new TreeSet<>(NEWEST_FIRST);
+
+    private final Map<Integer, ArchiveEntry> entryMap = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final PostRepository postRepository;
+
+    private final PostAssembler postAssembler;
+
+    private volatile boolean loaded;
+
+    private volatile Converted<ArchiveYearVO> yearArchives;
+
+    private volatile Converted<ArchiveMonthVO> monthArchives;
+
+    public PostArchiveServiceImpl(PostRepository postRepository, PostAssembler postAssembler) {
+        this.postRepository = postRepository;
+        this.postAssembler = postAssembler;
+    }
+
+    @Override
+    public List<ArchiveYearVO> listYearArchives() {
+        ensureLoaded();
+
+        long currentVersion = version.get();
+        Converted<ArchiveYearVO> converted = yearArchives;
+        if (converted == null || converted.isStale(currentVersion)) {
+            converted = new Converted<>(currentVersion,
+                postAssembler.convertToYearArchives(listPosts(0, Integer.MAX_VALUE)));
+            yearArchives = converted;
+        }
+        return converted.archives;
+    }
+
+    @Override
+    public List<ArchiveMonthVO> listMonthArchives() {
+        ensureLoaded();
+
+        long currentVersion = version.get();
+        Converted<ArchiveMonthVO> converted = monthArchives;
+        if (converted == null || converted.isStale(currentVersion)) {
+            converted = new Converted<>(currentVersion,
+                postAssembler.convertToMonthArchives(listPosts(0, Integer.MAX_VALUE)));
+            monthArchives = converted;
+        }
+        return converted.archives;
+    }
+
+    @Override
+    public List<ArchiveYearVO> listYearArchives(int page, int size) {
+        Assert.isTrue(page >= 0, "Page number must not be less than 0");
+        Assert.isTrue(size > 0, "Page size must be greater than 0");
+        ensureLoaded();
+
+        return postAssembler.convertToYearArchives(listPosts((long) page * size, size));
+    }
+
+    @Override
+    public List<ArchiveMonthVO> listMonthArchives(int page, int size) {
+        Assert.isTrue(page >= 0, "Page number must not be less than 0");
+        Assert.isTrue(size > 0, "Page size must be greater than 0");
+        ensureLoaded();
+
+        return postAssembler.convertToMonthArchives(listPosts((long) page * size, size));
+    }
+
+    @Override
+    public long count() {
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public synchronized void refresh(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+        if (!loaded) {
+            // The post will be read by the first build
+            return;
+        }
+
+        Post post = postRepository.findById(postId).orElse(null);
+        if (post == null || !PostStatus.PUBLISHED.equals(post.getStatus())) {
+            remove(postId);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            put(new ArchiveEntry(postId, post.getCreateTime()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void remove(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        lock.writeLock().lock();
+        try {
+            ArchiveEntry entry = entryMap.remove(postId);
+            if (entry != null) {
+                entries.remove(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        List<PostArchiveProjection> projections =
+            postRepository.findAllArchiveProjectionByStatus(PostStatus.PUBLISHED);
+
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            entryMap.clear();
+            projections.forEach(projection -> put(
+                new ArchiveEntry(projection.getPostId(), projection.getCreateTime())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        version.incrementAndGet();
+
+        log.debug("Built archive index with [{}] posts", projections.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private void put(ArchiveEntry entry) {
+        ArchiveEntry previous = entryMap.put(entry.postId, entry);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Lists published posts in archive order.
+     *
+     * @param offset number of posts to skip
+     * @param limit maximum number of posts
+     * @return a list of post
+     */
+    @NonNull
+    private List<Post> listPosts(long offset, int limit) {
+        List<Integer> postIds = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Iterator<ArchiveEntry> iterator = entries.iterator();
+            for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+                iterator.next();
+            }
+            while (iterator.hasNext() && postIds.size() < limit) {
+                postIds.add(iterator.next().postId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Post> posts = new ArrayList<>(postIds.size());
+        for (int i = 0; i < postIds.size(); i += LOAD_BATCH_SIZE) {
+            List<Integer> batch = postIds.subList(i, Math.min(i + LOAD_BATCH_SIZE, postIds.size()));
+            Map<Integer, Post> postMap = postRepository.findAllById(batch).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+            batch.stream()
+                .map(postMap::get)
+                .filter(Objects::nonNull)
+                .filter(post -> PostStatus.PUBLISHED.equals(post.getStatus()))
+                .forEach(posts::add);
+        }
+        return posts;
+    }
+
+    private static class ArchiveEntry {
+
+        private final int postId;
+
+        private final long createTime;
+
+        private ArchiveEntry(Integer postId, Date createTime) {
+            this.postId = postId;
+            this.createTime = createTime == null ? 0 : createTime.getTime();
+        }
+    }
+
+    private static class Converted<T> {
+
+        private final long version;
+
+        private final List<T> archives;
+
+        private final long createTime = System.currentTimeMillis();
+
+        private Converted(long version, List<T> archives) {
+            this.version = version;
+            this.archives = Collections.unmodifiableList(archives);
+        }
+
+        private boolean isStale(long currentVersion) {
+            return version != currentVersion
+                || System.currentTimeMillis() - createTime >= CONVERTED_MAX_AGE_MILLIS;
+        }
+    }
+}
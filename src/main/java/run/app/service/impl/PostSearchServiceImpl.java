@@ -0,0 +1,264 @@
+package run.app.service.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import run.app.config.properties.HaloProperties;
+import run.app.core.search.SearchIndex;
+import run.app.model.entity.Content;
+import run.app.model.entity.Post;
+import run.app.model.enums.PostStatus;
+import run.app.repository.ContentRepository;
+import run.app.repository.PostRepository;
+import run.app.service.PostSearchService;
+import run.app.utils.HaloUtils;
+
+/**
+ * Post search service implementation backed by an in-process inverted index.
+ */
+@Slf4j
+@Service
+public class PostSearchServiceImpl implements PostSearchService {
+
+    /**
+     * Posts whose content is loaded at once while rebuilding.
+     */
+    private static final int REBUILD_BATCH_SIZE = 100;
+
+    private static final int SNIPPET_LENGTH = 150;
+
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    private final PostRepository postRepository;
+
+    private final ContentRepository contentRepository;
+
+    private final Path indexFile;
+
+    /**
+     * Serializes rebuilds and incremental updates, so that a rebuild never works on a stale view
+     * of the index.
+     */
+    private final Object updateLock = new Object();
+
+    /**
+     * Whether the index file has been loaded. It is only read once, later rebuilds reconcile the
+     * live index with the database.
+     */
+    private boolean loaded;
+
+    private volatile boolean ready;
+
+    public PostSearchServiceImpl(PostRepository postRepository,
+        ContentRepository contentRepository,
+        HaloProperties haloProperties) {
+        this.postRepository = postRepository;
+        this.contentRepository = contentRepository;
+        this.indexFile = Paths.get(haloProperties.getWorkDir(), "search", "posts.idx");
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Page<Post> search(String keyword, Pageable pageable) {
+        Assert.notNull(keyword, "Keyword must not be null");
+        Assert.notNull(pageable, "Page info must not be null");
+
+        List<Integer> postIds = searchIndex.search(keyword);
+
+        int from = (int) Math.min(pageable.getOffset(), postIds.size());
+        int to = Math.min(from + pageable.getPageSize(), postIds.size());
+        List<Integer> pageIds = postIds.subList(from, to);
+
+        Map<Integer, Post> postMap = postRepository.findAllById(pageIds).stream()
+            .collect(Collectors.toMap(Post::getId, Function.identity()));
+
+        // Keep the ranking, the status may have been changed without any event
+        List<Post> posts = pageIds.stream()
+            .map(postMap::get)
+            .filter(Objects::nonNull)
+            .filter(post -> PostStatus.PUBLISHED.equals(post.getStatus()))
+            .collect(Collectors.toList());
+
+        return new PageImpl<>(posts, pageable, postIds.size());
+    }
+
+    @Override
+    public Map<Integer, String> highlight(Collection<Integer> postIds, String keyword) {
+        Assert.notNull(postIds, "Post ids must not be null");
+
+        Map<Integer, String> snippets = new HashMap<>(postIds.size());
+        postIds.forEach(postId -> {
+            String snippet = searchIndex.highlight(postId, keyword, SNIPPET_LENGTH);
+            if (snippet != null) {
+                snippets.put(postId, snippet);
+            }
+        });
+        return snippets;
+    }
+
+    @Override
+    public void refresh(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        synchronized (updateLock) {
+            Post post = postRepository.findById(postId).orElse(null);
+            if (post == null || !PostStatus.PUBLISHED.equals(post.getStatus())) {
+                searchIndex.remove(postId);
+                return;
+            }
+
+            Content content = contentRepository.findById(postId).orElse(null);
+            index(post, content);
+        }
+    }
+
+    @Override
+    public void refresh(Collection<Integer> postIds) {
+        Assert.notNull(postIds, "Post ids must not be null");
+
+        List<Integer> ids = List.copyOf(postIds);
+        synchronized (updateLock) {
+            for (int i = 0; i < ids.size(); i += REBUILD_BATCH_SIZE) {
+                List<Integer> batchIds =
+                    ids.subList(i, Math.min(i + REBUILD_BATCH_SIZE, ids.size()));
+                Map<Integer, Post> postMap = postRepository.findAllById(batchIds).stream()
+                    .collect(Collectors.toMap(Post::getId, Function.identity()));
+                Map<Integer, Content> contentMap = contentRepository.findAllById(batchIds)
+                    .stream()
+                    .collect(Collectors.toMap(Content::getId, Function.identity()));
+                batchIds.forEach(postId -> {
+                    Post post = postMap.get(postId);
+                    if (post == null || !PostStatus.PUBLISHED.equals(post.getStatus())) {
+                        searchIndex.remove(postId);
+                        return;
+                    }
+                    index(post, contentMap.get(postId));
+                });
+            }
+        }
+    }
+
+    @Override
+    public void remove(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        synchronized (updateLock) {
+            searchIndex.remove(postId);
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        synchronized (updateLock) {
+            if (!loaded) {
+                load();
+            }
+            reconcile();
+        }
+
+        persist();
+    }
+
+    private void load() {
+        loaded = true;
+        try {
+            if (searchIndex.load(indexFile)) {
+                log.info("Loaded [{}] posts from search index [{}]", searchIndex.size(),
+                    indexFile);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to load search index [{}], rebuilding it", indexFile, e);
+        }
+    }
+
+    /**
+     * Brings the index in line with the published posts, only changed posts are re-indexed.
+     */
+    private void reconcile() {
+        Map<Integer, Long> indexedVersions = searchIndex.versions();
+        List<Post> publishedPosts = postRepository.findAllByStatus(PostStatus.PUBLISHED);
+
+        // Remove posts not published any more
+        Set<Integer> publishedIds = new HashSet<>(publishedPosts.size());
+        publishedPosts.forEach(post -> publishedIds.add(post.getId()));
+        indexedVersions.keySet().stream()
+            .filter(postId -> !publishedIds.contains(postId))
+            .forEach(searchIndex::remove);
+
+        // Index new or changed posts only
+        List<Post> stalePosts = publishedPosts.stream()
+            .filter(post -> !Objects.equals(indexedVersions.get(post.getId()), versionOf(post)))
+            .collect(Collectors.toList());
+        for (int i = 0; i < stalePosts.size(); i += REBUILD_BATCH_SIZE) {
+            List<Post> batch =
+                stalePosts.subList(i, Math.min(i + REBUILD_BATCH_SIZE, stalePosts.size()));
+            Map<Integer, Content> contentMap = contentRepository.findAllById(
+                batch.stream().map(Post::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Content::getId, Function.identity()));
+            batch.forEach(post -> index(post, contentMap.get(post.getId())));
+        }
+
+        ready = true;
+        log.info("Search index is ready with [{}] posts, [{}] re-indexed", searchIndex.size(),
+            stalePosts.size());
+    }
+
+    /**
+     * Saves the index under the work directory if it has been changed.
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void persist() {
+        if (!ready || !searchIndex.isDirty()) {
+            return;
+        }
+        try {
+            searchIndex.save(indexFile);
+            log.debug("Saved search index to [{}]", indexFile);
+        } catch (IOException e) {
+            log.warn("Failed to save search index to [{}]", indexFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        persist();
+    }
+
+    private void index(Post post, Content content) {
+        String text = StringUtils.EMPTY;
+        if (content != null) {
+            text = StringUtils.isNotBlank(content.getContent())
+                ? HaloUtils.cleanHtmlTag(content.getContent()) : content.getOriginalContent();
+        }
+        searchIndex.put(post.getId(), versionOf(post), post.getTitle(), text);
+    }
+
+    private long versionOf(Post post) {
+        long updateTime = post.getUpdateTime() == null ? 0 : post.getUpdateTime().getTime();
+        long editTime = post.getEditTime() == null ? 0 : post.getEditTime().getTime();
+        return Math.max(updateTime, editTime);
+    }
+}
@@ -30,6 +30,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import run.app.event.logger.LogEvent;
+import run.app.event.post.PostDeletedEvent;
 import run.app.event.post.PostUpdatedEvent;
 import run.app.event.post.PostVisitEvent;
 import run.app.exception.NotFoundException;
@@ -57,9 +58,11 @@ import run.app.service.CategoryService;
 import run.app.service.ContentPatchLogService;
 import run.app.service.ContentService;
 import run.app.service.OptionService;
+import run.app.service.PostArchiveService;
 import run.app.service.PostCategoryService;
 import run.app.service.PostCommentService;
 import run.app.service.PostMetaService;
+import run.app.service.PostSearchService;
 import run.app.service.PostService;
 import run.app.service.PostTagService;
 import run.app.service.TagService;
@@ -85,6 +88,11 @@ import run.app.utils.SlugUtils;
 @Service
 public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostService {
 
+    /**
+     * Posts updated by a single statement while refreshing post status.
+     */
+    private static final int STATUS_UPDATE_BATCH_SIZE = 500;
+
     private final PostAssembler postAssembler;
 
     private final PostRepository postRepository;
@@ -111,6 +119,10 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
     private final ApplicationContext applicationContext;
 
+    private final PostSearchService postSearchService;
+
+    private final PostArchiveService postArchiveService;
+
     public PostServiceImpl(BasePostRepository<Post> basePostRepository,
         PostAssembler postAssembler, OptionService optionService,
         PostRepository postRepository,
@@ -123,7 +135,9 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         PostMetaService postMetaService,
         ContentService contentService,
         ContentPatchLogService contentPatchLogService,
-        ApplicationContext applicationContext) {
+        ApplicationContext applicationContext,
+        PostSearchService postSearchService,
+        PostArchiveService postArchiveService) {
         super(basePostRepository, optionService, contentService, contentPatchLogService);
         this.postAssembler = postAssembler;
         this.postRepository = postRepository;
@@ -138,6 +152,8 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         this.postContentService = contentService;
         this.postContentPatchLogService = contentPatchLogService;
         this.applicationContext = applicationContext;
+        this.postSearchService = postSearchService;
+        this.postArchiveService = postArchiveService;
     }
 
     @Override
@@ -154,6 +170,11 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(keyword, "keyword must not be null");
         Assert.notNull(pageable, "Page info must not be null");
 
+        if (postSearchService.isReady()) {
+            return postSearchService.search(keyword, pageable);
+        }
+
+        // Fall back to like queries until the search index is built
         PostQuery postQuery = new PostQuery();
         postQuery.setKeyword(keyword);
         postQuery.setStatuses(Set.of(PostStatus.PUBLISHED));
@@ -313,20 +334,12 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
     @Override
     public List<ArchiveYearVO> listYearArchives() {
-        // Get all posts
-        List<Post> posts = postRepository
-            .findAllByStatus(PostStatus.PUBLISHED, Sort.by(DESC, "createTime"));
-
-        return postAssembler.convertToYearArchives(posts);
+        return postArchiveService.listYearArchives();
     }
 
     @Override
     public List<ArchiveMonthVO> listMonthArchives() {
-        // Get all posts
-        List<Post> posts = postRepository
-            .findAllByStatus(PostStatus.PUBLISHED, Sort.by(DESC, "createTime"));
-
-        return postAssembler.convertToMonthArchives(posts);
+        return postArchiveService.listMonthArchives();
     }
 
     @Override
@@ -532,6 +545,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         // Log it
         eventPublisher.publishEvent(new LogEvent(this, postId.toString(), LogType.POST_DELETED,
             deletedPost.getTitle()));
+        eventPublisher.publishEvent(new PostDeletedEvent(this, postId));
 
         return deletedPost;
     }
@@ -652,21 +666,80 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
     @Override
     public List<PostMarkdownVO> listPostMarkdowns() {
-        List<Post> allPostList = listAll();
-        List<PostMarkdownVO> result = new ArrayList<>(allPostList.size());
-        for (Post post : allPostList) {
-            Content postContent = getContentById(post.getId());
+        return convertToPostMarkdowns(listAll());
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int intimatePublishedPosts(Collection<Integer> postIds) {
+        Assert.notNull(postIds, "Post ids must not be null");
+
+        List<Integer> postIdList = new ArrayList<>(new HashSet<>(postIds));
+        int updated = 0;
+        for (int i = 0; i < postIdList.size(); i += STATUS_UPDATE_BATCH_SIZE) {
+            List<Integer> batch =
+                postIdList.subList(i, Math.min(i + STATUS_UPDATE_BATCH_SIZE, postIdList.size()));
+            updated += postRepository.updateStatusByIdInAndStatus(PostStatus.INTIMATE, batch,
+                PostStatus.PUBLISHED);
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int publishIntimatePosts(Collection<Integer> postIds,
+        Collection<Integer> encryptedCategoryIds) {
+        Assert.notNull(postIds, "Post ids must not be null");
+        Assert.notNull(encryptedCategoryIds, "Encrypted category ids must not be null");
+
+        // An empty in clause is not valid sql, category ids start from 1
+        Collection<Integer> excludedCategoryIds =
+            encryptedCategoryIds.isEmpty() ? Collections.singleton(0) : encryptedCategoryIds;
+        List<Integer> postIdList = new ArrayList<>(new HashSet<>(postIds));
+        int updated = 0;
+        for (int i = 0; i < postIdList.size(); i += STATUS_UPDATE_BATCH_SIZE) {
+            List<Integer> batch =
+                postIdList.subList(i, Math.min(i + STATUS_UPDATE_BATCH_SIZE, postIdList.size()));
+            updated += postRepository.updateStatusOfUnprotectedByIdInAndStatus(
+                PostStatus.PUBLISHED, batch, PostStatus.INTIMATE, excludedCategoryIds);
+        }
+        return updated;
+    }
+
+    @Override
+    public List<PostMarkdownVO> convertToPostMarkdowns(List<Post> posts) {
+        Assert.notNull(posts, "Posts must not be null");
+        if (CollectionUtils.isEmpty(posts)) {
+            return Collections.emptyList();
+        }
+
+        Set<Integer> postIds = ServiceUtils.fetchProperty(posts, Post::getId);
+        Map<Integer, Content> contentMap =
+            ServiceUtils.convertToMap(postContentService.listAllByIds(postIds), Content::getId);
+        Map<Integer, List<Category>> categoryListMap =
+            postCategoryService.listCategoryListMap(postIds);
+        Map<Integer, List<Tag>> tagListMap = postTagService.listTagListMapBy(postIds);
+
+        List<PostMarkdownVO> result = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            Content postContent = contentMap.get(post.getId());
+            if (postContent == null) {
+                throw new NotFoundException("查询不到该文章的内容").setErrorData(post.getId());
+            }
             post.setContent(PatchedContent.of(postContent));
-            result.add(convertToPostMarkdownVo(post));
+            result.add(convertToPostMarkdownVo(post,
+                categoryListMap.getOrDefault(post.getId(), Collections.emptyList()),
+                tagListMap.getOrDefault(post.getId(), Collections.emptyList())));
         }
         return result;
     }
 
-    private PostMarkdownVO convertToPostMarkdownVo(Post post) {
+    private PostMarkdownVO convertToPostMarkdownVo(Post post, List<Category> categories,
+        List<Tag> tags) {
         PostMarkdownVO postMarkdownVO = new PostMarkdownVO();
 
         // set frontMatter
-        StringBuilder frontMatter = getFrontMatterYaml(post);
+        StringBuilder frontMatter = getFrontMatterYaml(post, categories, tags);
         postMarkdownVO.setFrontMatter(frontMatter.toString());
 
         // set content
@@ -695,9 +768,12 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
      * </p>
      *
      * @param post post not be null
+     * @param categories categories of the post
+     * @param tags tags of the post
      * @return frontMatter
      */
-    private StringBuilder getFrontMatterYaml(Post post) {
+    private StringBuilder getFrontMatterYaml(Post post, List<Category> categories,
+        List<Tag> tags) {
         StringBuilder frontMatter = new StringBuilder("---\n");
         frontMatter.append("title: ").append(post.getTitle()).append("\n");
         frontMatter.append("date: ").append(post.getCreateTime()).append("\n");
@@ -708,14 +784,12 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
         // set category
         // classification with hierarchies has not been processed yet
-        List<Category> categories = postCategoryService.listCategoriesBy(post.getId());
         StringBuilder categoryContent = new StringBuilder();
         categories.forEach(category -> categoryContent.append("- ").append(category.getName())
             .append("\n"));
         frontMatter.append("categories: ").append("\n").append(categoryContent);
 
         // set tags
-        List<Tag> tags = postTagService.listTagsBy(post.getId());
         StringBuilder tagContent = new StringBuilder();
         tags.forEach(tag -> tagContent.append("- ").append(tag.getName()).append("\n"));
         frontMatter.append("tags: ").append("\n").append(tagContent);
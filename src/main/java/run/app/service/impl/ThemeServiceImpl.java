@@ -161,11 +161,13 @@ public class ThemeServiceImpl implements ThemeService {
 
         return fetchActivatedTheme().map(themeProperty -> {
             // Resolve template path
-            Path templatePath = Paths.get(themeProperty.getThemePath(), template);
+            Path themePath = Paths.get(themeProperty.getThemePath());
+            Path templatePath = Paths.get(themeProperty.getThemePath(), template).normalize();
             // Check the directory
-            checkDirectory(templatePath.toString());
-            // Check existence
-            return Files.exists(templatePath);
+            FileUtils.checkDirectoryTraversal(themePath, templatePath);
+            // Check existence by the theme registry
+            return themeRepository.templateExists(themeProperty.getId(),
+                themePath.relativize(templatePath).toString());
         }).orElse(false);
     }
 
@@ -219,6 +221,9 @@ public class ThemeServiceImpl implements ThemeService {
         } catch (IOException e) {
             throw new ServiceException("保存模板内容失败 " + absolutePath, e);
         }
+
+        // Reload compiled templates
+        eventPublisher.publishEvent(new ThemeUpdatedEvent(this));
     }
 
     @Override
@@ -234,6 +239,9 @@ public class ThemeServiceImpl implements ThemeService {
         } catch (IOException e) {
             throw new ServiceException("保存模板内容失败 " + absolutePath, e);
         }
+
+        // Reload compiled templates
+        eventPublisher.publishEvent(new ThemeUpdatedEvent(this));
     }
 
     @Transactional
@@ -0,0 +1,241 @@
+package run.app.service.support;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.app.model.entity.Category;
+import run.app.utils.BeanUtils;
+
+/**
+ * Immutable category hierarchy.
+ *
+ * <p>Ancestors, the first encrypted category on the way to the root and descendants of every
+ * category are computed once when the graph is built, so that lookups never touch the database.
+ * Categories handed out are copies, callers are free to modify them.
+ */
+public class CategoryGraph {
+
+    private static final Comparator<Category> NAME_COMPARATOR =
+        Comparator.comparing(Category::getName, Comparator.nullsFirst(String::compareTo));
+
+    private final long version;
+
+    /**
+     * Key: category id.
+     */
+    private final Map<Integer, Node> nodes;
+
+    private final Set<Integer> privateIds;
+
+    private CategoryGraph(long version, Map<Integer, Node> nodes) {
+        this.version = version;
+        this.nodes = nodes;
+        this.privateIds = nodes.values().stream()
+            .filter(node -> node.firstEncryptedId != null)
+            .map(node -> node.category.getId())
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Builds a category graph.
+     *
+     * @param version version of the categories
+     * @param categories all categories must not be null
+     * @return category graph
+     */
+    @NonNull
+    public static CategoryGraph build(long version, @NonNull Collection<Category> categories) {
+        Assert.notNull(categories, "Categories must not be null");
+
+        Map<Integer, Node> nodes = new HashMap<>(categories.size() * 4 / 3 + 1);
+        categories.stream()
+            .filter(category -> category.getId() != null)
+            .forEach(category -> nodes.put(category.getId(),
+                new Node(BeanUtils.transformFrom(category, Category.class))));
+
+        // Children are kept in name order, as the category tree is
+        nodes.values().stream()
+            .sorted(Comparator.comparing(node -> node.category, NAME_COMPARATOR))
+            .forEach(node -> {
+                Node parent = nodes.get(node.category.getParentId());
+                if (parent != null && parent != node) {
+                    parent.children.add(node);
+                }
+            });
+
+        nodes.values().forEach(node -> node.ancestorIds = resolveAncestorIds(nodes, node));
+        nodes.values().forEach(node -> {
+            if (isEncrypted(node.category)) {
+                node.firstEncryptedId = node.category.getId();
+                return;
+            }
+            node.firstEncryptedId = node.ancestorIds.stream()
+                .filter(ancestorId -> isEncrypted(nodes.get(ancestorId).category))
+                .findFirst()
+                .orElse(null);
+        });
+        nodes.values().forEach(node -> node.descendantIds = resolveDescendantIds(node));
+
+        return new CategoryGraph(version, Collections.unmodifiableMap(nodes));
+    }
+
+    /**
+     * Gets version of the categories this graph was built from.
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether the category or any of its ancestors is encrypted.
+     *
+     * @param categoryId category id
+     * @return true if the category is private
+     */
+    public boolean isPrivate(@Nullable Integer categoryId) {
+        Node node = categoryId == null ? null : nodes.get(categoryId);
+        return node != null && node.firstEncryptedId != null;
+    }
+
+    /**
+     * Checks whether any of the categories is private.
+     *
+     * @param categoryIds category ids
+     * @return true if a category is private
+     */
+    public boolean isAnyPrivate(@Nullable Collection<Integer> categoryIds) {
+        return categoryIds != null && categoryIds.stream().anyMatch(this::isPrivate);
+    }
+
+    /**
+     * Gets ids of all private categories.
+     *
+     * @return an unmodifiable set of category id
+     */
+    @NonNull
+    public Set<Integer> getPrivateIds() {
+        return privateIds;
+    }
+
+    /**
+     * Looks up the category itself or its nearest ancestor which is encrypted.
+     *
+     * @param categoryId category id
+     * @return a copy of the encrypted category or empty if the category is public
+     */
+    @NonNull
+    public Optional<Category> lookupFirstEncrypted(@Nullable Integer categoryId) {
+        Node node = categoryId == null ? null : nodes.get(categoryId);
+        if (node == null || node.firstEncryptedId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(copy(nodes.get(node.firstEncryptedId)));
+    }
+
+    /**
+     * Gets ids of the ancestors, from the parent up to the root.
+     *
+     * @param categoryId category id
+     * @return an unmodifiable list of ancestor id
+     */
+    @NonNull
+    public List<Integer> getAncestorIds(@Nullable Integer categoryId) {
+        Node node = categoryId == null ? null : nodes.get(categoryId);
+        return node == null ? Collections.emptyList() : node.ancestorIds;
+    }
+
+    /**
+     * Gets ids of the category and all of its descendants, level by level.
+     *
+     * @param categoryId category id
+     * @return an unmodifiable set of category id or empty set if the category does not exist
+     */
+    @NonNull
+    public Set<Integer> getDescendantIds(@Nullable Integer categoryId) {
+        Node node = categoryId == null ? null : nodes.get(categoryId);
+        return node == null ? Collections.emptySet() : node.descendantIds;
+    }
+
+    /**
+     * Lists the category and all of its descendants, level by level.
+     *
+     * @param categoryId category id
+     * @return a list of category copy
+     */
+    @NonNull
+    public List<Category> listDescendants(@Nullable Integer categoryId) {
+        Set<Integer> descendantIds = getDescendantIds(categoryId);
+        List<Category> categories = new ArrayList<>(descendantIds.size());
+        descendantIds.forEach(descendantId -> categories.add(copy(nodes.get(descendantId))));
+        return categories;
+    }
+
+    private static boolean isEncrypted(Category category) {
+        return StringUtils.isNotBlank(category.getPassword());
+    }
+
+    private static Category copy(Node node) {
+        return BeanUtils.transformFrom(node.category, Category.class);
+    }
+
+    private static List<Integer> resolveAncestorIds(Map<Integer, Node> nodes, Node node) {
+        List<Integer> ancestorIds = new ArrayList<>();
+        Set<Integer> visited = new HashSet<>();
+        visited.add(node.category.getId());
+        Node parent = nodes.get(node.category.getParentId());
+        // Stop at a cycle instead of looping forever on broken data
+        while (parent != null && visited.add(parent.category.getId())) {
+            ancestorIds.add(parent.category.getId());
+            parent = nodes.get(parent.category.getParentId());
+        }
+        return Collections.unmodifiableList(ancestorIds);
+    }
+
+    private static Set<Integer> resolveDescendantIds(Node root) {
+        Set<Integer> descendantIds = new LinkedHashSet<>();
+        Queue<Node> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            if (descendantIds.add(node.category.getId())) {
+                queue.addAll(node.children);
+            }
+        }
+        return Collections.unmodifiableSet(descendantIds);
+    }
+
+    private static class Node {
+
+        private final Category category;
+
+        private final List<Node> children = new ArrayList<>();
+
+        private List<Integer> ancestorIds;
+
+        private Integer firstEncryptedId;
+
+        private Set<Integer> descendantIds;
+
+        private Node(Category category) {
+            this.category = Objects.requireNonNull(category);
+        }
+    }
+}
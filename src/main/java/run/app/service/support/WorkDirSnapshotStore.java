@@ -0,0 +1,498 @@
+package run.app.service.support;
+
+import static run.app.utils.FileUtils.checkDirectoryTraversal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.app.exception.NotFoundException;
+import run.app.exception.ServiceException;
+import run.app.model.support.HaloConst;
+import run.app.model.support.WorkDirSnapshot;
+import run.app.utils.FilenameUtils;
+import run.app.utils.JsonUtils;
+
+/**
+ * Content-addressed store of incremental work directory snapshots.
+ *
+ * <p>Files are split into chunks named by the SHA-256 of their content, so a chunk is stored
+ * once no matter how many files or snapshots refer to it. A file whose size and modification
+ * time are unchanged since the latest snapshot reuses the chunks of that snapshot without being
+ * read. Layout of the store:
+ * <pre>
+ * root/
+ *   manifests/halo-snapshot-xxx.json.gz
+ *   chunks/ab/abcdef...     (stored)
+ *   chunks/ab/abcdef....z   (deflated)
+ * </pre>
+ */
+@Slf4j
+public class WorkDirSnapshotStore {
+
+    public static final String SNAPSHOT_PREFIX = "halo-snapshot-";
+
+    private static final String MANIFEST_SUFFIX = ".json.gz";
+
+    private static final String DEFLATED_CHUNK_SUFFIX = ".z";
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Extensions of media which are compressed already, deflating them only costs cpu.
+     */
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+        "jpg", "jpeg", "png", "gif", "webp", "avif", "heic", "ico",
+        "mp3", "m4a", "aac", "ogg", "flac", "opus",
+        "mp4", "m4v", "mov", "webm", "mkv", "avi",
+        "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar",
+        "woff", "woff2", "pdf");
+
+    private static final TypeReference<List<String>> STRING_LIST_TYPE = new TypeReference<>() {
+    };
+
+    private final Path manifestRoot;
+
+    private final Path chunkRoot;
+
+    private final ObjectMapper mapper = JsonUtils.createDefaultJsonMapper();
+
+    public WorkDirSnapshotStore(@NonNull Path root) {
+        Assert.notNull(root, "Snapshot root must not be null");
+        this.manifestRoot = root.resolve("manifests");
+        this.chunkRoot = root.resolve("chunks");
+    }
+
+    /**
+     * Whether the file is an already compressed media by its extension.
+     *
+     * @param fileName file name
+     * @return true if the file should be stored without compression
+     */
+    public static boolean isCompressedMedia(@Nullable String fileName) {
+        return COMPRESSED_EXTENSIONS
+            .contains(StringUtils.lowerCase(FilenameUtils.getExtension(fileName)));
+    }
+
+    /**
+     * Creates a snapshot of the files accepted by the filter. Files are hashed and compressed in
+     * parallel by the executor.
+     *
+     * @param workDir work directory must not be null
+     * @param filter filter of the top level items of the work directory
+     * @param options backup options to record
+     * @param executor executor for hashing and compression
+     * @return the snapshot created, entries included
+     * @throws IOException if failed to access the work directory or the store
+     */
+    @NonNull
+    public synchronized WorkDirSnapshot create(@NonNull Path workDir,
+        @NonNull Predicate<Path> filter, @NonNull List<String> options,
+        @NonNull ExecutorService executor) throws IOException {
+        Assert.notNull(workDir, "Work directory must not be null");
+
+        Map<String, WorkDirSnapshot.Entry> previousEntries = findLatest()
+            .map(this::read)
+            .map(snapshot -> snapshot.getEntries().stream()
+                .collect(Collectors.toMap(WorkDirSnapshot.Entry::getPath, entry -> entry)))
+            .orElse(Collections.emptyMap());
+
+        List<Path> files;
+        try (Stream<Path> pathStream = Files.list(workDir)) {
+            List<Path> items = pathStream.filter(filter).collect(Collectors.toList());
+            files = new ArrayList<>();
+            for (Path item : items) {
+                try (Stream<Path> fileStream = Files.walk(item)) {
+                    fileStream.filter(Files::isRegularFile).forEach(files::add);
+                }
+            }
+        }
+
+        AtomicLong changedFileCount = new AtomicLong();
+        AtomicLong addedSize = new AtomicLong();
+        List<Future<WorkDirSnapshot.Entry>> futures = new ArrayList<>(files.size());
+        files.forEach(file -> futures.add(executor.submit(() -> {
+            String relativePath = toRelativePath(workDir, file);
+            WorkDirSnapshot.Entry previousEntry = previousEntries.get(relativePath);
+            try {
+                return snapshotFile(file, relativePath, previousEntry, changedFileCount,
+                    addedSize);
+            } catch (NoSuchFileException e) {
+                // The file has been deleted while taking snapshot
+                log.debug("Skip file deleted during snapshot: [{}]", file);
+                return null;
+            }
+        })));
+
+        List<WorkDirSnapshot.Entry> entries = new ArrayList<>(files.size());
+        try {
+            for (Future<WorkDirSnapshot.Entry> future : futures) {
+                WorkDirSnapshot.Entry entry = future.get();
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Snapshot was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new ServiceException("Failed to take snapshot of " + workDir, e.getCause());
+        }
+        entries.sort(Comparator.comparing(WorkDirSnapshot.Entry::getPath));
+
+        long createTime = System.currentTimeMillis();
+        WorkDirSnapshot snapshot = new WorkDirSnapshot();
+        snapshot.setName(SNAPSHOT_PREFIX + createTime);
+        snapshot.setVersion(HaloConst.HALO_VERSION);
+        snapshot.setCreateTime(createTime);
+        snapshot.setOptions(options);
+        snapshot.setFileCount(entries.size());
+        snapshot.setTotalSize(entries.stream().mapToLong(WorkDirSnapshot.Entry::getSize).sum());
+        snapshot.setChangedFileCount(changedFileCount.get());
+        snapshot.setAddedSize(addedSize.get());
+        snapshot.setEntries(entries);
+
+        write(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Lists summaries of all snapshots, the newest first. Entries are not loaded.
+     *
+     * @return a list of snapshot without entries
+     * @throws IOException if failed to list manifests
+     */
+    @NonNull
+    public List<WorkDirSnapshot> listSummaries() throws IOException {
+        if (Files.notExists(manifestRoot)) {
+            return Collections.emptyList();
+        }
+        List<WorkDirSnapshot> snapshots = new ArrayList<>();
+        for (String name : listNames()) {
+            snapshots.add(readSummary(name));
+        }
+        snapshots.sort(Comparator.comparing(WorkDirSnapshot::getCreateTime).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Reads the snapshot with entries.
+     *
+     * @param name snapshot name must not be blank
+     * @return the snapshot
+     * @throws NotFoundException if the snapshot does not exist
+     */
+    @NonNull
+    public WorkDirSnapshot read(@NonNull String name) {
+        Path manifestPath = getManifestPath(name);
+        try (InputStream inputStream = openManifest(manifestPath)) {
+            return mapper.readValue(inputStream, WorkDirSnapshot.class);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException("快照 " + name + " 不存在或已删除！")
+                .setErrorData(name);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to read snapshot " + name, e);
+        }
+    }
+
+    /**
+     * Reassembles the snapshot as a zip archive, which has the same layout as a full work
+     * directory backup.
+     *
+     * @param name snapshot name must not be blank
+     * @param rootName name of the root folder in the archive
+     * @param zipPath path of the archive to write
+     * @throws IOException if failed to read chunks or write the archive
+     */
+    public void reassemble(@NonNull String name, @NonNull String rootName, @NonNull Path zipPath)
+        throws IOException {
+        WorkDirSnapshot snapshot = read(name);
+        try (ZipOutputStream zipOut = new ZipOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(zipPath), BUFFER_SIZE))) {
+            zipOut.putNextEntry(new ZipEntry(rootName + "/"));
+            zipOut.closeEntry();
+            for (WorkDirSnapshot.Entry entry : snapshot.getEntries()) {
+                // Deflated chunks belong to compressible files, the others are stored only
+                zipOut.setLevel(entry.isCompressed()
+                    ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+                ZipEntry zipEntry = new ZipEntry(rootName + "/" + entry.getPath());
+                zipEntry.setTime(entry.getLastModified());
+                zipOut.putNextEntry(zipEntry);
+                for (String chunk : entry.getChunks()) {
+                    try (InputStream chunkStream = openChunk(chunk, entry.isCompressed())) {
+                        chunkStream.transferTo(zipOut);
+                    }
+                }
+                zipOut.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Deletes the snapshot and the chunks no longer referred by any snapshot.
+     *
+     * @param name snapshot name must not be blank
+     * @throws IOException if failed to delete the manifest or chunks
+     */
+    public synchronized void delete(@NonNull String name) throws IOException {
+        Path manifestPath = getManifestPath(name);
+        try {
+            Files.delete(manifestPath);
+        } catch (NoSuchFileException e) {
+            throw new NotFoundException("快照 " + name + " 不存在或已删除！")
+                .setErrorData(name);
+        }
+
+        Set<String> referencedChunks = new HashSet<>();
+        for (String remainingName : listNames()) {
+            for (WorkDirSnapshot.Entry entry : read(remainingName).getEntries()) {
+                entry.getChunks().forEach(chunk ->
+                    referencedChunks.add(chunkFileName(chunk, entry.isCompressed())));
+            }
+        }
+        if (Files.notExists(chunkRoot)) {
+            return;
+        }
+        try (Stream<Path> chunkStream = Files.walk(chunkRoot)) {
+            List<Path> orphanChunks = chunkStream
+                .filter(Files::isRegularFile)
+                .filter(path -> !referencedChunks.contains(path.getFileName().toString()))
+                .collect(Collectors.toList());
+            for (Path orphanChunk : orphanChunks) {
+                Files.deleteIfExists(orphanChunk);
+            }
+            log.info("Deleted snapshot: [{}] with [{}] orphan chunks", name, orphanChunks.size());
+        }
+    }
+
+    private WorkDirSnapshot.Entry snapshotFile(Path file, String relativePath,
+        @Nullable WorkDirSnapshot.Entry previousEntry, AtomicLong changedFileCount,
+        AtomicLong addedSize) throws IOException {
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        if (previousEntry != null
+            && previousEntry.getSize() == size
+            && previousEntry.getLastModified() == lastModified
+            && previousEntry.getChunks().stream()
+            .allMatch(chunk -> Files.exists(getChunkPath(chunk, previousEntry.isCompressed())))) {
+            return previousEntry;
+        }
+
+        boolean compressed = !isCompressedMedia(file.getFileName().toString());
+        List<String> chunks = new ArrayList<>();
+        long readSize = 0;
+        byte[] buffer = new byte[(int) Math.min(Math.max(size, 1), CHUNK_SIZE)];
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int length;
+            while ((length = inputStream.readNBytes(buffer, 0, buffer.length)) > 0) {
+                chunks.add(storeChunk(buffer, length, compressed, addedSize));
+                readSize += length;
+            }
+        }
+        changedFileCount.incrementAndGet();
+
+        WorkDirSnapshot.Entry entry = new WorkDirSnapshot.Entry();
+        entry.setPath(relativePath);
+        // The file may be written while reading, keep what was actually stored
+        entry.setSize(readSize);
+        entry.setLastModified(lastModified);
+        entry.setCompressed(compressed);
+        entry.setChunks(chunks);
+        return entry;
+    }
+
+    private String storeChunk(byte[] buffer, int length, boolean compressed, AtomicLong addedSize)
+        throws IOException {
+        MessageDigest digest = newSha256Digest();
+        digest.update(buffer, 0, length);
+        String chunk = Hex.encodeHexString(digest.digest());
+
+        Path chunkPath = getChunkPath(chunk, compressed);
+        if (Files.exists(chunkPath)) {
+            return chunk;
+        }
+
+        Files.createDirectories(chunkPath.getParent());
+        Path tempPath = Files.createTempFile(chunkPath.getParent(), chunk, ".tmp");
+        try {
+            try (OutputStream outputStream = compressed
+                ? new DeflaterOutputStream(Files.newOutputStream(tempPath))
+                : Files.newOutputStream(tempPath)) {
+                outputStream.write(buffer, 0, length);
+            }
+            long chunkSize = Files.size(tempPath);
+            // Other tasks may store the same chunk at the same time, either copy is fine
+            Files.move(tempPath, chunkPath, StandardCopyOption.ATOMIC_MOVE);
+            addedSize.addAndGet(chunkSize);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+        return chunk;
+    }
+
+    private InputStream openChunk(String chunk, boolean compressed) throws IOException {
+        Path chunkPath = getChunkPath(chunk, compressed);
+        try {
+            InputStream inputStream =
+                new BufferedInputStream(Files.newInputStream(chunkPath), BUFFER_SIZE);
+            return compressed ? new InflaterInputStream(inputStream) : inputStream;
+        } catch (NoSuchFileException e) {
+            throw new ServiceException("Chunk " + chunk + " of the snapshot is missing", e);
+        }
+    }
+
+    private void write(WorkDirSnapshot snapshot) throws IOException {
+        Files.createDirectories(manifestRoot);
+        Path manifestPath = getManifestPath(snapshot.getName());
+        Path tempPath = Files.createTempFile(manifestRoot, snapshot.getName(), ".tmp");
+        try {
+            try (OutputStream outputStream = new GZIPOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempPath), BUFFER_SIZE))) {
+                mapper.writeValue(outputStream, snapshot);
+            }
+            Files.move(tempPath, manifestPath, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * Reads fields before the entries only.
+     */
+    private WorkDirSnapshot readSummary(String name) throws IOException {
+        WorkDirSnapshot snapshot = new WorkDirSnapshot();
+        snapshot.setName(name);
+        try (InputStream inputStream = openManifest(getManifestPath(name));
+             JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new ServiceException("Malformed snapshot manifest " + name);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                switch (fieldName) {
+                    case "version":
+                        snapshot.setVersion(parser.getValueAsString());
+                        break;
+                    case "createTime":
+                        snapshot.setCreateTime(parser.getValueAsLong());
+                        break;
+                    case "options":
+                        snapshot.setOptions(mapper.readValue(parser, STRING_LIST_TYPE));
+                        break;
+                    case "fileCount":
+                        snapshot.setFileCount(parser.getValueAsLong());
+                        break;
+                    case "totalSize":
+                        snapshot.setTotalSize(parser.getValueAsLong());
+                        break;
+                    case "changedFileCount":
+                        snapshot.setChangedFileCount(parser.getValueAsLong());
+                        break;
+                    case "addedSize":
+                        snapshot.setAddedSize(parser.getValueAsLong());
+                        break;
+                    case "entries":
+                        return snapshot;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private Optional<String> findLatest() throws IOException {
+        return listSummaries().stream().findFirst().map(WorkDirSnapshot::getName);
+    }
+
+    private List<String> listNames() throws IOException {
+        if (Files.notExists(manifestRoot)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> manifestStream = Files.list(manifestRoot)) {
+            return manifestStream
+                .map(path -> path.getFileName().toString())
+                .filter(fileName -> fileName.startsWith(SNAPSHOT_PREFIX)
+                    && fileName.endsWith(MANIFEST_SUFFIX))
+                .map(fileName -> StringUtils.removeEnd(fileName, MANIFEST_SUFFIX))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private InputStream openManifest(Path manifestPath) throws IOException {
+        return new GZIPInputStream(
+            new BufferedInputStream(Files.newInputStream(manifestPath), BUFFER_SIZE));
+    }
+
+    private Path getManifestPath(String name) {
+        Assert.hasText(name, "Snapshot name must not be blank");
+        Path manifestPath = manifestRoot.resolve(name + MANIFEST_SUFFIX);
+        checkDirectoryTraversal(manifestRoot, manifestPath);
+        return manifestPath;
+    }
+
+    private Path getChunkPath(String chunk, boolean compressed) {
+        return chunkRoot.resolve(chunk.substring(0, 2)).resolve(chunkFileName(chunk, compressed));
+    }
+
+    private static String chunkFileName(String chunk, boolean compressed) {
+        return compressed ? chunk + DEFLATED_CHUNK_SUFFIX : chunk;
+    }
+
+    private static String toRelativePath(Path workDir, Path file) {
+        return StringUtils.replace(workDir.relativize(file).toString(),
+            workDir.getFileSystem().getSeparator(), "/");
+    }
+
+    private static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package run.app.theme;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.app.handler.theme.config.support.ThemeProperty;
+
+/**
+ * In-memory registry of installed themes and the paths of their files.
+ *
+ * <p>The themes directory is scanned once and kept until a change is reported by the watch
+ * service or the registry is invalidated explicitly. Lookups never touch the file system.
+ * If the directories can not be watched, the scan result expires after
+ * {@link #UNWATCHED_MAX_AGE_MILLIS} instead.
+ */
+@Slf4j
+public class ThemeRegistry implements Closeable {
+
+    private static final long UNWATCHED_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Delay to coalesce the burst of events caused by unzipping or copying a theme.
+     */
+    private static final long WATCH_DEBOUNCE_MILLIS = 200;
+
+    private final Path themeRootPath;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    private volatile boolean watching;
+
+    private volatile WatchService watchService;
+
+    public ThemeRegistry(@NonNull Path themeRootPath) {
+        Assert.notNull(themeRootPath, "Theme root path must not be null");
+        this.themeRootPath = themeRootPath;
+    }
+
+    /**
+     * Lists all themes.
+     *
+     * @return an unmodifiable list of theme property
+     */
+    @NonNull
+    public List<ThemeProperty> listAll() {
+        return getSnapshot().themes;
+    }
+
+    /**
+     * Gets theme by id.
+     *
+     * @param themeId theme id
+     * @return an optional theme property
+     */
+    @NonNull
+    public Optional<ThemeProperty> get(@Nullable String themeId) {
+        return Optional.ofNullable(getSnapshot().themeMap.get(themeId));
+    }
+
+    /**
+     * Checks whether the file or folder exists in the theme.
+     *
+     * @param themeId theme id
+     * @param relativePath path relative to the theme folder
+     * @return true if the theme contains the path
+     */
+    public boolean exists(@Nullable String themeId, @Nullable String relativePath) {
+        if (StringUtils.isBlank(relativePath)) {
+            return false;
+        }
+        Set<String> paths = getSnapshot().pathIndex.get(themeId);
+        return paths != null && paths.contains(normalize(relativePath));
+    }
+
+    /**
+     * Discards the scan result, the themes directory will be scanned on the next lookup.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        invalidate();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close theme watch service", e);
+            }
+            watchService = null;
+        }
+        watching = false;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = this.snapshot;
+        if (current != null && (watching
+            || System.currentTimeMillis() - current.createTime < UNWATCHED_MAX_AGE_MILLIS)) {
+            return current;
+        }
+        synchronized (this) {
+            current = this.snapshot;
+            if (current != null && (watching
+                || System.currentTimeMillis() - current.createTime < UNWATCHED_MAX_AGE_MILLIS)) {
+                return current;
+            }
+            long scanGeneration = generation.get();
+            Snapshot scanned = scan();
+            if (generation.get() == scanGeneration) {
+                // Cache it only if nothing has changed during the scan
+                this.snapshot = scanned;
+            }
+            return scanned;
+        }
+    }
+
+    private Snapshot scan() {
+        List<ThemeProperty> themes = ThemePropertyScanner.INSTANCE.scan(themeRootPath, null);
+        startWatching();
+        register(themeRootPath);
+
+        Map<String, ThemeProperty> themeMap = new LinkedHashMap<>();
+        Map<String, Set<String>> pathIndex = new LinkedHashMap<>();
+        themes.forEach(themeProperty -> {
+            themeMap.putIfAbsent(themeProperty.getId(), themeProperty);
+            pathIndex.computeIfAbsent(themeProperty.getId(),
+                themeId -> indexPaths(Path.of(themeProperty.getThemePath())));
+        });
+        log.debug("Scanned [{}] themes in [{}]", themes.size(), themeRootPath);
+        return new Snapshot(Collections.unmodifiableList(themes), themeMap, pathIndex);
+    }
+
+    private Set<String> indexPaths(Path themePath) {
+        try (Stream<Path> pathStream = Files.walk(themePath)) {
+            Set<String> paths = new HashSet<>();
+            pathStream.forEach(path -> {
+                if (Files.isDirectory(path)) {
+                    register(path);
+                }
+                if (!path.equals(themePath)) {
+                    paths.add(normalize(themePath.relativize(path).toString()));
+                }
+            });
+            return Collections.unmodifiableSet(paths);
+        } catch (IOException e) {
+            log.warn("Failed to index theme files of " + themePath, e);
+            return Collections.emptySet();
+        }
+    }
+
+    private synchronized void startWatching() {
+        if (watchService != null) {
+            return;
+        }
+        try {
+            watchService = themeRootPath.getFileSystem().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Failed to watch theme directory, themes will be rescanned periodically", e);
+            return;
+        }
+        WatchService service = watchService;
+        Thread watchThread = new Thread(() -> watch(service), "theme-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        watching = true;
+    }
+
+    private void register(Path directory) {
+        WatchService service = this.watchService;
+        if (service == null) {
+            return;
+        }
+        try {
+            // Registering a watched directory again returns the same key
+            directory.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("Failed to watch theme directory: [{}], themes will be rescanned "
+                + "periodically", directory, e);
+            watching = false;
+        }
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                Thread.sleep(WATCH_DEBOUNCE_MILLIS);
+                do {
+                    key.pollEvents();
+                    // The key of a deleted directory becomes invalid, which is fine
+                    key.reset();
+                } while ((key = service.poll()) != null);
+                log.debug("Theme directory changed, invalidating theme registry");
+                invalidate();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Closed by the registry
+        }
+    }
+
+    private static String normalize(String relativePath) {
+        return StringUtils.removeStart(StringUtils.replace(relativePath, "\\", "/"), "/");
+    }
+
+    private static class Snapshot {
+
+        private final List<ThemeProperty> themes;
+
+        private final Map<String, ThemeProperty> themeMap;
+
+        private final Map<String, Set<String>> pathIndex;
+
+        private final long createTime = System.currentTimeMillis();
+
+        private Snapshot(List<ThemeProperty> themes, Map<String, ThemeProperty> themeMap,
+            Map<String, Set<String>> pathIndex) {
+            this.themes = themes;
+            this.themeMap = themeMap;
+            this.pathIndex = pathIndex;
+        }
+    }
+}
@@ -3,8 +3,11 @@ package run.app.utils;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import lombok.extern.slf4j.Slf4j;
@@ -50,4 +53,45 @@ public class ImageUtils {
             throw new IOException("Failed to read image reader.", e);
         }
     }
+
+    /**
+     * Reads the first image of the file. Large images are subsampled while decoding, so that
+     * the full resolution is never held in memory.
+     *
+     * @param path image file path
+     * @param extension file extension
+     * @param minSize the longer side of the read image is at least twice of it, unless the
+     * image is smaller
+     * @return the image
+     * @throws IOException if the image can not be read
+     */
+    @NonNull
+    public static BufferedImage readSubsampledImage(@NonNull Path path, String extension,
+        int minSize) throws IOException {
+        if (EXTENSION_ICO.equals(extension)) {
+            try (InputStream is = Files.newInputStream(path)) {
+                return getImageFromFile(is, extension);
+            }
+        }
+
+        try (ImageInputStream stream = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readerIterator =
+                stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readerIterator == null || !readerIterator.hasNext()) {
+                throw new IOException("No image reader found for " + path);
+            }
+            ImageReader reader = readerIterator.next();
+            try {
+                reader.setInput(stream, true, true);
+                int longerSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longerSide / (Math.max(1, minSize) * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
 }
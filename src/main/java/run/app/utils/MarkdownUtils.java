@@ -1,5 +1,7 @@
 package run.app.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.vladsch.flexmark.ext.attributes.AttributesExtension;
 import com.vladsch.flexmark.ext.autolink.AutolinkExtension;
 import com.vladsch.flexmark.ext.emoji.EmojiExtension;
@@ -22,12 +24,18 @@ import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.util.data.DataHolder;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
 import run.app.model.support.HaloConst;
 import run.app.utils.footnotes.FootnoteExtension;
 
@@ -74,6 +82,19 @@ public class MarkdownUtils {
     private static final Pattern FRONT_MATTER = Pattern.compile("^(---)?[\\s\\S]*?---");
     private static final Pattern TABLE = Pattern.compile("\\|\\s*:?---");
 
+    /**
+     * Maximum characters of markdown hashes and html kept in the render cache.
+     */
+    private static final long RENDER_CACHE_MAX_CHARS = 8 * 1024 * 1024;
+
+    /**
+     * Rendered html, key: sha-256 of the markdown.
+     */
+    private static final Cache<String, String> RENDER_CACHE = CacheBuilder.newBuilder()
+        .maximumWeight(RENDER_CACHE_MAX_CHARS)
+        .weigher((String hash, String html) -> hash.length() + html.length())
+        .build();
+
     //    /**
     //     * Render html document to markdown document.
     //     *
@@ -95,6 +116,34 @@ public class MarkdownUtils {
             return StringUtils.EMPTY;
         }
 
+        String hash = DigestUtils.sha256Hex(markdown);
+        String html = RENDER_CACHE.getIfPresent(hash);
+        if (html == null) {
+            html = doRenderHtml(markdown);
+            RENDER_CACHE.put(hash, html);
+        }
+        return html;
+    }
+
+    /**
+     * Render Markdown contents in parallel.
+     *
+     * @param markdowns contents
+     * @return html of the contents in the same order
+     */
+    @NonNull
+    public static List<String> renderHtml(@NonNull Collection<String> markdowns) {
+        Assert.notNull(markdowns, "Markdown contents must not be null");
+
+        List<ForkJoinTask<String>> tasks = markdowns.stream()
+            .map(markdown -> RenderPool.INSTANCE.submit(() -> renderHtml(markdown)))
+            .collect(Collectors.toList());
+        return tasks.stream()
+            .map(ForkJoinTask::join)
+            .collect(Collectors.toList());
+    }
+
+    private static String doRenderHtml(String markdown) {
         // Render netease music short url.
         if (markdown.contains(HaloConst.NETEASE_MUSIC_PREFIX)) {
             markdown = markdown
@@ -161,4 +210,13 @@ public class MarkdownUtils {
         }
         return markdown;
     }
+
+    /**
+     * Pool for batch rendering, created on first use.
+     */
+    private static class RenderPool {
+
+        private static final ForkJoinPool INSTANCE =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
 }
@@ -12,8 +12,19 @@ import com.github.difflib.patch.InsertDelta;
 import com.github.difflib.patch.Patch;
 import com.github.difflib.patch.PatchFailedException;
 import com.google.common.base.Splitter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
 
@@ -27,6 +38,11 @@ public class PatchUtils {
 
     private static final Splitter lineSplitter = Splitter.on('\n');
 
+    /**
+     * Prefix of binary patches, which can not be confused with json patches starting with '['.
+     */
+    private static final String BINARY_PATCH_PREFIX = "bin1:";
+
     public static Patch<String> create(String deltasJson) {
         List<Delta> deltas = JsonUtils.jsonToObject(deltasJson, new TypeReference<>() {});
         Patch<String> patch = new Patch<>();
@@ -64,6 +80,9 @@ public class PatchUtils {
     }
 
     public static String restoreContent(String json, String original) {
+        if (isBinaryPatch(json)) {
+            return String.join("\n", applyBinaryPatch(json, breakLine(original)));
+        }
         Patch<String> patch = PatchUtils.create(json);
         try {
             return String.join("\n", patch.applyTo(breakLine(original)));
@@ -77,6 +96,89 @@ public class PatchUtils {
         return PatchUtils.patchToJson(patch);
     }
 
+    /**
+     * Diffs the contents to a binary patch.
+     *
+     * <p>Only the position and length of each replaced source range are kept along with the
+     * revised lines, the result is deflated and Base64 encoded so that it fits a text column.
+     *
+     * @param original original content
+     * @param revised revised content
+     * @return binary patch
+     */
+    public static String diffToBinaryPatch(String original, String revised) {
+        Patch<String> patch = DiffUtils.diff(breakLine(original), breakLine(revised));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(
+            new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED)))) {
+            List<AbstractDelta<String>> deltas = patch.getDeltas();
+            out.writeInt(deltas.size());
+            for (AbstractDelta<String> delta : deltas) {
+                out.writeInt(delta.getSource().getPosition());
+                out.writeInt(delta.getSource().size());
+                List<String> lines = delta.getTarget().getLines();
+                out.writeInt(lines.size());
+                for (String line : lines) {
+                    byte[] lineBytes = line.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(lineBytes.length);
+                    out.write(lineBytes);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return BINARY_PATCH_PREFIX + Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Checks whether the patch was created by {@link #diffToBinaryPatch(String, String)}.
+     *
+     * @param patch patch
+     * @return true if it is a binary patch
+     */
+    public static boolean isBinaryPatch(String patch) {
+        return StringUtils.startsWith(patch, BINARY_PATCH_PREFIX);
+    }
+
+    private static List<String> applyBinaryPatch(String patch, List<String> original) {
+        byte[] bytes = Base64.getDecoder()
+            .decode(patch.substring(BINARY_PATCH_PREFIX.length()));
+        List<Replacement> replacements = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(
+            new InflaterInputStream(new ByteArrayInputStream(bytes)))) {
+            int deltaCount = in.readInt();
+            for (int i = 0; i < deltaCount; i++) {
+                int position = in.readInt();
+                int size = in.readInt();
+                int lineCount = in.readInt();
+                List<String> lines = new ArrayList<>(lineCount);
+                for (int j = 0; j < lineCount; j++) {
+                    byte[] lineBytes = new byte[in.readInt()];
+                    in.readFully(lineBytes);
+                    lines.add(new String(lineBytes, StandardCharsets.UTF_8));
+                }
+                replacements.add(new Replacement(position, size, lines));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed binary patch.", e);
+        }
+
+        // Replace from the end so that the positions of earlier ranges still hold
+        List<String> result = new ArrayList<>(original);
+        for (int i = replacements.size() - 1; i >= 0; i--) {
+            Replacement replacement = replacements.get(i);
+            if (replacement.position < 0
+                || replacement.position + replacement.size > result.size()) {
+                throw new IllegalArgumentException("The patch does not match the content.");
+            }
+            List<String> range =
+                result.subList(replacement.position, replacement.position + replacement.size);
+            range.clear();
+            range.addAll(replacement.lines);
+        }
+        return result;
+    }
+
     public static List<String> breakLine(String content) {
         if (StringUtils.isBlank(content)) {
             return Collections.emptyList();
@@ -97,4 +199,16 @@ public class PatchUtils {
         private List<String> lines;
         private List<Integer> changePosition;
     }
+
+    private static class Replacement {
+        private final int position;
+        private final int size;
+        private final List<String> lines;
+
+        private Replacement(int position, int size, List<String> lines) {
+            this.position = position;
+            this.size = size;
+            this.lines = lines;
+        }
+    }
 }